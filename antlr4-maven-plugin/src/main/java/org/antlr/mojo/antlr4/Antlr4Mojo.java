@@ -7,10 +7,12 @@
 package org.antlr.mojo.antlr4;
 
 import org.antlr.v4.Tool;
+import org.antlr.v4.ToolClient;
 import org.antlr.v4.codegen.CodeGenerator;
 import org.antlr.v4.runtime.misc.MultiMap;
 import org.antlr.v4.runtime.misc.Utils;
 import org.antlr.v4.tool.Grammar;
+import org.apache.maven.model.Resource;
 import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
@@ -28,15 +30,16 @@ import org.codehaus.plexus.compiler.util.scan.mapping.SourceMapping;
 import org.codehaus.plexus.compiler.util.scan.mapping.SuffixMapping;
 import org.sonatype.plexus.build.incremental.BuildContext;
 
-import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.io.OutputStreamWriter;
 import java.io.StringWriter;
 import java.io.Writer;
+import java.net.ConnectException;
 import java.net.URI;
 import java.nio.charset.Charset;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -105,6 +108,14 @@ public class Antlr4Mojo extends AbstractMojo {
 	@Parameter(property = "antlr4.forceATN", defaultValue = "false")
 	protected boolean forceATN;
 
+	/**
+	 * Store the serialized ATN of each recognizer in a binary {@code .atn}
+	 * resource next to it instead of string constants in the generated code.
+	 * The output directory is then also added as a resource directory.
+	 */
+	@Parameter(property = "antlr4.binaryATN", defaultValue = "false")
+	protected boolean binaryATN;
+
 	/**
 	 * A list of grammar options to explicitly specify to the tool. These
 	 * options are passed to the tool using the
@@ -119,6 +130,25 @@ public class Antlr4Mojo extends AbstractMojo {
 	@Parameter
 	protected List<String> arguments;
 
+	/**
+	 * If non-zero, process the grammars in an ANTLR tool server
+	 * ({@code org.antlr.v4.ToolServer}) listening on this local port instead
+	 * of in the Maven process. The plugin falls back to processing them
+	 * in-process if no server is running. Files are then written by the
+	 * server with the input encoding, and messages are only logged. The
+	 * server must run as the same user, since requests are authenticated
+	 * with the token the server writes to {@code ~/.antlr4-server-<port>.token}.
+	 */
+	@Parameter(property = "antlr4.serverPort", defaultValue = "0")
+	protected int serverPort;
+
+	/**
+	 * Process independent grammars concurrently, as with the tool's
+	 * {@code -Xparallel} option.
+	 */
+	@Parameter(property = "antlr4.parallel", defaultValue = "false")
+	protected boolean parallel;
+
     /* --------------------------------------------------------------------
      * The following are Maven specific parameters, rather than specific
      * options that the ANTLR tool can use.
@@ -203,6 +233,18 @@ public class Antlr4Mojo extends AbstractMojo {
 		else {
 			project.addCompileSourceRoot(outputDir.getPath());
 		}
+
+		if (binaryATN) {
+			Resource resource = new Resource();
+			resource.setDirectory(outputDir.getPath());
+			resource.addInclude("**/*.atn");
+			if (generateTestSources) {
+				project.addTestResource(resource);
+			}
+			else {
+				project.addResource(resource);
+			}
+		}
     }
 
     /**
@@ -253,7 +295,14 @@ public class Antlr4Mojo extends AbstractMojo {
             outputDir.mkdirs();
         }
 
-        GrammarDependencies dependencies = new GrammarDependencies(sourceDirectory, libDirectory, arguments, getDependenciesStatusFile(), getLog());
+        List<String> commandArguments = getCommandArguments();
+
+        // anything that changes the output of every grammar
+        List<String> configuration = new ArrayList<String>(commandArguments);
+        configuration.add(Tool.VERSION);
+        configuration.add(outputEncoding);
+
+        GrammarDependencies dependencies = new GrammarDependencies(sourceDirectory, libDirectory, arguments, configuration, getDependenciesStatusFile(), getLog());
 
 		// Now pick up all the files and process them with the Tool
 		//
@@ -262,10 +311,9 @@ public class Antlr4Mojo extends AbstractMojo {
         Set<File> grammarFiles;
         Set<File> importGrammarFiles;
         try {
-			List<String> args = getCommandArguments();
             grammarFiles = getGrammarFiles(sourceDirectory);
             importGrammarFiles = getImportFiles(sourceDirectory);
-            argumentSets = processGrammarFiles(args, grammarFiles, dependencies, sourceDirectory);
+            argumentSets = processGrammarFiles(commandArguments, grammarFiles, dependencies, sourceDirectory);
         } catch (Exception e) {
             log.error(e);
             throw new MojoExecutionException("Fatal error occured while evaluating the names of the grammar files to analyze", e);
@@ -290,8 +338,13 @@ public class Antlr4Mojo extends AbstractMojo {
                 throw new MojoFailureException("Dependency analysis failed.", e);
             }
 
+			if (serverPort != 0 && processWithToolServer(args)) {
+				continue;
+			}
+
 			// Set working directory for ANTLR to be the base source directory
 			tool.inputDirectory = sourceDirectory;
+			tool.parallel = parallel;
 
 			tool.processGrammarsOnCommandLine();
 
@@ -314,6 +367,49 @@ public class Antlr4Mojo extends AbstractMojo {
         }
     }
 
+	/**
+	 * Process the grammars with a {@link ToolClient}.
+	 *
+	 * @return {@code false} if no tool server is running
+	 */
+	private boolean processWithToolServer(List<String> args) throws MojoExecutionException {
+		final Log log = getLog();
+		List<String> serverArgs = new ArrayList<String>(args);
+		// .tokens files go to the output directory itself, as CustomTool writes them
+		serverArgs.add(0, "-Xtokens-in-output-dir");
+
+		int errors;
+		try {
+			errors = new ToolClient(serverPort).run(sourceDirectory, serverArgs, new ToolClient.Listener() {
+				@Override
+				public void info(String msg) {
+					log.info(msg);
+				}
+
+				@Override
+				public void error(String msg) {
+					log.error(msg);
+				}
+
+				@Override
+				public void warning(String msg) {
+					log.warn(msg);
+				}
+			});
+		} catch (ConnectException e) {
+			log.warn("No ANTLR tool server is listening on port " + serverPort + "; processing grammars in-process");
+			return false;
+		} catch (IOException e) {
+			throw new MojoExecutionException("Communication with the ANTLR tool server failed", e);
+		}
+
+		buildContext.refresh(getOutputDirectory());
+		if (errors > 0) {
+			throw new MojoExecutionException("ANTLR 4 caught " + errors + " build errors.");
+		}
+		return true;
+	}
+
 	private List<String> getCommandArguments() {
 		List<String> args = new ArrayList<String>();
 
@@ -358,6 +454,10 @@ public class Antlr4Mojo extends AbstractMojo {
 			args.add("-Werror");
 		}
 
+		if (binaryATN) {
+			args.add("-Xbinary-atn");
+		}
+
 		if (forceATN) {
 			args.add("-Xforce-atn");
 		}
@@ -387,15 +487,16 @@ public class Antlr4Mojo extends AbstractMojo {
         File sourceDirectory) throws InclusionScanException, IOException {
 
         // We don't want the plugin to run for every grammar, regardless of whether
-        // it's changed since the last compilation. Check the mtime of the tokens vs
-        // the grammar file mtime to determine whether we even need to execute.
+        // it's changed since the last compilation. Compare the content of the grammar
+        // with that of the last build rather than the mtimes, which change whenever
+        // the sources are checked out or copied again.
         Set<File> grammarFilesToProcess = new HashSet<File>();
 
         for (File grammarFile : grammarFiles) {
             String tokensFileName = grammarFile.getName().split("\\.")[0] + ".tokens";
             File outputFile = new File(outputDirectory, tokensFileName);
             if ( (! outputFile.exists()) ||
-                 outputFile.lastModified() <= grammarFile.lastModified() ||
+                 dependencies.isGrammarChanged(grammarFile) ||
                  dependencies.isDependencyChanged(grammarFile)) {
                 grammarFilesToProcess.add(grammarFile);
             }
@@ -523,6 +624,18 @@ public class Antlr4Mojo extends AbstractMojo {
 			if (outputDirectory == null) {
 				return new StringWriter();
 			}
+			return new OutputFileWriter(getOutputFile(g, fileName));
+		}
+
+		@Override
+		public OutputStream getOutputFileStream(Grammar g, String fileName) throws IOException {
+			if (outputDirectory == null) {
+				return new ByteArrayOutputStream();
+			}
+			return new OutputFileStream(getOutputFile(g, fileName));
+		}
+
+		private File getOutputFile(Grammar g, String fileName) {
 			// output directory is a function of where the grammar file lives
 			// for subdir/T.g4, you get subdir here.  Well, depends on -o etc...
 			// But, if this is a .tokens file, then we force the output to
@@ -541,15 +654,74 @@ public class Antlr4Mojo extends AbstractMojo {
 				outputDir.mkdirs();
 			}
 
-			URI relativePath = project.getBasedir().toURI().relativize(outputFile.toURI());
-			getLog().debug("  Writing file: " + relativePath);
-			OutputStream outputStream = buildContext.newFileOutputStream(outputFile);
-			if ( outputEncoding!=null && !outputEncoding.isEmpty()) {
-				return new BufferedWriter(new OutputStreamWriter(outputStream, outputEncoding));
+			return outputFile;
+		}
+	}
+
+	/**
+	 * Writes the generated content to the file unless it is already there, so that
+	 * unchanged files keep their mtime and don't trigger recompilation of the
+	 * generated sources.
+	 */
+	private void writeIfChanged(File outputFile, byte[] content) throws IOException {
+		URI relativePath = project.getBasedir().toURI().relativize(outputFile.toURI());
+		if (outputFile.isFile() && Arrays.equals(content, Files.readAllBytes(outputFile.toPath()))) {
+			getLog().debug("  Unchanged file: " + relativePath);
+			return;
+		}
+
+		getLog().debug("  Writing file: " + relativePath);
+		// grammars may be processed concurrently
+		synchronized (buildContext) {
+			try (OutputStream outputStream = buildContext.newFileOutputStream(outputFile)) {
+				outputStream.write(content);
 			}
-			else {
-				return new BufferedWriter(new OutputStreamWriter(outputStream));
+		}
+	}
+
+	/**
+	 * Collects the generated text for {@link #writeIfChanged}.
+	 */
+	private final class OutputFileWriter extends StringWriter {
+		private final File outputFile;
+		private boolean closed;
+
+		public OutputFileWriter(File outputFile) {
+			this.outputFile = outputFile;
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (closed) {
+				return;
+			}
+			closed = true;
+
+			byte[] content = (outputEncoding != null && !outputEncoding.isEmpty())
+				? toString().getBytes(outputEncoding)
+				: toString().getBytes();
+			writeIfChanged(outputFile, content);
+		}
+	}
+
+	/**
+	 * Collects binary output for {@link #writeIfChanged}.
+	 */
+	private final class OutputFileStream extends ByteArrayOutputStream {
+		private final File outputFile;
+		private boolean closed;
+
+		public OutputFileStream(File outputFile) {
+			this.outputFile = outputFile;
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (closed) {
+				return;
 			}
+			closed = true;
+			writeIfChanged(outputFile, toByteArray());
 		}
 	}
 
@@ -14,6 +14,7 @@ import org.antlr.v4.tool.ast.GrammarAST;
 import org.antlr.v4.tool.ast.GrammarRootAST;
 import org.apache.maven.plugin.logging.Log;
 
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
@@ -24,6 +25,7 @@ import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -40,14 +42,30 @@ class GrammarDependencies {
 
     /** Map grammars to their checksum and references. */
     private final Map<File, Map.Entry<byte[], Collection<String>>> grammars;
+    /** Map grammars to their checksum when they were last processed. */
+    private final Map<File, byte[]> checksums = new HashMap<File, byte[]>();
+    /** The checksum of the plugin configuration. */
+    private final byte[] configuration;
+    /** The checksum of the plugin configuration of the last build. */
+    private byte[] previousConfiguration;
     private final Log log;
 
     public GrammarDependencies(File sourceDirectory, File libDirectory,
         List<String> arguments, File status, Log log) {
+        this(sourceDirectory, libDirectory, arguments, Collections.<String>emptyList(), status, log);
+    }
+
+    /**
+     * @param   configuration  everything else that affects the generated files,
+     *                         such as the tool arguments and version.
+     */
+    public GrammarDependencies(File sourceDirectory, File libDirectory,
+        List<String> arguments, List<String> configuration, File status, Log log) {
         this.log = log;
         this.sourceDirectory = sourceDirectory;
         this.libDirectory = libDirectory;
         this.statusFile = status;
+        this.configuration = MojoUtils.checksum(configuration.toString());
         this.grammars = loadStatus(status);
         this.packageName = getPackage(arguments);
     }
@@ -70,7 +88,7 @@ class GrammarDependencies {
     }
 
     public void save() throws IOException {
-        if (!grammars.isEmpty()) {
+        if (!grammars.isEmpty() || !checksums.isEmpty()) {
             log.debug("Persisting grammars dependency status: " + statusFile);
 
             ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(
@@ -78,6 +96,8 @@ class GrammarDependencies {
 
             try {
                 out.writeObject(grammars);
+                out.writeObject(checksums);
+                out.writeObject(configuration);
             } finally {
                 out.close();
             }
@@ -109,6 +129,8 @@ class GrammarDependencies {
         }
 
         for (File grammarFile : grammarFiles) {
+            checksums.put(grammarFile, MojoUtils.checksum(grammarFile));
+
             Collection<String> usages = findUsages(getRelativePath(grammarFile));
 
             if (!usages.isEmpty()) {
@@ -137,6 +159,25 @@ class GrammarDependencies {
     }
 
 
+    /**
+     * Determines whether the content of the given grammar or the plugin configuration
+     * changed since the last build. Unlike timestamps, checksums are not affected by
+     * checking out the same files again.
+     *
+     * @param   grammarFile  the grammar.
+     *
+     * @return  {@code true} if the grammar has to be processed again.
+     */
+    public boolean isGrammarChanged(File grammarFile) throws IOException {
+        if (!Arrays.equals(configuration, previousConfiguration)) {
+            log.debug("  " + getRelativePath(grammarFile) + ": configuration changed");
+            return true;
+        }
+
+        byte[] checksum = checksums.get(grammarFile);
+        return checksum == null || !Arrays.equals(MojoUtils.checksum(grammarFile), checksum);
+    }
+
     /**
      * Determines whether a grammar used by the given grammar was modified since the last
      * build.
@@ -292,6 +333,17 @@ class GrammarDependencies {
                         (Map<File, Map.Entry<byte[], Collection<String>>>)
                         in.readObject();
 
+                    // status files of older versions end here, in which
+                    // case all grammars are processed once
+                    try {
+                        @SuppressWarnings("unchecked")
+                        Map<File, byte[]> grammarChecksums = (Map<File, byte[]>) in.readObject();
+                        checksums.putAll(grammarChecksums);
+                        previousConfiguration = (byte[]) in.readObject();
+                    } catch (EOFException ex) {
+                        log.debug("No grammar checksums in " + statusFile);
+                    }
+
                     return data;
                 } finally {
                     in.close();
@@ -10,6 +10,7 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 
@@ -48,6 +49,23 @@ class MojoUtils {
         }
     }
 
+    /**
+     * Creates the MD5 checksum for the given text.
+     *
+     * @param   text  the text.
+     *
+     * @return  the checksum.
+     */
+    public static byte[] checksum(String text) {
+        try {
+            return MessageDigest.getInstance("MD5").digest(text.getBytes("UTF-8"));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        } catch (UnsupportedEncodingException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
     /**
      * Given the source directory File object and the full PATH to a grammar, produce the
      * path to the named grammar file in relative terms to the {@code sourceDirectory}.
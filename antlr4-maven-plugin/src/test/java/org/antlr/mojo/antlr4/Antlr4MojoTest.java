@@ -21,9 +21,12 @@ import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
 import java.util.Arrays;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertTrue;
 
 
@@ -336,6 +339,65 @@ public class Antlr4MojoTest {
         }
     }
 
+    @Test
+    public void processOnlyChangedContent() throws Exception {
+        Path baseDir = resources.getBasedir("importsStandard").toPath();
+        Path antlrDir = baseDir.resolve("src/main/antlr4");
+        Path generatedSources = baseDir.resolve("target/generated-sources/antlr4");
+
+        Path genTestLexer = generatedSources.resolve("test/TestLexer.java");
+        Path genTestParser = generatedSources.resolve("test/TestParser.java");
+
+        Path lexerGrammar = antlrDir.resolve("test/TestLexer.g4");
+        Path parserGrammar = antlrDir.resolve("test/TestParser.g4");
+
+        MavenProject project = maven.readMavenProject(baseDir.toFile());
+        MavenSession session = maven.newMavenSession(project);
+        MojoExecution exec = maven.newMojoExecution("antlr4");
+
+        maven.executeMojo(session, project, exec);
+
+        // backdate the generated files so that any rewrite shows
+        FileTime past = FileTime.fromMillis(System.currentTimeMillis() - 3600000);
+        Files.setLastModifiedTime(genTestLexer, past);
+        Files.setLastModifiedTime(genTestParser, past);
+
+        ////////////////////////////////////////////////////////////////////////
+        // 1st - touching the grammars doesn't cause them to be processed
+        ////////////////////////////////////////////////////////////////////////
+
+        FileTime future = FileTime.fromMillis(System.currentTimeMillis() + 3600000);
+        Files.setLastModifiedTime(lexerGrammar, future);
+        Files.setLastModifiedTime(parserGrammar, future);
+
+        maven.executeMojo(session, project, exec);
+
+        assertEquals(past, Files.getLastModifiedTime(genTestLexer));
+        assertEquals(past, Files.getLastModifiedTime(genTestParser));
+
+        ////////////////////////////////////////////////////////////////////////
+        // 2nd - a change that doesn't affect the output leaves the files alone
+        ////////////////////////////////////////////////////////////////////////
+
+        try(Change change = Change.of(parserGrammar, "// comment\n")) {
+            maven.executeMojo(session, project, exec);
+
+            assertEquals(past, Files.getLastModifiedTime(genTestLexer));
+            assertEquals(past, Files.getLastModifiedTime(genTestParser));
+        }
+
+        ////////////////////////////////////////////////////////////////////////
+        // 3rd - only the files that differ are written
+        ////////////////////////////////////////////////////////////////////////
+
+        try(Change change = Change.of(parserGrammar, " t : WS* ;")) {
+            maven.executeMojo(session, project, exec);
+
+            assertEquals(past, Files.getLastModifiedTime(genTestLexer));
+            assertNotEquals(past, Files.getLastModifiedTime(genTestParser));
+        }
+    }
+
     private byte[] checksum(Path path) throws IOException {
         return MojoUtils.checksum(path.toFile());
     }
@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v4.benchmarks;
+
+import org.antlr.v4.benchmarks.java.JavaLexer;
+import org.antlr.v4.benchmarks.java.JavaParser;
+import org.antlr.v4.runtime.atn.ATN;
+import org.antlr.v4.runtime.atn.ATNDeserializer;
+import org.antlr.v4.runtime.atn.ATNSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/** Deserializing the ATN of the Java grammar from the string form embedded
+ *  in generated recognizers and from the binary form written with
+ *  {@code -Xbinary-atn}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ATNDeserializerBenchmark {
+	@Param({"parser", "lexer"})
+	public String recognizer;
+
+	private char[] chars;
+	private ByteBuffer bytes;
+
+	@Setup
+	public void setup() {
+		String serialized = "lexer".equals(recognizer) ? JavaLexer._serializedATN : JavaParser._serializedATN;
+		chars = serialized.toCharArray();
+		ATN atn = new ATNDeserializer().deserialize(chars);
+		byte[] data = ATNSerializer.getSerializedAsBytes(atn);
+		bytes = ByteBuffer.allocateDirect(data.length);
+		bytes.put(data).flip();
+	}
+
+	@Benchmark
+	public ATN fromString() {
+		return new ATNDeserializer().deserialize(chars);
+	}
+
+	@Benchmark
+	public ATN fromBytes() {
+		return new ATNDeserializer().deserialize(bytes);
+	}
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v4.benchmarks;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/** The stored results that a {@link RegressionSuite} run is compared
+ *  against, one {@code workload.metric=value} property per measurement.
+ *  Throughput is higher-is-better; the other metrics are lower-is-better.
+ */
+public class Baseline {
+	public static final String THROUGHPUT = "throughput";
+	public static final String ALLOCATION = "allocatedBytesPerOp";
+	public static final String DFA_STATES = "dfaStates";
+
+	/** The result of comparing one metric with its baseline. */
+	public static class Check {
+		public final String workload;
+		public final String metric;
+		public final double baseline;
+		public final double actual;
+		public final double tolerance;
+
+		public Check(String workload, String metric, double baseline, double actual, double tolerance) {
+			this.workload = workload;
+			this.metric = metric;
+			this.baseline = baseline;
+			this.actual = actual;
+			this.tolerance = tolerance;
+		}
+
+		/** The relative change from the baseline; positive is an increase. */
+		public double getChange() {
+			if ( baseline==0 ) return actual==0 ? 0 : Double.POSITIVE_INFINITY;
+			return (actual - baseline) / baseline;
+		}
+
+		public boolean isRegression() {
+			if ( metric.equals(THROUGHPUT) ) {
+				return getChange() < -tolerance;
+			}
+			return getChange() > tolerance;
+		}
+	}
+
+	protected final Map<String, Double> values = new TreeMap<String, Double>();
+
+	public static Baseline load(File file) throws IOException {
+		Baseline baseline = new Baseline();
+		if ( !file.exists() ) return baseline;
+
+		Properties properties = new Properties();
+		try (InputStream in = new FileInputStream(file)) {
+			properties.load(in);
+		}
+		for (String key : properties.stringPropertyNames()) {
+			baseline.values.put(key, Double.valueOf(properties.getProperty(key)));
+		}
+		return baseline;
+	}
+
+	public void save(File file, String comment) throws IOException {
+		// Properties would store the entries in hash order
+		StringBuilder buf = new StringBuilder();
+		buf.append("# ").append(comment).append('\n');
+		for (Map.Entry<String, Double> entry : values.entrySet()) {
+			buf.append(entry.getKey()).append('=').append(format(entry.getValue())).append('\n');
+		}
+		try (OutputStream out = new FileOutputStream(file)) {
+			out.write(buf.toString().getBytes("ISO-8859-1"));
+		}
+	}
+
+	public boolean isEmpty() {
+		return values.isEmpty();
+	}
+
+	public Double get(String workload, String metric) {
+		return values.get(workload + "." + metric);
+	}
+
+	public void put(String workload, String metric, double value) {
+		values.put(workload + "." + metric, value);
+	}
+
+	/** Compare the given measurement with the stored one, if any.
+	 *
+	 *  @return the checks, which are empty if the workload has no baseline
+	 */
+	public List<Check> compare(String workload, Map<String, Double> actual, Map<String, Double> tolerances) {
+		List<Check> checks = new ArrayList<Check>();
+		for (Map.Entry<String, Double> entry : actual.entrySet()) {
+			String metric = entry.getKey();
+			Double expected = get(workload, metric);
+			if ( expected==null || entry.getValue()<0 ) continue;
+			checks.add(new Check(workload, metric, expected, entry.getValue(), tolerances.get(metric)));
+		}
+		return checks;
+	}
+
+	static String format(double value) {
+		if ( value==Math.rint(value) && Math.abs(value)<1e15 ) {
+			return Long.toString((long)value);
+		}
+		return String.format(Locale.ROOT, "%.3f", value);
+	}
+}
@@ -0,0 +1,26 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v4.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/** Runs the runtime benchmarks with JMH's usual command line, e.g.
+ *  {@code java -jar benchmarks.jar Lexer -f 1}, plus allocation profiling:
+ *  the GC profiler is always added so that every result also reports
+ *  {@code gc.alloc.rate.norm}, the bytes allocated per operation.
+ */
+public class Benchmarks {
+	public static void main(String[] args) throws Exception {
+		new Runner(new OptionsBuilder()
+			.parent(new CommandLineOptions(args))
+			.addProfiler(GCProfiler.class)
+			.build()).run();
+	}
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v4.benchmarks;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CharStreams;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/** Decoding the whole corpus into {@link CharStream}s. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CharStreamsBenchmark {
+	private List<Corpus.Document> corpus;
+
+	@Setup
+	public void setup() throws IOException {
+		corpus = Corpus.load();
+	}
+
+	@Benchmark
+	public void fromString(Blackhole bh) {
+		for (Corpus.Document doc : corpus) {
+			bh.consume(CharStreams.fromString(doc.getText(), doc.name));
+		}
+	}
+
+	@Benchmark
+	public void fromStream(Blackhole bh) throws IOException {
+		for (Corpus.Document doc : corpus) {
+			bh.consume(CharStreams.fromStream(new ByteArrayInputStream(doc.bytes), Corpus.UTF8));
+		}
+	}
+}
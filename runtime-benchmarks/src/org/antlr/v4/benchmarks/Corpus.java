@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v4.benchmarks;
+
+import org.antlr.v4.benchmarks.java.JavaLexer;
+import org.antlr.v4.benchmarks.java.JavaParser;
+import org.antlr.v4.runtime.BailErrorStrategy;
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.DefaultErrorStrategy;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/** The Java source files bundled with the benchmarks (the runtime sources
+ *  of a fixed ANTLR release, see {@code corpus.version} in the pom) and
+ *  helpers to lex and parse them with the bundled Java grammar.
+ */
+public class Corpus {
+	public static final String RESOURCE_DIR = "org/antlr/v4/benchmarks/corpus/";
+
+	/** Where the texts used by TimeLexerSpeed are. */
+	public static final String PERF_DIR = "org/antlr/v4/benchmarks/perf/";
+
+	public static final Charset UTF8 = Charset.forName("UTF-8");
+
+	/** A corpus file as raw bytes, so that benchmarks can measure decoding. */
+	public static class Document {
+		public final String name;
+		public final byte[] bytes;
+
+		public Document(String name, byte[] bytes) {
+			this.name = name;
+			this.bytes = bytes;
+		}
+
+		public String getText() {
+			return new String(bytes, UTF8);
+		}
+
+		public CharStream getCharStream() {
+			return CharStreams.fromString(getText(), name);
+		}
+	}
+
+	private static List<Document> documents;
+
+	/** Load the corpus once per JVM; the order is stable across runs. */
+	public static synchronized List<Document> load() throws IOException {
+		if ( documents==null ) {
+			List<Document> result = new ArrayList<Document>();
+			for (String name : listResources()) {
+				result.add(new Document(name, readResource(RESOURCE_DIR + name)));
+			}
+			documents = Collections.unmodifiableList(result);
+		}
+		return documents;
+	}
+
+	/** Load one of the files in {@link #RESOURCE_DIR}, e.g. {@code Parser.java}. */
+	public static Document loadSource(String name) throws IOException {
+		return new Document(name, readResource(RESOURCE_DIR + name));
+	}
+
+	/** Load one of the files in {@link #PERF_DIR}, e.g. {@code udhr_hin.txt}. */
+	public static Document loadText(String name) throws IOException {
+		return new Document(name, readResource(PERF_DIR + name));
+	}
+
+	/** Tokenize {@code doc} completely. */
+	public static CommonTokenStream lex(Document doc) {
+		CommonTokenStream tokens = new CommonTokenStream(new JavaLexer(doc.getCharStream()));
+		tokens.fill();
+		return tokens;
+	}
+
+	/** Parse {@code tokens} with the usual two-stage strategy: SLL first and,
+	 *  if that reports a syntax error, LL.
+	 */
+	public static JavaParser.CompilationUnitContext parse(CommonTokenStream tokens) {
+		JavaParser parser = new JavaParser(tokens);
+		parser.removeErrorListeners();
+		parser.setErrorHandler(new BailErrorStrategy());
+		parser.getInterpreter().setPredictionMode(PredictionMode.SLL);
+		try {
+			return parser.compilationUnit();
+		}
+		catch (ParseCancellationException ex) {
+			tokens.seek(0);
+			parser.reset();
+			parser.setErrorHandler(new DefaultErrorStrategy());
+			parser.getInterpreter().setPredictionMode(PredictionMode.LL);
+			return parser.compilationUnit();
+		}
+	}
+
+	private static List<String> listResources() throws IOException {
+		URL url = Corpus.class.getClassLoader().getResource(RESOURCE_DIR);
+		if ( url==null ) {
+			throw new IOException("missing benchmark corpus "+RESOURCE_DIR);
+		}
+
+		List<String> names = new ArrayList<String>();
+		if ( url.getProtocol().equals("jar") ) {
+			JarFile jar = ((JarURLConnection)url.openConnection()).getJarFile();
+			Enumeration<JarEntry> entries = jar.entries();
+			while ( entries.hasMoreElements() ) {
+				String name = entries.nextElement().getName();
+				if ( name.startsWith(RESOURCE_DIR) && name.endsWith(".java") ) {
+					names.add(name.substring(RESOURCE_DIR.length()));
+				}
+			}
+		}
+		else {
+			try {
+				String[] files = new File(url.toURI()).list();
+				if ( files!=null ) {
+					for (String name : files) {
+						if ( name.endsWith(".java") ) names.add(name);
+					}
+				}
+			}
+			catch (URISyntaxException ex) {
+				throw new IOException(ex);
+			}
+		}
+
+		Collections.sort(names);
+		return names;
+	}
+
+	private static byte[] readResource(String name) throws IOException {
+		InputStream in = Corpus.class.getClassLoader().getResourceAsStream(name);
+		if ( in==null ) {
+			throw new IOException("missing benchmark resource "+name);
+		}
+		try {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] buffer = new byte[8192];
+			int n;
+			while ( (n = in.read(buffer))>=0 ) {
+				out.write(buffer, 0, n);
+			}
+			return out.toByteArray();
+		}
+		finally {
+			in.close();
+		}
+	}
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v4.benchmarks;
+
+import org.antlr.v4.benchmarks.java.JavaLexer;
+import org.antlr.v4.runtime.Token;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/** Tokenizing the whole corpus, i.e. {@code LexerATNSimulator.match}. With
+ *  {@code dfa=cold} the shared lexer DFA is cleared first, so each
+ *  operation also pays for building it from the ATN.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class LexerBenchmark {
+	@Param({"warm", "cold"})
+	public String dfa;
+
+	private List<Corpus.Document> corpus;
+	private JavaLexer lexer;
+
+	@Setup
+	public void setup() throws IOException {
+		corpus = Corpus.load();
+		lexer = new JavaLexer(null);
+		// fill the DFA before measuring the warm case
+		lex();
+	}
+
+	@Benchmark
+	public int lex() {
+		if ( "cold".equals(dfa) ) {
+			lexer.getInterpreter().clearDFA();
+		}
+
+		int count = 0;
+		for (Corpus.Document doc : corpus) {
+			lexer.setInputStream(doc.getCharStream());
+			while ( lexer.nextToken().getType()!=Token.EOF ) {
+				count++;
+			}
+		}
+		return count;
+	}
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v4.benchmarks;
+
+import org.antlr.v4.benchmarks.java.JavaParser;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/** Parsing the pre-lexed corpus, which is dominated by
+ *  {@code ParserATNSimulator.adaptivePredict}, in SLL and LL prediction
+ *  mode. With {@code dfa=cold} the shared parser DFA is cleared first, so
+ *  each operation also pays for ATN simulation and DFA construction.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ParserBenchmark {
+	@Param({"SLL", "LL"})
+	public PredictionMode predictionMode;
+
+	@Param({"warm", "cold"})
+	public String dfa;
+
+	private List<CommonTokenStream> tokenStreams;
+	private JavaParser parser;
+
+	@Setup
+	public void setup() throws IOException {
+		tokenStreams = new ArrayList<CommonTokenStream>();
+		for (Corpus.Document doc : Corpus.load()) {
+			tokenStreams.add(Corpus.lex(doc));
+		}
+
+		parser = new JavaParser(null);
+		parser.removeErrorListeners();
+		parser.getInterpreter().setPredictionMode(predictionMode);
+		// start from a DFA filled in this prediction mode
+		parser.getInterpreter().clearDFA();
+		parse();
+	}
+
+	@Benchmark
+	public int parse() {
+		if ( "cold".equals(dfa) ) {
+			parser.getInterpreter().clearDFA();
+		}
+
+		int count = 0;
+		for (CommonTokenStream tokens : tokenStreams) {
+			tokens.seek(0);
+			parser.setInputStream(tokens);
+			ParseTree tree = parser.compilationUnit();
+			count += tree.getChildCount();
+		}
+		return count;
+	}
+}
@@ -0,0 +1,485 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v4.benchmarks;
+
+import org.antlr.v4.benchmarks.graphemes.graphemesLexer;
+import org.antlr.v4.benchmarks.java.JavaLexer;
+import org.antlr.v4.benchmarks.java.JavaParser;
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.Lexer;
+import org.antlr.v4.runtime.Recognizer;
+import org.antlr.v4.runtime.RuntimeMetaData;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.atn.PredictionMode;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.URISyntaxException;
+import java.security.CodeSource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/** Runs a fixed set of grammar/input pairs, records throughput, allocation
+ *  and DFA size for each, compares them with a checked-in {@link Baseline}
+ *  and writes a JSON report. The workloads are those of TimeLexerSpeed
+ *  (the Java lexer and the graphemes grammar on the UDHR texts) and
+ *  TestPerformance (parsing Java in SLL and LL mode). The Java inputs are
+ *  two files of the {@link Corpus}, the sources of a fixed release, so that
+ *  the measurements stay comparable across versions.
+ *
+ *  <pre>
+ *  java -cp benchmarks.jar org.antlr.v4.benchmarks.RegressionSuite
+ *      [-baseline file] [-report file] [-update]
+ *      [-warmup n] [-warmup-time ms] [-iterations n]
+ *      [-throughput-tolerance f] [-allocation-tolerance f] [-dfa-tolerance f]
+ *      [workload-name-prefix...]
+ *  </pre>
+ *
+ *  Each workload is warmed up for at least the given number of iterations
+ *  and milliseconds. Throughput is the number of tokens per second of the
+ *  median measured iteration.
+ *  Allocation is the average number of bytes allocated per iteration by
+ *  the measuring thread, and DFA size is the number of DFA states after
+ *  the last iteration; both are independent of the machine, unlike
+ *  throughput, whose baseline must be recorded on the machine that runs
+ *  the suite ({@code -update}). Tolerances are fractions of the baseline.
+ *  The baseline is {@link #DEFAULT_BASELINE} in the benchmarks module, found
+ *  from the location of the jar or classes, unless {@code -baseline} is
+ *  given.
+ *
+ *  The exit code is 1 if any metric regressed beyond its tolerance.
+ */
+public class RegressionSuite {
+	public static final String DEFAULT_BASELINE = "perf-baseline.properties";
+
+	public File baselineFile = getDefaultBaselineFile();
+	public File reportFile;
+	public boolean update;
+	public int warmupIterations = 10;
+	public long warmupMillis = 3000;
+	public int measurementIterations = 20;
+	public final Map<String, Double> tolerances = new LinkedHashMap<String, Double>();
+	public final List<String> selected = new ArrayList<String>();
+
+	/** The measurements of one workload. */
+	public static class Result {
+		public final Workload workload;
+		public final int units;
+		public final Map<String, Double> metrics = new LinkedHashMap<String, Double>();
+		public List<Baseline.Check> checks = new ArrayList<Baseline.Check>();
+
+		public Result(Workload workload, int units) {
+			this.workload = workload;
+			this.units = units;
+		}
+
+		public boolean hasRegression() {
+			for (Baseline.Check check : checks) {
+				if ( check.isRegression() ) return true;
+			}
+			return false;
+		}
+	}
+
+	public RegressionSuite() {
+		tolerances.put(Baseline.THROUGHPUT, 0.15);
+		tolerances.put(Baseline.ALLOCATION, 0.10);
+		tolerances.put(Baseline.DFA_STATES, 0.02);
+	}
+
+	public static void main(String[] args) throws Exception {
+		RegressionSuite suite = new RegressionSuite();
+		for (int i = 0; i < args.length; i++) {
+			String arg = args[i];
+			if ( arg.equals("-update") ) {
+				suite.update = true;
+			}
+			else if ( arg.startsWith("-") && i + 1 >= args.length ) {
+				usage("missing value for "+arg);
+			}
+			else if ( arg.equals("-baseline") ) {
+				suite.baselineFile = new File(args[++i]);
+			}
+			else if ( arg.equals("-report") ) {
+				suite.reportFile = new File(args[++i]);
+			}
+			else if ( arg.equals("-warmup") ) {
+				suite.warmupIterations = Integer.parseInt(args[++i]);
+			}
+			else if ( arg.equals("-warmup-time") ) {
+				suite.warmupMillis = Long.parseLong(args[++i]);
+			}
+			else if ( arg.equals("-iterations") ) {
+				suite.measurementIterations = Integer.parseInt(args[++i]);
+			}
+			else if ( arg.equals("-throughput-tolerance") ) {
+				suite.tolerances.put(Baseline.THROUGHPUT, Double.valueOf(args[++i]));
+			}
+			else if ( arg.equals("-allocation-tolerance") ) {
+				suite.tolerances.put(Baseline.ALLOCATION, Double.valueOf(args[++i]));
+			}
+			else if ( arg.equals("-dfa-tolerance") ) {
+				suite.tolerances.put(Baseline.DFA_STATES, Double.valueOf(args[++i]));
+			}
+			else if ( arg.startsWith("-") ) {
+				usage("unknown option "+arg);
+			}
+			else {
+				suite.selected.add(arg);
+			}
+		}
+
+		System.exit(suite.run() ? 0 : 1);
+	}
+
+	/** {@link #DEFAULT_BASELINE} in the module directory, which is the parent
+	 *  of the {@code target} directory holding {@code benchmarks.jar} or the
+	 *  compiled classes; relative to the working directory if the classes
+	 *  aren't in a module's {@code target}.
+	 */
+	public static File getDefaultBaselineFile() {
+		CodeSource source = RegressionSuite.class.getProtectionDomain().getCodeSource();
+		if ( source!=null && source.getLocation()!=null ) {
+			try {
+				File location = new File(source.getLocation().toURI());
+				for (File dir = location.getParentFile(); dir!=null; dir = dir.getParentFile()) {
+					if ( dir.getName().equals("target") ) {
+						return new File(dir.getParentFile(), DEFAULT_BASELINE);
+					}
+				}
+			}
+			catch (URISyntaxException ex) {
+				// not a file; use the working directory
+			}
+		}
+		return new File(DEFAULT_BASELINE);
+	}
+
+	private static void usage(String msg) {
+		System.err.println(msg);
+		System.err.println("usage: java org.antlr.v4.benchmarks.RegressionSuite [-baseline file] [-report file] [-update]"+
+						   " [-warmup n] [-warmup-time ms] [-iterations n] [-throughput-tolerance f] [-allocation-tolerance f]"+
+						   " [-dfa-tolerance f] [workload-name-prefix...]");
+		System.exit(2);
+	}
+
+	/** Measure the selected workloads and compare or update the baseline.
+	 *
+	 *  @return {@code false} if a metric regressed
+	 */
+	public boolean run() throws Exception {
+		Baseline baseline = Baseline.load(baselineFile);
+		List<Result> results = new ArrayList<Result>();
+		for (Workload workload : getWorkloads()) {
+			if ( !isSelected(workload) ) continue;
+			Result result = measure(workload);
+			if ( !update ) {
+				result.checks = baseline.compare(workload.name, result.metrics, tolerances);
+			}
+			results.add(result);
+			print(result);
+		}
+
+		boolean passed = true;
+		for (Result result : results) {
+			if ( result.hasRegression() ) passed = false;
+		}
+
+		if ( update ) {
+			for (Result result : results) {
+				for (Map.Entry<String, Double> metric : result.metrics.entrySet()) {
+					if ( metric.getValue()>=0 ) {
+						baseline.put(result.workload.name, metric.getKey(), metric.getValue());
+					}
+				}
+			}
+			baseline.save(baselineFile, "ANTLR "+RuntimeMetaData.VERSION+" on "+getEnvironment());
+			System.out.println("updated "+baselineFile);
+		}
+		else if ( baseline.isEmpty() ) {
+			System.out.println("no baseline in "+baselineFile+"; run with -update to record one");
+		}
+
+		if ( reportFile!=null ) {
+			writeReport(results, passed);
+			System.out.println("wrote "+reportFile);
+		}
+		System.out.println(passed ? "PASSED" : "FAILED");
+		return passed;
+	}
+
+	protected boolean isSelected(Workload workload) {
+		if ( selected.isEmpty() ) return true;
+		for (String prefix : selected) {
+			if ( workload.name.startsWith(prefix) ) return true;
+		}
+		return false;
+	}
+
+	protected Result measure(Workload workload) throws Exception {
+		workload.setup();
+		int units = 0;
+		long warmupEnd = System.nanoTime() + warmupMillis * 1000000;
+		for (int i = 0; i < warmupIterations || System.nanoTime() < warmupEnd; i++) {
+			units = workload.run();
+		}
+		System.gc();
+
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		com.sun.management.ThreadMXBean allocation = null;
+		if ( threads instanceof com.sun.management.ThreadMXBean &&
+			 ((com.sun.management.ThreadMXBean)threads).isThreadAllocatedMemorySupported() )
+		{
+			allocation = (com.sun.management.ThreadMXBean)threads;
+		}
+
+		long threadId = Thread.currentThread().getId();
+		long[] times = new long[measurementIterations];
+		long bytes = 0;
+		for (int i = 0; i < measurementIterations; i++) {
+			long startBytes = allocation!=null ? allocation.getThreadAllocatedBytes(threadId) : 0;
+			long start = System.nanoTime();
+			units = workload.run();
+			times[i] = System.nanoTime() - start;
+			if ( allocation!=null ) {
+				bytes += allocation.getThreadAllocatedBytes(threadId) - startBytes;
+			}
+		}
+
+		Arrays.sort(times);
+		long median = times[times.length / 2];
+		Result result = new Result(workload, units);
+		result.metrics.put(Baseline.THROUGHPUT, Math.rint(units * 1e9 / Math.max(median, 1)));
+		result.metrics.put(Baseline.ALLOCATION, allocation!=null ? Math.rint((double)bytes / measurementIterations) : -1);
+		result.metrics.put(Baseline.DFA_STATES, (double)Workload.getDFAStates(workload.getRecognizer()));
+		return result;
+	}
+
+	protected void print(Result result) {
+		StringBuilder buf = new StringBuilder();
+		buf.append(String.format(Locale.ROOT, "%-22s %8d %s", result.workload.name, result.units, result.workload.unit));
+		for (Map.Entry<String, Double> metric : result.metrics.entrySet()) {
+			buf.append("  ").append(metric.getKey()).append('=').append(Baseline.format(metric.getValue()));
+		}
+		System.out.println(buf);
+		for (Baseline.Check check : result.checks) {
+			if ( check.isRegression() ) {
+				System.out.println(String.format(Locale.ROOT, "    REGRESSION %s: %s vs baseline %s (%+.1f%%, tolerance %.1f%%)",
+												 check.metric, Baseline.format(check.actual), Baseline.format(check.baseline),
+												 check.getChange() * 100, check.tolerance * 100));
+			}
+		}
+	}
+
+	protected void writeReport(List<Result> results, boolean passed) throws IOException {
+		StringBuilder buf = new StringBuilder();
+		buf.append("{\n");
+		buf.append("  \"antlrVersion\": ").append(quote(RuntimeMetaData.VERSION)).append(",\n");
+		buf.append("  \"environment\": ").append(quote(getEnvironment())).append(",\n");
+		buf.append("  \"baseline\": ").append(quote(baselineFile.getPath())).append(",\n");
+		buf.append("  \"warmupIterations\": ").append(warmupIterations).append(",\n");
+		buf.append("  \"warmupMillis\": ").append(warmupMillis).append(",\n");
+		buf.append("  \"measurementIterations\": ").append(measurementIterations).append(",\n");
+		buf.append("  \"passed\": ").append(passed).append(",\n");
+		buf.append("  \"workloads\": [");
+		for (int i = 0; i < results.size(); i++) {
+			Result result = results.get(i);
+			buf.append(i>0 ? ",\n" : "\n");
+			buf.append("    {\n");
+			buf.append("      \"name\": ").append(quote(result.workload.name)).append(",\n");
+			buf.append("      \"unit\": ").append(quote(result.workload.unit)).append(",\n");
+			buf.append("      \"units\": ").append(result.units).append(",\n");
+			for (Map.Entry<String, Double> metric : result.metrics.entrySet()) {
+				buf.append("      ").append(quote(metric.getKey())).append(": ").append(Baseline.format(metric.getValue())).append(",\n");
+			}
+			buf.append("      \"checks\": [");
+			for (int j = 0; j < result.checks.size(); j++) {
+				Baseline.Check check = result.checks.get(j);
+				buf.append(j>0 ? ",\n" : "\n");
+				buf.append("        {\"metric\": ").append(quote(check.metric));
+				buf.append(", \"baseline\": ").append(Baseline.format(check.baseline));
+				buf.append(", \"actual\": ").append(Baseline.format(check.actual));
+				buf.append(", \"change\": ").append(String.format(Locale.ROOT, "%.4f", check.getChange()));
+				buf.append(", \"tolerance\": ").append(String.format(Locale.ROOT, "%.4f", check.tolerance));
+				buf.append(", \"regression\": ").append(check.isRegression()).append("}");
+			}
+			buf.append(result.checks.isEmpty() ? "]\n" : "\n      ]\n");
+			buf.append("    }");
+		}
+		buf.append(results.isEmpty() ? "]\n" : "\n  ]\n");
+		buf.append("}\n");
+
+		File dir = reportFile.getAbsoluteFile().getParentFile();
+		if ( dir!=null ) dir.mkdirs();
+		try (OutputStream out = new FileOutputStream(reportFile)) {
+			out.write(buf.toString().getBytes(Corpus.UTF8));
+		}
+	}
+
+	protected static String getEnvironment() {
+		return "Java "+System.getProperty("java.version")+" "+System.getProperty("java.vm.name")+", "+
+			System.getProperty("os.name")+" "+System.getProperty("os.arch")+", "+
+			Runtime.getRuntime().availableProcessors()+" processors";
+	}
+
+	protected static String quote(String s) {
+		StringBuilder buf = new StringBuilder("\"");
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			switch ( c ) {
+				case '"' : buf.append("\\\""); break;
+				case '\\' : buf.append("\\\\"); break;
+				case '\n' : buf.append("\\n"); break;
+				case '\t' : buf.append("\\t"); break;
+				default :
+					if ( c<' ' ) buf.append(String.format("\\u%04x", (int)c));
+					else buf.append(c);
+			}
+		}
+		return buf.append('"').toString();
+	}
+
+	/** The Java inputs, from the {@link Corpus}. */
+	public static final List<String> JAVA_INPUTS = Arrays.asList("Parser.java", "RuleContext.java");
+
+	/** The fixed set of workloads; names are the keys of the baseline. */
+	public static List<Workload> getWorkloads() {
+		List<Workload> workloads = new ArrayList<Workload>();
+		workloads.add(new JavaLexerWorkload("java-lex", false));
+		workloads.add(new JavaLexerWorkload("java-lex-cold-dfa", true));
+		workloads.add(new JavaParserWorkload("java-parse-sll", PredictionMode.SLL));
+		workloads.add(new JavaParserWorkload("java-parse-ll", PredictionMode.LL));
+		workloads.add(new GraphemesWorkload("graphemes-udhr-hin", "udhr_hin.txt"));
+		workloads.add(new GraphemesWorkload("graphemes-udhr-kor", "udhr_kor.txt"));
+		workloads.add(new GraphemesWorkload("graphemes-emoji", "emoji.txt"));
+		return workloads;
+	}
+
+	/** Count the tokens of {@code input} from its start. */
+	protected static int tokenize(Lexer lexer, CharStream input) {
+		input.seek(0);
+		lexer.setInputStream(input);
+		int n = 0;
+		while ( lexer.nextToken().getType()!=Token.EOF ) {
+			n++;
+		}
+		return n;
+	}
+
+	protected static class JavaLexerWorkload extends Workload {
+		protected final boolean clearDFA;
+		protected final List<CharStream> inputs = new ArrayList<CharStream>();
+		protected JavaLexer lexer;
+
+		public JavaLexerWorkload(String name, boolean clearDFA) {
+			super(name, "tokens");
+			this.clearDFA = clearDFA;
+		}
+
+		@Override
+		public void setup() throws IOException {
+			for (String fileName : JAVA_INPUTS) {
+				inputs.add(Corpus.loadSource(fileName).getCharStream());
+			}
+			lexer = new JavaLexer(null);
+			lexer.getInterpreter().clearDFA();
+		}
+
+		@Override
+		public int run() {
+			if ( clearDFA ) {
+				lexer.getInterpreter().clearDFA();
+			}
+			int n = 0;
+			for (CharStream input : inputs) {
+				n += tokenize(lexer, input);
+			}
+			return n;
+		}
+
+		@Override
+		public Recognizer<?, ?> getRecognizer() {
+			return lexer;
+		}
+	}
+
+	protected static class JavaParserWorkload extends Workload {
+		protected final PredictionMode predictionMode;
+		protected final List<CommonTokenStream> inputs = new ArrayList<CommonTokenStream>();
+		protected JavaParser parser;
+
+		public JavaParserWorkload(String name, PredictionMode predictionMode) {
+			super(name, "tokens");
+			this.predictionMode = predictionMode;
+		}
+
+		@Override
+		public void setup() throws IOException {
+			for (String fileName : JAVA_INPUTS) {
+				inputs.add(Corpus.lex(Corpus.loadSource(fileName)));
+			}
+			parser = new JavaParser(null);
+			parser.removeErrorListeners();
+			parser.getInterpreter().setPredictionMode(predictionMode);
+			parser.getInterpreter().clearDFA();
+		}
+
+		@Override
+		public int run() {
+			int n = 0;
+			for (CommonTokenStream tokens : inputs) {
+				tokens.seek(0);
+				parser.setInputStream(tokens);
+				parser.compilationUnit();
+				n += tokens.size();
+			}
+			return n;
+		}
+
+		@Override
+		public Recognizer<?, ?> getRecognizer() {
+			return parser;
+		}
+	}
+
+	protected static class GraphemesWorkload extends Workload {
+		protected final String fileName;
+		protected CharStream input;
+		protected graphemesLexer lexer;
+
+		public GraphemesWorkload(String name, String fileName) {
+			super(name, "tokens");
+			this.fileName = fileName;
+		}
+
+		@Override
+		public void setup() throws IOException {
+			input = Corpus.loadText(fileName).getCharStream();
+			lexer = new graphemesLexer(null);
+			lexer.getInterpreter().clearDFA();
+		}
+
+		@Override
+		public int run() {
+			return tokenize(lexer, input);
+		}
+
+		@Override
+		public Recognizer<?, ?> getRecognizer() {
+			return lexer;
+		}
+	}
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v4.benchmarks;
+
+import org.antlr.v4.benchmarks.java.JavaLexer;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.TokenStreamRewriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/** Rewriting the corpus with {@link TokenStreamRewriter}: every identifier
+ *  is renamed and every semicolon gets a comment after it, then the text
+ *  is rendered.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TokenStreamRewriterBenchmark {
+	private List<CommonTokenStream> tokenStreams;
+
+	@Setup
+	public void setup() throws IOException {
+		tokenStreams = new ArrayList<CommonTokenStream>();
+		for (Corpus.Document doc : Corpus.load()) {
+			tokenStreams.add(Corpus.lex(doc));
+		}
+	}
+
+	@Benchmark
+	public void rewrite(Blackhole bh) {
+		for (CommonTokenStream tokens : tokenStreams) {
+			TokenStreamRewriter rewriter = new TokenStreamRewriter(tokens);
+			for (Token t : tokens.getTokens()) {
+				if ( t.getType()==JavaLexer.Identifier ) {
+					rewriter.replace(t, "_" + t.getText());
+				}
+				else if ( t.getType()==JavaLexer.SEMI ) {
+					rewriter.insertAfter(t, " /* ; */");
+				}
+			}
+			bh.consume(rewriter.getText());
+		}
+	}
+}
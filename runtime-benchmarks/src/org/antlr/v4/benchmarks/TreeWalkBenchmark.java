@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v4.benchmarks;
+
+import org.antlr.v4.benchmarks.java.JavaBaseListener;
+import org.antlr.v4.benchmarks.java.JavaBaseVisitor;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.ParseTreeWalker;
+import org.antlr.v4.runtime.tree.TerminalNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/** Walking the parse trees of the corpus with the generated listener and
+ *  visitor base classes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TreeWalkBenchmark {
+	private List<ParseTree> trees;
+
+	@Setup
+	public void setup() throws IOException {
+		trees = new ArrayList<ParseTree>();
+		for (Corpus.Document doc : Corpus.load()) {
+			trees.add(Corpus.parse(Corpus.lex(doc)));
+		}
+	}
+
+	@Benchmark
+	public int listener() {
+		CountingListener listener = new CountingListener();
+		for (ParseTree tree : trees) {
+			ParseTreeWalker.DEFAULT.walk(listener, tree);
+		}
+		return listener.count;
+	}
+
+	@Benchmark
+	public int visitor() {
+		CountingVisitor visitor = new CountingVisitor();
+		int count = 0;
+		for (ParseTree tree : trees) {
+			count += tree.accept(visitor);
+		}
+		return count;
+	}
+
+	public static class CountingListener extends JavaBaseListener {
+		int count;
+
+		@Override
+		public void enterEveryRule(ParserRuleContext ctx) {
+			count++;
+		}
+
+		@Override
+		public void visitTerminal(TerminalNode node) {
+			count++;
+		}
+	}
+
+	public static class CountingVisitor extends JavaBaseVisitor<Integer> {
+		@Override
+		protected Integer defaultResult() {
+			return 1;
+		}
+
+		@Override
+		protected Integer aggregateResult(Integer aggregate, Integer nextResult) {
+			return aggregate + nextResult;
+		}
+	}
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v4.benchmarks;
+
+import org.antlr.v4.runtime.Recognizer;
+import org.antlr.v4.runtime.atn.ATNSimulator;
+import org.antlr.v4.runtime.atn.LexerATNSimulator;
+import org.antlr.v4.runtime.atn.ParserATNSimulator;
+import org.antlr.v4.runtime.dfa.DFA;
+
+/** A fixed grammar/input pair measured by the {@link RegressionSuite}. */
+public abstract class Workload {
+	public final String name;
+
+	/** What {@link #run} counts, e.g. "tokens". */
+	public final String unit;
+
+	protected Workload(String name, String unit) {
+		this.name = name;
+		this.unit = unit;
+	}
+
+	/** Called once before the warm-up iterations. */
+	public void setup() throws Exception {
+	}
+
+	/** Process the whole input once.
+	 *
+	 *  @return the number of {@link #unit}s processed, which must be the
+	 *  same for every call
+	 */
+	public abstract int run();
+
+	/** The recognizer whose DFA size is reported after the measurement. */
+	public abstract Recognizer<?, ?> getRecognizer();
+
+	/** The number of DFA states of all decisions (or lexer modes) of
+	 *  {@code recognizer} created so far.
+	 */
+	public static int getDFAStates(Recognizer<?, ?> recognizer) {
+		ATNSimulator interpreter = recognizer.getInterpreter();
+		DFA[] decisionToDFA;
+		if ( interpreter instanceof ParserATNSimulator ) {
+			decisionToDFA = ((ParserATNSimulator)interpreter).decisionToDFA;
+		}
+		else {
+			decisionToDFA = ((LexerATNSimulator)interpreter).decisionToDFA;
+		}
+
+		int n = 0;
+		for (DFA dfa : decisionToDFA) {
+			if ( dfa!=null ) n += dfa.states.size();
+		}
+		return n;
+	}
+}
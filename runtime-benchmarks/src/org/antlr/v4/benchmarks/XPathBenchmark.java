@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v4.benchmarks;
+
+import org.antlr.v4.benchmarks.java.JavaParser;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.xpath.XPath;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/** Evaluating {@link XPath} queries over the parse trees of the corpus,
+ *  including compiling the path.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class XPathBenchmark {
+	@Param({"//methodDeclaration/Identifier", "//classBody//*/Identifier", "/compilationUnit/typeDeclaration"})
+	public String path;
+
+	private List<ParseTree> trees;
+	private JavaParser parser;
+
+	@Setup
+	public void setup() throws IOException {
+		trees = new ArrayList<ParseTree>();
+		for (Corpus.Document doc : Corpus.load()) {
+			trees.add(Corpus.parse(Corpus.lex(doc)));
+		}
+		parser = new JavaParser(null);
+	}
+
+	@Benchmark
+	public int findAll() {
+		int count = 0;
+		for (ParseTree tree : trees) {
+			count += XPath.findAll(tree, path, parser).size();
+		}
+		return count;
+	}
+}
@@ -7,6 +7,7 @@
 package org.antlr.v4.runtime;
 
 import org.antlr.v4.runtime.misc.Interval;
+import org.antlr.v4.runtime.misc.Pair;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
@@ -307,4 +308,70 @@ public class TestCodePointCharStream {
 		assertTrue(s.getInternalStorage() instanceof int[]);
 		assertEquals(7, s.size());
 	}
+
+	@Test
+	public void charSequenceWithLatinContents() {
+		CodePointCharStream s = CharStreams.fromString("hello world");
+		CharSequence text = s.getCharSequence(Interval.of(6, 10));
+		assertEquals(5, text.length());
+		assertEquals('w', text.charAt(0));
+		assertEquals("orl", text.subSequence(1, 4).toString());
+		assertEquals("world", text.toString());
+	}
+
+	@Test
+	public void charSequenceWithBMPContents() {
+		CodePointCharStream s = CharStreams.fromString("hello \u4E16\u754C");
+		CharSequence text = s.getCharSequence(Interval.of(5, 7));
+		assertEquals(" \u4E16\u754C", text.toString());
+		assertEquals('\u754C', text.charAt(2));
+	}
+
+	@Test
+	public void charSequenceWithSMPContents() {
+		CodePointCharStream s = CharStreams.fromString("hello \uD83C\uDF0D!");
+		assertEquals("hello", s.getCharSequence(Interval.of(0, 4)).toString());
+		CharSequence text = s.getCharSequence(Interval.of(5, 7));
+		assertEquals(4, text.length());
+		assertEquals(" \uD83C\uDF0D!", text.toString());
+	}
+
+	@Test
+	public void charSequenceIsClampedLikeGetText() {
+		CodePointCharStream s = CharStreams.fromString("hello");
+		assertEquals("llo", s.getCharSequence(Interval.of(2, 20)).toString());
+		assertEquals("", s.getCharSequence(Interval.of(5, 4)).toString());
+	}
+
+	@Test
+	public void textHashCodeAndEqualsMatchGetText() {
+		String[] inputs = { "abc def", "hello \u4E16\u754C", "hi \uD83C\uDF0D there" };
+		for (String input : inputs) {
+			CodePointCharStream s = CharStreams.fromString(input);
+			for (int start = 0; start < s.size(); start++) {
+				for (int stop = start - 1; stop < s.size(); stop++) {
+					String text = s.getText(Interval.of(start, stop));
+					assertEquals(text.hashCode(), s.textHashCode(start, stop));
+					assertTrue(s.textEquals(start, stop, text));
+					assertTrue(!s.textEquals(start, stop, text + "x"));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void tokenTextHelpers() {
+		CodePointCharStream s = CharStreams.fromString("foo bar");
+		CommonToken token = new CommonToken(new Pair<TokenSource, CharStream>(null, s), 1, Token.DEFAULT_CHANNEL, 4, 6);
+		assertEquals("bar", token.getCharSequence().toString());
+		assertTrue(token.textEquals("bar"));
+		assertTrue(!token.textEquals("baz"));
+		assertTrue(!token.textEquals(null));
+		assertEquals("bar".hashCode(), token.textHashCode());
+
+		token.setText("baz");
+		assertTrue(token.textEquals("baz"));
+		assertTrue(!token.textEquals(null));
+		assertEquals("baz".hashCode(), token.textHashCode());
+	}
 }
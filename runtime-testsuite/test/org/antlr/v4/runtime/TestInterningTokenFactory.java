@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v4.runtime;
+
+import org.antlr.v4.runtime.misc.Pair;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class TestInterningTokenFactory {
+	private static final int ID = 1;
+	private static final int INT = 2;
+
+	@Test
+	public void identifiersShareText() {
+		InterningTokenFactory factory = new InterningTokenFactory(ID);
+		CodePointCharStream input = CharStreams.fromString("foo 42 foo 42 bar foo");
+		Pair<TokenSource, CharStream> source = new Pair<TokenSource, CharStream>(null, input);
+
+		CommonToken foo1 = factory.create(source, ID, null, Token.DEFAULT_CHANNEL, 0, 2, 1, 0);
+		CommonToken int1 = factory.create(source, INT, null, Token.DEFAULT_CHANNEL, 4, 5, 1, 4);
+		CommonToken foo2 = factory.create(source, ID, null, Token.DEFAULT_CHANNEL, 7, 9, 1, 7);
+		CommonToken int2 = factory.create(source, INT, null, Token.DEFAULT_CHANNEL, 11, 12, 1, 11);
+		CommonToken bar = factory.create(source, ID, null, Token.DEFAULT_CHANNEL, 14, 16, 1, 14);
+		CommonToken foo3 = factory.create(source, ID, null, Token.DEFAULT_CHANNEL, 18, 20, 1, 18);
+
+		assertEquals("foo", foo1.getText());
+		assertSame(foo1.getText(), foo2.getText());
+		assertSame(foo1.getText(), foo3.getText());
+		assertEquals("bar", bar.getText());
+		assertEquals("42", int1.getText());
+		assertNotSame(int1.getText(), int2.getText());
+	}
+
+	@Test
+	public void sharedAcrossInputs() {
+		InterningTokenFactory factory = new InterningTokenFactory();
+		String a = factory.intern(CharStreams.fromString("x ναι"), 2, 4);
+		String b = factory.intern(CharStreams.fromString("ναι"), 0, 2);
+		assertEquals("ναι", a);
+		assertSame(a, b);
+		assertSame(a, factory.intern(new String("ναι")));
+		// supplementary code points hash like their UTF-16 string
+		String smile = factory.intern(CharStreams.fromString("a😀"), 1, 1);
+		assertSame(smile, factory.intern(new String("😀")));
+	}
+
+	@Test
+	public void collisionsReplaceTheSlot() {
+		InterningTokenFactory factory = new InterningTokenFactory(1, new int[0]);
+		String a = factory.intern("a");
+		String b = factory.intern("b");
+		assertSame(b, factory.intern(new String("b")));
+		assertNotSame(a, factory.intern(new String("a")));
+	}
+
+	@Test
+	public void eofAndExplicitTextUntouched() {
+		InterningTokenFactory factory = new InterningTokenFactory();
+		CodePointCharStream input = CharStreams.fromString("ab");
+		Pair<TokenSource, CharStream> source = new Pair<TokenSource, CharStream>(null, input);
+		CommonToken eof = factory.create(source, Token.EOF, null, Token.DEFAULT_CHANNEL, 2, 1, 1, 2);
+		assertEquals("<EOF>", eof.getText());
+		CommonToken explicit = factory.create(source, ID, "xy", Token.DEFAULT_CHANNEL, 0, 1, 1, 0);
+		assertEquals("xy", explicit.getText());
+
+		factory.clear();
+		CommonToken t = factory.create(source, ID, null, Token.DEFAULT_CHANNEL, 0, 1, 1, 0);
+		assertEquals("ab", t.getText());
+		assertSame(t.getText(), factory.intern("ab"));
+		assertNull(factory.create(ID, null).getText());
+	}
+}
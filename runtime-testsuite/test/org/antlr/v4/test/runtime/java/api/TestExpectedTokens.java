@@ -5,15 +5,31 @@
  */
 package org.antlr.v4.test.runtime.java.api;
 
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.DefaultErrorStrategy;
+import org.antlr.v4.runtime.InputMismatchException;
+import org.antlr.v4.runtime.ListTokenSource;
+import org.antlr.v4.runtime.Parser;
+import org.antlr.v4.runtime.ParserInterpreter;
 import org.antlr.v4.runtime.ParserRuleContext;
 import org.antlr.v4.runtime.RuleContext;
+import org.antlr.v4.runtime.Token;
 import org.antlr.v4.runtime.atn.ATN;
+import org.antlr.v4.runtime.atn.ATNState;
+import org.antlr.v4.runtime.atn.LL1Analyzer;
+import org.antlr.v4.runtime.atn.RuleTransition;
 import org.antlr.v4.runtime.misc.IntervalSet;
 import org.antlr.v4.test.runtime.java.BaseJavaTest;
 import org.antlr.v4.tool.Grammar;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 public class TestExpectedTokens extends BaseJavaTest {
 	@Test public void testEpsilonAltSubrule() throws Exception {
@@ -98,6 +114,82 @@ public class TestExpectedTokens extends BaseJavaTest {
 		assertEquals("{A, B}", tokens.toString(g.getTokenNames()));
 	}
 
+	@Test public void testExpectedTokensAreCachedPerStack() throws Exception {
+		String gtext =
+			"parser grammar T;\n" +
+				"a : b A ;\n" +
+				"b : B | ;";
+		Grammar g = new Grammar(gtext);
+		ATN atn = g.getATN();
+		int blkStartStateNumber = 9;
+
+		IntervalSet fromA = atn.getExpectedTokens(blkStartStateNumber, new ParserRuleContext(ParserRuleContext.EMPTY, 4));
+		assertEquals("{A, B}", fromA.toString(g.getTokenNames()));
+		assertTrue(fromA.isReadonly());
+		assertSame(fromA, atn.getExpectedTokens(blkStartStateNumber, new ParserRuleContext(ParserRuleContext.EMPTY, 4)));
+
+		// only the invocations up to the first follow that can't reach the
+		// end of its rule are part of the key
+		ParserRuleContext outer = new ParserRuleContext(ParserRuleContext.EMPTY, 4);
+		assertSame(fromA, atn.getExpectedTokens(blkStartStateNumber, new ParserRuleContext(outer, 4)));
+
+		IntervalSet fromEmpty = atn.getExpectedTokens(blkStartStateNumber, RuleContext.EMPTY);
+		assertEquals("{<EOF>, B}", fromEmpty.toString(g.getTokenNames()));
+		assertNotSame(fromA, fromEmpty);
+	}
+
+	@Test public void testParserExpectedTokensAreACopy() throws Exception {
+		String gtext =
+			"parser grammar T;\n" +
+				"a : b A ;\n" +
+				"b : B | ;";
+		Grammar g = new Grammar(gtext);
+		ParserInterpreter parser = g.createParserInterpreter(new CommonTokenStream(new ListTokenSource(new ArrayList<Token>())));
+		parser.setState(9);
+		parser.setContext(new ParserRuleContext(ParserRuleContext.EMPTY, 4));
+
+		IntervalSet tokens = parser.getExpectedTokens();
+		assertTrue(!tokens.isReadonly());
+		tokens.add(Token.EOF);
+		assertEquals("{A, B}", parser.getExpectedTokens().toString(g.getTokenNames()));
+
+		IntervalSet expected = new InputMismatchException(parser).getExpectedTokens();
+		assertTrue(!expected.isReadonly());
+		expected.add(Token.EOF);
+		assertEquals("{A, B}", new InputMismatchException(parser).getExpectedTokens().toString(g.getTokenNames()));
+	}
+
+	@Test public void testRecoverySetsAreCachedPerStrategy() throws Exception {
+		String gtext =
+			"parser grammar T;\n" +
+				"a : b A ;\n" +
+				"b : B | ;";
+		Grammar g = new Grammar(gtext);
+		ParserInterpreter parser = g.createParserInterpreter(new CommonTokenStream(new ListTokenSource(new ArrayList<Token>())));
+		parser.setContext(new ParserRuleContext(ParserRuleContext.EMPTY, 4));
+
+		RecoverySetStrategy defaultStrategy = new RecoverySetStrategy();
+		IntervalSet recoverSet = defaultStrategy.getErrorRecoverySet(parser);
+		assertEquals("A", recoverSet.toString(g.getTokenNames()));
+		assertSame(recoverSet, new RecoverySetStrategy().getErrorRecoverySet(parser));
+
+		RecoverySetStrategy customStrategy = new RecoverySetStrategy() {
+			@Override
+			protected IntervalSet computeErrorRecoverySet(Parser recognizer) {
+				return IntervalSet.of(Token.EOF);
+			}
+		};
+		assertEquals("<EOF>", customStrategy.getErrorRecoverySet(parser).toString(g.getTokenNames()));
+		assertSame(recoverSet, defaultStrategy.getErrorRecoverySet(parser));
+	}
+
+	private static class RecoverySetStrategy extends DefaultErrorStrategy {
+		@Override
+		public IntervalSet getErrorRecoverySet(Parser recognizer) {
+			return super.getErrorRecoverySet(recognizer);
+		}
+	}
+
 	// Test for https://github.com/antlr/antlr4/issues/1480
 	// can't reproduce
 	@Test public void testFollowIncludedInLeftRecursiveRule() throws Exception {
@@ -152,4 +244,44 @@ public class TestExpectedTokens extends BaseJavaTest {
 		tokens = atn.getExpectedTokens(afterID, callStackFrom_expr);
 		assertEquals("{R, PLUS}", tokens.toString(g.getTokenNames()));
 	}
+
+	@Test public void testCachedNextTokensMatchLOOK() throws Exception {
+		String gtext =
+			"grammar T;\n" +
+			"s : expr EOF ;\n" +
+			"expr : L expr R\n"+
+			"     | expr PLUS expr\n"+
+			"     | ID?\n"+
+			"     ;\n";
+		Grammar g = new Grammar(gtext);
+		ATN atn = g.getATN();
+		atn.precomputeNextTokens();
+
+		// every invocation of expr, innermost last
+		List<RuleContext> contexts = new ArrayList<RuleContext>();
+		contexts.add(RuleContext.EMPTY);
+		RuleContext ctx = new ParserRuleContext(null, ATNState.INVALID_STATE_NUMBER);
+		contexts.add(ctx);
+		for (ATNState state : atn.states) {
+			if ( state.getNumberOfTransitions()>0 && state.transition(0) instanceof RuleTransition ) {
+				ctx = new ParserRuleContext((ParserRuleContext)ctx, state.stateNumber);
+				contexts.add(ctx);
+			}
+		}
+		assertEquals(5, contexts.size());
+
+		for (RuleContext context : contexts) {
+			for (ATNState state : atn.states) {
+				IntervalSet expected = new LL1Analyzer(atn).LOOK(state, context);
+				IntervalSet tokens = atn.getCachedNextTokens(state, context);
+				assertEquals("state " + state.stateNumber + " in " + context.toString(), expected, tokens);
+				assertSame(tokens, atn.getCachedNextTokens(state, context));
+
+				IntervalSet copy = atn.nextTokens(state, context);
+				assertEquals(expected, copy);
+				assertNotSame(tokens, copy);
+				assertTrue(!copy.isReadonly());
+			}
+		}
+	}
 }
@@ -6,9 +6,11 @@
 
 package org.antlr.v4.runtime;
 
+import org.antlr.v4.runtime.misc.IntegerList;
 import org.antlr.v4.runtime.misc.Interval;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -66,6 +68,30 @@ public class BufferedTokenStream implements TokenStream {
 	 */
 	protected boolean fetchedEOF;
 
+	/**
+	 * Channels above this one are not indexed; queries for them scan the
+	 * tokens.
+	 */
+	protected static final int MAX_INDEXED_CHANNEL = 255;
+
+	/**
+	 * The indexes into {@link #tokens} of the tokens on each channel, in
+	 * order, so that finding the next or previous token on a channel is a
+	 * binary search rather than a scan over the tokens on other channels. It
+	 * covers the first {@link #indexedTokens} tokens, and is brought up to
+	 * date with the buffer before each query.
+	 *
+	 * <p>The index is only kept once {@link #setChannelIndexEnabled enabled}.
+	 * A token's channel is read once, when it is indexed, so tokens must not
+	 * change channel once they are in the buffer. If a query finds a token
+	 * that left its channel, the index is dropped and the stream scans the
+	 * tokens from then on; a token moved onto a channel is not noticed.</p>
+	 */
+	private IntegerList[] channelIndex = new IntegerList[0];
+	private int indexedTokens;
+	private boolean channelIndexEnabled;
+	private boolean channelIndexDisabled;
+
     public BufferedTokenStream(TokenSource tokenSource) {
 		if (tokenSource == null) {
 			throw new NullPointerException("tokenSource cannot be null");
@@ -261,8 +287,90 @@ public class BufferedTokenStream implements TokenStream {
         tokens.clear();
         p = -1;
         fetchedEOF = false;
+		resetChannelIndex();
     }
 
+	/**
+	 * The indexes of the buffered tokens on {@code channel}, in order, or
+	 * {@code null} if that channel isn't indexed.
+	 *
+	 * @since 4.7.1
+	 */
+	protected final IntegerList getChannelIndex(int channel) {
+		if ( !channelIndexEnabled || channelIndexDisabled || channel<0 || channel>MAX_INDEXED_CHANNEL ) {
+			return null;
+		}
+		if ( indexedTokens>tokens.size() ) {
+			// the buffer was cleared without setTokenSource
+			resetChannelIndex();
+		}
+		if ( channel>=channelIndex.length ) {
+			channelIndex = Arrays.copyOf(channelIndex, channel + 1);
+		}
+		if ( channelIndex[channel]==null ) {
+			channelIndex[channel] = new IntegerList();
+		}
+		for (; indexedTokens < tokens.size(); indexedTokens++) {
+			int c = tokens.get(indexedTokens).getChannel();
+			if ( c<0 || c>MAX_INDEXED_CHANNEL ) continue;
+			if ( c>=channelIndex.length ) {
+				channelIndex = Arrays.copyOf(channelIndex, c + 1);
+			}
+			if ( channelIndex[c]==null ) {
+				channelIndex[c] = new IntegerList();
+			}
+			channelIndex[c].add(indexedTokens);
+		}
+		return channelIndex[channel];
+	}
+
+	/**
+	 * Find the tokens on a channel through an index of the buffered tokens
+	 * instead of scanning over the tokens on other channels, which pays off
+	 * when most tokens are hidden, as in comment-heavy input. Off by default.
+	 *
+	 * <p>Only enable the index if no token changes channel once it is in the
+	 * buffer, e.g. through {@link WritableToken#setChannel}. A token moved off
+	 * a channel makes the stream go back to scanning, but a token moved onto
+	 * a channel is missed by the queries for that channel.</p>
+	 *
+	 * @since 4.7.1
+	 */
+	public void setChannelIndexEnabled(boolean enabled) {
+		channelIndexEnabled = enabled;
+		resetChannelIndex();
+	}
+
+	/** @since 4.7.1 */
+	public boolean isChannelIndexEnabled() {
+		return channelIndexEnabled;
+	}
+
+	/**
+	 * Stop using the channel index because a token changed channel after it
+	 * was indexed.
+	 *
+	 * @since 4.7.1
+	 */
+	protected final void disableChannelIndex() {
+		channelIndexDisabled = true;
+		channelIndex = new IntegerList[0];
+	}
+
+	private void resetChannelIndex() {
+		channelIndex = new IntegerList[0];
+		indexedTokens = 0;
+		channelIndexDisabled = false;
+	}
+
+	/** The position in {@code onChannel} of the first index at or after
+	 *  token index {@code i}; {@code onChannel.size()} if none.
+	 */
+	protected static int firstIndexAtOrAfter(IntegerList onChannel, int i) {
+		int k = onChannel.binarySearch(i);
+		return k>=0 ? k : -k - 1;
+	}
+
     public List<Token> getTokens() { return tokens; }
 
     public List<Token> getTokens(int start, int stop) {
@@ -316,6 +424,27 @@ public class BufferedTokenStream implements TokenStream {
 		}
 
 		Token token = tokens.get(i);
+		if ( token.getChannel()==channel || token.getType()==Token.EOF ) {
+			return i;
+		}
+
+		IntegerList onChannel = getChannelIndex(channel);
+		if ( onChannel!=null ) {
+			int k = firstIndexAtOrAfter(onChannel, i);
+			if ( k<onChannel.size() ) {
+				int next = onChannel.get(k);
+				if ( tokens.get(next).getChannel()==channel ) {
+					return next;
+				}
+				disableChannelIndex();
+			}
+			else {
+				// no buffered token on channel; continue after the buffer
+				i = size() - 1;
+				token = tokens.get(i);
+			}
+		}
+
 		while ( token.getChannel()!=channel ) {
 			if ( token.getType()==Token.EOF ) {
 				return i;
@@ -346,6 +475,24 @@ public class BufferedTokenStream implements TokenStream {
 			return size() - 1;
 		}
 
+		Token start = tokens.get(i);
+		if (start.getType() == Token.EOF || start.getChannel() == channel) {
+			return i;
+		}
+
+		IntegerList onChannel = getChannelIndex(channel);
+		if ( onChannel!=null ) {
+			int k = firstIndexAtOrAfter(onChannel, i) - 1;
+			if ( k<0 ) {
+				return -1;
+			}
+			int previous = onChannel.get(k);
+			if ( tokens.get(previous).getChannel()==channel ) {
+				return previous;
+			}
+			disableChannelIndex();
+		}
+
 		while (i >= 0) {
 			Token token = tokens.get(i);
 			if (token.getType() == Token.EOF || token.getChannel() == channel) {
@@ -421,6 +568,22 @@ public class BufferedTokenStream implements TokenStream {
 
 	protected List<Token> filterForChannel(int from, int to, int channel) {
 		List<Token> hidden = new ArrayList<Token>();
+		IntegerList onChannel = getChannelIndex(channel);
+		if ( onChannel!=null ) {
+			for (int k = firstIndexAtOrAfter(onChannel, from); k < onChannel.size(); k++) {
+				int i = onChannel.get(k);
+				if ( i>to ) break;
+				Token t = tokens.get(i);
+				if ( t.getChannel()!=channel ) {
+					disableChannelIndex();
+					return filterForChannel(from, to, channel);
+				}
+				hidden.add(t);
+			}
+			if ( hidden.size()==0 ) return null;
+			return hidden;
+		}
+
 		for (int i=from; i<=to; i++) {
 			Token t = tokens.get(i);
 			if ( channel==-1 ) {
@@ -137,6 +137,140 @@ public abstract class CodePointCharStream implements CharStream {
 		return getText(Interval.of(0, size - 1));
 	}
 
+	/**
+	 * Gets the code point at {@code index}, which must be in the range
+	 * {@code [0, size())}.
+	 */
+	public abstract int getCodePoint(int index);
+
+	/**
+	 * Return a {@link CharSequence} view of the UTF-16 text for the given
+	 * interval. The interval is clamped to the stream exactly like
+	 * {@link #getText}. Unless the interval contains code points above
+	 * U+FFFF, no character data is copied.
+	 */
+	public final CharSequence getCharSequence(Interval interval) {
+		return getCharSequence(interval.a, interval.b);
+	}
+
+	/**
+	 * Return a {@link CharSequence} view of the UTF-16 text between the code
+	 * point indexes {@code start} and {@code stop}, inclusive.
+	 *
+	 * @see #getCharSequence(Interval)
+	 */
+	public final CharSequence getCharSequence(int start, int stop) {
+		int startIdx = Math.max(0, Math.min(start, size));
+		int len = Math.max(0, Math.min(stop - start + 1, size - startIdx));
+		if (len == 0) {
+			return "";
+		}
+
+		if (!isBmp(startIdx, len)) {
+			return getText(Interval.of(startIdx, startIdx + len - 1));
+		}
+
+		return new CodePointCharSequence(this, startIdx, len);
+	}
+
+	/**
+	 * Computes the same value as {@code getText(Interval.of(start, stop)).hashCode()}
+	 * without creating the string.
+	 */
+	public final int textHashCode(int start, int stop) {
+		int h = 0;
+		for (int i = Math.max(0, start), n = Math.min(stop, size - 1); i <= n; i++) {
+			int c = getCodePoint(i);
+			if (Character.isBmpCodePoint(c)) {
+				h = 31 * h + c;
+			}
+			else {
+				h = 31 * h + Character.highSurrogate(c);
+				h = 31 * h + Character.lowSurrogate(c);
+			}
+		}
+
+		return h;
+	}
+
+	/**
+	 * Computes the same value as
+	 * {@code getText(Interval.of(start, stop)).contentEquals(text)} without
+	 * creating the string.
+	 */
+	public final boolean textEquals(int start, int stop, CharSequence text) {
+		int j = 0;
+		int length = text.length();
+		for (int i = Math.max(0, start), n = Math.min(stop, size - 1); i <= n; i++) {
+			int c = getCodePoint(i);
+			if (Character.isBmpCodePoint(c)) {
+				if (j >= length || text.charAt(j++) != c) {
+					return false;
+				}
+			}
+			else {
+				if (j + 1 >= length
+					|| text.charAt(j++) != Character.highSurrogate(c)
+					|| text.charAt(j++) != Character.lowSurrogate(c))
+				{
+					return false;
+				}
+			}
+		}
+
+		return j == length;
+	}
+
+	/**
+	 * Determines whether all code points in the range starting at
+	 * {@code start} are in the Basic Multilingual Plane, so they map 1:1 to
+	 * UTF-16 code units.
+	 */
+	boolean isBmp(int start, int length) {
+		return true;
+	}
+
+	/** A view of a range of code points in the BMP as UTF-16 text. */
+	private static final class CodePointCharSequence implements CharSequence {
+		private final CodePointCharStream stream;
+		private final int start;
+		private final int length;
+
+		CodePointCharSequence(CodePointCharStream stream, int start, int length) {
+			this.stream = stream;
+			this.start = start;
+			this.length = length;
+		}
+
+		@Override
+		public int length() {
+			return length;
+		}
+
+		@Override
+		public char charAt(int index) {
+			if (index < 0 || index >= length) {
+				throw new IndexOutOfBoundsException(String.valueOf(index));
+			}
+
+			return (char)stream.getCodePoint(start + index);
+		}
+
+		@Override
+		public CharSequence subSequence(int start, int end) {
+			if (start < 0 || end > length || start > end) {
+				throw new IndexOutOfBoundsException("start " + start + ", end " + end + ", length " + length);
+			}
+
+			return new CodePointCharSequence(stream, this.start + start, end - start);
+		}
+
+		@Override
+		public String toString() {
+			return stream.getText(Interval.of(start, start + length - 1));
+		}
+	}
+
 	// 8-bit storage for code points <= U+00FF.
 	private static final class CodePoint8BitCharStream extends CodePointCharStream {
 		private final byte[] byteArray;
@@ -183,6 +317,11 @@ public abstract class CodePointCharStream implements CharStream {
 			throw new UnsupportedOperationException("Not reached");
 		}
 
+		@Override
+		public int getCodePoint(int index) {
+			return byteArray[index] & 0xFF;
+		}
+
 		@Override
 		Object getInternalStorage() {
 			return byteArray;
@@ -238,6 +377,11 @@ public abstract class CodePointCharStream implements CharStream {
 			throw new UnsupportedOperationException("Not reached");
 		}
 
+		@Override
+		public int getCodePoint(int index) {
+			return charArray[index] & 0xFFFF;
+		}
+
 		@Override
 		Object getInternalStorage() {
 			return charArray;
@@ -289,6 +433,22 @@ public abstract class CodePointCharStream implements CharStream {
 			throw new UnsupportedOperationException("Not reached");
 		}
 
+		@Override
+		public int getCodePoint(int index) {
+			return intArray[index];
+		}
+
+		@Override
+		boolean isBmp(int start, int length) {
+			for (int i = start; i < start + length; i++) {
+				if (!Character.isBmpCodePoint(intArray[i])) {
+					return false;
+				}
+			}
+
+			return true;
+		}
+
 		@Override
 		Object getInternalStorage() {
 			return intArray;
@@ -174,6 +174,66 @@ public class CommonToken implements WritableToken, Serializable {
 		}
 	}
 
+	/**
+	 * Gets the text of this token like {@link #getText}, but as a view of
+	 * the input when it is a {@link CodePointCharStream}, so no string is
+	 * created for the token.
+	 */
+	public CharSequence getCharSequence() {
+		if ( text!=null ) {
+			return text;
+		}
+
+		CharStream input = getInputStream();
+		if ( input==null ) return null;
+		int n = input.size();
+		if ( start<n && stop<n) {
+			if ( input instanceof CodePointCharStream ) {
+				return ((CodePointCharStream)input).getCharSequence(start, stop);
+			}
+
+			return input.getText(Interval.of(start,stop));
+		}
+		else {
+			return "<EOF>";
+		}
+	}
+
+	/**
+	 * Determines whether the text of this token is equal to {@code s},
+	 * comparing against the input directly when it is a
+	 * {@link CodePointCharStream}. Returns {@code false} if {@code s} is
+	 * {@code null}.
+	 */
+	public boolean textEquals(CharSequence s) {
+		if ( s==null ) {
+			return false;
+		}
+
+		CharStream input = getInputStream();
+		if ( text==null && input instanceof CodePointCharStream && start<input.size() && stop<input.size() ) {
+			return ((CodePointCharStream)input).textEquals(start, stop, s);
+		}
+
+		String t = getText();
+		return t!=null && t.contentEquals(s);
+	}
+
+	/**
+	 * Returns the same value as {@code getText().hashCode()}, hashing the
+	 * input directly when it is a {@link CodePointCharStream}, or 0 if the
+	 * token has no text.
+	 */
+	public int textHashCode() {
+		CharStream input = getInputStream();
+		if ( text==null && input instanceof CodePointCharStream && start<input.size() && stop<input.size() ) {
+			return ((CodePointCharStream)input).textHashCode(start, stop);
+		}
+
+		String t = getText();
+		return t!=null ? t.hashCode() : 0;
+	}
+
 	/**
 	 * Explicitly set the text for this token. If {code text} is not
 	 * {@code null}, then {@link #getText} will return this value rather than
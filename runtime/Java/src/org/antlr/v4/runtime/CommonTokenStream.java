@@ -6,6 +6,8 @@
 
 package org.antlr.v4.runtime;
 
+import org.antlr.v4.runtime.misc.IntegerList;
+
 /**
  * This class extends {@link BufferedTokenStream} with functionality to filter
  * token streams to tokens on a particular channel (tokens where
@@ -92,6 +94,10 @@ public class CommonTokenStream extends BufferedTokenStream {
         lazyInit();
         if ( k == 0 ) return null;
         if ( k < 0 ) return LB(-k);
+        if ( k > 1 ) {
+            Token t = indexedLT(k);
+            if ( t!=null ) return t;
+        }
         int i = p;
         int n = 1; // we know tokens[p] is a good one
         // find k good tokens
@@ -106,6 +112,34 @@ public class CommonTokenStream extends BufferedTokenStream {
         return tokens.get(i);
     }
 
+	/**
+	 * Find {@code LT(k)} by counting {@code k-1} on-channel tokens past the
+	 * current one in the channel index, without visiting the off-channel
+	 * tokens in between. Returns {@code null} if the index can't be used.
+	 */
+	private Token indexedLT(int k) {
+		IntegerList onChannel = getChannelIndex(channel);
+		if ( onChannel==null || tokens.get(p).getType()==Token.EOF ) return null;
+		int pos = onChannel.binarySearch(p);
+		if ( pos<0 ) return null;
+		int target = pos + k - 1;
+		while ( target>=onChannel.size() && sync(size()) ) {
+			onChannel = getChannelIndex(channel);
+			if ( onChannel==null ) return null;
+		}
+		if ( target>=onChannel.size() ) {
+			// EOF is the last token; it's on every channel
+			return tokens.get(size() - 1);
+		}
+		for (int j = pos + 1; j <= target; j++) {
+			if ( tokens.get(onChannel.get(j)).getChannel()!=channel ) {
+				disableChannelIndex();
+				return null;
+			}
+		}
+		return tokens.get(onChannel.get(target));
+	}
+
 	/** Count EOF just once. */
 	public int getNumberOfOnChannelTokens() {
 		int n = 0;
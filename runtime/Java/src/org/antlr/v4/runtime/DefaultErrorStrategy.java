@@ -8,6 +8,7 @@ package org.antlr.v4.runtime;
 
 import org.antlr.v4.runtime.atn.ATN;
 import org.antlr.v4.runtime.atn.ATNState;
+import org.antlr.v4.runtime.atn.FollowSetCache;
 import org.antlr.v4.runtime.atn.RuleTransition;
 import org.antlr.v4.runtime.misc.IntervalSet;
 import org.antlr.v4.runtime.misc.Pair;
@@ -54,12 +55,15 @@ public class DefaultErrorStrategy implements ANTLRErrorStrategy {
 	/**
 	 * {@inheritDoc}
 	 *
-	 * <p>The default implementation simply calls {@link #endErrorCondition} to
-	 * ensure that the handler is not in error recovery mode.</p>
+	 * <p>The default implementation calls {@link #endErrorCondition} to
+	 * ensure that the handler is not in error recovery mode, and forgets the
+	 * {@link #nextTokensContext}, which belongs to the previous input.</p>
 	 */
 	@Override
 	public void reset(Parser recognizer) {
 		endErrorCondition(recognizer);
+		nextTokensContext = null;
+		nextTokensState = ATNState.INVALID_STATE_NUMBER;
 	}
 
 	/**
@@ -228,13 +232,14 @@ public class DefaultErrorStrategy implements ANTLRErrorStrategy {
 	 */
 	@Override
 	public void sync(Parser recognizer) throws RecognitionException {
-		ATNState s = recognizer.getInterpreter().atn.states.get(recognizer.getState());
-//		System.err.println("sync @ "+s.stateNumber+"="+s.getClass().getSimpleName());
 		// If already recovering, don't try to sync
 		if (inErrorRecoveryMode(recognizer)) {
 			return;
 		}
 
+		ATNState s = recognizer.getInterpreter().atn.states.get(recognizer.getState());
+//		System.err.println("sync @ "+s.stateNumber+"="+s.getClass().getSimpleName());
+
         TokenStream tokens = recognizer.getInputStream();
         int la = tokens.LA(1);
 
@@ -273,7 +278,7 @@ public class DefaultErrorStrategy implements ANTLRErrorStrategy {
 		case ATNState.STAR_LOOP_BACK:
 //			System.err.println("at loop back: "+s.getClass().getSimpleName());
 			reportUnwantedToken(recognizer);
-			IntervalSet expecting = recognizer.getExpectedTokens();
+			IntervalSet expecting = recognizer.getATN().getExpectedTokens(recognizer.getState(), recognizer.getContext());
 			IntervalSet whatFollowsLoopIterationOrRule =
 				expecting.or(getErrorRecoverySet(recognizer));
 			consumeUntil(recognizer, whatFollowsLoopIterationOrRule);
@@ -513,7 +518,7 @@ public class DefaultErrorStrategy implements ANTLRErrorStrategy {
 		ATNState currentState = recognizer.getInterpreter().atn.states.get(recognizer.getState());
 		ATNState next = currentState.transition(0).target;
 		ATN atn = recognizer.getInterpreter().atn;
-		IntervalSet expectingAtLL2 = atn.nextTokens(next, recognizer._ctx);
+		IntervalSet expectingAtLL2 = atn.getCachedNextTokens(next, recognizer._ctx);
 //		System.out.println("LT(2) set="+expectingAtLL2.toString(recognizer.getTokenNames()));
 		if ( expectingAtLL2.contains(currentSymbolType) ) {
 			reportMissingToken(recognizer);
@@ -603,8 +608,13 @@ public class DefaultErrorStrategy implements ANTLRErrorStrategy {
 	}
 
 
+	/** The tokens {@code recognizer} expects in its current state. The set is
+	 *  the one cached by the ATN, so it is read-only.
+	 *
+	 *  @see ATN#getExpectedTokens(int, RuleContext)
+	 */
 	protected IntervalSet getExpectedTokens(Parser recognizer) {
-		return recognizer.getExpectedTokens();
+		return recognizer.getATN().getExpectedTokens(recognizer.getState(), recognizer.getContext());
 	}
 
 	/** How should a token be displayed in an error message? The default
@@ -739,6 +749,29 @@ public class DefaultErrorStrategy implements ANTLRErrorStrategy {
 	 *  at run-time upon error to avoid overhead during parsing.
 	 */
 	protected IntervalSet getErrorRecoverySet(Parser recognizer) {
+		ATN atn = recognizer.getInterpreter().atn;
+		int depth = 0;
+		for (RuleContext ctx = recognizer._ctx; ctx!=null && ctx.invokingState>=0; ctx = ctx.parent) {
+			depth++;
+		}
+		// the set only depends on the invocation stack, not on the current
+		// state, and on how this class computes it
+		FollowSetCache.Key key = new FollowSetCache.Key(getClass(), ATNState.INVALID_STATE_NUMBER, recognizer._ctx, depth);
+		IntervalSet recoverSet = atn.followSetCache.get(key);
+		if ( recoverSet==null ) {
+			recoverSet = atn.followSetCache.put(key, computeErrorRecoverySet(recognizer));
+		}
+		return recoverSet;
+	}
+
+	/**
+	 * Computes {@link #getErrorRecoverySet} without the cache of the ATN.
+	 * The cached sets are keyed by the class of the strategy, so a subclass
+	 * overriding this method doesn't share them with other strategies.
+	 *
+	 * @since 4.7.1
+	 */
+	protected IntervalSet computeErrorRecoverySet(Parser recognizer) {
 		ATN atn = recognizer.getInterpreter().atn;
 		RuleContext ctx = recognizer._ctx;
 		IntervalSet recoverSet = new IntervalSet();
@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v4.runtime;
+
+import org.antlr.v4.runtime.misc.Interval;
+import org.antlr.v4.runtime.misc.Pair;
+
+import java.util.BitSet;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A {@link CommonTokenFactory} that gives the tokens of selected types, such
+ * as identifiers, a canonical copy of their text, so that all the tokens
+ * spelling the same name share one {@link String}. Tokens of other types
+ * are created as by {@link CommonTokenFactory#DEFAULT}.
+ *
+ * <p>The texts are kept in a table with a fixed number of slots, indexed by
+ * the hash of the text. For a {@link CodePointCharStream} input, the hash is
+ * computed and the slot compared on the input directly, so a token whose
+ * text is in the table doesn't allocate a string at all. A new text
+ * replaces the one in its slot, so the table never grows; the texts are
+ * canonical as long as the distinct names in use fit in the table.</p>
+ *
+ * <p>The factory is safe for concurrent use, so one instance can be shared
+ * by the lexers of all threads:</p>
+ *
+ * <pre>
+ * static final InterningTokenFactory IDS = new InterningTokenFactory(JavaLexer.Identifier);
+ * ...
+ * lexer.setTokenFactory(IDS);
+ * </pre>
+ *
+ * @since 4.7.1
+ */
+public class InterningTokenFactory extends CommonTokenFactory {
+	public static final int DEFAULT_TABLE_SIZE = 1 << 14;
+
+	/** The token types to intern, or {@code null} for all types. */
+	protected final BitSet types;
+
+	private final AtomicReferenceArray<String> table;
+	private final int mask;
+
+	/**
+	 * Interns the text of the tokens of {@code types}, or of all tokens if no
+	 * types are given, in a table of {@link #DEFAULT_TABLE_SIZE} slots.
+	 */
+	public InterningTokenFactory(int... types) {
+		this(DEFAULT_TABLE_SIZE, types);
+	}
+
+	/**
+	 * Interns the text of the tokens of {@code types}, or of all tokens if no
+	 * types are given, in a table of {@code tableSize} slots, rounded up to a
+	 * power of two.
+	 */
+	public InterningTokenFactory(int tableSize, int[] types) {
+		if ( tableSize<=0 || tableSize>1 << 30 ) {
+			throw new IllegalArgumentException("table size "+tableSize+" not in 1.."+(1 << 30));
+		}
+		int size = Integer.highestOneBit(tableSize);
+		if ( size<tableSize ) size <<= 1;
+		this.table = new AtomicReferenceArray<String>(size);
+		this.mask = size - 1;
+		if ( types.length>0 ) {
+			this.types = new BitSet();
+			for (int type : types) {
+				this.types.set(type);
+			}
+		}
+		else {
+			this.types = null;
+		}
+	}
+
+	@Override
+	public CommonToken create(Pair<TokenSource, CharStream> source, int type, String text,
+							  int channel, int start, int stop,
+							  int line, int charPositionInLine)
+	{
+		if ( text==null && type!=Token.EOF && source.b!=null && (types==null || (type>=0 && types.get(type))) &&
+			 start<=stop && stop<source.b.size() )
+		{
+			text = intern(source.b, start, stop);
+		}
+		return super.create(source, type, text, channel, start, stop, line, charPositionInLine);
+	}
+
+	/** The canonical copy of the text from {@code start} to {@code stop}
+	 *  (inclusive) of {@code input}.
+	 */
+	public String intern(CharStream input, int start, int stop) {
+		if ( input instanceof CodePointCharStream ) {
+			CodePointCharStream codePoints = (CodePointCharStream)input;
+			int hash = codePoints.textHashCode(start, stop);
+			int slot = slot(hash);
+			String s = table.get(slot);
+			if ( s!=null && s.hashCode()==hash && codePoints.textEquals(start, stop, s) ) {
+				return s;
+			}
+			s = codePoints.getText(Interval.of(start, stop));
+			table.set(slot, s);
+			return s;
+		}
+		return intern(input.getText(Interval.of(start, stop)));
+	}
+
+	/** The canonical copy of {@code text}. */
+	public String intern(String text) {
+		int slot = slot(text.hashCode());
+		String s = table.get(slot);
+		if ( s!=null && s.equals(text) ) {
+			return s;
+		}
+		table.set(slot, text);
+		return text;
+	}
+
+	/** Forget all the texts in the table. */
+	public void clear() {
+		for (int i = 0; i < table.length(); i++) {
+			table.set(i, null);
+		}
+	}
+
+	private int slot(int hash) {
+		// String hashes of short names differ mostly in their low bits; mix
+		// in the high ones too
+		hash ^= hash >>> 16;
+		return hash & mask;
+	}
+}
@@ -21,6 +21,9 @@ public class InterpreterRuleContext extends ParserRuleContext {
 	/** This is the backing field for {@link #getRuleIndex}. */
 	protected int ruleIndex = -1;
 
+	/** The arena this context was obtained from, while it is in use. */
+	ParseTreeArena arena;
+
 	public InterpreterRuleContext() { }
 
 	/**
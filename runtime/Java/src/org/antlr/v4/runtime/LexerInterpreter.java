@@ -29,8 +29,7 @@ public class LexerInterpreter extends Lexer {
 	private final Vocabulary vocabulary;
 
 	protected final DFA[] _decisionToDFA;
-	protected final PredictionContextCache _sharedContextCache =
-		new PredictionContextCache();
+	protected final PredictionContextCache _sharedContextCache;
 
 	@Deprecated
 	public LexerInterpreter(String grammarFileName, Collection<String> tokenNames, Collection<String> ruleNames, Collection<String> modeNames, ATN atn, CharStream input) {
@@ -43,6 +42,19 @@ public class LexerInterpreter extends Lexer {
 	}
 
 	public LexerInterpreter(String grammarFileName, Vocabulary vocabulary, Collection<String> ruleNames, Collection<String> channelNames, Collection<String> modeNames, ATN atn, CharStream input) {
+		this(grammarFileName, vocabulary, ruleNames, channelNames, modeNames, atn, input,
+			 new DFA[atn.getNumberOfDecisions()], new PredictionContextCache());
+	}
+
+	/** Create an interpreter that shares its mode DFAs with other
+	 *  interpreters of the same ATN, like the instances of a generated lexer
+	 *  do, so that they don't each have to warm up.
+	 *
+	 *  @since 4.7.1
+	 */
+	public LexerInterpreter(String grammarFileName, Vocabulary vocabulary, Collection<String> ruleNames, Collection<String> channelNames, Collection<String> modeNames, ATN atn, CharStream input,
+							DFA[] decisionToDFA, PredictionContextCache sharedContextCache)
+	{
 		super(input);
 
 		if (atn.grammarType != ATNType.LEXER) {
@@ -61,10 +73,13 @@ public class LexerInterpreter extends Lexer {
 		this.modeNames = modeNames.toArray(new String[modeNames.size()]);
 		this.vocabulary = vocabulary;
 
-		this._decisionToDFA = new DFA[atn.getNumberOfDecisions()];
-		for (int i = 0; i < _decisionToDFA.length; i++) {
-			_decisionToDFA[i] = new DFA(atn.getDecisionState(i), i);
+		if ( decisionToDFA.length!=atn.getNumberOfDecisions() ) {
+			throw new IllegalArgumentException("expected "+atn.getNumberOfDecisions()+" mode DFAs");
 		}
+
+		// mode DFAs are created on first use
+		this._decisionToDFA = decisionToDFA;
+		this._sharedContextCache = sharedContextCache;
 		this._interp = new LexerATNSimulator(this,atn,_decisionToDFA,_sharedContextCache);
 	}
 
@@ -0,0 +1,250 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v4.runtime;
+
+import org.antlr.v4.runtime.tree.ErrorNode;
+import org.antlr.v4.runtime.tree.ErrorNodeImpl;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.TerminalNode;
+import org.antlr.v4.runtime.tree.TerminalNodeImpl;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A per-parser pool for the parse tree nodes created while parsing, which
+ * are released in bulk once the caller is done with the tree.
+ *
+ * <p>Install an arena with {@link Parser#setParseTreeArena}. The parser then
+ * obtains terminal and error nodes (and, for {@link ParserInterpreter},
+ * {@link InterpreterRuleContext} objects) from the arena instead of
+ * allocating new ones, and registers every other context it enters. A call
+ * to {@link #release} clears all of these objects and makes the pooled ones
+ * available to the next parse. Contexts of generated parsers are allocated
+ * by the generated code, so they are cleared but not reused.</p>
+ *
+ * <p>No reference to any node of a released tree may be used afterwards.
+ * In debug mode, released objects are poisoned instead of being reused, so
+ * that such use fails with an {@link IllegalStateException}.</p>
+ *
+ * <p>This class is not thread safe; use one arena per parser.</p>
+ */
+public class ParseTreeArena {
+	private static final Token POISONED_TOKEN = new PoisonedToken();
+	private static final List<ParseTree> POISONED_CHILDREN = new PoisonedList();
+
+	private final boolean debug;
+
+	private final List<TerminalNodeImpl> freeTerminals = new ArrayList<TerminalNodeImpl>();
+	private final List<ErrorNodeImpl> freeErrorNodes = new ArrayList<ErrorNodeImpl>();
+	private final List<InterpreterRuleContext> freeContexts = new ArrayList<InterpreterRuleContext>();
+
+	private final List<TerminalNodeImpl> usedTerminals = new ArrayList<TerminalNodeImpl>();
+	private final List<InterpreterRuleContext> usedContexts = new ArrayList<InterpreterRuleContext>();
+	private final List<ParserRuleContext> enteredContexts = new ArrayList<ParserRuleContext>();
+
+	public ParseTreeArena() {
+		this(false);
+	}
+
+	/**
+	 * @param debug {@code true} to poison released nodes instead of reusing
+	 * them.
+	 */
+	public ParseTreeArena(boolean debug) {
+		this.debug = debug;
+	}
+
+	public boolean isDebug() {
+		return debug;
+	}
+
+	public TerminalNode createTerminalNode(ParserRuleContext parent, Token t) {
+		TerminalNodeImpl node = freeTerminals.isEmpty() ? new TerminalNodeImpl(t) : freeTerminals.remove(freeTerminals.size() - 1);
+		node.symbol = t;
+		usedTerminals.add(node);
+		return node;
+	}
+
+	public ErrorNode createErrorNode(ParserRuleContext parent, Token t) {
+		ErrorNodeImpl node = freeErrorNodes.isEmpty() ? new ErrorNodeImpl(t) : freeErrorNodes.remove(freeErrorNodes.size() - 1);
+		node.symbol = t;
+		usedTerminals.add(node);
+		return node;
+	}
+
+	public InterpreterRuleContext createInterpreterRuleContext(ParserRuleContext parent, int invokingStateNumber, int ruleIndex) {
+		InterpreterRuleContext ctx;
+		if ( freeContexts.isEmpty() ) {
+			ctx = new InterpreterRuleContext(parent, invokingStateNumber, ruleIndex);
+		}
+		else {
+			ctx = freeContexts.remove(freeContexts.size() - 1);
+			ctx.parent = parent;
+			ctx.invokingState = invokingStateNumber;
+			ctx.ruleIndex = ruleIndex;
+		}
+
+		ctx.arena = this;
+		usedContexts.add(ctx);
+		return ctx;
+	}
+
+	/**
+	 * Registers a context which was not created by this arena, so it is
+	 * cleared by the next call to {@link #release}. Contexts created by this
+	 * arena are already tracked and are ignored.
+	 */
+	public void enterContext(ParserRuleContext ctx) {
+		if ( ctx instanceof InterpreterRuleContext && ((InterpreterRuleContext)ctx).arena==this ) {
+			return;
+		}
+		enteredContexts.add(ctx);
+	}
+
+	/** Gets the number of nodes which will be released by {@link #release}. */
+	public int getAllocatedCount() {
+		return usedTerminals.size() + usedContexts.size() + enteredContexts.size();
+	}
+
+	/**
+	 * Releases every node obtained from or registered with this arena since
+	 * the previous release.
+	 */
+	public void release() {
+		for (TerminalNodeImpl node : usedTerminals) {
+			if ( debug ) {
+				node.symbol = POISONED_TOKEN;
+				node.parent = null;
+			}
+			else {
+				node.symbol = null;
+				node.parent = null;
+				if ( node instanceof ErrorNodeImpl ) {
+					freeErrorNodes.add((ErrorNodeImpl)node);
+				}
+				else {
+					freeTerminals.add(node);
+				}
+			}
+		}
+
+		for (ParserRuleContext ctx : enteredContexts) {
+			clear(ctx);
+		}
+
+		for (InterpreterRuleContext ctx : usedContexts) {
+			clear(ctx);
+			ctx.arena = null;
+			if ( !debug ) {
+				ctx.ruleIndex = -1;
+				freeContexts.add(ctx);
+			}
+		}
+
+		usedTerminals.clear();
+		usedContexts.clear();
+		enteredContexts.clear();
+	}
+
+	/** Drops all pooled nodes. */
+	public void trim() {
+		freeTerminals.clear();
+		freeErrorNodes.clear();
+		freeContexts.clear();
+	}
+
+	protected void clear(ParserRuleContext ctx) {
+		ctx.parent = null;
+		ctx.invokingState = -1;
+		ctx.exception = null;
+		if ( debug ) {
+			ctx.children = POISONED_CHILDREN;
+			ctx.start = POISONED_TOKEN;
+			ctx.stop = POISONED_TOKEN;
+		}
+		else {
+			ctx.children = null;
+			ctx.start = null;
+			ctx.stop = null;
+		}
+	}
+
+	private static IllegalStateException useAfterRelease() {
+		return new IllegalStateException("parse tree node used after its ParseTreeArena was released");
+	}
+
+	private static final class PoisonedList extends AbstractList<ParseTree> {
+		@Override
+		public ParseTree get(int index) {
+			throw useAfterRelease();
+		}
+
+		@Override
+		public int size() {
+			throw useAfterRelease();
+		}
+	}
+
+	private static final class PoisonedToken implements Token {
+		@Override
+		public String getText() {
+			throw useAfterRelease();
+		}
+
+		@Override
+		public int getType() {
+			throw useAfterRelease();
+		}
+
+		@Override
+		public int getLine() {
+			throw useAfterRelease();
+		}
+
+		@Override
+		public int getCharPositionInLine() {
+			throw useAfterRelease();
+		}
+
+		@Override
+		public int getChannel() {
+			throw useAfterRelease();
+		}
+
+		@Override
+		public int getTokenIndex() {
+			throw useAfterRelease();
+		}
+
+		@Override
+		public int getStartIndex() {
+			throw useAfterRelease();
+		}
+
+		@Override
+		public int getStopIndex() {
+			throw useAfterRelease();
+		}
+
+		@Override
+		public TokenSource getTokenSource() {
+			throw useAfterRelease();
+		}
+
+		@Override
+		public CharStream getInputStream() {
+			throw useAfterRelease();
+		}
+
+		@Override
+		public String toString() {
+			return "<released>";
+		}
+	}
+}
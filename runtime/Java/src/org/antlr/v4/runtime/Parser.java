@@ -18,8 +18,10 @@ import org.antlr.v4.runtime.atn.RuleTransition;
 import org.antlr.v4.runtime.dfa.DFA;
 import org.antlr.v4.runtime.misc.IntegerStack;
 import org.antlr.v4.runtime.misc.IntervalSet;
+import org.antlr.v4.runtime.tree.CompactChildList;
 import org.antlr.v4.runtime.tree.ErrorNode;
 import org.antlr.v4.runtime.tree.ErrorNodeImpl;
+import org.antlr.v4.runtime.tree.ParseTree;
 import org.antlr.v4.runtime.tree.ParseTreeListener;
 import org.antlr.v4.runtime.tree.ParseTreeWalker;
 import org.antlr.v4.runtime.tree.TerminalNode;
@@ -79,6 +81,55 @@ public abstract class Parser extends Recognizer<Token, ParserATNSimulator> {
 		}
 	}
 
+	/**
+	 * Replaces the {@link ParserRuleContext#children} list of each rule with a
+	 * {@link CompactChildList} when the rule is exited.
+	 *
+	 * @see #setCompactParseTree
+	 */
+	public static class CompactParseTreeListener implements ParseTreeListener {
+		private final Parser parser;
+
+		public CompactParseTreeListener(Parser parser) {
+			this.parser = parser;
+		}
+
+		@Override
+		public void enterEveryRule(ParserRuleContext ctx) {
+			// pushNewRecursionContext adds the completed previous context as
+			// a child without an exit event for it
+			if (ctx.children != null) {
+				for (ParseTree child : ctx.children) {
+					if (child instanceof ParserRuleContext) {
+						exitEveryRule((ParserRuleContext)child);
+					}
+				}
+			}
+		}
+
+		@Override
+		public void visitTerminal(TerminalNode node) { }
+
+		@Override
+		public void visitErrorNode(ErrorNode node) {	}
+
+		@Override
+		public void exitEveryRule(ParserRuleContext ctx) {
+			TokenStream tokens = parser.getInputStream();
+			if (ctx.children == null || ctx.children instanceof CompactChildList) {
+				return;
+			}
+
+			if (tokens instanceof BufferedTokenStream) {
+				ctx.children = CompactChildList.compact(ctx, ctx.children, tokens);
+			}
+			else if (ctx.children instanceof ArrayList) {
+				// token indexes can't be resolved once they leave the window of an unbuffered stream
+				((ArrayList<?>)ctx.children).trimToSize();
+			}
+		}
+	}
+
 	/**
 	 * This field maps from the serialized ATN string to the deserialized {@link ATN} with
 	 * bypass alternatives.
@@ -151,6 +202,14 @@ public abstract class Parser extends Recognizer<Token, ParserATNSimulator> {
 	 */
 	protected int _syntaxErrors;
 
+	/**
+	 * The arena which creates and tracks the nodes of the parse tree, or
+	 * {@code null} to allocate nodes normally.
+	 *
+	 * @see #setParseTreeArena
+	 */
+	protected ParseTreeArena _arena;
+
 	/** Indicates parser has match()ed EOF token. See {@link #exitRule()}. */
 	protected boolean matchedEOF;
 
@@ -304,6 +363,63 @@ public abstract class Parser extends Recognizer<Token, ParserATNSimulator> {
 		return getParseListeners().contains(TrimToSizeListener.INSTANCE);
 	}
 
+	/**
+	 * Obtain parse tree nodes from {@code arena} during parsing, so they can
+	 * be released in bulk with {@link ParseTreeArena#release} once the tree is
+	 * no longer used. This property is {@code null} by default for a newly
+	 * constructed parser.
+	 *
+	 * @param arena The arena to use, or {@code null} to allocate nodes normally.
+	 */
+	public void setParseTreeArena(ParseTreeArena arena) {
+		_arena = arena;
+	}
+
+	public ParseTreeArena getParseTreeArena() {
+		return _arena;
+	}
+
+	/**
+	 * Store the children of each rule in a tightly sized {@link CompactChildList}
+	 * after the rule is parsed, encoding terminal children as token indexes
+	 * into the input {@link BufferedTokenStream}. The memory retained by the
+	 * parse tree is then mostly proportional to the number of rule nodes;
+	 * terminal nodes are only created when they are accessed. This property
+	 * is set to {@code false} by default for a newly constructed parser.
+	 *
+	 * @param compactParseTrees {@code true} to compact the children of each
+	 * {@link ParserRuleContext} after a rule is parsed.
+	 */
+	public void setCompactParseTree(boolean compactParseTrees) {
+		if (compactParseTrees) {
+			if (getCompactParseTree()) return;
+			addParseListener(new CompactParseTreeListener(this));
+		}
+		else {
+			List<ParseTreeListener> listeners = _parseListeners;
+			if (listeners == null) return;
+			for (ParseTreeListener listener : new ArrayList<ParseTreeListener>(listeners)) {
+				if (listener instanceof CompactParseTreeListener) {
+					removeParseListener(listener);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return {@code true} if the children of each rule are stored in a
+	 * {@link CompactChildList} during the parse process.
+	 */
+	public boolean getCompactParseTree() {
+		for (ParseTreeListener listener : getParseListeners()) {
+			if (listener instanceof CompactParseTreeListener) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
 
 	public List<ParseTreeListener> getParseListeners() {
 		List<ParseTreeListener> listeners = _parseListeners;
@@ -598,6 +714,10 @@ public abstract class Parser extends Recognizer<Token, ParserATNSimulator> {
 	 * @since 4.7
 	 */
 	public TerminalNode createTerminalNode(ParserRuleContext parent, Token t) {
+		if (_arena != null) {
+			return _arena.createTerminalNode(parent, t);
+		}
+
 		return new TerminalNodeImpl(t);
 	}
 
@@ -607,6 +727,10 @@ public abstract class Parser extends Recognizer<Token, ParserATNSimulator> {
 	 * @since 4.7
 	 */
 	public ErrorNode createErrorNode(ParserRuleContext parent, Token t) {
+		if (_arena != null) {
+			return _arena.createErrorNode(parent, t);
+		}
+
 		return new ErrorNodeImpl(t);
 	}
 
@@ -626,6 +750,7 @@ public abstract class Parser extends Recognizer<Token, ParserATNSimulator> {
 		setState(state);
 		_ctx = localctx;
 		_ctx.start = _input.LT(1);
+		if (_arena != null) _arena.enterContext(localctx);
 		if (_buildParseTrees) addContextToParseTree();
         if ( _parseListeners != null) triggerEnterRuleEvent();
 	}
@@ -648,6 +773,9 @@ public abstract class Parser extends Recognizer<Token, ParserATNSimulator> {
 		localctx.setAltNumber(altNum);
 		// if we have new localctx, make sure we replace existing ctx
 		// that is previous child of parse tree
+		if ( _arena != null && _ctx != localctx ) {
+			_arena.enterContext(localctx);
+		}
 		if ( _buildParseTrees && _ctx != localctx ) {
 			ParserRuleContext parent = (ParserRuleContext)_ctx.parent;
 			if ( parent!=null )	{
@@ -686,6 +814,7 @@ public abstract class Parser extends Recognizer<Token, ParserATNSimulator> {
 		_precedenceStack.push(precedence);
 		_ctx = localctx;
 		_ctx.start = _input.LT(1);
+		if (_arena != null) _arena.enterContext(localctx);
 		if (_parseListeners != null) {
 			triggerEnterRuleEvent(); // simulates rule entry for left-recursive rules
 		}
@@ -702,6 +831,7 @@ public abstract class Parser extends Recognizer<Token, ParserATNSimulator> {
 
 		_ctx = localctx;
 		_ctx.start = previous.start;
+		if (_arena != null) _arena.enterContext(localctx);
 		if (_buildParseTrees) {
 			_ctx.addChild(previous);
 		}
@@ -814,12 +944,13 @@ public abstract class Parser extends Recognizer<Token, ParserATNSimulator> {
 	/**
 	 * Computes the set of input symbols which could follow the current parser
 	 * state and context, as given by {@link #getState} and {@link #getContext},
-	 * respectively.
+	 * respectively. The result is a new set, which the caller may modify.
 	 *
 	 * @see ATN#getExpectedTokens(int, RuleContext)
 	 */
 	public IntervalSet getExpectedTokens() {
-		return getATN().getExpectedTokens(getState(), getContext());
+		// the ATN's set is shared and read-only
+		return new IntervalSet(getATN().getExpectedTokens(getState(), getContext()));
 	}
 
 
@@ -868,7 +999,8 @@ public abstract class Parser extends Recognizer<Token, ParserATNSimulator> {
 			List<String> s = new ArrayList<String>();
 			for (int d = 0; d < _interp.decisionToDFA.length; d++) {
 				DFA dfa = _interp.decisionToDFA[d];
-				s.add( dfa.toString(getVocabulary()) );
+				// DFAs are only created once a decision is reached
+				s.add( dfa!=null ? dfa.toString(getVocabulary()) : "" );
 			}
 			return s;
 		}
@@ -880,7 +1012,7 @@ public abstract class Parser extends Recognizer<Token, ParserATNSimulator> {
 			boolean seenOne = false;
 			for (int d = 0; d < _interp.decisionToDFA.length; d++) {
 				DFA dfa = _interp.decisionToDFA[d];
-				if ( !dfa.states.isEmpty() ) {
+				if ( dfa!=null && !dfa.states.isEmpty() ) {
 					if ( seenOne ) System.out.println();
 					System.out.println("Decision " + dfa.decision + ":");
 					System.out.print(dfa.toString(getVocabulary()));
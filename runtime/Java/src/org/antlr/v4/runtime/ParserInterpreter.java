@@ -44,8 +44,8 @@ public class ParserInterpreter extends Parser {
 	protected final String grammarFileName;
 	protected final ATN atn;
 
-	protected final DFA[] decisionToDFA; // not shared like it is for generated parsers
-	protected final PredictionContextCache sharedContextCache = new PredictionContextCache();
+	protected final DFA[] decisionToDFA; // not shared unless passed in
+	protected final PredictionContextCache sharedContextCache;
 
 	@Deprecated
 	protected final String[] tokenNames;
@@ -97,8 +97,25 @@ public class ParserInterpreter extends Parser {
 
 	public ParserInterpreter(String grammarFileName, Vocabulary vocabulary,
 							 Collection<String> ruleNames, ATN atn, TokenStream input)
+	{
+		this(grammarFileName, vocabulary, ruleNames, atn, input,
+			 new DFA[atn.getNumberOfDecisions()], new PredictionContextCache());
+	}
+
+	/** Create an interpreter that shares its decision DFAs and prediction
+	 *  contexts with other interpreters of the same ATN, like the instances
+	 *  of a generated parser do, so that they don't each have to warm up.
+	 *
+	 *  @since 4.7.1
+	 */
+	public ParserInterpreter(String grammarFileName, Vocabulary vocabulary,
+							 Collection<String> ruleNames, ATN atn, TokenStream input,
+							 DFA[] decisionToDFA, PredictionContextCache sharedContextCache)
 	{
 		super(input);
+		if ( decisionToDFA.length!=atn.getNumberOfDecisions() ) {
+			throw new IllegalArgumentException("expected "+atn.getNumberOfDecisions()+" decision DFAs");
+		}
 		this.grammarFileName = grammarFileName;
 		this.atn = atn;
 		this.tokenNames = new String[atn.maxTokenType];
@@ -109,13 +126,9 @@ public class ParserInterpreter extends Parser {
 		this.ruleNames = ruleNames.toArray(new String[ruleNames.size()]);
 		this.vocabulary = vocabulary;
 
-		// init decision DFA
-		int numberOfDecisions = atn.getNumberOfDecisions();
-		this.decisionToDFA = new DFA[numberOfDecisions];
-		for (int i = 0; i < numberOfDecisions; i++) {
-			DecisionState decisionState = atn.getDecisionState(i);
-			decisionToDFA[i] = new DFA(decisionState, i);
-		}
+		// decision DFAs are created on first use
+		this.decisionToDFA = decisionToDFA;
+		this.sharedContextCache = sharedContextCache;
 
 		// get atn simulator that knows how to do predictions
 		setInterpreter(new ParserATNSimulator(this, atn,
@@ -126,6 +139,9 @@ public class ParserInterpreter extends Parser {
 	@Override
 	public void reset() {
 		super.reset();
+		if ( _parentContextStack!=null ) { // null when called by Parser's constructor
+			_parentContextStack.clear();
+		}
 		overrideDecisionReached = false;
 		overrideDecisionRoot = null;
 	}
@@ -327,6 +343,10 @@ public class ParserInterpreter extends Parser {
 		int invokingStateNumber,
 		int ruleIndex)
 	{
+		if (_arena != null) {
+			return _arena.createInterpreterRuleContext(parent, invokingStateNumber, ruleIndex);
+		}
+
 		return new InterpreterRuleContext(parent, invokingStateNumber, ruleIndex);
 	}
 
@@ -6,6 +6,7 @@
 package org.antlr.v4.runtime;
 
 import org.antlr.v4.runtime.misc.Interval;
+import org.antlr.v4.runtime.tree.CompactChildList;
 import org.antlr.v4.runtime.tree.ErrorNode;
 import org.antlr.v4.runtime.tree.ErrorNodeImpl;
 import org.antlr.v4.runtime.tree.ParseTree;
@@ -131,6 +132,7 @@ public class ParserRuleContext extends RuleContext {
 	 */
 	public <T extends ParseTree> T addAnyChild(T t) {
 		if ( children==null ) children = new ArrayList<>();
+		else if ( children instanceof CompactChildList ) children = new ArrayList<>(children);
 		children.add(t);
 		return t;
 	}
@@ -190,6 +192,9 @@ public class ParserRuleContext extends RuleContext {
 	 *  generic ruleContext object.
 	 */
 	public void removeLastChild() {
+		if ( children instanceof CompactChildList ) {
+			children = new ArrayList<>(children);
+		}
 		if ( children!=null ) {
 			children.remove(children.size()-1);
 		}
@@ -325,6 +330,40 @@ public class ParserRuleContext extends RuleContext {
 	 */
 	public Token getStop() { return stop; }
 
+	/**
+	 * Gets the text of the input from the start of {@link #start} to the end
+	 * of {@link #stop}, including any off-channel tokens in between, by
+	 * slicing the input stream directly rather than concatenating the text
+	 * of the children like {@link #getText}. When the input is a
+	 * {@link CodePointCharStream} the result is a view, so no character
+	 * data is copied.
+	 *
+	 * <p>If the start token has no input stream, this returns
+	 * {@link #getText}.</p>
+	 */
+	public CharSequence getSourceText() {
+		if ( start==null ) {
+			return "";
+		}
+
+		CharStream input = start.getInputStream();
+		if ( input==null ) {
+			return getText();
+		}
+
+		int a = start.getStartIndex();
+		int b = stop!=null ? stop.getStopIndex() : a - 1;
+		if ( b<a ) {
+			return "";
+		}
+
+		if ( input instanceof CodePointCharStream ) {
+			return ((CodePointCharStream)input).getCharSequence(a, b);
+		}
+
+		return input.getText(Interval.of(a, b));
+	}
+
 	/** Used for rule context info debugging during parse-time, not so much for ATN debugging */
 	public String toInfoString(Parser recognizer) {
 		List<String> rules = recognizer.getRuleInvocationStack(this);
@@ -75,14 +75,15 @@ public class RecognitionException extends RuntimeException {
 	 * previously matched symbol at the time this exception was thrown.
 	 *
 	 * <p>If the set of expected tokens is not known and could not be computed,
-	 * this method returns {@code null}.</p>
+	 * this method returns {@code null}. Otherwise the returned set is a new
+	 * set, which the caller may modify.</p>
 	 *
 	 * @return The set of token types that could potentially follow the current
 	 * state in the ATN, or {@code null} if the information is not available.
 	 */
 	public IntervalSet getExpectedTokens() {
 		if (recognizer != null) {
-			return recognizer.getATN().getExpectedTokens(offendingState, ctx);
+			return new IntervalSet(recognizer.getATN().getExpectedTokens(offendingState, ctx));
 		}
 
 		return null;
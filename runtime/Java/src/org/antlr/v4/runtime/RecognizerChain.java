@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v4.runtime;
+
+import org.antlr.v4.runtime.atn.ParserATNSimulator;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.tree.ParseTreeListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A lexer, a {@link CommonTokenStream} and a parser connected to each other,
+ * which can be {@link #recycle recycled} to parse one input after another
+ * instead of creating new recognizers for each input.
+ *
+ * <p>The chain remembers how its recognizers were configured when it was
+ * created: the error listeners, the token factory, the parse listeners, the
+ * error strategy, the parse tree options, the simulator and its prediction
+ * mode. Recycling restores that configuration and resets everything a
+ * parse leaves behind, so changes made while parsing one input don't leak
+ * into the next one. The recognizers keep their buffers, such as the token
+ * list and the stacks, and share their DFAs with the other recognizers of
+ * the grammar as usual.</p>
+ *
+ * <p>Like the recognizers themselves, a chain must only be used by one thread
+ * at a time. Use a {@link RecognizerPool} to share chains among threads.</p>
+ *
+ * @since 4.7.1
+ */
+public class RecognizerChain<L extends Lexer, P extends Parser> {
+	protected final L lexer;
+	protected final CommonTokenStream tokens;
+	protected final P parser;
+
+	private final List<ANTLRErrorListener> lexerErrorListeners;
+	private final TokenFactory<?> tokenFactory;
+	private final List<ANTLRErrorListener> parserErrorListeners;
+	private final List<ParseTreeListener> parseListeners;
+	private final ANTLRErrorStrategy errorHandler;
+	private final boolean buildParseTrees;
+	private final ParseTreeArena arena;
+	private final ParserATNSimulator interpreter;
+	private final PredictionMode predictionMode;
+
+	/** The pool this chain was acquired from and not released to yet, if
+	 *  any.
+	 */
+	final AtomicReference<RecognizerPool<?, ?>> owner = new AtomicReference<RecognizerPool<?, ?>>();
+
+	/** Connect {@code parser} to {@code lexer} through a new
+	 *  {@link CommonTokenStream}, and remember their configuration.
+	 */
+	public RecognizerChain(L lexer, P parser) {
+		this(lexer, new CommonTokenStream(lexer), parser);
+	}
+
+	/** Connect {@code parser} to {@code lexer} through {@code tokens}, whose
+	 *  token source becomes {@code lexer}, and remember their configuration.
+	 */
+	public RecognizerChain(L lexer, CommonTokenStream tokens, P parser) {
+		this.lexer = lexer;
+		this.tokens = tokens;
+		this.parser = parser;
+		this.lexerErrorListeners = new ArrayList<ANTLRErrorListener>(lexer.getErrorListeners());
+		this.tokenFactory = lexer.getTokenFactory();
+		this.parserErrorListeners = new ArrayList<ANTLRErrorListener>(parser.getErrorListeners());
+		this.parseListeners = new ArrayList<ParseTreeListener>(parser.getParseListeners());
+		this.errorHandler = parser.getErrorHandler();
+		this.buildParseTrees = parser.getBuildParseTree();
+		this.arena = parser.getParseTreeArena();
+		this.interpreter = parser.getInterpreter();
+		this.predictionMode = interpreter.getPredictionMode();
+		tokens.setTokenSource(lexer);
+		parser.setTokenStream(tokens);
+	}
+
+	/**
+	 * Reset the chain to the state it was created in, reading {@code input}.
+	 * A {@code null} input only drops the reference to the previous one, so
+	 * that an idle chain doesn't keep it alive.
+	 */
+	public void recycle(CharStream input) {
+		lexer.setInputStream(input);
+		restore(lexer, lexerErrorListeners);
+		lexer.setTokenFactory(tokenFactory);
+		tokens.setTokenSource(lexer);
+
+		// restore the error handler and simulator first so that the parser's
+		// reset resets them
+		parser.setErrorHandler(errorHandler);
+		parser.setInterpreter(interpreter);
+		parser.setTokenStream(tokens);
+		restore(parser, parserErrorListeners);
+		if ( !parser.getParseListeners().equals(parseListeners) ) {
+			parser.removeParseListeners();
+			for (ParseTreeListener listener : parseListeners) {
+				parser.addParseListener(listener);
+			}
+		}
+		parser.setBuildParseTree(buildParseTrees);
+		parser.setParseTreeArena(arena);
+		interpreter.setPredictionMode(predictionMode);
+	}
+
+	public L getLexer() {
+		return lexer;
+	}
+
+	public CommonTokenStream getTokenStream() {
+		return tokens;
+	}
+
+	public P getParser() {
+		return parser;
+	}
+
+	private static void restore(Recognizer<?, ?> recognizer, List<ANTLRErrorListener> listeners) {
+		if ( !recognizer.getErrorListeners().equals(listeners) ) {
+			recognizer.removeErrorListeners();
+			for (ANTLRErrorListener listener : listeners) {
+				recognizer.addErrorListener(listener);
+			}
+		}
+	}
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v4.runtime;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * A pool of {@link RecognizerChain}s, which is safe for concurrent use.
+ * Subclasses create the chains, configuring the recognizers as every parse
+ * needs them:
+ *
+ * <pre>
+ * static final RecognizerPool&lt;JavaLexer, JavaParser&gt; POOL =
+ *     new RecognizerPool&lt;JavaLexer, JavaParser&gt;() {
+ *         protected RecognizerChain&lt;JavaLexer, JavaParser&gt; create() {
+ *             JavaParser parser = new JavaParser(null);
+ *             parser.getInterpreter().setPredictionMode(PredictionMode.SLL);
+ *             return new RecognizerChain&lt;JavaLexer, JavaParser&gt;(new JavaLexer(null), parser);
+ *         }
+ *     };
+ * ...
+ * RecognizerChain&lt;JavaLexer, JavaParser&gt; chain = POOL.acquire(input);
+ * try {
+ *     tree = chain.getParser().compilationUnit();
+ * }
+ * finally {
+ *     POOL.release(chain);
+ * }
+ * </pre>
+ *
+ * <p>A chain acquired from the pool is {@link RecognizerChain#recycle
+ * recycled} for the input, and it belongs to the caller until it is released.
+ * The pool keeps up to {@link #getMaxIdle} released chains; the ones beyond
+ * are left to the garbage collector.</p>
+ *
+ * @since 4.7.1
+ */
+public abstract class RecognizerPool<L extends Lexer, P extends Parser> {
+	public static final int DEFAULT_MAX_IDLE = 64;
+
+	private final int maxIdle;
+	private final BlockingQueue<RecognizerChain<L, P>> idle;
+
+	public RecognizerPool() {
+		this(DEFAULT_MAX_IDLE);
+	}
+
+	public RecognizerPool(int maxIdle) {
+		this.maxIdle = maxIdle;
+		this.idle = new ArrayBlockingQueue<RecognizerChain<L, P>>(maxIdle);
+	}
+
+	/** Create a new chain, for {@link #acquire} when no chain is idle. */
+	protected abstract RecognizerChain<L, P> create();
+
+	/** An idle chain, or a new one if there is none, reading {@code input}. */
+	public RecognizerChain<L, P> acquire(CharStream input) {
+		RecognizerChain<L, P> chain = idle.poll();
+		if ( chain==null ) {
+			chain = create();
+		}
+		chain.owner.set(this);
+		chain.recycle(input);
+		return chain;
+	}
+
+	/** Return {@code chain} to the pool. The caller must not use it, nor the
+	 *  recognizers in it, anymore.
+	 *
+	 *  @throws IllegalStateException if {@code chain} wasn't acquired from
+	 *  this pool, or was already released
+	 */
+	public void release(RecognizerChain<L, P> chain) {
+		if ( !chain.owner.compareAndSet(this, null) ) {
+			throw new IllegalStateException("chain not acquired from this pool or already released");
+		}
+		chain.recycle(null);
+		idle.offer(chain);
+	}
+
+	public int getMaxIdle() {
+		return maxIdle;
+	}
+
+	/** The number of released chains waiting in the pool. */
+	public int getIdleCount() {
+		return idle.size();
+	}
+
+	/** Drop all the idle chains. */
+	public void clear() {
+		idle.clear();
+	}
+}
@@ -70,6 +70,23 @@ public class ATN {
 
 	public final List<TokensStartState> modeToStartState = new ArrayList<TokensStartState>();
 
+	/**
+	 * Caches the results of {@link #getExpectedTokens} and the error
+	 * recovery sets of {@link org.antlr.v4.runtime.DefaultErrorStrategy},
+	 * for all recognizers sharing this ATN.
+	 *
+	 * @since 4.7.1
+	 */
+	public final FollowSetCache followSetCache = new FollowSetCache();
+
+	/**
+	 * Interns the executors of the sequences of {@link #lexerActions} met by
+	 * all lexers sharing this ATN.
+	 *
+	 * @since 4.7.1
+	 */
+	public final LexerActionExecutorCache lexerActionExecutorCache = new LexerActionExecutorCache();
+
 	/** Used for runtime deserialization of ATNs from strings */
 	public ATN(ATNType grammarType, int maxTokenType) {
 		this.grammarType = grammarType;
@@ -80,11 +97,42 @@ public class ATN {
 	 *  If {@code ctx} is null, the set of tokens will not include what can follow
 	 *  the rule surrounding {@code s}. In other words, the set will be
 	 *  restricted to tokens reachable staying within {@code s}'s rule.
+	 *
+	 *  <p>The returned set is a new set, which the caller may modify. Callers
+	 *  which only read it should use {@link #getCachedNextTokens} instead.</p>
 	 */
 	public IntervalSet nextTokens(ATNState s, RuleContext ctx) {
-		LL1Analyzer anal = new LL1Analyzer(this);
-		IntervalSet next = anal.LOOK(s, ctx);
-		return next;
+		if ( ctx==null ) {
+			LL1Analyzer anal = new LL1Analyzer(this);
+			return anal.LOOK(s, null);
+		}
+
+		return new IntervalSet(getCachedNextTokens(s, ctx));
+	}
+
+	/** The same set as {@link #nextTokens(ATNState, RuleContext)}, shared by
+	 *  all recognizers using this ATN and read-only.
+	 *
+	 *  <p>The set is the union of the {@link #nextTokens(ATNState)} sets of
+	 *  {@code s} and of the follow states of the invocations in {@code ctx},
+	 *  as far as the end of each rule can be reached. Only those invocations
+	 *  matter, so the set is cached in {@link #followSetCache}.</p>
+	 *
+	 *  @since 4.7.1
+	 */
+	public IntervalSet getCachedNextTokens(ATNState s, RuleContext ctx) {
+		IntervalSet following = nextTokens(s);
+		if ( ctx==null || !following.contains(Token.EPSILON) ) {
+			return following;
+		}
+
+		// like PredictionContext.fromRuleContext, stop at the outermost context
+		int depth = 0;
+		for (RuleContext p = ctx; p.parent != null && p != RuleContext.EMPTY && following.contains(Token.EPSILON); p = p.parent) {
+			following = nextTokens(getFollowState(p.invokingState));
+			depth++;
+		}
+		return getFollowSet(s, ctx, depth);
 	}
 
     /**
@@ -156,6 +204,11 @@ public class ATN {
 	 * what token(s) can come next and specifically: outside of a lookahead decision.
 	 * That is what you want for error reporting and recovery upon parse error.
 	 *
+	 * The result only depends on the innermost invocations of {@code context}
+	 * up to the first one whose follow state can't reach the end of its rule,
+	 * so it is cached in {@link #followSetCache}. The returned set is shared
+	 * and read-only; callers that modify it must copy it first.
+	 *
 	 * @param stateNumber the ATN state number
 	 * @param context the full parse context
 	 * @return The set of potentially valid input symbols which could follow the
@@ -168,29 +221,67 @@ public class ATN {
 			throw new IllegalArgumentException("Invalid state number.");
 		}
 
-		RuleContext ctx = context;
 		ATNState s = states.get(stateNumber);
 		IntervalSet following = nextTokens(s);
 		if (!following.contains(Token.EPSILON)) {
 			return following;
 		}
 
-		IntervalSet expected = new IntervalSet();
-		expected.addAll(following);
-		expected.remove(Token.EPSILON);
-		while (ctx != null && ctx.invokingState >= 0 && following.contains(Token.EPSILON)) {
-			ATNState invokingState = states.get(ctx.invokingState);
-			RuleTransition rt = (RuleTransition)invokingState.transition(0);
-			following = nextTokens(rt.followState);
-			expected.addAll(following);
-			expected.remove(Token.EPSILON);
-			ctx = ctx.parent;
+		int depth = 0;
+		for (RuleContext ctx = context; ctx != null && ctx.invokingState >= 0 && following.contains(Token.EPSILON); ctx = ctx.parent) {
+			following = nextTokens(getFollowState(ctx.invokingState));
+			depth++;
 		}
+		return getFollowSet(s, context, depth);
+	}
 
+	/**
+	 * Computes {@link #nextTokens(ATNState)} for every state up front, so that
+	 * {@link #getCachedNextTokens}, {@link #getExpectedTokens}
+	 * and error recovery never have to traverse the ATN. Without this, each
+	 * set is computed the first time it's needed.
+	 *
+	 * @since 4.7.1
+	 */
+	public void precomputeNextTokens() {
+		for (ATNState s : states) {
+			if (s != null) {
+				nextTokens(s);
+			}
+		}
+	}
+
+	/**
+	 * The tokens that can follow {@code s} when the {@code depth} innermost
+	 * invocations of {@code ctx} return: the union of the
+	 * {@link #nextTokens(ATNState)} sets of {@code s} and their follow states
+	 * without {@link Token#EPSILON}, and {@link Token#EOF} if the last of them
+	 * can reach the end of its rule. The set only depends on {@code s} and
+	 * those invocations, which are its key in {@link #followSetCache}.
+	 */
+	private IntervalSet getFollowSet(ATNState s, RuleContext ctx, int depth) {
+		FollowSetCache.Key key = new FollowSetCache.Key(s.stateNumber, ctx, depth);
+		IntervalSet cached = followSetCache.get(key);
+		if (cached != null) {
+			return cached;
+		}
+
+		IntervalSet following = nextTokens(s);
+		IntervalSet set = new IntervalSet();
+		set.addAll(following);
+		for (int i = 0; i < depth; i++) {
+			following = nextTokens(getFollowState(ctx.invokingState));
+			set.addAll(following);
+			ctx = ctx.parent;
+		}
+		set.remove(Token.EPSILON);
 		if (following.contains(Token.EPSILON)) {
-			expected.add(Token.EOF);
+			set.add(Token.EOF);
 		}
+		return followSetCache.put(key, set);
+	}
 
-		return expected;
+	private ATNState getFollowState(int invokingState) {
+		return ((RuleTransition)states.get(invokingState).transition(0)).followState;
 	}
 }
@@ -9,8 +9,12 @@ package org.antlr.v4.runtime.atn;
 import org.antlr.v4.runtime.Token;
 import org.antlr.v4.runtime.misc.IntervalSet;
 import org.antlr.v4.runtime.misc.Pair;
+import org.antlr.v4.runtime.misc.Utils;
 
+import java.io.IOException;
 import java.io.InvalidClassException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
@@ -182,18 +186,68 @@ public class ATNDeserializer {
 
 		int p = 0;
 		int version = toInt(data[p++]);
+		checkVersion(version);
+
+		UUID uuid = toUUID(data, p);
+		p += 8;
+		checkUUID(uuid);
+
+		return deserialize(data, p, uuid);
+	}
+
+	/**
+	 * Deserialize the binary form written by
+	 * {@link ATNSerializer#getSerializedAsBytes}, starting at the buffer's
+	 * position. The version and UUID are checked directly on the buffer, and
+	 * the remaining data is copied in bulk without the per-element decoding
+	 * needed for the string form.
+	 */
+	public ATN deserialize(ByteBuffer buffer) {
+		ByteBuffer data = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+		checkVersion(data.getChar(0));
+		// the UUID is stored as the least significant long followed by the
+		// most significant one, each low word first
+		UUID uuid = new UUID(data.getLong(10), data.getLong(2));
+		checkUUID(uuid);
+
+		char[] chars = new char[data.remaining() / 2];
+		data.asCharBuffer().get(chars);
+		return deserialize(chars, 9, uuid);
+	}
+
+	/**
+	 * Deserialize the binary ATN resource {@code name}, relative to
+	 * {@code recognizerClass}, as generated with the tool's
+	 * {@code -Xbinary-atn} option.
+	 */
+	public ATN deserializeResource(Class<?> recognizerClass, String name) {
+		try {
+			return deserialize(Utils.readResource(recognizerClass, name));
+		}
+		catch (IOException ioe) {
+			throw new IllegalStateException("Could not read the serialized ATN of "+recognizerClass.getName(), ioe);
+		}
+	}
+
+	protected void checkVersion(int version) {
 		if (version != SERIALIZED_VERSION) {
 			String reason = String.format(Locale.getDefault(), "Could not deserialize ATN with version %d (expected %d).", version, SERIALIZED_VERSION);
 			throw new UnsupportedOperationException(new InvalidClassException(ATN.class.getName(), reason));
 		}
+	}
 
-		UUID uuid = toUUID(data, p);
-		p += 8;
+	protected void checkUUID(UUID uuid) {
 		if (!SUPPORTED_UUIDS.contains(uuid)) {
 			String reason = String.format(Locale.getDefault(), "Could not deserialize ATN with UUID %s (expected %s or a legacy UUID).", uuid, SERIALIZED_UUID);
 			throw new UnsupportedOperationException(new InvalidClassException(ATN.class.getName(), reason));
 		}
+	}
 
+	/**
+	 * Deserialize the unshifted {@code data} following the already checked
+	 * version and UUID, which end at offset {@code p}.
+	 */
+	protected ATN deserialize(char[] data, int p, UUID uuid) {
 		boolean supportsPrecedencePredicates = isFeatureSupported(ADDED_PRECEDENCE_TRANSITIONS, uuid);
 		boolean supportsLexerActions = isFeatureSupported(ADDED_LEXER_ACTIONS, uuid);
 
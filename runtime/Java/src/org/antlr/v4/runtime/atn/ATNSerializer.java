@@ -605,6 +605,26 @@ public class ATNSerializer {
 		return Utils.toCharArray(getSerialized(atn));
 	}
 
+	/** Serialize {@code atn} in the binary form read by
+	 *  {@link ATNDeserializer#deserialize(java.nio.ByteBuffer)}: each 16-bit
+	 *  value is stored little-endian and without the +2 shift that is only
+	 *  needed for string literals. Multi-word values such as the UUID are
+	 *  stored low word first, so they can be read as little-endian ints and
+	 *  longs directly.
+	 */
+	public static byte[] getSerializedAsBytes(ATN atn) {
+		IntegerList serialized = getSerialized(atn);
+		byte[] data = new byte[serialized.size() * 2];
+		for (int i = 0; i < serialized.size(); i++) {
+			// the version number isn't shifted
+			int value = i == 0 ? serialized.get(i) : (serialized.get(i) - 2) & 0xFFFF;
+			data[2 * i] = (byte)value;
+			data[2 * i + 1] = (byte)(value >> 8);
+		}
+
+		return data;
+	}
+
 	public static String getDecoded(ATN atn, List<String> tokenNames) {
 		IntegerList serialized = getSerialized(atn);
 		char[] data = Utils.toCharArray(serialized);
@@ -6,6 +6,7 @@
 
 package org.antlr.v4.runtime.atn;
 
+import org.antlr.v4.runtime.dfa.DFA;
 import org.antlr.v4.runtime.dfa.DFAState;
 import org.antlr.v4.runtime.misc.IntervalSet;
 
@@ -90,6 +91,34 @@ public abstract class ATNSimulator {
 		throw new UnsupportedOperationException("This ATN simulator does not support clearing the DFA.");
 	}
 
+	/**
+	 * Get the DFA for {@code decision}, creating it on first use. Generated
+	 * recognizers leave the entries of their shared {@code decisionToDFA}
+	 * array {@code null}, so that no DFA is built for decisions a program
+	 * never reaches.
+	 *
+	 * <p>An entry is read without holding the lock, so a thread may get a
+	 * {@link DFA} created by another thread through a data race. All the
+	 * fields it needs are final, except the volatile {@link DFA#s0}. For a
+	 * regular DFA, a {@code null} s0 only means the start state is computed
+	 * again. The start state of a precedence DFA must be read with
+	 * {@link DFA#getStartState}, because s0 may not be visible yet. The lock
+	 * only makes sure all threads use the same instance.</p>
+	 */
+	protected static DFA getOrCreateDFA(DFA[] decisionToDFA, ATN atn, int decision) {
+		DFA dfa = decisionToDFA[decision];
+		if ( dfa==null ) {
+			synchronized (decisionToDFA) {
+				dfa = decisionToDFA[decision];
+				if ( dfa==null ) {
+					dfa = new DFA(atn.getDecisionState(decision), decision);
+					decisionToDFA[decision] = dfa;
+				}
+			}
+		}
+		return dfa;
+	}
+
 	public PredictionContextCache getSharedContextCache() {
 		return sharedContextCache;
 	}
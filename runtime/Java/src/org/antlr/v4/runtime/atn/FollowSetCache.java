@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v4.runtime.atn;
+
+import org.antlr.v4.runtime.RuleContext;
+import org.antlr.v4.runtime.misc.IntervalSet;
+import org.antlr.v4.runtime.misc.MurmurHash;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/** Caches token sets that depend on an ATN state and the innermost rule
+ *  invocations on the stack, such as the expected tokens of
+ *  {@link ATN#getExpectedTokens} and the error recovery sets of
+ *  {@link org.antlr.v4.runtime.DefaultErrorStrategy}. Each {@link ATN} has
+ *  one, shared by all recognizers using it, so it is safe for concurrent
+ *  use. The cached sets are read-only.
+ *
+ *  <p>The cache stops growing at {@link #getMaxSize} entries; sets that
+ *  don't fit are still returned, just not kept.</p>
+ *
+ *  @since 4.7.1
+ */
+public class FollowSetCache {
+	public static final int DEFAULT_MAX_SIZE = 4096;
+
+	/** A state number and the invoking states of the innermost rule
+	 *  invocations, innermost first. Sets that only depend on the stack
+	 *  use {@link ATNState#INVALID_STATE_NUMBER} for the state. Sets
+	 *  computed by code that subclasses can override, such as the error
+	 *  recovery sets, also have a scope, e.g. the class computing them.
+	 */
+	public static final class Key {
+		private final Object scope;
+		private final int[] states;
+		private final int hashCode;
+
+		/** The key of {@code stateNumber} and the invoking states of the
+		 *  {@code depth} innermost contexts of {@code ctx}.
+		 */
+		public Key(int stateNumber, RuleContext ctx, int depth) {
+			this(null, stateNumber, ctx, depth);
+		}
+
+		/** The key of {@code stateNumber} and the invoking states of the
+		 *  {@code depth} innermost contexts of {@code ctx} within
+		 *  {@code scope}, which may be {@code null}.
+		 */
+		public Key(Object scope, int stateNumber, RuleContext ctx, int depth) {
+			this.scope = scope;
+			states = new int[depth + 1];
+			states[0] = stateNumber;
+			int hash = MurmurHash.update(MurmurHash.initialize(), scope!=null ? scope.hashCode() : 0);
+			hash = MurmurHash.update(hash, stateNumber);
+			for (int i = 1; i <= depth; i++) {
+				states[i] = ctx.invokingState;
+				hash = MurmurHash.update(hash, ctx.invokingState);
+				ctx = ctx.parent;
+			}
+			hashCode = MurmurHash.finish(hash, states.length + 1);
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if ( obj==this ) return true;
+			if ( !(obj instanceof Key) ) return false;
+			Key other = (Key)obj;
+			return hashCode==other.hashCode && Arrays.equals(states, other.states) &&
+				(scope==null ? other.scope==null : scope.equals(other.scope));
+		}
+
+		@Override
+		public String toString() {
+			return scope!=null ? scope+Arrays.toString(states) : Arrays.toString(states);
+		}
+	}
+
+	protected final ConcurrentMap<Key, IntervalSet> cache = new ConcurrentHashMap<Key, IntervalSet>();
+
+	private volatile int maxSize = DEFAULT_MAX_SIZE;
+
+	public IntervalSet get(Key key) {
+		return cache.get(key);
+	}
+
+	/** Make {@code set} read-only and cache it under {@code key}, unless the
+	 *  cache is full. If another thread cached a set for {@code key} first,
+	 *  return that one instead.
+	 */
+	public IntervalSet put(Key key, IntervalSet set) {
+		set.setReadonly(true);
+		if ( cache.size()>=maxSize ) return set;
+		IntervalSet existing = cache.putIfAbsent(key, set);
+		return existing!=null ? existing : set;
+	}
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	public void setMaxSize(int maxSize) {
+		this.maxSize = maxSize;
+	}
+
+	public int size() {
+		return cache.size();
+	}
+
+	public void clear() {
+		cache.clear();
+	}
+}
@@ -15,6 +15,7 @@ import org.antlr.v4.runtime.dfa.DFA;
 import org.antlr.v4.runtime.dfa.DFAState;
 import org.antlr.v4.runtime.misc.Interval;
 
+import java.util.Arrays;
 import java.util.Locale;
 
 /** "dup" of ParserInterpreter */
@@ -70,7 +71,10 @@ public class LexerATNSimulator extends ATNSimulator {
 	/** The index of the character relative to the beginning of the line 0..n-1 */
 	protected int charPositionInLine = 0;
 
-
+	/** The DFA of each mode, shared by the lexers of the grammar. An entry is
+	 *  {@code null} until its mode is first entered, or after
+	 *  {@link #clearDFA}; use {@link #getDFA} to get a mode's DFA.
+	 */
 	public final DFA[] decisionToDFA;
 	protected int mode = Lexer.DEFAULT_MODE;
 
@@ -109,7 +113,7 @@ public class LexerATNSimulator extends ATNSimulator {
 		try {
 			this.startIndex = input.index();
 			this.prevAccept.reset();
-			DFA dfa = decisionToDFA[mode];
+			DFA dfa = getDFA(mode);
 			if ( dfa.s0==null ) {
 				return matchATN(input);
 			}
@@ -133,8 +137,8 @@ public class LexerATNSimulator extends ATNSimulator {
 
 	@Override
 	public void clearDFA() {
-		for (int d = 0; d < decisionToDFA.length; d++) {
-			decisionToDFA[d] = new DFA(atn.getDecisionState(d), d);
+		synchronized (decisionToDFA) {
+			Arrays.fill(decisionToDFA, null);
 		}
 	}
 
@@ -153,13 +157,13 @@ public class LexerATNSimulator extends ATNSimulator {
 
 		DFAState next = addDFAState(s0_closure);
 		if (!suppressEdge) {
-			decisionToDFA[mode].s0 = next;
+			getDFA(mode).s0 = next;
 		}
 
 		int predict = execATN(input, next);
 
 		if ( debug ) {
-			System.out.format(Locale.getDefault(), "DFA after matchATN: %s\n", decisionToDFA[old_mode].toLexerString());
+			System.out.format(Locale.getDefault(), "DFA after matchATN: %s\n", getDFA(old_mode).toLexerString());
 		}
 
 		return predict;
@@ -338,7 +342,7 @@ public class LexerATNSimulator extends ATNSimulator {
 				if ( target!=null ) {
 					LexerActionExecutor lexerActionExecutor = ((LexerATNConfig)c).getLexerActionExecutor();
 					if (lexerActionExecutor != null) {
-						lexerActionExecutor = lexerActionExecutor.fixOffsetBeforeMatch(input.index() - startIndex);
+						lexerActionExecutor = atn.lexerActionExecutorCache.fixOffsetBeforeMatch(lexerActionExecutor, input.index() - startIndex);
 					}
 
 					boolean treatEofAsEpsilon = t == CharStream.EOF;
@@ -526,7 +530,7 @@ public class LexerATNSimulator extends ATNSimulator {
 					// getEpsilonTarget to return two configurations, so
 					// additional modifications are needed before we can support
 					// the split operation.
-					LexerActionExecutor lexerActionExecutor = LexerActionExecutor.append(config.getLexerActionExecutor(), atn.lexerActions[((ActionTransition)t).actionIndex]);
+					LexerActionExecutor lexerActionExecutor = atn.lexerActionExecutorCache.append(config.getLexerActionExecutor(), atn.lexerActions[((ActionTransition)t).actionIndex]);
 					c = new LexerATNConfig(config, t.target, lexerActionExecutor);
 					break;
 				}
@@ -689,7 +693,7 @@ public class LexerATNSimulator extends ATNSimulator {
 			proposed.prediction = atn.ruleToTokenType[firstConfigWithRuleStopState.state.ruleIndex];
 		}
 
-		DFA dfa = decisionToDFA[mode];
+		DFA dfa = getDFA(mode);
 		synchronized (dfa.states) {
 			DFAState existing = dfa.states.get(proposed);
 			if ( existing!=null ) return existing;
@@ -705,8 +709,9 @@ public class LexerATNSimulator extends ATNSimulator {
 	}
 
 
+	/** The DFA for {@code mode}, created on first use. */
 	public final DFA getDFA(int mode) {
-		return decisionToDFA[mode];
+		return getOrCreateDFA(decisionToDFA, atn, mode);
 	}
 
 	/** Get the text matched so far for the current token.
@@ -13,6 +13,7 @@ import org.antlr.v4.runtime.dfa.DFA;
 import org.antlr.v4.runtime.misc.MurmurHash;
 
 import java.util.Arrays;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Represents an executor for a sequence of lexer actions which traversed during
@@ -34,6 +35,13 @@ public class LexerActionExecutor {
 	 */
 	private final int hashCode;
 
+	/**
+	 * The executors {@link LexerActionExecutorCache} built from this one by
+	 * appending an action, and by fixing the offsets, indexed by offset.
+	 */
+	volatile ConcurrentMap<LexerAction, LexerActionExecutor> appended;
+	volatile LexerActionExecutor[] fixedOffsets;
+
 	/**
 	 * Constructs an executor for a sequence of {@link LexerAction} actions.
 	 * @param lexerActions The lexer actions to execute.
@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v4.runtime.atn;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/** Interns the {@link LexerActionExecutor}s built by the
+ *  {@link LexerATNSimulator} while it adds states to the DFA. Each
+ *  {@link ATN} has one, shared by all lexers using it, so it is safe for
+ *  concurrent use.
+ *
+ *  <p>Each interned executor remembers the executors
+ *  {@link #append appending} an action to it and
+ *  {@link #fixOffsetBeforeMatch fixing its offsets} for it, so an action
+ *  sequence met again, by any lexer, costs a lookup instead of copying the
+ *  action array. The DFA states then refer to one executor per distinct
+ *  action sequence.</p>
+ *
+ *  <p>The cache stops growing at {@link #getMaxSize} executors, and only
+ *  offsets below {@link #MAX_CACHED_OFFSET} are cached; executors that don't
+ *  fit are still returned, just not kept.</p>
+ *
+ *  @since 4.7.1
+ */
+public class LexerActionExecutorCache {
+	public static final int DEFAULT_MAX_SIZE = 4096;
+	public static final int MAX_CACHED_OFFSET = 256;
+
+	protected final ConcurrentMap<LexerActionExecutor, LexerActionExecutor> executors =
+		new ConcurrentHashMap<LexerActionExecutor, LexerActionExecutor>();
+
+	/** Stands for the {@code null} executor of configurations which
+	 *  haven't passed an action yet.
+	 */
+	private final LexerActionExecutor empty = new LexerActionExecutor(new LexerAction[0]);
+
+	private volatile int maxSize = DEFAULT_MAX_SIZE;
+
+	/** The interned {@link LexerActionExecutor#append} of {@code executor}
+	 *  and {@code lexerAction}.
+	 */
+	public LexerActionExecutor append(LexerActionExecutor executor, LexerAction lexerAction) {
+		LexerActionExecutor from = executor!=null ? executor : empty;
+		ConcurrentMap<LexerAction, LexerActionExecutor> appended = from.appended;
+		if ( appended!=null ) {
+			LexerActionExecutor result = appended.get(lexerAction);
+			if ( result!=null ) return result;
+		}
+
+		LexerActionExecutor result = LexerActionExecutor.append(executor, lexerAction);
+		if ( executors.size()>=maxSize ) return result;
+		result = intern(result);
+		if ( appended==null ) {
+			synchronized (from) {
+				if ( from.appended==null ) {
+					from.appended = new ConcurrentHashMap<LexerAction, LexerActionExecutor>();
+				}
+				appended = from.appended;
+			}
+		}
+		LexerActionExecutor existing = appended.putIfAbsent(lexerAction, result);
+		return existing!=null ? existing : result;
+	}
+
+	/** The interned {@link LexerActionExecutor#fixOffsetBeforeMatch} of
+	 *  {@code executor} for {@code offset}.
+	 */
+	public LexerActionExecutor fixOffsetBeforeMatch(LexerActionExecutor executor, int offset) {
+		LexerActionExecutor[] fixed = executor.fixedOffsets;
+		if ( fixed!=null && offset>=0 && offset<fixed.length && fixed[offset]!=null ) {
+			return fixed[offset];
+		}
+
+		LexerActionExecutor result = executor.fixOffsetBeforeMatch(offset);
+		if ( result==executor || offset<0 || offset>=MAX_CACHED_OFFSET || executors.size()>=maxSize ) {
+			return result;
+		}
+		result = intern(result);
+		synchronized (executor) {
+			// copy on write, so that readers never see a partly updated array
+			fixed = executor.fixedOffsets;
+			if ( fixed==null ) {
+				fixed = new LexerActionExecutor[offset + 1];
+			}
+			else if ( offset>=fixed.length || fixed[offset]==null ) {
+				fixed = Arrays.copyOf(fixed, Math.max(fixed.length, offset + 1));
+			}
+			else {
+				return fixed[offset];
+			}
+			fixed[offset] = result;
+			executor.fixedOffsets = fixed;
+		}
+		return result;
+	}
+
+	/** The executor of this cache equal to {@code executor}, which becomes
+	 *  that executor if there is none yet and the cache isn't full.
+	 */
+	public LexerActionExecutor intern(LexerActionExecutor executor) {
+		LexerActionExecutor existing = executors.get(executor);
+		if ( existing!=null ) return existing;
+		if ( executors.size()>=maxSize ) return executor;
+		existing = executors.putIfAbsent(executor, executor);
+		return existing!=null ? existing : executor;
+	}
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	public void setMaxSize(int maxSize) {
+		this.maxSize = maxSize;
+	}
+
+	public int size() {
+		return executors.size();
+	}
+}
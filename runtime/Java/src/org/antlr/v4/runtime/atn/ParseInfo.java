@@ -8,6 +8,8 @@ package org.antlr.v4.runtime.atn;
 
 import org.antlr.v4.runtime.dfa.DFA;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -18,6 +20,23 @@ import java.util.List;
  * @since 4.3
  */
 public class ParseInfo {
+	/**
+	 * The first line of a profile written by {@link #writeProfile}.
+	 */
+	public static final String PROFILE_HEADER = "# ANTLR decision profile";
+
+	/**
+	 * The columns of a profile written by {@link #writeProfile}, named after
+	 * the fields of {@link DecisionInfo}. The event lists are written as
+	 * counts.
+	 */
+	public static final String[] PROFILE_COLUMNS = {
+		"decision", "ruleIndex", "invocations", "timeInPrediction",
+		"SLL_TotalLook", "SLL_MinLook", "SLL_MaxLook", "SLL_ATNTransitions", "SLL_DFATransitions",
+		"LL_Fallback", "LL_TotalLook", "LL_MinLook", "LL_MaxLook", "LL_ATNTransitions", "LL_DFATransitions",
+		"ambiguities", "contextSensitivities", "errors", "predicateEvals"
+	};
+
 	protected final ProfilingATNSimulator atnSimulator;
 
 	public ParseInfo(ProfilingATNSimulator atnSimulator) {
@@ -139,6 +158,43 @@ public class ParseInfo {
 		return k;
 	}
 
+	/**
+	 * Writes the statistics of every decision as tab-separated text, so that
+	 * they can be collected over a corpus and mapped back to the grammar,
+	 * e.g. with the tool's {@code -Xprofile-report} option. After
+	 * {@link #PROFILE_HEADER} and the size of the ATN, there is a line with
+	 * the {@link #PROFILE_COLUMNS} and then one line per decision.
+	 *
+	 * @since 4.7.1
+	 */
+	public void writeProfile(Writer out) throws IOException {
+		ATN atn = atnSimulator.atn;
+		out.write(PROFILE_HEADER + "\n");
+		out.write("# decisions=" + atn.getNumberOfDecisions() + " states=" + atn.states.size() + "\n");
+		for (int i = 0; i < PROFILE_COLUMNS.length; i++) {
+			if ( i>0 ) out.write('\t');
+			out.write(PROFILE_COLUMNS[i]);
+		}
+		out.write('\n');
+
+		DecisionInfo[] decisions = atnSimulator.getDecisionInfo();
+		for (int i = 0; i < decisions.length; i++) {
+			DecisionInfo d = decisions[i];
+			long[] values = {
+				d.decision, atn.getDecisionState(i).ruleIndex, d.invocations, d.timeInPrediction,
+				d.SLL_TotalLook, d.SLL_MinLook, d.SLL_MaxLook, d.SLL_ATNTransitions, d.SLL_DFATransitions,
+				d.LL_Fallback, d.LL_TotalLook, d.LL_MinLook, d.LL_MaxLook, d.LL_ATNTransitions, d.LL_DFATransitions,
+				d.ambiguities.size(), d.contextSensitivities.size(), d.errors.size(), d.predicateEvals.size()
+			};
+			for (int j = 0; j < values.length; j++) {
+				if ( j>0 ) out.write('\t');
+				out.write(Long.toString(values[j]));
+			}
+			out.write('\n');
+		}
+		out.flush();
+	}
+
 	/**
 	 * Gets the total number of DFA states stored in the DFA cache for all
 	 * decisions in the ATN.
@@ -158,6 +214,6 @@ public class ParseInfo {
 	 */
 	public int getDFASize(int decision) {
 		DFA decisionToDFA = atnSimulator.decisionToDFA[decision];
-		return decisionToDFA.states.size();
+		return decisionToDFA!=null ? decisionToDFA.states.size() : 0;
 	}
 }
@@ -274,6 +274,10 @@ public class ParserATNSimulator extends ATNSimulator {
 
 	protected final Parser parser;
 
+	/** The DFA of each decision, shared by the parsers of the grammar. An
+	 *  entry is {@code null} until its decision is first reached, or after
+	 *  {@link #clearDFA}; use {@link #getDFA} to get a decision's DFA.
+	 */
 	public final DFA[] decisionToDFA;
 
 	/** SLL, LL, or LL + exact ambig detection? */
@@ -317,15 +321,25 @@ public class ParserATNSimulator extends ATNSimulator {
 
 	@Override
 	public void reset() {
+		mergeCache = null;
+		_input = null;
+		_startIndex = 0;
+		_outerContext = null;
+		_dfa = null;
 	}
 
 	@Override
 	public void clearDFA() {
-		for (int d = 0; d < decisionToDFA.length; d++) {
-			decisionToDFA[d] = new DFA(atn.getDecisionState(d), d);
+		synchronized (decisionToDFA) {
+			Arrays.fill(decisionToDFA, null);
 		}
 	}
 
+	/** The DFA for {@code decision}, created on first use. */
+	public final DFA getDFA(int decision) {
+		return getOrCreateDFA(decisionToDFA, atn, decision);
+	}
+
 	public int adaptivePredict(TokenStream input, int decision,
 							   ParserRuleContext outerContext)
 	{
@@ -338,7 +352,7 @@ public class ParserATNSimulator extends ATNSimulator {
 		_input = input;
 		_startIndex = input.index();
 		_outerContext = outerContext;
-		DFA dfa = decisionToDFA[decision];
+		DFA dfa = getDFA(decision);
 		_dfa = dfa;
 
 		int m = input.mark();
@@ -379,7 +393,7 @@ public class ParserATNSimulator extends ATNSimulator {
 					 * appropriate start state for the precedence level rather
 					 * than simply setting DFA.s0.
 					 */
-					dfa.s0.configs = s0_closure; // not used for prediction but useful to know start configs anyway
+					dfa.getStartState().configs = s0_closure; // not used for prediction but useful to know start configs anyway
 					s0_closure = applyPrecedenceFilter(s0_closure);
 					s0 = addDFAState(dfa, new DFAState(s0_closure));
 					dfa.setPrecedenceStartState(parser.getPrecedence(), s0);
@@ -7,17 +7,44 @@
 package org.antlr.v4.runtime.atn;
 
 import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.misc.CodePointBitmap;
+import org.antlr.v4.runtime.misc.IntRangeSet;
 import org.antlr.v4.runtime.misc.IntervalSet;
 
-/** A transition containing a set of values. */
+/** A transition containing a set of values. The set must not change once
+ *  the transition is created.
+ */
 public class SetTransition extends Transition {
 	public final IntervalSet set;
 
+	/** A flat copy of {@link #set} for {@link #matches}, which lexers call
+	 *  for every input symbol.
+	 */
+	private final IntRangeSet ranges;
+
+	/** A two-stage table of {@link #set} when it is a large set of code
+	 *  points, such as a Unicode property, so that {@link #matches} doesn't
+	 *  depend on the number of ranges; otherwise {@code null}.
+	 */
+	private final CodePointBitmap bitmap;
+
+	/** Sets with fewer ranges than this are searched in {@link #ranges}. */
+	private static final int MIN_BITMAP_RANGES = 8;
+
 	// TODO (sam): should we really allow null here?
 	public SetTransition(ATNState target, IntervalSet set) {
 		super(target);
 		if ( set == null ) set = IntervalSet.of(Token.INVALID_TYPE);
 		this.set = set;
+		this.ranges = new IntRangeSet(set);
+		if ( ranges.getRangeCount()>=MIN_BITMAP_RANGES &&
+			 ranges.getMinElement()>=0 && ranges.getMaxElement()<=Character.MAX_CODE_POINT )
+		{
+			this.bitmap = CodePointBitmap.of(ranges);
+		}
+		else {
+			this.bitmap = null;
+		}
 	}
 
 	@Override
@@ -31,7 +58,8 @@ public class SetTransition extends Transition {
 
 	@Override
 	public boolean matches(int symbol, int minVocabSymbol, int maxVocabSymbol) {
-		return set.contains(symbol);
+		if ( bitmap!=null ) return bitmap.contains(symbol);
+		return ranges.contains(symbol);
 	}
 
 	@Override
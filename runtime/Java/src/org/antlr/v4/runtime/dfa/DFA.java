@@ -42,6 +42,16 @@ public class DFA {
 	 */
 	private final boolean precedenceDfa;
 
+	/**
+	 * The start state {@link #s0} of a precedence DFA. A DFA can be published
+	 * to other threads without locking, as the lazily created entries of a
+	 * shared {@code decisionToDFA} array are; such threads may not see the
+	 * assignment of {@link #s0} yet, but they do see this final field.
+	 *
+	 * @see #getStartState
+	 */
+	private final DFAState precedenceState;
+
 	public DFA(DecisionState atnStartState) {
 		this(atnStartState, 0);
 	}
@@ -51,10 +61,11 @@ public class DFA {
 		this.decision = decision;
 
 		boolean precedenceDfa = false;
+		DFAState precedenceState = null;
 		if (atnStartState instanceof StarLoopEntryState) {
 			if (((StarLoopEntryState)atnStartState).isPrecedenceDecision) {
 				precedenceDfa = true;
-				DFAState precedenceState = new DFAState(new ATNConfigSet());
+				precedenceState = new DFAState(new ATNConfigSet());
 				precedenceState.edges = new DFAState[0];
 				precedenceState.isAcceptState = false;
 				precedenceState.requiresFullContext = false;
@@ -63,6 +74,18 @@ public class DFA {
 		}
 
 		this.precedenceDfa = precedenceDfa;
+		this.precedenceState = precedenceState;
+	}
+
+	/**
+	 * Gets the start state of this DFA, which is {@link #s0}. For a precedence
+	 * DFA, the state is read through a final field, so it is never
+	 * {@code null}, even in a thread that got this DFA through a data race.
+	 *
+	 * @since 4.7.1
+	 */
+	public final DFAState getStartState() {
+		return precedenceDfa ? precedenceState : s0;
 	}
 
 	/**
@@ -96,12 +119,13 @@ public class DFA {
 			throw new IllegalStateException("Only precedence DFAs may contain a precedence start state.");
 		}
 
-		// s0.edges is never null for a precedence DFA
-		if (precedence < 0 || precedence >= s0.edges.length) {
+		// precedenceState.edges is never null for a precedence DFA
+		DFAState[] edges = precedenceState.edges;
+		if (precedence < 0 || precedence >= edges.length) {
 			return null;
 		}
 
-		return s0.edges[precedence];
+		return edges[precedence];
 	}
 
 	/**
@@ -114,7 +138,7 @@ public class DFA {
 	 * @throws IllegalStateException if this is not a precedence DFA.
 	 * @see #isPrecedenceDfa()
 	 */
-	@SuppressWarnings({"SynchronizeOnNonFinalField", "null"})
+	@SuppressWarnings("null")
 	public final void setPrecedenceStartState(int precedence, DFAState startState) {
 		if (!isPrecedenceDfa()) {
 			throw new IllegalStateException("Only precedence DFAs may contain a precedence start state.");
@@ -124,15 +148,13 @@ public class DFA {
 			return;
 		}
 
-		// synchronization on s0 here is ok. when the DFA is turned into a
-		// precedence DFA, s0 will be initialized once and not updated again
-		synchronized (s0) {
-			// s0.edges is never null for a precedence DFA
-			if (precedence >= s0.edges.length) {
-				s0.edges = Arrays.copyOf(s0.edges, precedence + 1);
+		synchronized (precedenceState) {
+			// precedenceState.edges is never null for a precedence DFA
+			if (precedence >= precedenceState.edges.length) {
+				precedenceState.edges = Arrays.copyOf(precedenceState.edges, precedence + 1);
 			}
 
-			s0.edges[precedence] = startState;
+			precedenceState.edges[precedence] = startState;
 		}
 	}
 
@@ -178,13 +200,13 @@ public class DFA {
 	 */
 	@Deprecated
 	public String toString(String[] tokenNames) {
-		if ( s0==null ) return "";
+		if ( getStartState()==null ) return "";
 		DFASerializer serializer = new DFASerializer(this,tokenNames);
 		return serializer.toString();
 	}
 
 	public String toString(Vocabulary vocabulary) {
-		if (s0 == null) {
+		if (getStartState() == null) {
 			return "";
 		}
 
@@ -193,7 +215,7 @@ public class DFA {
 	}
 
 	public String toLexerString() {
-		if ( s0==null ) return "";
+		if ( getStartState()==null ) return "";
 		DFASerializer serializer = new LexerDFASerializer(this);
 		return serializer.toString();
 	}
@@ -34,7 +34,7 @@ public class DFASerializer {
 
 	@Override
 	public String toString() {
-		if ( dfa.s0==null ) return null;
+		if ( dfa.getStartState()==null ) return null;
 		StringBuilder buf = new StringBuilder();
 		List<DFAState> states = dfa.getStates();
 		for (DFAState s : states) {
@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+package org.antlr.v4.runtime.misc;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A read-only set of code points stored as a two-stage table, so that
+ * {@link #contains} is three array loads whatever the size of the set. The
+ * code points are split into blocks of 256; the first stage maps a block
+ * number to one of the distinct 256-bit blocks of the second stage. Large
+ * Unicode classes like {@code \p{L}} have few distinct blocks, since most
+ * blocks are either all in the set or all out of it.
+ *
+ * <p>The table covers the blocks up to the largest element, so a set of
+ * BMP characters needs at most 256 first-stage entries and one of the whole
+ * Unicode range 4352.</p>
+ *
+ * @since 4.7.1
+ */
+public final class CodePointBitmap {
+	private static final int BLOCK_SHIFT = 8;
+	private static final int WORDS_PER_BLOCK = (1 << BLOCK_SHIFT) / 64;
+
+	/** The second-stage block of each block of 256 code points. */
+	private final char[] index;
+
+	/** The distinct blocks, {@link #WORDS_PER_BLOCK} words each. */
+	private final long[] bits;
+
+	private CodePointBitmap(char[] index, long[] bits) {
+		this.index = index;
+		this.bits = bits;
+	}
+
+	/**
+	 * Builds the table for {@code set}, whose elements must be code points,
+	 * between 0 and {@link Character#MAX_CODE_POINT}.
+	 */
+	public static CodePointBitmap of(IntRangeSet set) {
+		if ( set.isNil() ) {
+			return new CodePointBitmap(new char[0], new long[WORDS_PER_BLOCK]);
+		}
+		if ( set.getMinElement()<0 || set.getMaxElement()>Character.MAX_CODE_POINT ) {
+			throw new IllegalArgumentException("not a set of code points: "+set);
+		}
+
+		int blockCount = (set.getMaxElement() >> BLOCK_SHIFT) + 1;
+		long[] words = new long[blockCount * WORDS_PER_BLOCK];
+		for (int i = 0; i < set.getRangeCount(); i++) {
+			int a = set.getRangeStart(i);
+			int b = set.getRangeEnd(i);
+			for (int w = a >> 6; w <= b >> 6; w++) {
+				long mask = -1L;
+				if ( w==a >> 6 ) mask &= -1L << (a & 63);
+				if ( w==b >> 6 ) mask &= -1L >>> (63 - (b & 63));
+				words[w] |= mask;
+			}
+		}
+
+		// share identical blocks; the empty block comes first
+		char[] index = new char[blockCount];
+		Map<Block, Integer> blocks = new HashMap<Block, Integer>();
+		blocks.put(new Block(new long[WORDS_PER_BLOCK], 0), 0);
+		long[] bits = new long[WORDS_PER_BLOCK];
+		for (int i = 0; i < blockCount; i++) {
+			Block block = new Block(words, i * WORDS_PER_BLOCK);
+			Integer n = blocks.get(block);
+			if ( n==null ) {
+				n = blocks.size();
+				blocks.put(block, n);
+				bits = Arrays.copyOf(bits, (n + 1) * WORDS_PER_BLOCK);
+				System.arraycopy(words, i * WORDS_PER_BLOCK, bits, n * WORDS_PER_BLOCK, WORDS_PER_BLOCK);
+			}
+			index[i] = (char)n.intValue();
+		}
+		return new CodePointBitmap(index, bits);
+	}
+
+	/** Whether {@code c} is in the set; false for any int that isn't a
+	 *  code point, such as {@link org.antlr.v4.runtime.IntStream#EOF}.
+	 */
+	public boolean contains(int c) {
+		int block = c >>> BLOCK_SHIFT;
+		if ( block>=index.length ) return false;
+		long word = bits[index[block] * WORDS_PER_BLOCK + ((c >> 6) & (WORDS_PER_BLOCK - 1))];
+		return (word & (1L << c))!=0;
+	}
+
+	/** The number of distinct 256-bit blocks, including the empty one. */
+	public int getBlockCount() {
+		return bits.length / WORDS_PER_BLOCK;
+	}
+
+	private static final class Block {
+		private final long[] words;
+		private final int offset;
+
+		Block(long[] words, int offset) {
+			this.words = words;
+			this.offset = offset;
+		}
+
+		@Override
+		public int hashCode() {
+			int hash = 1;
+			for (int i = 0; i < WORDS_PER_BLOCK; i++) {
+				long w = words[offset + i];
+				hash = 31 * hash + (int)(w ^ (w >>> 32));
+			}
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if ( !(obj instanceof Block) ) return false;
+			Block other = (Block)obj;
+			for (int i = 0; i < WORDS_PER_BLOCK; i++) {
+				if ( words[offset + i]!=other.words[other.offset + i] ) return false;
+			}
+			return true;
+		}
+	}
+}
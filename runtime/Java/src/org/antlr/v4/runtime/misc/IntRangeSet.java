@@ -0,0 +1,337 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+package org.antlr.v4.runtime.misc;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An {@link IntSet} stored as one flat array of range bounds,
+ * {@code [a0, b0, a1, b1, ...]}, sorted, disjoint and not adjacent. It holds
+ * the same sets as {@link IntervalSet} without an {@link Interval} object per
+ * range: {@link #contains} is a binary search over a primitive array, and
+ * {@link #or}, {@link #and}, {@link #subtract} and {@link #complement} merge
+ * the two arrays in a single pass. This makes it a better fit for large
+ * Unicode sets, which have hundreds of ranges.
+ *
+ * <p>Adding a range after the last one, as when a set is built in order,
+ * takes amortized constant time.</p>
+ *
+ * @since 4.7.1
+ */
+public class IntRangeSet implements IntSet {
+	private static final int[] EMPTY = new int[0];
+
+	/** The bounds of the ranges; only the first {@link #length} are used. */
+	private int[] ranges;
+	private int length;
+
+	public IntRangeSet() {
+		this.ranges = EMPTY;
+	}
+
+	public IntRangeSet(IntSet set) {
+		this();
+		addAll(set);
+	}
+
+	private IntRangeSet(int[] ranges, int length) {
+		this.ranges = ranges;
+		this.length = length;
+	}
+
+	public static IntRangeSet of(int el) {
+		return of(el, el);
+	}
+
+	/** Create a set with all ints within range [a..b] (inclusive) */
+	public static IntRangeSet of(int a, int b) {
+		IntRangeSet s = new IntRangeSet();
+		s.add(a, b);
+		return s;
+	}
+
+	@Override
+	public void add(int el) {
+		add(el, el);
+	}
+
+	/** Add all ints from a to b (inclusive). If b&lt;a, do nothing. */
+	public void add(int a, int b) {
+		if ( b<a ) return;
+		if ( length==0 || a>(long)ranges[length-1] + 1 ) {
+			// after the last range; the common case when building a set in order
+			if ( length==ranges.length ) {
+				ranges = Arrays.copyOf(ranges, Math.max(4, length * 2));
+			}
+			ranges[length++] = a;
+			ranges[length++] = b;
+			return;
+		}
+		if ( a>=ranges[length-2] ) {
+			// overlaps or touches the last range
+			ranges[length-1] = Math.max(ranges[length-1], b);
+			return;
+		}
+		set(union(ranges, length, new int[] {a, b}, 2));
+	}
+
+	@Override
+	public IntRangeSet addAll(IntSet set) {
+		if ( set==null || set.isNil() ) return this;
+		IntRangeSet other = rangesOf(set);
+		set(union(ranges, length, other.ranges, other.length));
+		return this;
+	}
+
+	@Override
+	public IntRangeSet or(IntSet a) {
+		if ( a==null ) return new IntRangeSet(this);
+		IntRangeSet other = rangesOf(a);
+		return union(ranges, length, other.ranges, other.length);
+	}
+
+	@Override
+	public IntRangeSet and(IntSet a) {
+		if ( a==null ) return null; // nothing in common with null set
+		IntRangeSet other = rangesOf(a);
+		int[] x = ranges;
+		int[] y = other.ranges;
+		int[] r = new int[length + other.length];
+		int n = 0;
+		int i = 0;
+		int j = 0;
+		while ( i<length && j<other.length ) {
+			int lo = Math.max(x[i], y[j]);
+			int hi = Math.min(x[i+1], y[j+1]);
+			if ( lo<=hi ) {
+				r[n++] = lo;
+				r[n++] = hi;
+			}
+			// move past whichever range ends first
+			if ( x[i+1]<y[j+1] ) i += 2;
+			else j += 2;
+		}
+		return new IntRangeSet(r, n);
+	}
+
+	@Override
+	public IntRangeSet subtract(IntSet a) {
+		if ( a==null || a.isNil() ) return new IntRangeSet(this);
+		IntRangeSet other = rangesOf(a);
+		int[] y = other.ranges;
+		int[] r = new int[length + other.length];
+		int n = 0;
+		int j = 0;
+		for (int i = 0; i < length; i += 2) {
+			long from = ranges[i];
+			int to = ranges[i+1];
+			// skip the ranges that end before this one
+			while ( j<other.length && y[j+1]<from ) j += 2;
+			int k = j;
+			while ( k<other.length && y[k]<=to ) {
+				if ( y[k]>from ) {
+					r[n++] = (int)from;
+					r[n++] = y[k] - 1;
+				}
+				from = (long)y[k+1] + 1;
+				// a range reaching past this one may cut the next one too
+				if ( y[k+1]>=to ) break;
+				k += 2;
+			}
+			j = k;
+			if ( from<=to ) {
+				r[n++] = (int)from;
+				r[n++] = to;
+			}
+		}
+		return new IntRangeSet(r, n);
+	}
+
+	@Override
+	public IntRangeSet complement(IntSet vocabulary) {
+		if ( vocabulary==null || vocabulary.isNil() ) {
+			return null; // nothing in common with null set
+		}
+		return rangesOf(vocabulary).subtract(this);
+	}
+
+	public IntRangeSet complement(int minElement, int maxElement) {
+		return of(minElement, maxElement).subtract(this);
+	}
+
+	@Override
+	public boolean contains(int el) {
+		int lo = 0;
+		int hi = length / 2 - 1;
+		while ( lo<=hi ) {
+			int mid = (lo + hi) >>> 1;
+			if ( el<ranges[mid * 2] ) hi = mid - 1;
+			else if ( el>ranges[mid * 2 + 1] ) lo = mid + 1;
+			else return true;
+		}
+		return false;
+	}
+
+	/** Whether any of the ints from a to b (inclusive) is in the set. */
+	public boolean intersects(int a, int b) {
+		if ( b<a ) return false;
+		// find the first range that ends at or after a
+		int lo = 0;
+		int hi = length / 2;
+		while ( lo<hi ) {
+			int mid = (lo + hi) >>> 1;
+			if ( ranges[mid * 2 + 1]<a ) lo = mid + 1;
+			else hi = mid;
+		}
+		return lo * 2<length && ranges[lo * 2]<=b;
+	}
+
+	@Override
+	public void remove(int el) {
+		if ( contains(el) ) set(subtract(of(el)));
+	}
+
+	@Override
+	public boolean isNil() {
+		return length==0;
+	}
+
+	@Override
+	public int size() {
+		int n = 0;
+		for (int i = 0; i < length; i += 2) {
+			n += ranges[i+1] - ranges[i] + 1;
+		}
+		return n;
+	}
+
+	/** The number of disjoint ranges in the set. */
+	public int getRangeCount() {
+		return length / 2;
+	}
+
+	/** The first int of the i-th range. */
+	public int getRangeStart(int i) {
+		return ranges[i * 2];
+	}
+
+	/** The last int of the i-th range. */
+	public int getRangeEnd(int i) {
+		return ranges[i * 2 + 1];
+	}
+
+	public int getMinElement() {
+		if ( isNil() ) throw new RuntimeException("set is empty");
+		return ranges[0];
+	}
+
+	public int getMaxElement() {
+		if ( isNil() ) throw new RuntimeException("set is empty");
+		return ranges[length-1];
+	}
+
+	public IntervalSet toIntervalSet() {
+		List<Interval> intervals = new ArrayList<Interval>(length / 2);
+		for (int i = 0; i < length; i += 2) {
+			intervals.add(Interval.of(ranges[i], ranges[i+1]));
+		}
+		return new IntervalSet(intervals);
+	}
+
+	@Override
+	public List<Integer> toList() {
+		List<Integer> values = new ArrayList<Integer>();
+		for (int i = 0; i < length; i += 2) {
+			for (int v = ranges[i]; v <= ranges[i+1]; v++) {
+				values.add(v);
+			}
+		}
+		return values;
+	}
+
+	@Override
+	public int hashCode() {
+		int hash = MurmurHash.initialize();
+		for (int i = 0; i < length; i++) {
+			hash = MurmurHash.update(hash, ranges[i]);
+		}
+		return MurmurHash.finish(hash, length);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if ( obj==this ) return true;
+		if ( !(obj instanceof IntRangeSet) ) return false;
+		IntRangeSet other = (IntRangeSet)obj;
+		if ( length!=other.length ) return false;
+		for (int i = 0; i < length; i++) {
+			if ( ranges[i]!=other.ranges[i] ) return false;
+		}
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return toIntervalSet().toString();
+	}
+
+	private void set(IntRangeSet other) {
+		this.ranges = other.ranges;
+		this.length = other.length;
+	}
+
+	private static IntRangeSet rangesOf(IntSet set) {
+		if ( set instanceof IntRangeSet ) {
+			return (IntRangeSet)set;
+		}
+
+		IntRangeSet result = new IntRangeSet();
+		if ( set instanceof IntervalSet ) {
+			// sorted and disjoint, so each range is appended
+			for (Interval I : ((IntervalSet)set).getIntervals()) {
+				result.add(I.a, I.b);
+			}
+		}
+		else {
+			for (int value : set.toList()) {
+				result.add(value);
+			}
+		}
+		return result;
+	}
+
+	/** Merge the sorted ranges of x and y in one pass. */
+	private static IntRangeSet union(int[] x, int xLength, int[] y, int yLength) {
+		int[] r = new int[xLength + yLength];
+		int n = 0;
+		int i = 0;
+		int j = 0;
+		while ( i<xLength || j<yLength ) {
+			int a;
+			int b;
+			if ( j>=yLength || (i<xLength && x[i]<=y[j]) ) {
+				a = x[i];
+				b = x[i+1];
+				i += 2;
+			}
+			else {
+				a = y[j];
+				b = y[j+1];
+				j += 2;
+			}
+			if ( n>0 && a<=(long)r[n-1] + 1 ) {
+				r[n-1] = Math.max(r[n-1], b);
+			}
+			else {
+				r[n++] = a;
+				r[n++] = b;
+			}
+		}
+		return new IntRangeSet(r, n);
+	}
+}
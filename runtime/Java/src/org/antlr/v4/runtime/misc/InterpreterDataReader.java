@@ -6,17 +6,31 @@
 
 package org.antlr.v4.runtime.misc;
 
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.LexerInterpreter;
+import org.antlr.v4.runtime.ParserInterpreter;
+import org.antlr.v4.runtime.TokenStream;
 import org.antlr.v4.runtime.Vocabulary;
 import org.antlr.v4.runtime.VocabularyImpl;
 import org.antlr.v4.runtime.atn.ATN;
 import org.antlr.v4.runtime.atn.ATNDeserializer;
+import org.antlr.v4.runtime.atn.PredictionContextCache;
 import org.antlr.v4.runtime.dfa.DFA;
 
-import java.util.Collection;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 
 // A class to read plain text interpreter data produced by ANTLR.
 public class InterpreterDataReader {
@@ -27,7 +41,70 @@ public class InterpreterDataReader {
 	  List<String> ruleNames;
 	  List<String> channels; // Only valid for lexer grammars.
 	  List<String> modes; // ditto
+
+		/** The name of the file the data was first loaded from. */
+		String fileName;
+
+		/** The DFAs shared by the interpreters created from this data. */
+		DFA[] decisionToDFA;
+		PredictionContextCache sharedContextCache;
+
+		public ATN getATN() { return atn; }
+		public Vocabulary getVocabulary() { return vocabulary; }
+		public List<String> getRuleNames() { return ruleNames; }
+		public List<String> getChannels() { return channels; }
+		public List<String> getModes() { return modes; }
+
+		/** Create a lexer interpreter sharing the ATN and the DFAs of all
+		 *  the interpreters created from this data.
+		 *
+		 *  @since 4.7.1
+		 */
+		public LexerInterpreter createLexerInterpreter(CharStream input) {
+			if ( modes==null ) {
+				throw new IllegalStateException("A lexer interpreter can only be created from lexer data.");
+			}
+			return new LexerInterpreter(fileName, vocabulary, ruleNames, channels, modes, atn, input,
+										getDecisionToDFA(), sharedContextCache);
+		}
+
+		/** Create a parser interpreter sharing the ATN and the DFAs of all
+		 *  the interpreters created from this data.
+		 *
+		 *  @since 4.7.1
+		 */
+		public ParserInterpreter createParserInterpreter(TokenStream input) {
+			if ( modes!=null ) {
+				throw new IllegalStateException("A parser interpreter can only be created from parser data.");
+			}
+			return new ParserInterpreter(fileName, vocabulary, ruleNames, atn, input,
+										 getDecisionToDFA(), sharedContextCache);
+		}
+
+		private synchronized DFA[] getDecisionToDFA() {
+			if ( decisionToDFA==null ) {
+				decisionToDFA = new DFA[atn.getNumberOfDecisions()];
+				sharedContextCache = new PredictionContextCache();
+			}
+			return decisionToDFA;
+		}
 	};
+
+	/** How many files {@link #load} keeps by default. */
+	public static final int DEFAULT_MAX_CACHE_SIZE = 64;
+
+	private static volatile int maxCacheSize = DEFAULT_MAX_CACHE_SIZE;
+
+	/** The data loaded by {@link #load}, by hash of the file content, least
+	 *  recently used first. Guarded by itself.
+	 */
+	private static final Map<String, InterpreterData> cache =
+		new LinkedHashMap<String, InterpreterData>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, InterpreterData> eldest) {
+				return size()>maxCacheSize;
+			}
+		};
 	
 	/**
 	 * The structure of the data file is very simple. Everything is line based with empty lines
@@ -53,10 +130,107 @@ public class InterpreterDataReader {
 	 * Data for a parser does not contain channel and mode names.
 	 */
 	public static InterpreterData parseFile(String fileName) {
+		try (BufferedReader br = new BufferedReader(new FileReader(fileName))) {
+			InterpreterData result = parse(br);
+			result.fileName = fileName;
+			return result;
+		}
+		catch (java.io.IOException e) {
+			// We just swallow the error and return empty objects instead.
+			InterpreterData result = new InterpreterData();
+			result.ruleNames = new ArrayList<String>();
+			return result;
+		}
+	}
+
+	/**
+	 * Like {@link #parseFile} but only parses a file once per process: the
+	 * data is cached by a hash of the file content, and shared with any
+	 * later load of the same content, from any thread. The interpreters
+	 * created from the cached data also share their DFAs, so each new
+	 * interpreter starts with the DFA states computed by the previous ones.
+	 *
+	 * <p>The cache keeps the {@link #getMaxCacheSize} most recently loaded
+	 * files. Interpreters created from data that was dropped keep working,
+	 * but a later load of that content parses it again.</p>
+	 *
+	 * @since 4.7.1
+	 */
+	public static InterpreterData load(String fileName) throws IOException {
+		byte[] content = Files.readAllBytes(Paths.get(fileName));
+		String key = hash(content);
+		InterpreterData data;
+		synchronized (cache) {
+			data = cache.get(key);
+		}
+		if ( data==null ) {
+			try (BufferedReader br = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(content)))) {
+				data = parse(br);
+			}
+			data.fileName = fileName;
+			synchronized (cache) {
+				InterpreterData existing = cache.get(key);
+				if ( existing!=null ) {
+					data = existing;
+				}
+				else {
+					cache.put(key, data);
+				}
+			}
+		}
+		return data;
+	}
+
+	/** Forget the data cached by {@link #load}. */
+	public static void clearCache() {
+		synchronized (cache) {
+			cache.clear();
+		}
+	}
+
+	public static int getMaxCacheSize() {
+		return maxCacheSize;
+	}
+
+	/** Keep at most {@code maxCacheSize} files in the cache of {@link #load},
+	 *  dropping the least recently used ones beyond that.
+	 */
+	public static void setMaxCacheSize(int maxCacheSize) {
+		synchronized (cache) {
+			InterpreterDataReader.maxCacheSize = maxCacheSize;
+			Iterator<String> keys = cache.keySet().iterator();
+			while ( cache.size()>maxCacheSize && keys.hasNext() ) {
+				keys.next();
+				keys.remove();
+			}
+		}
+	}
+
+	/** The number of files in the cache of {@link #load}. */
+	public static int getCacheSize() {
+		synchronized (cache) {
+			return cache.size();
+		}
+	}
+
+	private static String hash(byte[] content) {
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+			StringBuilder buf = new StringBuilder(digest.length * 2);
+			for (byte b : digest) {
+				buf.append(String.format("%02x", b & 0xFF));
+			}
+			return buf.toString();
+		}
+		catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e); // every JRE has SHA-256
+		}
+	}
+
+	private static InterpreterData parse(BufferedReader br) throws IOException {
 		InterpreterData result = new InterpreterData();
 		result.ruleNames = new ArrayList<String>();
-		
-		try (BufferedReader br = new BufferedReader(new FileReader(fileName))) {
+
 		    String line;
 		  	List<String> literalNames = new ArrayList<String>();
 		  	List<String> symbolicNames = new ArrayList<String>();
@@ -89,7 +263,11 @@ public class InterpreterDataReader {
 					break;
 				result.ruleNames.add(line);
 		    }
-		    
+
+			// parser data has an extra empty line before the atn
+			do {
+				line = br.readLine();
+			} while ( line!=null && line.isEmpty() );
 			if ( line.equals("channel names:") ) { // Additional lexer data.
 				result.channels = new ArrayList<String>();
 			    while ((line = br.readLine()) != null) {
@@ -107,9 +285,9 @@ public class InterpreterDataReader {
 						break;
 					result.modes.add(line);
 			    }
+				line = br.readLine();
 			}
 
-		  	line = br.readLine();
 		  	if ( !line.equals("atn:") )
 		  		throw new RuntimeException("Unexpected data entry");
 			line = br.readLine();
@@ -130,11 +308,7 @@ public class InterpreterDataReader {
 
 		  	ATNDeserializer deserializer = new ATNDeserializer();
 		  	result.atn = deserializer.deserialize(serializedATN);
-		}
-		catch (java.io.IOException e) {
-			// We just swallow the error and return empty objects instead.
-		}
-		
+
 		return result;
 	}
 	
@@ -8,10 +8,16 @@ package org.antlr.v4.runtime.misc;
 
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
 import java.util.Arrays;
 import java.util.BitSet;
 import java.util.Collection;
@@ -124,6 +130,34 @@ public class Utils {
 		return data;
 	}
 
+	/** Read the classpath resource {@code name}, relative to {@code cls}, into
+	 *  a direct buffer.
+	 *
+	 *  @throws FileNotFoundException if there is no such resource
+	 */
+	public static ByteBuffer readResource(Class<?> cls, String name) throws IOException {
+		URL url = cls.getResource(name);
+		if ( url==null ) {
+			throw new FileNotFoundException(cls.getName()+": resource "+name);
+		}
+
+		URLConnection connection = url.openConnection();
+		int size = connection.getContentLength();
+		ByteBuffer buffer = ByteBuffer.allocateDirect(size>=0 ? size : 8192);
+		try (ReadableByteChannel channel = Channels.newChannel(connection.getInputStream())) {
+			while ( channel.read(buffer)>=0 ) {
+				if ( !buffer.hasRemaining() ) {
+					if ( size>=0 ) break;
+					// unknown length; grow as needed
+					buffer.flip();
+					buffer = ByteBuffer.allocateDirect(buffer.capacity() * 2).put(buffer);
+				}
+			}
+		}
+		buffer.flip();
+		return buffer;
+	}
+
 	/** Convert array of strings to string&rarr;index map. Useful for
 	 *  converting rulenames to name&rarr;ruleindex map.
 	 */
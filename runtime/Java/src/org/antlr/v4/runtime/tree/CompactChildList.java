@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v4.runtime.tree;
+
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.TokenStream;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * A read-only child list for {@link ParserRuleContext#children} which stores
+ * plain terminal children as token indexes into a {@link TokenStream}
+ * instead of as {@link TerminalNodeImpl} objects.
+ *
+ * <p>The {@link TerminalNode} for a token index is created the first time it
+ * is requested and then cached, so repeated calls to {@link #get} return the
+ * same node. Rule nodes, error nodes and terminal nodes of other types are
+ * stored as-is.</p>
+ *
+ * <p>{@link ParserRuleContext} replaces this list with an {@link java.util.ArrayList}
+ * when a child is added or removed through its methods; modifying the list
+ * directly throws {@link UnsupportedOperationException}.</p>
+ *
+ * @see org.antlr.v4.runtime.Parser#setCompactParseTree
+ */
+public class CompactChildList extends AbstractList<ParseTree> implements RandomAccess {
+	private static final ParseTree[] EMPTY_NODES = new ParseTree[0];
+
+	private final ParserRuleContext parent;
+	private final TokenStream tokens;
+	/** A token index if non-negative, otherwise {@code ~i} for {@code nodes[i]}. */
+	private final int[] children;
+	private final ParseTree[] nodes;
+	private TerminalNode[] terminals;
+
+	protected CompactChildList(ParserRuleContext parent, TokenStream tokens, int[] children, ParseTree[] nodes) {
+		this.parent = parent;
+		this.tokens = tokens;
+		this.children = children;
+		this.nodes = nodes;
+	}
+
+	/**
+	 * Creates a compact copy of {@code list}, the children of {@code parent}.
+	 * Terminals are only stored as indexes when their symbol is the token at
+	 * that index in {@code tokens}.
+	 */
+	public static CompactChildList compact(ParserRuleContext parent, List<? extends ParseTree> list, TokenStream tokens) {
+		int n = list.size();
+		int[] children = new int[n];
+		int nodeCount = 0;
+		for (int i = 0; i < n; i++) {
+			if ( !isCompactTerminal(list.get(i), tokens) ) {
+				nodeCount++;
+			}
+		}
+
+		ParseTree[] nodes = nodeCount > 0 ? new ParseTree[nodeCount] : EMPTY_NODES;
+		int j = 0;
+		for (int i = 0; i < n; i++) {
+			ParseTree child = list.get(i);
+			if ( isCompactTerminal(child, tokens) ) {
+				children[i] = ((TerminalNode)child).getSymbol().getTokenIndex();
+			}
+			else {
+				nodes[j] = child;
+				children[i] = ~j;
+				j++;
+			}
+		}
+
+		return new CompactChildList(parent, tokens, children, nodes);
+	}
+
+	private static boolean isCompactTerminal(ParseTree child, TokenStream tokens) {
+		if ( child.getClass()!=TerminalNodeImpl.class ) {
+			return false;
+		}
+
+		TerminalNodeImpl terminal = (TerminalNodeImpl)child;
+		int index = terminal.symbol!=null ? terminal.symbol.getTokenIndex() : -1;
+		return index>=0 && index<tokens.size() && tokens.get(index)==terminal.symbol;
+	}
+
+	@Override
+	public ParseTree get(int index) {
+		int child = children[index];
+		if ( child<0 ) {
+			return nodes[~child];
+		}
+
+		if ( terminals==null ) {
+			terminals = new TerminalNode[children.length];
+		}
+
+		TerminalNode terminal = terminals[index];
+		if ( terminal==null ) {
+			terminal = new TerminalNodeImpl(tokens.get(child));
+			terminal.setParent(parent);
+			terminals[index] = terminal;
+		}
+
+		return terminal;
+	}
+
+	@Override
+	public int size() {
+		return children.length;
+	}
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v4.runtime.tree;
+
+import org.antlr.v4.runtime.RuleContext;
+import org.antlr.v4.runtime.misc.Interval;
+
+import java.util.BitSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * A visitor which visits large, independent subtrees concurrently using a
+ * {@link ForkJoinPool}.
+ *
+ * <p>Child subtrees are only visited in parallel when both of the following
+ * conditions hold:</p>
+ *
+ * <ul>
+ * <li>{@link #canVisitConcurrently} returns {@code true} for the child. By
+ * default this is the case for rule nodes whose rule index was passed to
+ * {@link #setConcurrentRules}.</li>
+ * <li>{@link #estimateSubtreeSize} for the child is at least
+ * {@link #getThreshold}.</li>
+ * </ul>
+ *
+ * <p>All other children are visited on the current thread, exactly as
+ * {@link AbstractParseTreeVisitor#visitChildren} would. Results are always
+ * combined with {@link #aggregateResult} in child order, so the final result
+ * does not depend on scheduling. Since {@link #shouldVisitNextChild} is only
+ * evaluated as results are aggregated, subtrees which were already forked
+ * may be visited even when a "short circuit" stops the aggregation; such
+ * tasks are cancelled if they have not started yet.</p>
+ *
+ * <p>Visit methods reached from a concurrently visited subtree may run on any
+ * thread of the pool, so they must not modify state shared with other
+ * subtrees without proper synchronization.</p>
+ *
+ * @param <T> The return type of the visit operation.
+ */
+public class ParallelParseTreeVisitor<T> extends AbstractParseTreeVisitor<T> {
+	/** The default minimum number of tokens in a subtree visited in a separate task. */
+	public static final int DEFAULT_THRESHOLD = 1000;
+
+	private final ForkJoinPool pool;
+	private final int threshold;
+	private final BitSet concurrentRules = new BitSet();
+
+	/**
+	 * The pool of the visitors created without one. Like the common pool of
+	 * Java 8, it is shared by all such visitors, and its threads are daemons
+	 * which end when they are idle.
+	 */
+	private static final class DefaultPool {
+		static final ForkJoinPool INSTANCE = new ForkJoinPool();
+	}
+
+	/**
+	 * Creates a visitor with the default threshold which runs its tasks in a
+	 * pool shared by all the visitors created with this constructor.
+	 */
+	public ParallelParseTreeVisitor() {
+		this(DefaultPool.INSTANCE, DEFAULT_THRESHOLD);
+	}
+
+	public ParallelParseTreeVisitor(ForkJoinPool pool, int threshold) {
+		if ( pool==null ) {
+			throw new NullPointerException("pool");
+		}
+		if ( threshold<1 ) {
+			throw new IllegalArgumentException("threshold must be positive");
+		}
+
+		this.pool = pool;
+		this.threshold = threshold;
+	}
+
+	public ForkJoinPool getPool() {
+		return pool;
+	}
+
+	/** Gets the minimum estimated subtree size which is visited in a separate task. */
+	public int getThreshold() {
+		return threshold;
+	}
+
+	/**
+	 * Declares the rules whose subtrees may be visited concurrently with
+	 * their siblings by the default implementation of
+	 * {@link #canVisitConcurrently}.
+	 */
+	public void setConcurrentRules(int... ruleIndexes) {
+		concurrentRules.clear();
+		for (int ruleIndex : ruleIndexes) {
+			concurrentRules.set(ruleIndex);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * <p>When called from outside a task of {@link #getPool}, including from
+	 * a task of another {@link ForkJoinPool}, the visit is submitted to
+	 * {@link #getPool} and this method blocks until it completes.</p>
+	 */
+	@Override
+	public T visit(ParseTree tree) {
+		if ( inPool() ) {
+			return tree.accept(this);
+		}
+
+		return pool.invoke(new VisitTask(tree));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * <p>This implementation forks a task for each child which is eligible for
+	 * concurrent visiting, visits the remaining children on the current
+	 * thread, and then aggregates all results in child order.</p>
+	 */
+	@Override
+	public T visitChildren(final RuleNode node) {
+		if ( !inPool() ) {
+			return pool.invoke(new RecursiveTask<T>() {
+				@Override
+				protected T compute() {
+					return visitChildren(node);
+				}
+			});
+		}
+
+		int n = node.getChildCount();
+		ForkJoinTask<T>[] tasks = null;
+		for (int i = 0; i < n; i++) {
+			ParseTree c = node.getChild(i);
+			if ( canVisitConcurrently(c) && estimateSubtreeSize(c) >= threshold ) {
+				if ( tasks==null ) {
+					@SuppressWarnings("unchecked")
+					ForkJoinTask<T>[] newTasks = (ForkJoinTask<T>[])new ForkJoinTask<?>[n];
+					tasks = newTasks;
+				}
+
+				tasks[i] = new VisitTask(c).fork();
+			}
+		}
+
+		if ( tasks==null ) {
+			return super.visitChildren(node);
+		}
+
+		T result = defaultResult();
+		int i = 0;
+		for (; i < n; i++) {
+			if (!shouldVisitNextChild(node, result)) {
+				break;
+			}
+
+			T childResult = tasks[i]!=null ? tasks[i].join() : node.getChild(i).accept(this);
+			result = aggregateResult(result, childResult);
+		}
+
+		for (; i < n; i++) {
+			if ( tasks[i]!=null ) {
+				tasks[i].cancel(false);
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Determines whether {@code tree} may be visited concurrently with its
+	 * siblings.
+	 *
+	 * <p>The default implementation returns {@code true} for rule nodes whose
+	 * rule index was declared with {@link #setConcurrentRules}.</p>
+	 */
+	protected boolean canVisitConcurrently(ParseTree tree) {
+		if ( !(tree instanceof RuleNode) ) {
+			return false;
+		}
+
+		RuleContext ctx = ((RuleNode)tree).getRuleContext();
+		return concurrentRules.get(ctx.getRuleIndex());
+	}
+
+	/**
+	 * Estimates the cost of visiting {@code tree}. The default implementation
+	 * returns the number of tokens in {@link ParseTree#getSourceInterval},
+	 * which is available without walking the subtree.
+	 */
+	protected int estimateSubtreeSize(ParseTree tree) {
+		Interval interval = tree.getSourceInterval();
+		if ( interval==null || interval.a<0 ) {
+			return 0;
+		}
+
+		return interval.length();
+	}
+
+	/** Whether the current thread runs a task of {@link #getPool}. */
+	private boolean inPool() {
+		return ForkJoinTask.getPool()==pool;
+	}
+
+	protected class VisitTask extends RecursiveTask<T> {
+		private final ParseTree tree;
+
+		public VisitTask(ParseTree tree) {
+			this.tree = tree;
+		}
+
+		@Override
+		protected T compute() {
+			return tree.accept(ParallelParseTreeVisitor.this);
+		}
+	}
+}
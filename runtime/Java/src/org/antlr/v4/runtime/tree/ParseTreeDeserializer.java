@@ -0,0 +1,347 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v4.runtime.tree;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CommonToken;
+import org.antlr.v4.runtime.InterpreterRuleContext;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.TokenSource;
+import org.antlr.v4.runtime.atn.ATN;
+import org.antlr.v4.runtime.misc.Pair;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Reads parse trees written by {@link ParseTreeSerializer}.
+ *
+ * <p>Decoding is lazy: the columns are read directly from the buffer, which
+ * is usually mapped from a file with {@link #map}, and {@link Token} objects
+ * are only created for the tokens that are actually requested. Rule nodes
+ * can be inspected by node number without creating any context, and
+ * {@link #getTree(int)} only materializes the requested subtree.</p>
+ *
+ * <p>Rule nodes are recreated as instances of the context class that was
+ * serialized, so generated typed accessors such as {@code expr(0)} keep
+ * working. Fields assigned by labels in the grammar are not restored. If a
+ * context class cannot be loaded or instantiated, an
+ * {@link InterpreterRuleContext} is created instead.</p>
+ *
+ * <p>This class is not thread safe.</p>
+ */
+public class ParseTreeDeserializer {
+	private static final int TOKEN_COLUMNS = 8;
+	private static final int NODE_COLUMNS = 6;
+
+	private final ByteBuffer buffer;
+	private final Pair<TokenSource, CharStream> source;
+	private final ClassLoader classLoader;
+
+	private final String[] strings;
+	private final int tokenCount;
+	private final int tokensOffset;
+	private final int nodeCount;
+	private final int nodesOffset;
+	private final int childOffsetsOffset;
+	private final int childrenOffset;
+
+	private final Token[] tokens;
+	private final Map<String, Constructor<?>[]> constructors = new HashMap<String, Constructor<?>[]>();
+
+	/**
+	 * @param buffer The serialized tree.
+	 * @param tokenSource The token source of the recreated tokens, or {@code null}.
+	 * @param input The input the tree was parsed from, used to obtain the
+	 * text of the tokens.
+	 */
+	public ParseTreeDeserializer(ByteBuffer buffer, TokenSource tokenSource, CharStream input) {
+		this(buffer, tokenSource, input, ParseTreeDeserializer.class.getClassLoader());
+	}
+
+	public ParseTreeDeserializer(ByteBuffer buffer, TokenSource tokenSource, CharStream input, ClassLoader classLoader) {
+		this.buffer = buffer.duplicate();
+		this.source = new Pair<TokenSource, CharStream>(tokenSource, input);
+		this.classLoader = classLoader;
+
+		int p = this.buffer.position();
+		int magic = this.buffer.getInt(p);
+		int version = this.buffer.getInt(p + 4);
+		if ( magic!=ParseTreeSerializer.MAGIC || version!=ParseTreeSerializer.VERSION ) {
+			String reason = String.format(Locale.getDefault(), "Could not deserialize parse tree with magic 0x%08x and version %d (expected version %d).", magic, version, ParseTreeSerializer.VERSION);
+			throw new UnsupportedOperationException(new InvalidClassException(ParserRuleContext.class.getName(), reason));
+		}
+
+		p += 8;
+		strings = new String[this.buffer.getInt(p)];
+		p += 4;
+		for (int i = 0; i < strings.length; i++) {
+			int length = this.buffer.getInt(p);
+			p += 4;
+			char[] chars = new char[length];
+			for (int j = 0; j < length; j++) {
+				chars[j] = this.buffer.getChar(p);
+				p += 2;
+			}
+
+			strings[i] = new String(chars);
+		}
+
+		tokenCount = this.buffer.getInt(p);
+		tokensOffset = p + 4;
+		p = tokensOffset + 4 * TOKEN_COLUMNS * tokenCount;
+
+		nodeCount = this.buffer.getInt(p);
+		nodesOffset = p + 4;
+		childOffsetsOffset = nodesOffset + 4 * NODE_COLUMNS * nodeCount;
+		childrenOffset = childOffsetsOffset + 4 * (nodeCount + 1) + 4;
+
+		tokens = new Token[tokenCount];
+	}
+
+	/** Maps {@code file} into memory and prepares it for lazy decoding. */
+	public static ParseTreeDeserializer map(File file, TokenSource tokenSource, CharStream input) throws IOException {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			return new ParseTreeDeserializer(buffer, tokenSource, input);
+		}
+	}
+
+	public int getTokenCount() {
+		return tokenCount;
+	}
+
+	/** Gets the token at index {@code i} of the token section, creating it on first use. */
+	public Token getToken(int i) {
+		Token token = tokens[i];
+		if ( token==null ) {
+			CommonToken t = new CommonToken(source, tokenColumn(0, i), tokenColumn(1, i), tokenColumn(2, i), tokenColumn(3, i));
+			t.setLine(tokenColumn(4, i));
+			t.setCharPositionInLine(tokenColumn(5, i));
+			t.setTokenIndex(tokenColumn(6, i));
+			int text = tokenColumn(7, i);
+			if ( text>=0 ) {
+				t.setText(strings[text]);
+			}
+
+			tokens[i] = token = t;
+		}
+
+		return token;
+	}
+
+	/** Gets a view of the token section which creates tokens as they are accessed. */
+	public List<Token> getTokens() {
+		return new AbstractList<Token>() {
+			@Override
+			public Token get(int index) {
+				return getToken(index);
+			}
+
+			@Override
+			public int size() {
+				return tokenCount;
+			}
+		};
+	}
+
+	public int getNodeCount() {
+		return nodeCount;
+	}
+
+	public String getContextClassName(int node) {
+		return strings[nodeColumn(0, node)];
+	}
+
+	public int getRuleIndex(int node) {
+		return nodeColumn(1, node);
+	}
+
+	public int getAltNumber(int node) {
+		return nodeColumn(2, node);
+	}
+
+	public int getInvokingState(int node) {
+		return nodeColumn(3, node);
+	}
+
+	/** Gets the index of the start token of {@code node} in the token section, or -1. */
+	public int getStartToken(int node) {
+		return nodeColumn(4, node);
+	}
+
+	/** Gets the index of the stop token of {@code node} in the token section, or -1. */
+	public int getStopToken(int node) {
+		return nodeColumn(5, node);
+	}
+
+	/** Gets the numbers of the nodes for rule {@code ruleIndex}, in pre-order. */
+	public List<Integer> findNodes(int ruleIndex) {
+		List<Integer> result = new ArrayList<Integer>();
+		for (int i = 0; i < nodeCount; i++) {
+			if ( getRuleIndex(i)==ruleIndex ) {
+				result.add(i);
+			}
+		}
+
+		return result;
+	}
+
+	/** Materializes the complete tree. */
+	public ParserRuleContext getTree() {
+		return getTree(0);
+	}
+
+	/**
+	 * Materializes the subtree rooted at {@code node}. The parent of the
+	 * returned context is {@code null}.
+	 */
+	public ParserRuleContext getTree(int node) {
+		ParserRuleContext root = createContext(node, null);
+		List<ParserRuleContext> work = new ArrayList<ParserRuleContext>();
+		List<Integer> workNodes = new ArrayList<Integer>();
+		work.add(root);
+		workNodes.add(node);
+		while ( !work.isEmpty() ) {
+			ParserRuleContext ctx = work.remove(work.size() - 1);
+			int n = workNodes.remove(workNodes.size() - 1);
+			int firstChild = buffer.getInt(childOffsetsOffset + 4 * n);
+			int stopChild = buffer.getInt(childOffsetsOffset + 4 * (n + 1));
+			for (int i = firstChild; i < stopChild; i++) {
+				int child = buffer.getInt(childrenOffset + 4 * i);
+				if ( child<0 ) {
+					ParserRuleContext childContext = createContext(~child, ctx);
+					ctx.addChild(childContext);
+					work.add(childContext);
+					workNodes.add(~child);
+				}
+				else if ( (child & 1)!=0 ) {
+					ctx.addErrorNode(new ErrorNodeImpl(getToken(child >>> 1)));
+				}
+				else {
+					ctx.addChild(new TerminalNodeImpl(getToken(child >>> 1)));
+				}
+			}
+		}
+
+		return root;
+	}
+
+	/**
+	 * Creates the context for {@code node} without its children.
+	 *
+	 * <p>The serialized class is instantiated through a constructor taking
+	 * {@code (ParserRuleContext parent, int invokingState)}; alternative
+	 * label contexts are created from an instance of their rule context
+	 * through their copy constructor.</p>
+	 */
+	protected ParserRuleContext createContext(int node, ParserRuleContext parent) {
+		int invokingState = getInvokingState(node);
+		ParserRuleContext ctx = null;
+		Constructor<?>[] ctors = getConstructors(getContextClassName(node));
+		if ( ctors!=null ) {
+			try {
+				Object c = ctors[0].newInstance(parent, invokingState);
+				if ( ctors.length>1 ) {
+					c = ctors[1].newInstance(c);
+				}
+
+				ctx = (ParserRuleContext)c;
+			}
+			catch (InstantiationException | IllegalAccessException | InvocationTargetException ex) {
+				ctx = null;
+			}
+		}
+
+		if ( ctx==null ) {
+			ctx = new InterpreterRuleContext(parent, invokingState, getRuleIndex(node));
+		}
+
+		ctx.parent = parent;
+		ctx.invokingState = invokingState;
+		int start = getStartToken(node);
+		int stop = getStopToken(node);
+		ctx.start = start>=0 ? getToken(start) : null;
+		ctx.stop = stop>=0 ? getToken(stop) : null;
+		int altNumber = getAltNumber(node);
+		if ( altNumber!=ATN.INVALID_ALT_NUMBER ) {
+			ctx.setAltNumber(altNumber);
+		}
+
+		return ctx;
+	}
+
+	/**
+	 * Gets the constructor chain used to create contexts of class
+	 * {@code className}, or {@code null} if an {@link InterpreterRuleContext}
+	 * should be used instead.
+	 */
+	private Constructor<?>[] getConstructors(String className) {
+		if ( constructors.containsKey(className) ) {
+			return constructors.get(className);
+		}
+
+		Constructor<?>[] result = null;
+		if ( !className.equals(InterpreterRuleContext.class.getName()) ) {
+			try {
+				Class<? extends ParserRuleContext> type = Class.forName(className, false, classLoader).asSubclass(ParserRuleContext.class);
+				Constructor<?> ctor = getRuleConstructor(type);
+				if ( ctor!=null ) {
+					result = new Constructor<?>[] { ctor };
+				}
+				else {
+					for (Constructor<?> copyCtor : type.getConstructors()) {
+						Class<?>[] parameterTypes = copyCtor.getParameterTypes();
+						if ( parameterTypes.length==1 && ParserRuleContext.class.isAssignableFrom(parameterTypes[0]) ) {
+							Constructor<?> baseCtor = getRuleConstructor(parameterTypes[0]);
+							if ( baseCtor!=null ) {
+								result = new Constructor<?>[] { baseCtor, copyCtor };
+								break;
+							}
+						}
+					}
+				}
+			}
+			catch (ClassNotFoundException | ClassCastException ex) {
+				result = null;
+			}
+		}
+
+		constructors.put(className, result);
+		return result;
+	}
+
+	private static Constructor<?> getRuleConstructor(Class<?> type) {
+		try {
+			return type.getConstructor(ParserRuleContext.class, int.class);
+		}
+		catch (NoSuchMethodException ex) {
+			return null;
+		}
+	}
+
+	private int tokenColumn(int column, int i) {
+		return buffer.getInt(tokensOffset + 4 * (column * tokenCount + i));
+	}
+
+	private int nodeColumn(int column, int node) {
+		return buffer.getInt(nodesOffset + 4 * (column * nodeCount + node));
+	}
+}
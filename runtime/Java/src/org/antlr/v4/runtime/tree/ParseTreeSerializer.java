@@ -0,0 +1,229 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v4.runtime.tree;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.misc.IntegerList;
+import org.antlr.v4.runtime.misc.Interval;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes a {@link ParserRuleContext} tree and its tokens in a compact,
+ * columnar binary form which can be loaded again with
+ * {@link ParseTreeDeserializer}, e.g. to cache parse results for unchanged
+ * inputs.
+ *
+ * <p>All values are big-endian 32-bit integers:</p>
+ *
+ * <pre>
+ *  magic, version,
+ *  num strings, (length chars...)*,
+ *  num tokens, type*, channel*, start*, stop*, line*, charPositionInLine*, tokenIndex*, text*,
+ *  num nodes, class*, ruleIndex*, altNumber*, invokingState*, startToken*, stopToken*,
+ *  childOffset* (num nodes + 1 entries),
+ *  num children, child*
+ * </pre>
+ *
+ * <p>Nodes are numbered in pre-order, so node 0 is the root. Strings hold
+ * the context class names and the text of tokens whose text differs from
+ * their input slice, such as tokens conjured up during error recovery or
+ * tokens whose text was replaced with {@link
+ * org.antlr.v4.runtime.WritableToken#setText}; a text entry of -1 means the
+ * text is read from the input stream. A child entry {@code c} is a rule node
+ * {@code ~c} if negative, otherwise the terminal for token {@code c >>> 1},
+ * which is an error node if {@code (c & 1) != 0}.</p>
+ *
+ * <p>The token section starts with the tokens passed to {@link #serialize},
+ * in order, followed by any token of the tree which was not in that
+ * list. The text of the tokens matching the input is not written; it is
+ * obtained from the input stream given to {@link ParseTreeDeserializer}.</p>
+ *
+ * <p>A serializer instance writes a single tree.</p>
+ */
+public class ParseTreeSerializer {
+	public static final int MAGIC = 0x41505431; // "APT1"
+	public static final int VERSION = 1;
+
+	private final List<ParserRuleContext> nodes = new ArrayList<ParserRuleContext>();
+	private final Map<ParserRuleContext, Integer> nodeIndexes = new IdentityHashMap<ParserRuleContext, Integer>();
+	private final List<Token> tokens = new ArrayList<Token>();
+	private final Map<Token, Integer> extraTokenIndexes = new IdentityHashMap<Token, Integer>();
+	private final List<String> strings = new ArrayList<String>();
+	private final Map<String, Integer> stringIndexes = new HashMap<String, Integer>();
+	private final int streamTokenCount;
+
+	/**
+	 * @param tokens The tokens of the input, usually
+	 * {@link org.antlr.v4.runtime.BufferedTokenStream#getTokens}, or
+	 * {@code null} to only write the tokens referenced by the tree.
+	 */
+	public ParseTreeSerializer(List<? extends Token> tokens) {
+		if ( tokens!=null ) {
+			this.tokens.addAll(tokens);
+		}
+
+		this.streamTokenCount = this.tokens.size();
+	}
+
+	public static byte[] serialize(ParserRuleContext tree, List<? extends Token> tokens) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try {
+			new ParseTreeSerializer(tokens).serialize(tree, bytes);
+		}
+		catch (IOException ex) {
+			// not possible for a ByteArrayOutputStream
+			throw new IllegalStateException(ex);
+		}
+
+		return bytes.toByteArray();
+	}
+
+	public void serialize(ParserRuleContext tree, OutputStream outputStream) throws IOException {
+		collectNodes(tree);
+
+		IntegerList children = new IntegerList();
+		int[] childOffsets = new int[nodes.size() + 1];
+		for (int i = 0; i < nodes.size(); i++) {
+			childOffsets[i] = children.size();
+			ParserRuleContext node = nodes.get(i);
+			for (int j = 0; j < node.getChildCount(); j++) {
+				ParseTree child = node.getChild(j);
+				if ( child instanceof ParserRuleContext ) {
+					children.add(~nodeIndexes.get(child));
+				}
+				else if ( child instanceof TerminalNode ) {
+					int tokenIndex = getTokenIndex(((TerminalNode)child).getSymbol());
+					int errorFlag = child instanceof ErrorNode ? 1 : 0;
+					children.add((tokenIndex << 1) | errorFlag);
+				}
+				else {
+					throw new IllegalArgumentException("cannot serialize child of type " + child.getClass().getName());
+				}
+			}
+		}
+
+		childOffsets[nodes.size()] = children.size();
+
+		int[] startTokens = new int[nodes.size()];
+		int[] stopTokens = new int[nodes.size()];
+		int[] classNames = new int[nodes.size()];
+		for (int i = 0; i < nodes.size(); i++) {
+			ParserRuleContext node = nodes.get(i);
+			startTokens[i] = node.start!=null ? getTokenIndex(node.start) : -1;
+			stopTokens[i] = node.stop!=null ? getTokenIndex(node.stop) : -1;
+			classNames[i] = getStringIndex(node.getClass().getName());
+		}
+
+		int[] tokenTexts = new int[tokens.size()];
+		for (int i = 0; i < tokens.size(); i++) {
+			Token token = tokens.get(i);
+			String text = token.getText();
+			tokenTexts[i] = text==null || isInputText(token, text) ? -1 : getStringIndex(text);
+		}
+
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(outputStream));
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+
+		out.writeInt(strings.size());
+		for (String s : strings) {
+			out.writeInt(s.length());
+			out.writeChars(s);
+		}
+
+		out.writeInt(tokens.size());
+		for (Token t : tokens) out.writeInt(t.getType());
+		for (Token t : tokens) out.writeInt(t.getChannel());
+		for (Token t : tokens) out.writeInt(t.getStartIndex());
+		for (Token t : tokens) out.writeInt(t.getStopIndex());
+		for (Token t : tokens) out.writeInt(t.getLine());
+		for (Token t : tokens) out.writeInt(t.getCharPositionInLine());
+		for (Token t : tokens) out.writeInt(t.getTokenIndex());
+		for (int text : tokenTexts) out.writeInt(text);
+
+		out.writeInt(nodes.size());
+		for (int c : classNames) out.writeInt(c);
+		for (ParserRuleContext n : nodes) out.writeInt(n.getRuleIndex());
+		for (ParserRuleContext n : nodes) out.writeInt(n.getAltNumber());
+		for (ParserRuleContext n : nodes) out.writeInt(n.invokingState);
+		for (int t : startTokens) out.writeInt(t);
+		for (int t : stopTokens) out.writeInt(t);
+		for (int offset : childOffsets) out.writeInt(offset);
+
+		out.writeInt(children.size());
+		for (int i = 0; i < children.size(); i++) out.writeInt(children.get(i));
+		out.flush();
+	}
+
+	/** Numbers the rule nodes of {@code tree} in pre-order. */
+	protected void collectNodes(ParserRuleContext tree) {
+		List<ParserRuleContext> work = new ArrayList<ParserRuleContext>();
+		work.add(tree);
+		while ( !work.isEmpty() ) {
+			ParserRuleContext node = work.remove(work.size() - 1);
+			nodeIndexes.put(node, nodes.size());
+			nodes.add(node);
+			for (int i = node.getChildCount() - 1; i >= 0; i--) {
+				ParseTree child = node.getChild(i);
+				if ( child instanceof ParserRuleContext ) {
+					work.add((ParserRuleContext)child);
+				}
+			}
+		}
+	}
+
+	/** Whether {@code text} is the slice of the input {@code token} spans. */
+	protected boolean isInputText(Token token, String text) {
+		CharStream input = token.getInputStream();
+		int start = token.getStartIndex();
+		int stop = token.getStopIndex();
+		if ( input==null || start<0 || stop<start || stop>=input.size() ) {
+			return false;
+		}
+
+		return text.equals(input.getText(Interval.of(start, stop)));
+	}
+
+	protected int getTokenIndex(Token token) {
+		int index = token.getTokenIndex();
+		if ( index>=0 && index<streamTokenCount && tokens.get(index)==token ) {
+			return index;
+		}
+
+		Integer extraIndex = extraTokenIndexes.get(token);
+		if ( extraIndex==null ) {
+			extraIndex = tokens.size();
+			tokens.add(token);
+			extraTokenIndexes.put(token, extraIndex);
+		}
+
+		return extraIndex;
+	}
+
+	protected int getStringIndex(String s) {
+		Integer index = stringIndexes.get(s);
+		if ( index==null ) {
+			index = strings.size();
+			strings.add(s);
+			stringIndexes.put(s, index);
+		}
+
+		return index;
+	}
+}
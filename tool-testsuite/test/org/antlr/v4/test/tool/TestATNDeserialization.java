@@ -15,6 +15,7 @@ import org.antlr.v4.tool.LexerGrammar;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 import static org.junit.Assert.assertEquals;
@@ -168,5 +169,12 @@ public class TestATNDeserialization extends BaseJavaToolTest {
 		String atn2Data = ATNSerializer.getDecoded(atn2, Arrays.asList(g.getTokenNames()));
 
 		assertEquals(atnData, atn2Data);
+
+		// and the same from the binary form
+		byte[] bytes = ATNSerializer.getSerializedAsBytes(atn);
+		ATN atn3 = new ATNDeserializer().deserialize(ByteBuffer.wrap(bytes));
+		String atn3Data = ATNSerializer.getDecoded(atn3, Arrays.asList(g.getTokenNames()));
+
+		assertEquals(atnData, atn3Data);
 	}
 }
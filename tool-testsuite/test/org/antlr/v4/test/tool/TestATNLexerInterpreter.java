@@ -8,8 +8,16 @@ package org.antlr.v4.test.tool;
 
 import org.antlr.v4.runtime.CharStream;
 import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.LexerInterpreter;
+import org.antlr.v4.runtime.Token;
 import org.antlr.v4.runtime.atn.ATN;
 import org.antlr.v4.runtime.atn.ATNState;
+import org.antlr.v4.runtime.atn.LexerAction;
+import org.antlr.v4.runtime.atn.LexerActionExecutor;
+import org.antlr.v4.runtime.atn.LexerActionExecutorCache;
+import org.antlr.v4.runtime.atn.LexerCustomAction;
+import org.antlr.v4.runtime.atn.LexerSkipAction;
+import org.antlr.v4.runtime.dfa.DFAState;
 import org.antlr.v4.runtime.misc.Utils;
 import org.antlr.v4.tool.DOTGenerator;
 import org.antlr.v4.tool.LexerGrammar;
@@ -19,6 +27,9 @@ import org.junit.Test;
 import java.util.List;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 /**
  * Lexer rules are little quirky when it comes to wildcards. Problem
@@ -379,6 +390,53 @@ public class TestATNLexerInterpreter extends BaseJavaToolTest {
 		checkLexerMatches(lg, "a", expecting);
 	}
 
+	@Test public void testLexerActionExecutorsInterned() throws Exception {
+		LexerActionExecutorCache cache = new LexerActionExecutorCache();
+		LexerAction custom = new LexerCustomAction(0, 0);
+		LexerActionExecutor a = cache.append(null, custom);
+		assertSame(a, cache.append(null, custom));
+		LexerActionExecutor ab = cache.append(a, LexerSkipAction.INSTANCE);
+		assertSame(ab, cache.append(a, LexerSkipAction.INSTANCE));
+		assertSame(ab, cache.intern(LexerActionExecutor.append(LexerActionExecutor.append(null, custom), LexerSkipAction.INSTANCE)));
+
+		LexerActionExecutor fixed = cache.fixOffsetBeforeMatch(ab, 3);
+		assertEquals(ab.fixOffsetBeforeMatch(3), fixed);
+		assertSame(fixed, cache.fixOffsetBeforeMatch(ab, 3));
+		assertSame(fixed, cache.fixOffsetBeforeMatch(fixed, 5)); // offsets already fixed
+
+		// a full cache still answers, without keeping the new executors
+		cache.setMaxSize(cache.size());
+		LexerActionExecutor fixed4 = cache.fixOffsetBeforeMatch(ab, 4);
+		assertEquals(ab.fixOffsetBeforeMatch(4), fixed4);
+		assertNotSame(fixed4, cache.fixOffsetBeforeMatch(ab, 4));
+	}
+
+	@Test public void testDFAStatesShareInternedExecutors() throws Exception {
+		LexerGrammar lg = new LexerGrammar(
+			"lexer grammar L;\n"+
+			"A : 'a' {} 'b' -> type(C) ;\n"+
+			"C : 'c' {} ;\n"+
+			"WS : ' ' -> skip ;\n");
+		String input = "ab c ab ab c";
+		LexerInterpreter lexer = lg.createLexerInterpreter(CharStreams.fromString(input));
+		while ( lexer.nextToken().getType()!=Token.EOF ) {
+		}
+		LexerActionExecutorCache cache = lexer.getATN().lexerActionExecutorCache;
+		int size = cache.size();
+		assertTrue(size>0);
+		for (DFAState s : lexer.getInterpreter().getDFA(LexerInterpreter.DEFAULT_MODE).states.keySet()) {
+			if ( s.lexerActionExecutor!=null ) {
+				assertSame(s.lexerActionExecutor, cache.intern(s.lexerActionExecutor));
+			}
+		}
+
+		// a new lexer builds its DFA from the executors of the first one
+		lexer = lg.createLexerInterpreter(CharStreams.fromString(input));
+		while ( lexer.nextToken().getType()!=Token.EOF ) {
+		}
+		assertEquals(size, cache.size());
+	}
+
 	protected void checkLexerMatches(LexerGrammar lg, String inputString, String expecting) {
 		ATN atn = createATN(lg, true);
 		CharStream input = CharStreams.fromString(inputString);
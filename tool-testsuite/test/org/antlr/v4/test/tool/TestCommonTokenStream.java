@@ -11,6 +11,7 @@ import org.antlr.v4.runtime.CommonToken;
 import org.antlr.v4.runtime.CommonTokenStream;
 import org.antlr.v4.runtime.IntStream;
 import org.antlr.v4.runtime.Lexer;
+import org.antlr.v4.runtime.ListTokenSource;
 import org.antlr.v4.runtime.Token;
 import org.antlr.v4.runtime.TokenFactory;
 import org.antlr.v4.runtime.TokenSource;
@@ -19,6 +20,10 @@ import org.antlr.v4.runtime.WritableToken;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
 import static org.junit.Assert.assertEquals;
 
 public class TestCommonTokenStream extends TestBufferedTokenStream {
@@ -290,4 +295,62 @@ public class TestCommonTokenStream extends TestBufferedTokenStream {
 		assertEquals(1, tokens.size());
 		tokens.consume();
 	}
+
+	@Test public void testChannelIndexSameAsScan() throws Exception {
+		Random random = new Random(42);
+		for (int round = 0; round < 20; round++) {
+			List<Token> tokens = new ArrayList<Token>();
+			int n = random.nextInt(200);
+			for (int i = 0; i < n; i++) {
+				CommonToken t = new CommonToken(1, "t"+i);
+				// mostly hidden tokens, as in comment-heavy input
+				int r = random.nextInt(10);
+				t.setChannel(r<3 ? Token.DEFAULT_CHANNEL : r<8 ? Token.HIDDEN_CHANNEL : 2);
+				tokens.add(t);
+			}
+			tokens.add(new CommonToken(Token.EOF, "<EOF>"));
+
+			CommonTokenStream indexed = new CommonTokenStream(new ListTokenSource(new ArrayList<Token>(tokens)));
+			indexed.setChannelIndexEnabled(true);
+			CommonTokenStream scanned = new CommonTokenStream(new ListTokenSource(new ArrayList<Token>(tokens)));
+			while ( true ) {
+				for (int k = -3; k <= 6; k++) {
+					assertEquals(text(scanned.LT(k)), text(indexed.LT(k)));
+				}
+				if ( indexed.LA(1)==Token.EOF ) break;
+				indexed.consume();
+				scanned.consume();
+				assertEquals(scanned.index(), indexed.index());
+			}
+			for (int i = 0; i < scanned.size(); i++) {
+				assertEquals(scanned.getHiddenTokensToLeft(i), indexed.getHiddenTokensToLeft(i));
+				assertEquals(scanned.getHiddenTokensToRight(i), indexed.getHiddenTokensToRight(i));
+				assertEquals(scanned.getHiddenTokensToLeft(i, 2), indexed.getHiddenTokensToLeft(i, 2));
+				assertEquals(scanned.getHiddenTokensToRight(i, Token.HIDDEN_CHANNEL), indexed.getHiddenTokensToRight(i, Token.HIDDEN_CHANNEL));
+			}
+			assertEquals(scanned.getNumberOfOnChannelTokens(), indexed.getNumberOfOnChannelTokens());
+		}
+	}
+
+	@Test public void testTokenMovedOntoChannel() throws Exception {
+		List<Token> tokens = new ArrayList<Token>();
+		for (int i = 0; i < 4; i++) {
+			CommonToken t = new CommonToken(1, "t"+i);
+			t.setChannel(Token.HIDDEN_CHANNEL);
+			tokens.add(t);
+		}
+		tokens.add(new CommonToken(Token.EOF, "<EOF>"));
+
+		CommonTokenStream stream = new CommonTokenStream(new ListTokenSource(tokens));
+		stream.fill();
+		assertEquals(Token.EOF, stream.LA(1));
+		((WritableToken)tokens.get(2)).setChannel(Token.DEFAULT_CHANNEL);
+		stream.seek(0);
+		assertEquals("t2", stream.LT(1).getText());
+		assertEquals(1, stream.getHiddenTokensToRight(2).size());
+	}
+
+	private static String text(Token t) {
+		return t!=null ? t.getText() : null;
+	}
 }
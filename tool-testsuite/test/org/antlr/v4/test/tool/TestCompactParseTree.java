@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v4.test.tool;
+
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.LexerInterpreter;
+import org.antlr.v4.runtime.ParserInterpreter;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.tree.CompactChildList;
+import org.antlr.v4.runtime.tree.ErrorNode;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.TerminalNode;
+import org.antlr.v4.runtime.tree.TerminalNodeImpl;
+import org.antlr.v4.tool.Grammar;
+import org.antlr.v4.tool.LexerGrammar;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TestCompactParseTree extends BaseJavaToolTest {
+	private static final String LEXER =
+		"lexer grammar L;\n" +
+		"ID : [a-z]+ ;\n" +
+		"PLUS : '+' ;\n" +
+		"MULT : '*' ;\n" +
+		"SEMI : ';' ;\n" +
+		"WS : [ \\n]+ -> skip ;\n";
+
+	private static final String PARSER =
+		"parser grammar T;\n" +
+		"s : stat+ EOF ;\n" +
+		"stat : e SEMI ;\n" +
+		"e : e MULT e | e PLUS e | ID ;\n";
+
+	@Test public void testCompactTreeMatchesRegularTree() throws Exception {
+		LexerGrammar lg = new LexerGrammar(LEXER);
+		Grammar g = new Grammar(PARSER, lg);
+		String input = "a + b * c + d;\ne;\nf * g;";
+
+		ParserInterpreter regular = createParser(lg, g, input);
+		ParserRuleContext expected = regular.parse(g.rules.get("s").index);
+
+		ParserInterpreter compact = createParser(lg, g, input);
+		compact.setCompactParseTree(true);
+		assertTrue(compact.getCompactParseTree());
+		ParserRuleContext tree = compact.parse(g.rules.get("s").index);
+
+		assertEquals(expected.toStringTree(regular), tree.toStringTree(compact));
+		assertEquals(expected.getText(), tree.getText());
+		assertAllCompact(tree);
+	}
+
+	@Test public void testTerminalViewsAreCached() throws Exception {
+		LexerGrammar lg = new LexerGrammar(LEXER);
+		Grammar g = new Grammar(PARSER, lg);
+		ParserInterpreter parser = createParser(lg, g, "a;");
+		parser.setCompactParseTree(true);
+		ParserRuleContext tree = parser.parse(g.rules.get("stat").index);
+
+		ParseTree semi = tree.getChild(1);
+		assertTrue(semi instanceof TerminalNode);
+		assertSame(semi, tree.getChild(1));
+		assertSame(tree, semi.getParent());
+		assertEquals(";", semi.getText());
+	}
+
+	@Test public void testAddChildAfterCompaction() throws Exception {
+		LexerGrammar lg = new LexerGrammar(LEXER);
+		Grammar g = new Grammar(PARSER, lg);
+		ParserInterpreter parser = createParser(lg, g, "a;");
+		parser.setCompactParseTree(true);
+		ParserRuleContext tree = parser.parse(g.rules.get("stat").index);
+
+		TerminalNode semi = (TerminalNode)tree.getChild(1);
+		tree.addChild(new TerminalNodeImpl(semi.getSymbol()));
+		assertFalse(tree.children instanceof CompactChildList);
+		assertEquals(3, tree.getChildCount());
+		assertSame(semi, tree.getChild(1));
+
+		tree.removeLastChild();
+		assertEquals("a;", tree.getText());
+	}
+
+	@Test public void testDisableCompactParseTree() throws Exception {
+		LexerGrammar lg = new LexerGrammar(LEXER);
+		Grammar g = new Grammar(PARSER, lg);
+		ParserInterpreter parser = createParser(lg, g, "a;");
+		parser.setCompactParseTree(true);
+		parser.setCompactParseTree(false);
+		assertFalse(parser.getCompactParseTree());
+		assertTrue(parser.getParseListeners().isEmpty());
+
+		ParserRuleContext tree = parser.parse(g.rules.get("stat").index);
+		assertFalse(tree.children instanceof CompactChildList);
+	}
+
+	private static void assertAllCompact(ParserRuleContext ctx) {
+		assertTrue(ctx.toString(), ctx.children instanceof CompactChildList);
+		for (ParseTree child : ctx.children) {
+			assertSame(ctx, child.getParent());
+			if ( child instanceof ParserRuleContext ) {
+				assertAllCompact((ParserRuleContext)child);
+			}
+			else {
+				assertFalse(child instanceof ErrorNode);
+			}
+		}
+	}
+
+	private static ParserInterpreter createParser(LexerGrammar lg, Grammar g, String input) {
+		LexerInterpreter lexEngine = lg.createLexerInterpreter(CharStreams.fromString(input));
+		CommonTokenStream tokens = new CommonTokenStream(lexEngine);
+		return g.createParserInterpreter(tokens);
+	}
+}
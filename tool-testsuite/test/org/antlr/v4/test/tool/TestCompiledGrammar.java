@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v4.test.tool;
+
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.Lexer;
+import org.antlr.v4.runtime.LexerInterpreter;
+import org.antlr.v4.runtime.Parser;
+import org.antlr.v4.runtime.ParserInterpreter;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.tool.CompiledGrammar;
+import org.antlr.v4.tool.Grammar;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TestCompiledGrammar extends BaseJavaToolTest {
+	@Before
+	@Override
+	public void testSetUp() throws Exception {
+		super.testSetUp();
+	}
+
+	@Test public void testSameTreeAsInterpreter() throws Exception {
+		Grammar g = new Grammar(
+			"grammar T;\n" +
+			"s : stat+ EOF ;\n" +
+			"stat : ID '=' e ';' | e ';' ;\n" +
+			"e : e ('*'|'/') e | e ('+'|'-') e | '(' e ')' | ID | INT ;\n" +
+			"ID : [a-z]+ ;\n" +
+			"INT : [0-9]+ ;\n" +
+			"WS : [ \\n]+ -> skip ;\n");
+		String input = "x = 1 + 2 * y;\n(x - 3) / 4;\nz = x;";
+
+		LexerInterpreter lexEngine = g.createLexerInterpreter(CharStreams.fromString(input));
+		ParserInterpreter interpreter = g.createParserInterpreter(new CommonTokenStream(lexEngine));
+		ParseTree expected = interpreter.parse(g.getRule("s").index);
+
+		CompiledGrammar compiled = CompiledGrammar.compile(g);
+		Lexer lexer = compiled.createLexer(CharStreams.fromString(input));
+		Parser parser = compiled.createParser(new CommonTokenStream(lexer));
+		ParserRuleContext tree = compiled.parse(parser, g.getRule("s").index);
+
+		assertEquals("TParser", parser.getClass().getName());
+		assertEquals(expected.toStringTree(interpreter), tree.toStringTree(parser));
+		assertEquals(0, parser.getNumberOfSyntaxErrors());
+
+		// a second parser shares the compiled classes
+		Parser parser2 = compiled.createParser(new CommonTokenStream(compiled.createLexer(CharStreams.fromString("y;"))));
+		assertEquals("(s (stat (e y) ;) <EOF>)", compiled.parse(parser2, g.getRule("s").index).toStringTree(parser2));
+	}
+
+	@Test public void testActionsRun() throws Exception {
+		Grammar g = new Grammar(
+			"grammar T;\n" +
+			"@members { public int ids; }\n" +
+			"s : (ID {ids++;})+ ;\n" +
+			"ID : [a-z]+ ;\n" +
+			"WS : ' '+ -> skip ;\n");
+		CompiledGrammar compiled = CompiledGrammar.compile(g);
+		Parser parser = compiled.createParser(new CommonTokenStream(compiled.createLexer(CharStreams.fromString("a b c"))));
+		compiled.parse(parser, 0);
+		assertEquals(3, parser.getClass().getField("ids").get(parser));
+	}
+
+	@Test public void testBadActionReported() throws Exception {
+		Grammar g = new Grammar(
+			"grammar T;\n" +
+			"s : ID {undefined();} ;\n" +
+			"ID : [a-z]+ ;\n");
+		try {
+			CompiledGrammar.compile(g);
+			fail("expected the action not to compile");
+		}
+		catch (IllegalStateException ise) {
+			assertTrue(ise.getMessage(), ise.getMessage().startsWith("cannot compile grammar T\n"));
+			assertTrue(ise.getMessage(), ise.getMessage().contains("TParser.java:"));
+		}
+	}
+}
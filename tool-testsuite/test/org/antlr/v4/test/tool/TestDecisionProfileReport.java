@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v4.test.tool;
+
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.LexerInterpreter;
+import org.antlr.v4.runtime.ParserInterpreter;
+import org.antlr.v4.runtime.atn.ParseInfo;
+import org.antlr.v4.test.runtime.BaseRuntimeTest;
+import org.antlr.v4.test.runtime.ErrorQueue;
+import org.antlr.v4.tool.ErrorType;
+import org.antlr.v4.tool.Grammar;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TestDecisionProfileReport extends BaseJavaToolTest {
+	public static final String GRAMMAR =
+		"grammar T;\n" +
+		"s : (a | b)+ ;\n" +
+		"a : ID '=' ID ';'\n" +
+		"  | ID '=' INT ';'\n" +
+		"  ;\n" +
+		"b : '{' s? '}' ;\n" +
+		"ID : [a-z]+ ;\n" +
+		"INT : [0-9]+ ;\n" +
+		"WS : [ \\n]+ -> skip ;\n";
+
+	@Before
+	@Override
+	public void testSetUp() throws Exception {
+		super.testSetUp();
+	}
+
+	@Test public void testReportFromParse() throws Exception {
+		Grammar g = new Grammar(GRAMMAR);
+		LexerInterpreter lexer = g.createLexerInterpreter(CharStreams.fromString("x = y; { y = 1; } z = 2;"));
+		ParserInterpreter parser = g.createParserInterpreter(new CommonTokenStream(lexer));
+		parser.setProfile(true);
+		parser.parse(g.getRule("s").index);
+		writeProfile(parser.getParseInfo(), "T.profile");
+
+		String report = report(path("T.profile"));
+		assertTrue(report, report.startsWith("decision profile of T.g4 from [T.profile]: 4 of 4 decisions used, "));
+		assertTrue(report, report.contains(". decision 2 in rule a at T.g4:3:4-4:18 (alternatives at 1: 3:4, 2: 4:4)\n" +
+										   "   predictions 3, "));
+		assertTrue(report, report.contains(", SLL lookahead 9 (avg 3.00, max 3), full-context 0 (0.0%)"));
+		assertTrue(report, report.contains(". decision 3 in rule b at T.g4:6:8-6:9 (alternatives at 1: 6:8, 2: skip)"));
+	}
+
+	@Test public void testHottestFirstAndMerged() throws Exception {
+		Grammar g = new Grammar(GRAMMAR);
+		writeProfile("1.profile", g,
+					 "0\t0\t1\t1000000\t1\t1\t1\t1\t0\t0\t0\t0\t0\t0\t0\t0\t0\t0\t0\n" +
+					 "2\t1\t4\t3000000\t12\t3\t3\t6\t6\t2\t5\t2\t3\t5\t0\t0\t1\t0\t0\n");
+		writeProfile("2.profile", g,
+					 "2\t1\t4\t1000000\t8\t1\t4\t6\t2\t0\t0\t0\t0\t0\t0\t0\t0\t0\t0\n");
+
+		String expected =
+			"decision profile of T.g4 from [1.profile, 2.profile]: 2 of 4 decisions used, 9 predictions, 5.000 ms in prediction, 22.2% full-context\n" +
+			"1. decision 2 in rule a at T.g4:3:4-4:18 (alternatives at 1: 3:4, 2: 4:4)\n" +
+			"   predictions 8, time 4.000 ms (80.0%), SLL lookahead 20 (avg 2.50, max 4), full-context 2 (25.0%), " +
+			"LL lookahead 5 (avg 2.50, max 3), ambiguities 0, context sensitivities 1, errors 0, predicate evaluations 0\n" +
+			"2. decision 0 in rule s at T.g4:2:4-2:11 (alternatives at 1: 2:5, 2: 2:9)\n" +
+			"   predictions 1, time 1.000 ms (20.0%), SLL lookahead 1 (avg 1.00, max 1), full-context 0 (0.0%), " +
+			"ambiguities 0, context sensitivities 0, errors 0, predicate evaluations 0";
+		assertEquals(expected, report(path("1.profile") + File.pathSeparator + path("2.profile")));
+	}
+
+	@Test public void testMismatchedGrammar() throws Exception {
+		Grammar other = new Grammar("grammar T;\ns : ID ;\nID : [a-z]+ ;\n");
+		writeProfile("T.profile", other, "");
+
+		ErrorQueue equeue = BaseRuntimeTest.antlrOnString(tmpdir, "Java", "T.g4", GRAMMAR, false, "-Xprofile-report", path("T.profile"));
+		assertEquals(0, equeue.infos.size());
+		assertEquals(1, equeue.warnings.size());
+		assertEquals(ErrorType.PROFILE_MISMATCH, equeue.warnings.get(0).getErrorType());
+	}
+
+	private String report(String files) {
+		ErrorQueue equeue = BaseRuntimeTest.antlrOnString(tmpdir, "Java", "T.g4", GRAMMAR, false, "-Xprofile-report", files);
+		assertEquals(equeue.toString(true), 0, equeue.all.size());
+		assertEquals(1, equeue.infos.size());
+		return equeue.infos.get(0).replace(tmpdir + File.separator, "").replace(System.getProperty("line.separator"), "\n");
+	}
+
+	private String path(String fileName) {
+		new File(tmpdir).mkdirs();
+		return new File(tmpdir, fileName).getPath();
+	}
+
+	private void writeProfile(ParseInfo info, String fileName) throws IOException {
+		try (Writer out = new OutputStreamWriter(new FileOutputStream(path(fileName)), "UTF-8")) {
+			info.writeProfile(out);
+		}
+	}
+
+	private void writeProfile(String fileName, Grammar g, String rows) throws IOException {
+		StringBuilder columns = new StringBuilder();
+		for (String column : ParseInfo.PROFILE_COLUMNS) {
+			if ( columns.length()>0 ) columns.append('\t');
+			columns.append(column);
+		}
+		String text = ParseInfo.PROFILE_HEADER + "\n" +
+					  "# decisions=" + g.atn.getNumberOfDecisions() + " states=" + g.atn.states.size() + "\n" +
+					  columns + "\n" +
+					  rows;
+		try (Writer out = new OutputStreamWriter(new FileOutputStream(path(fileName)), "UTF-8")) {
+			out.write(text);
+		}
+	}
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v4.test.tool;
+
+import org.antlr.v4.Tool;
+import org.antlr.v4.test.runtime.ErrorQueue;
+import org.antlr.v4.tool.Grammar;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.antlr.v4.test.runtime.BaseRuntimeTest.mkdir;
+import static org.antlr.v4.test.runtime.BaseRuntimeTest.writeFile;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TestGrammarCache extends BaseJavaToolTest {
+	@Before
+	@Override
+	public void testSetUp() throws Exception {
+		super.testSetUp();
+	}
+
+	@Test public void testUnchangedGrammarsAreSkipped() throws Exception {
+		mkdir(tmpdir);
+		writeFile(tmpdir, "L.g4", "lexer grammar L;\nA : 'a' ;\n");
+		writeFile(tmpdir, "P.g4", "parser grammar P;\noptions { tokenVocab=L; }\ns : A ;\n");
+
+		assertEquals(Arrays.asList("L", "P"), runTool());
+		assertEquals(Collections.emptyList(), runTool());
+
+		// changes to the vocabulary regenerate the dependents too
+		writeFile(tmpdir, "L.g4", "lexer grammar L;\nA : 'a' ;\nB : 'b' ;\n");
+		assertEquals(Arrays.asList("L", "P"), runTool());
+
+		// but the dependents are skipped if the .tokens file is the same
+		writeFile(tmpdir, "L.g4", "lexer grammar L;\nA : 'a' ;\nB : 'b' ; // comment\n");
+		assertEquals(Arrays.asList("L"), runTool());
+
+		// as are grammars whose outputs were removed or modified
+		assertTrue(new File(tmpdir, "out/P.java").delete());
+		assertEquals(Arrays.asList("P"), runTool());
+
+		// options that don't change the output don't invalidate anything
+		assertEquals(Collections.emptyList(), runTool("-Xparallel", "-long-messages"));
+
+		// but changing any other option invalidates everything
+		assertEquals(Arrays.asList("L", "P"), runTool("-visitor"));
+	}
+
+	@Test public void testSameNamedGrammarsHaveTheirOwnEntries() throws Exception {
+		mkdir(tmpdir);
+		mkdir(new File(tmpdir, "a").toString());
+		mkdir(new File(tmpdir, "b").toString());
+		writeFile(new File(tmpdir, "a").toString(), "T.g4", "grammar T;\ns : 'a' ;\n");
+		writeFile(new File(tmpdir, "b").toString(), "T.g4", "grammar T;\ns : 'b' ;\n");
+
+		String a = new File(tmpdir, "a/T.g4").toString();
+		String b = new File(tmpdir, "b/T.g4").toString();
+		assertEquals(Arrays.asList("T"), runToolOn(a));
+		assertEquals(Arrays.asList("T"), runToolOn(b));
+		assertEquals(Collections.emptyList(), runToolOn(a));
+		assertEquals(Collections.emptyList(), runToolOn(b));
+	}
+
+	private List<String> runTool(String... extraArgs) {
+		List<String> args = new ArrayList<String>(Arrays.asList(extraArgs));
+		args.add(new File(tmpdir, "L.g4").toString());
+		args.add(new File(tmpdir, "P.g4").toString());
+		return runTool(new File(tmpdir, "out"), args);
+	}
+
+	/** Process {@code grammarFile} alone, generating into out/ in its directory. */
+	private List<String> runToolOn(String grammarFile) {
+		File outputDir = new File(new File(grammarFile).getParentFile(), "out");
+		return runTool(outputDir, new ArrayList<String>(Collections.singletonList(grammarFile)));
+	}
+
+	private List<String> runTool(File outputDir, List<String> extraArgs) {
+		List<String> args = new ArrayList<String>(Arrays.asList(
+			"-o", outputDir.toString(),
+			"-lib", tmpdir,
+			"-Xcache", new File(tmpdir, "cache").toString()));
+		args.addAll(extraArgs);
+
+		final List<String> processed = new ArrayList<String>();
+		Tool antlr = new Tool(args.toArray(new String[0])) {
+			@Override
+			public void process(Grammar g, boolean gencode) {
+				processed.add(g.name);
+				super.process(g, gencode);
+			}
+		};
+		ErrorQueue equeue = new ErrorQueue(antlr);
+		antlr.addListener(equeue);
+		antlr.processGrammarsOnCommandLine();
+		assertEquals(equeue.toString(), 0, equeue.errors.size());
+		return processed;
+	}
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v4.test.tool;
+
+import org.antlr.v4.runtime.Lexer;
+import org.antlr.v4.runtime.misc.CodePointBitmap;
+import org.antlr.v4.runtime.misc.IntRangeSet;
+import org.antlr.v4.runtime.misc.IntervalSet;
+import org.antlr.v4.unicode.UnicodeData;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TestIntRangeSet extends BaseJavaToolTest {
+	@Before
+	@Override
+	public void testSetUp() throws Exception {
+		super.testSetUp();
+	}
+
+	@Test public void testAddMergesAdjacentAndOverlapping() throws Exception {
+		IntRangeSet s = new IntRangeSet();
+		s.add(10, 20);
+		s.add(30, 40);
+		s.add(1);
+		s.add(21, 29);
+		s.add(35, 50);
+		assertEquals("{1, 10..50}", s.toString());
+		assertEquals(2, s.getRangeCount());
+		assertEquals(42, s.size());
+	}
+
+	@Test public void testContainsAndIntersects() throws Exception {
+		IntRangeSet s = new IntRangeSet();
+		s.add('0', '9');
+		s.add('a', 'z');
+		assertTrue(s.contains('5'));
+		assertTrue(s.contains('z'));
+		assertFalse(s.contains('A'));
+		assertTrue(s.intersects('Z', 'a'));
+		assertFalse(s.intersects(':', '`'));
+		assertFalse(s.intersects('{', Lexer.MAX_CHAR_VALUE));
+	}
+
+	@Test public void testSetAlgebra() throws Exception {
+		IntRangeSet s = IntRangeSet.of('a', 'z');
+		IntRangeSet vowels = new IntRangeSet();
+		for (char c : "aeiou".toCharArray()) vowels.add(c);
+		assertEquals("{98..100, 102..104, 106..110, 112..116, 118..122}", s.subtract(vowels).toString());
+		assertEquals("{97, 101, 105, 111, 117}", s.and(vowels).toString());
+		assertEquals("{0..96, 123..1114111}", s.complement(Lexer.MIN_CHAR_VALUE, Lexer.MAX_CHAR_VALUE).toString());
+		assertEquals("{65..90, 97..122}", s.or(IntRangeSet.of('A', 'Z')).toString());
+	}
+
+	@Test public void testExtremeValues() throws Exception {
+		IntRangeSet s = IntRangeSet.of(Integer.MIN_VALUE, -1);
+		s.add(5, Integer.MAX_VALUE);
+		assertEquals("{0..4}", s.complement(Integer.MIN_VALUE, Integer.MAX_VALUE).toString());
+		assertTrue(s.subtract(IntRangeSet.of(Integer.MIN_VALUE, Integer.MAX_VALUE)).isNil());
+		assertTrue(s.contains(Integer.MAX_VALUE));
+		assertTrue(s.contains(Integer.MIN_VALUE));
+	}
+
+	@Test public void testSameAsIntervalSet() throws Exception {
+		Random random = new Random(42);
+		for (int i = 0; i < 500; i++) {
+			IntervalSet a = randomSet(random);
+			IntervalSet b = randomSet(random);
+			IntRangeSet ra = new IntRangeSet(a);
+			IntRangeSet rb = new IntRangeSet(b);
+
+			assertEquals(a.toString(), ra.toString());
+			assertEquals(a.or(b), ra.or(rb).toIntervalSet());
+			assertEquals(a.and(b), ra.and(rb).toIntervalSet());
+			assertEquals(a.subtract(b), ra.subtract(rb).toIntervalSet());
+			assertEquals(a.complement(0, 300), ra.complement(0, 300).toIntervalSet());
+			assertEquals(a.size(), ra.size());
+			for (int v = -1; v <= 301; v++) {
+				assertEquals(a.contains(v), ra.contains(v));
+				assertEquals(a.and(IntervalSet.of(v, v + 3)).isNil(), !ra.intersects(v, v + 3));
+			}
+
+			int el = random.nextInt(300);
+			a.remove(el);
+			ra.remove(el);
+			assertEquals(a, ra.toIntervalSet());
+		}
+	}
+
+	@Test public void testBitmapOfUnicodeProperty() throws Exception {
+		IntRangeSet letters = new IntRangeSet(UnicodeData.getPropertyCodePoints("L"));
+		CodePointBitmap bitmap = CodePointBitmap.of(letters);
+		for (int c = -1; c <= Lexer.MAX_CHAR_VALUE + 1; c++) {
+			assertEquals(letters.contains(c), bitmap.contains(c));
+		}
+		assertFalse(bitmap.contains(Integer.MIN_VALUE));
+		assertFalse(bitmap.contains(Integer.MAX_VALUE));
+		// most blocks of 256 code points are all letters or none
+		assertTrue(bitmap.getBlockCount() < 0x1100 / 8);
+	}
+
+	@Test public void testBitmapSameAsContains() throws Exception {
+		Random random = new Random(42);
+		for (int i = 0; i < 200; i++) {
+			IntRangeSet set = new IntRangeSet();
+			int n = random.nextInt(40);
+			for (int j = 0; j < n; j++) {
+				int a = random.nextInt(0x3000);
+				set.add(a, Math.min(a + random.nextInt(600), Lexer.MAX_CHAR_VALUE));
+			}
+			if ( random.nextBoolean() ) set = set.complement(Lexer.MIN_CHAR_VALUE, Lexer.MAX_CHAR_VALUE);
+			CodePointBitmap bitmap = CodePointBitmap.of(set);
+			for (int c = -1; c <= 0x3400; c++) {
+				assertEquals(set.contains(c), bitmap.contains(c));
+			}
+			assertEquals(set.contains(Lexer.MAX_CHAR_VALUE), bitmap.contains(Lexer.MAX_CHAR_VALUE));
+		}
+	}
+
+	private static IntervalSet randomSet(Random random) {
+		IntervalSet set = new IntervalSet();
+		int n = random.nextInt(12);
+		for (int i = 0; i < n; i++) {
+			int a = random.nextInt(300);
+			set.add(a, a + random.nextInt(20));
+		}
+		return set;
+	}
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v4.test.tool;
+
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.LexerInterpreter;
+import org.antlr.v4.runtime.ParserInterpreter;
+import org.antlr.v4.runtime.misc.InterpreterDataReader;
+import org.antlr.v4.runtime.misc.InterpreterDataReader.InterpreterData;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.test.runtime.BaseRuntimeTest;
+import org.antlr.v4.test.runtime.ErrorQueue;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class TestInterpreterDataReader extends BaseJavaToolTest {
+	public static final String GRAMMAR =
+		"grammar T;\n" +
+		"s : ID '=' e ';' ;\n" +
+		"e : e '+' e | ID | INT ;\n" +
+		"ID : [a-z]+ ;\n" +
+		"INT : [0-9]+ ;\n" +
+		"WS : [ \\n]+ -> skip ;\n";
+
+	@Before
+	@Override
+	public void testSetUp() throws Exception {
+		super.testSetUp();
+		InterpreterDataReader.clearCache();
+	}
+
+	@Test public void testLoadSharesDataAndDFAs() throws Exception {
+		ErrorQueue equeue = BaseRuntimeTest.antlrOnString(tmpdir, "Java", "T.g4", GRAMMAR, false);
+		assertEquals(0, equeue.errors.size());
+		String lexerFile = new File(tmpdir, "TLexer.interp").getPath();
+		String parserFile = new File(tmpdir, "T.interp").getPath();
+
+		InterpreterData lexerData = InterpreterDataReader.load(lexerFile);
+		InterpreterData parserData = InterpreterDataReader.load(parserFile);
+		assertSame(parserData, InterpreterDataReader.load(parserFile));
+
+		// same content under another name
+		File copy = new File(tmpdir, "Copy.interp");
+		Files.copy(new File(parserFile).toPath(), copy.toPath());
+		assertSame(parserData, InterpreterDataReader.load(copy.getPath()));
+
+		ParseTree tree = parse(lexerData, parserData, "x = 1 + y;");
+		assertEquals("(s x = (e (e 1) + (e y)) ;)", tree.toStringTree(parserData.createParserInterpreter(null)));
+
+		// a new parser starts with the DFA states of the first one
+		ParserInterpreter parser = parserData.createParserInterpreter(null);
+		assertNotNull(parser.getInterpreter().decisionToDFA[0]);
+		assertEquals(parserData.getATN(), parser.getATN());
+
+		// a parse of the uncached file doesn't share anything
+		InterpreterData uncached = InterpreterDataReader.parseFile(parserFile);
+		assertNotSame(parserData.getATN(), uncached.getATN());
+		assertEquals(parserData.getRuleNames(), uncached.getRuleNames());
+	}
+
+	@Test public void testCacheKeepsMostRecentlyUsed() throws Exception {
+		ErrorQueue equeue = BaseRuntimeTest.antlrOnString(tmpdir, "Java", "T.g4", GRAMMAR, false);
+		assertEquals(0, equeue.errors.size());
+		String lexerFile = new File(tmpdir, "TLexer.interp").getPath();
+		String parserFile = new File(tmpdir, "T.interp").getPath();
+
+		int maxCacheSize = InterpreterDataReader.getMaxCacheSize();
+		InterpreterDataReader.setMaxCacheSize(1);
+		try {
+			InterpreterData parserData = InterpreterDataReader.load(parserFile);
+			assertSame(parserData, InterpreterDataReader.load(parserFile));
+			InterpreterDataReader.load(lexerFile);
+			assertEquals(1, InterpreterDataReader.getCacheSize());
+
+			// dropped in favor of the lexer data
+			assertNotSame(parserData, InterpreterDataReader.load(parserFile));
+		}
+		finally {
+			InterpreterDataReader.setMaxCacheSize(maxCacheSize);
+		}
+	}
+
+	private static ParseTree parse(InterpreterData lexerData, InterpreterData parserData, String input) {
+		LexerInterpreter lexer = lexerData.createLexerInterpreter(CharStreams.fromString(input));
+		ParserInterpreter parser = parserData.createParserInterpreter(new CommonTokenStream(lexer));
+		return parser.parse(0);
+	}
+}
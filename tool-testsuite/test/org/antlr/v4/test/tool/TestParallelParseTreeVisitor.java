@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v4.test.tool;
+
+import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.LexerInterpreter;
+import org.antlr.v4.runtime.ParserInterpreter;
+import org.antlr.v4.runtime.tree.AbstractParseTreeVisitor;
+import org.antlr.v4.runtime.tree.ParallelParseTreeVisitor;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.RuleNode;
+import org.antlr.v4.runtime.tree.TerminalNode;
+import org.antlr.v4.tool.Grammar;
+import org.antlr.v4.tool.LexerGrammar;
+import org.junit.Test;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TestParallelParseTreeVisitor extends BaseJavaToolTest {
+	private static final String LEXER =
+		"lexer grammar L;\n" +
+		"LB : '{' ;\n" +
+		"RB : '}' ;\n" +
+		"ID : [a-z]+ ;\n" +
+		"WS : [ \\r\\n\\t]+ -> skip ;\n";
+
+	private static final String PARSER =
+		"parser grammar T;\n" +
+		"s : f+ EOF ;\n" +
+		"f : LB (ID | f)* RB ;\n";
+
+	@Test public void testResultsAggregatedInOrder() throws Exception {
+		LexerGrammar lg = new LexerGrammar(LEXER);
+		Grammar g = new Grammar(PARSER, lg);
+		StringBuilder input = new StringBuilder();
+		for (int i = 0; i < 50; i++) {
+			input.append("{ a").append(' ');
+			for (int j = 0; j < i; j++) {
+				input.append("{ b c } ");
+			}
+			input.append("d }\n");
+		}
+
+		ParseTree t = parse(lg, g, input.toString());
+		String expected = new TextVisitor().visit(t);
+
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			ParallelParseTreeVisitor<String> visitor = new ParallelTextVisitor(pool, 3);
+			visitor.setConcurrentRules(g.getRule("f").index);
+			assertEquals(expected, visitor.visit(t));
+			assertEquals(expected, visitor.visitChildren((RuleNode)t));
+		}
+		finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test public void testShortCircuit() throws Exception {
+		LexerGrammar lg = new LexerGrammar(LEXER);
+		Grammar g = new Grammar(PARSER, lg);
+		ParseTree t = parse(lg, g, "{ a } { b } { c } { d }");
+
+		ForkJoinPool pool = new ForkJoinPool(2);
+		try {
+			ParallelParseTreeVisitor<String> visitor = new ParallelTextVisitor(pool, 1) {
+				@Override
+				protected boolean shouldVisitNextChild(RuleNode node, String currentResult) {
+					return currentResult.length() < 6;
+				}
+			};
+			visitor.setConcurrentRules(g.getRule("f").index);
+			String result = visitor.visit(t);
+			assertTrue(result, result.startsWith("{a}{b}"));
+			assertEquals(6, result.length());
+		}
+		finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test public void testVisitFromAnotherPool() throws Exception {
+		LexerGrammar lg = new LexerGrammar(LEXER);
+		final Grammar g = new Grammar(PARSER, lg);
+		final ParseTree t = parse(lg, g, "{ a { b } } { c } { d { e } }");
+
+		final ForkJoinPool pool = new ForkJoinPool(2);
+		ForkJoinPool otherPool = new ForkJoinPool(2);
+		try {
+			String result = otherPool.invoke(new RecursiveTask<String>() {
+				@Override
+				protected String compute() {
+					ParallelParseTreeVisitor<String> visitor = new ParallelTextVisitor(pool, 1) {
+						@Override
+						public String visitTerminal(TerminalNode node) {
+							// tasks must not be forked into the caller's pool
+							assertSame(pool, ForkJoinTask.getPool());
+							return super.visitTerminal(node);
+						}
+					};
+					visitor.setConcurrentRules(g.getRule("f").index);
+					return visitor.visit(t);
+				}
+			});
+			assertEquals("{a{b}}{c}{d{e}}", result);
+		}
+		finally {
+			pool.shutdown();
+			otherPool.shutdown();
+		}
+	}
+
+	@Test public void testDefaultPoolIsShared() throws Exception {
+		assertSame(new ParallelParseTreeVisitor<Object>().getPool(), new ParallelParseTreeVisitor<Object>().getPool());
+	}
+
+	private ParseTree parse(LexerGrammar lg, Grammar g, String input) {
+		LexerInterpreter lexEngine = lg.createLexerInterpreter(new ANTLRInputStream(input));
+		CommonTokenStream tokens = new CommonTokenStream(lexEngine);
+		ParserInterpreter parser = g.createParserInterpreter(tokens);
+		return parser.parse(g.rules.get("s").index);
+	}
+
+	private static class TextVisitor extends AbstractParseTreeVisitor<String> {
+		@Override
+		public String visitTerminal(TerminalNode node) {
+			return node.getSymbol().getType() > 0 ? node.getText() : "";
+		}
+
+		@Override
+		protected String defaultResult() {
+			return "";
+		}
+
+		@Override
+		protected String aggregateResult(String aggregate, String nextResult) {
+			return aggregate + nextResult;
+		}
+	}
+
+	private static class ParallelTextVisitor extends ParallelParseTreeVisitor<String> {
+		public ParallelTextVisitor(ForkJoinPool pool, int threshold) {
+			super(pool, threshold);
+		}
+
+		@Override
+		public String visitTerminal(TerminalNode node) {
+			return node.getSymbol().getType() > 0 ? node.getText() : "";
+		}
+
+		@Override
+		protected String defaultResult() {
+			return "";
+		}
+
+		@Override
+		protected String aggregateResult(String aggregate, String nextResult) {
+			return aggregate + nextResult;
+		}
+	}
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v4.test.tool;
+
+import org.antlr.v4.Tool;
+import org.antlr.v4.runtime.misc.Utils;
+import org.antlr.v4.test.runtime.ErrorQueue;
+import org.antlr.v4.tool.ANTLRMessage;
+import org.antlr.v4.tool.ErrorType;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.antlr.v4.test.runtime.BaseRuntimeTest.mkdir;
+import static org.antlr.v4.test.runtime.BaseRuntimeTest.writeFile;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TestParallelTool extends BaseJavaToolTest {
+	@Before
+	@Override
+	public void testSetUp() throws Exception {
+		super.testSetUp();
+	}
+
+	@Test public void testSameOutputAsSequential() throws Exception {
+		String[] grammars = writeGrammars(
+			"L.g4", "lexer grammar L;\nA : 'a' ;\nB : 'b' ;\n",
+			"P.g4", "parser grammar P;\noptions { tokenVocab=L; }\ns : A B ;\n",
+			"Q.g4", "parser grammar Q;\noptions { tokenVocab=L; foo=bar; }\ns : A | B ;\n",
+			"C.g4", "grammar C;\ns : X ;\nX : 'x' ;\nY : 'x' ;\n");
+
+		String sequentialDir = new File(tmpdir, "sequential").toString();
+		ErrorQueue sequential = runTool(sequentialDir, false, grammars);
+		String parallelDir = new File(tmpdir, "parallel").toString();
+		ErrorQueue parallel = runTool(parallelDir, true, grammars);
+
+		assertEquals(0, sequential.errors.size());
+		assertFalse(sequential.warnings.isEmpty());
+		assertEquals(sequential.toString(), parallel.toString());
+
+		for (String file : new String[] {"L.tokens", "P.java", "Q.java", "CLexer.java", "C.interp"}) {
+			assertEquals(file, readFile(sequentialDir, file), readFile(parallelDir, file));
+		}
+	}
+
+	@Test public void testDependentOfFailedGrammarIsSkipped() throws Exception {
+		String[] grammars = writeGrammars(
+			"E.g4", "lexer grammar E;\nA : 'a' -> mode(NOPE) ;\n",
+			"F.g4", "parser grammar F;\noptions { tokenVocab=E; }\ns : A ;\n",
+			"G.g4", "grammar G;\ns : 'g' ;\n");
+
+		String outputDir = new File(tmpdir, "out").toString();
+		ErrorQueue equeue = runTool(outputDir, true, grammars);
+
+		List<ErrorType> errorTypes = new ArrayList<ErrorType>();
+		for (ANTLRMessage msg : equeue.errors) {
+			errorTypes.add(msg.getErrorType());
+		}
+		assertEquals(Arrays.asList(ErrorType.CONSTANT_VALUE_IS_NOT_A_RECOGNIZED_MODE_NAME), errorTypes);
+		assertFalse(new File(outputDir, "F.java").exists());
+		assertTrue(new File(outputDir, "GParser.java").exists());
+	}
+
+	/** Sequential processing stops at the first grammar with errors; parallel
+	 *  processing still processes the grammars that don't depend on it.
+	 */
+	@Test public void testIndependentGrammarsRunAfterError() throws Exception {
+		String[] grammars = writeGrammars(
+			"E.g4", "lexer grammar E;\nA : 'a' -> mode(NOPE) ;\n",
+			"G.g4", "grammar G;\noptions { foo=bar; }\ns : 'g' ;\n");
+
+		String sequentialDir = new File(tmpdir, "sequential").toString();
+		ErrorQueue sequential = runTool(sequentialDir, false, grammars);
+		String parallelDir = new File(tmpdir, "parallel").toString();
+		ErrorQueue parallel = runTool(parallelDir, true, grammars);
+
+		assertEquals(sequential.errors.toString(), parallel.errors.toString());
+		assertTrue(sequential.warnings.isEmpty());
+		assertFalse(new File(sequentialDir, "GParser.java").exists());
+
+		assertFalse(parallel.warnings.isEmpty());
+		assertTrue(new File(parallelDir, "GParser.java").exists());
+	}
+
+	private static String readFile(String dir, String fileName) throws IOException {
+		return new String(Utils.readFile(new File(dir, fileName).toString()));
+	}
+
+	private String[] writeGrammars(String... namesAndContents) {
+		mkdir(tmpdir);
+		String[] files = new String[namesAndContents.length / 2];
+		for (int i = 0; i < namesAndContents.length; i += 2) {
+			writeFile(tmpdir, namesAndContents[i], namesAndContents[i + 1]);
+			files[i / 2] = new File(tmpdir, namesAndContents[i]).toString();
+		}
+		return files;
+	}
+
+	private ErrorQueue runTool(String outputDir, boolean parallel, String... grammarFiles) {
+		List<String> args = new ArrayList<String>(Arrays.asList("-o", outputDir, "-lib", tmpdir, "-encoding", "UTF-8"));
+		if ( parallel ) {
+			args.add("-Xparallel");
+		}
+		args.addAll(Arrays.asList(grammarFiles));
+
+		Tool antlr = new Tool(args.toArray(new String[0]));
+		antlr.parallelThreads = 4;
+		ErrorQueue equeue = new ErrorQueue(antlr);
+		antlr.addListener(equeue);
+		antlr.processGrammarsOnCommandLine();
+		return equeue;
+	}
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v4.test.tool;
+
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.LexerInterpreter;
+import org.antlr.v4.runtime.ParseTreeArena;
+import org.antlr.v4.runtime.ParserInterpreter;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.tool.Grammar;
+import org.antlr.v4.tool.LexerGrammar;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TestParseTreeArena extends BaseJavaToolTest {
+	private static final String LEXER =
+		"lexer grammar L;\n" +
+		"ID : [a-z]+ ;\n" +
+		"PLUS : '+' ;\n" +
+		"SEMI : ';' ;\n" +
+		"WS : [ \\n]+ -> skip ;\n";
+
+	private static final String PARSER =
+		"parser grammar T;\n" +
+		"s : stat+ EOF ;\n" +
+		"stat : e SEMI ;\n" +
+		"e : e PLUS e | ID ;\n";
+
+	@Test public void testNodesAreReusedAfterRelease() throws Exception {
+		LexerGrammar lg = new LexerGrammar(LEXER);
+		Grammar g = new Grammar(PARSER, lg);
+		ParseTreeArena arena = new ParseTreeArena();
+
+		ParserInterpreter parser = createParser(lg, g, "a + b; c;");
+		parser.setParseTreeArena(arena);
+		ParserRuleContext first = parser.parse(g.rules.get("s").index);
+		assertEquals("(s (stat (e (e a) + (e b)) ;) (stat (e c) ;) <EOF>)", first.toStringTree(parser));
+
+		Set<ParseTree> firstNodes = Collections.newSetFromMap(new IdentityHashMap<ParseTree, Boolean>());
+		collect(first, firstNodes);
+		// every node is counted once, though the parser also enters the contexts
+		assertEquals(firstNodes.size(), arena.getAllocatedCount());
+
+		arena.release();
+		assertEquals(0, arena.getAllocatedCount());
+		assertNull(first.start);
+		assertEquals(0, first.getChildCount());
+
+		parser = createParser(lg, g, "d + e; f;");
+		parser.setParseTreeArena(arena);
+		ParserRuleContext second = parser.parse(g.rules.get("s").index);
+		assertEquals("(s (stat (e (e d) + (e e)) ;) (stat (e f) ;) <EOF>)", second.toStringTree(parser));
+
+		Set<ParseTree> secondNodes = Collections.newSetFromMap(new IdentityHashMap<ParseTree, Boolean>());
+		collect(second, secondNodes);
+		assertEquals(firstNodes, secondNodes);
+	}
+
+	@Test public void testUseAfterReleaseInDebugMode() throws Exception {
+		LexerGrammar lg = new LexerGrammar(LEXER);
+		Grammar g = new Grammar(PARSER, lg);
+		ParseTreeArena arena = new ParseTreeArena(true);
+
+		ParserInterpreter parser = createParser(lg, g, "a;");
+		parser.setParseTreeArena(arena);
+		ParserRuleContext tree = parser.parse(g.rules.get("stat").index);
+		ParseTree id = tree.getChild(0).getChild(0);
+		arena.release();
+
+		try {
+			tree.getChildCount();
+			fail("expected IllegalStateException");
+		}
+		catch (IllegalStateException ex) {
+			// expected
+		}
+
+		try {
+			id.getText();
+			fail("expected IllegalStateException");
+		}
+		catch (IllegalStateException ex) {
+			// expected
+		}
+	}
+
+	private static void collect(ParseTree tree, Set<ParseTree> nodes) {
+		nodes.add(tree);
+		for (int i = 0; i < tree.getChildCount(); i++) {
+			collect(tree.getChild(i), nodes);
+		}
+	}
+
+	private static ParserInterpreter createParser(LexerGrammar lg, Grammar g, String input) {
+		LexerInterpreter lexEngine = lg.createLexerInterpreter(CharStreams.fromString(input));
+		CommonTokenStream tokens = new CommonTokenStream(lexEngine);
+		return g.createParserInterpreter(tokens);
+	}
+}
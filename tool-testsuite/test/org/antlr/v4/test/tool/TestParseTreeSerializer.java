@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v4.test.tool;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonToken;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.InterpreterRuleContext;
+import org.antlr.v4.runtime.LexerInterpreter;
+import org.antlr.v4.runtime.ParserInterpreter;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.RuleContext;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.TokenSource;
+import org.antlr.v4.runtime.atn.ATN;
+import org.antlr.v4.runtime.atn.ATNDeserializer;
+import org.antlr.v4.runtime.atn.ATNSerializer;
+import org.antlr.v4.runtime.misc.Pair;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.ParseTreeDeserializer;
+import org.antlr.v4.runtime.tree.ParseTreeSerializer;
+import org.antlr.v4.runtime.tree.TerminalNodeImpl;
+import org.antlr.v4.runtime.tree.Trees;
+import org.antlr.v4.tool.Grammar;
+import org.antlr.v4.tool.LexerGrammar;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TestParseTreeSerializer extends BaseJavaToolTest {
+	@Before
+	@Override
+	public void testSetUp() throws Exception {
+		super.testSetUp();
+	}
+
+	@Test public void testRoundTripInterpreterTree() throws Exception {
+		LexerGrammar lg = new LexerGrammar(
+			"lexer grammar L;\n" +
+			"ID : [a-z]+ ;\n" +
+			"INT : [0-9]+ ;\n" +
+			"PLUS : '+' ;\n" +
+			"MULT : '*' ;\n" +
+			"SEMI : ';' ;\n" +
+			"WS : [ \\n]+ -> channel(HIDDEN) ;\n");
+		Grammar g = new Grammar(
+			"parser grammar T;\n" +
+			"s : stat+ EOF ;\n" +
+			"stat : e SEMI ;\n" +
+			"e : e MULT e | e PLUS e | ID | INT ;\n",
+			lg);
+
+		CharStream input = CharStreams.fromString("a + 1 * b;\nc + ;\nd;");
+		LexerInterpreter lexEngine = lg.createLexerInterpreter(input);
+		CommonTokenStream tokens = new CommonTokenStream(lexEngine);
+		ParserInterpreter parser = g.createParserInterpreter(tokens);
+		parser.removeErrorListeners();
+		ParserRuleContext tree = parser.parse(g.rules.get("s").index);
+
+		byte[] data = ParseTreeSerializer.serialize(tree, tokens.getTokens());
+		ParseTreeDeserializer deserializer = new ParseTreeDeserializer(ByteBuffer.wrap(data), lexEngine, input);
+		assertTrue(deserializer.getTokenCount() >= tokens.size());
+		assertEquals(g.rules.get("s").index, deserializer.getRuleIndex(0));
+		int statIndex = g.rules.get("stat").index;
+		assertEquals(Trees.findAllRuleNodes(tree, statIndex).size(), deserializer.findNodes(statIndex).size());
+
+		ParserRuleContext copy = deserializer.getTree();
+		assertEquals(tree.toStringTree(parser), copy.toStringTree(parser));
+		assertEquals(tree.getText(), copy.getText());
+		assertEquals(tree.getSourceInterval(), copy.getSourceInterval());
+		assertTrue(copy instanceof InterpreterRuleContext);
+
+		List<Integer> stats = deserializer.findNodes(statIndex);
+		int stat = stats.get(stats.size() - 1);
+		ParserRuleContext subtree = deserializer.getTree(stat);
+		assertNull(subtree.getParent());
+		List<ParseTree> originalStats = new ArrayList<ParseTree>(Trees.findAllRuleNodes(tree, statIndex));
+		ParserRuleContext originalStat = (ParserRuleContext)originalStats.get(originalStats.size() - 1);
+		assertEquals(originalStat.toStringTree(parser), subtree.toStringTree(parser));
+		assertEquals(originalStat.start.getLine(), subtree.start.getLine());
+	}
+
+	@Test public void testRoundTripTextSetByLexerAction() throws Exception {
+		LexerGrammar lg = new LexerGrammar(
+			"lexer grammar L;\n" +
+			"STR : '\"' ~'\"'* '\"' {strip();} ;\n" +
+			"ID : [a-z]+ ;\n" +
+			"WS : [ ]+ -> skip ;\n");
+		Grammar g = new Grammar(
+			"parser grammar T;\n" +
+			"s : (ID | STR)+ EOF ;\n",
+			lg);
+
+		CharStream input = CharStreams.fromString("a \"bc\" d");
+		ATN atn = new ATNDeserializer().deserialize(ATNSerializer.getSerializedAsChars(lg.atn));
+		LexerInterpreter lexEngine = new LexerInterpreter(lg.fileName, lg.getVocabulary(), Arrays.asList(lg.getRuleNames()), lg.modes.keySet(), atn, input) {
+			@Override
+			public void action(RuleContext _localctx, int ruleIndex, int actionIndex) {
+				// strip the quotes
+				setText(getText().substring(1, getText().length() - 1));
+			}
+		};
+		CommonTokenStream tokens = new CommonTokenStream(lexEngine);
+		ParserInterpreter parser = g.createParserInterpreter(tokens);
+		parser.removeErrorListeners();
+		ParserRuleContext tree = parser.parse(g.rules.get("s").index);
+		assertEquals("abcd<EOF>", tree.getText());
+
+		byte[] data = ParseTreeSerializer.serialize(tree, tokens.getTokens());
+		ParserRuleContext copy = new ParseTreeDeserializer(ByteBuffer.wrap(data), lexEngine, input).getTree();
+		assertEquals(tree.toStringTree(parser), copy.toStringTree(parser));
+		assertEquals("abcd<EOF>", copy.getText());
+	}
+
+	@Test public void testTypedContextsFromMappedFile() throws Exception {
+		CharStream input = CharStreams.fromString("xy");
+		CommonToken x = new CommonToken(new Pair<TokenSource, CharStream>(null, input), 1, Token.DEFAULT_CHANNEL, 0, 0);
+		x.setTokenIndex(0);
+		CommonToken y = new CommonToken(new Pair<TokenSource, CharStream>(null, input), 2, Token.DEFAULT_CHANNEL, 1, 1);
+		y.setTokenIndex(1);
+
+		RootContext root = new RootContext(null, -1);
+		root.start = x;
+		root.stop = y;
+		ItemContext item = new ItemContext(root, 5);
+		item.start = item.stop = y;
+		root.addChild(new TerminalNodeImpl(x));
+		root.addChild(item);
+		item.addChild(new TerminalNodeImpl(y));
+
+		File file = new File(tmpdir, "tree.bin");
+		file.getParentFile().mkdirs();
+		try (OutputStream out = new FileOutputStream(file)) {
+			new ParseTreeSerializer(null).serialize(root, out);
+		}
+
+		ParserRuleContext copy = ParseTreeDeserializer.map(file, null, input).getTree();
+		assertTrue(copy instanceof RootContext);
+		ItemContext itemCopy = copy.getRuleContext(ItemContext.class, 0);
+		assertSame(copy, itemCopy.getParent());
+		assertEquals(5, itemCopy.invokingState);
+		assertEquals("y", itemCopy.getText());
+		assertEquals("xy", copy.getText());
+		assertEquals(Collections.emptyList(), copy.getRuleContexts(RootContext.class));
+	}
+
+	public static class RootContext extends ParserRuleContext {
+		public RootContext(ParserRuleContext parent, int invokingState) {
+			super(parent, invokingState);
+		}
+
+		@Override
+		public int getRuleIndex() {
+			return 0;
+		}
+	}
+
+	public static class ItemContext extends ParserRuleContext {
+		public ItemContext(ParserRuleContext parent, int invokingState) {
+			super(parent, invokingState);
+		}
+
+		@Override
+		public int getRuleIndex() {
+			return 1;
+		}
+	}
+}
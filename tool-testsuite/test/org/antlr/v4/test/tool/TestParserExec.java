@@ -6,11 +6,16 @@
 
 package org.antlr.v4.test.tool;
 
+import org.antlr.v4.runtime.misc.Utils;
 import org.junit.Before;
 import org.junit.Ignore;
 import org.junit.Test;
 
+import java.io.File;
+
+import static org.antlr.v4.test.runtime.BaseRuntimeTest.writeFile;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
@@ -160,4 +165,22 @@ public class TestParserExec extends BaseJavaToolTest {
 		assertEquals("6\n", found);
 		assertNull(stderrDuringParse);
 	}
+
+	@Test public void testBinaryATNResource() throws Exception {
+		String grammar =
+			"grammar T;\n"+
+			"s : ID+ {System.out.println($text);} ;\n" +
+			"ID : 'a'..'z'+ ;\n"+
+			"WS : (' '|'\\n')+ -> skip ;\n";
+		boolean success = rawGenerateAndBuildRecognizer("T.g4", grammar, "TParser", "TLexer", "-Xbinary-atn");
+		assertTrue(success);
+		assertTrue(new File(tmpdir, "TParser.atn").exists());
+		assertTrue(new File(tmpdir, "TLexer.atn").exists());
+		assertFalse(new String(Utils.readFile(tmpdir+"/TParser.java")).contains("_serializedATN"));
+
+		writeFile(tmpdir, "input", "abc def");
+		String result = rawExecRecognizer("TParser", "TLexer", "s", false, false);
+		assertEquals("abcdef\n", result);
+		assertNull(this.stderrDuringParse);
+	}
 }
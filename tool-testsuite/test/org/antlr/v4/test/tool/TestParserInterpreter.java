@@ -10,6 +10,8 @@ import org.antlr.v4.runtime.ANTLRInputStream;
 import org.antlr.v4.runtime.CommonTokenStream;
 import org.antlr.v4.runtime.LexerInterpreter;
 import org.antlr.v4.runtime.ParserInterpreter;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.dfa.DFA;
 import org.antlr.v4.runtime.tree.ParseTree;
 import org.antlr.v4.tool.Grammar;
 import org.antlr.v4.tool.LexerGrammar;
@@ -17,6 +19,9 @@ import org.junit.Before;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 
 
 public class TestParserInterpreter extends BaseJavaToolTest {
@@ -330,6 +335,64 @@ public class TestParserInterpreter extends BaseJavaToolTest {
 		testInterp(lg, g, "e", "a+a*a", "(e (e a) + (e (e a) * (e a)))");
 	}
 
+	@Test public void testSourceTextIncludesHiddenTokens() throws Exception {
+		LexerGrammar lg = new LexerGrammar(
+			"lexer grammar L;\n" +
+			"A : 'a' ;\n" +
+			"B : 'b' ;\n" +
+			"WS : ' ' -> channel(HIDDEN) ;\n");
+		Grammar g = new Grammar(
+			"parser grammar T;\n" +
+			"s : x B ;\n" +
+			"x : A A ;",
+			lg);
+
+		ParserRuleContext t = (ParserRuleContext)testInterp(lg, g, "s", " a a  b ", "(s (x a a) b)");
+		assertEquals("aab", t.getText());
+		assertEquals("a a  b", t.getSourceText().toString());
+		assertEquals("a a", ((ParserRuleContext)t.getChild(0)).getSourceText().toString());
+	}
+
+	@Test public void testDFAsAreCreatedOnFirstUse() throws Exception {
+		LexerGrammar lg = new LexerGrammar(
+			"lexer grammar L;\n" +
+			"A : 'a' ;\n" +
+			"B : 'b' ;\n");
+		Grammar g = new Grammar(
+			"parser grammar T;\n" +
+			"s : x | y ;\n" +
+			"x : A (A | B A) ;\n" +
+			"y : B (A | B A) ;\n",
+			lg);
+
+		LexerInterpreter lexEngine = lg.createLexerInterpreter(new ANTLRInputStream("aa"));
+		CommonTokenStream tokens = new CommonTokenStream(lexEngine);
+		ParserInterpreter parser = g.createParserInterpreter(tokens);
+		DFA[] decisionToDFA = parser.getInterpreter().decisionToDFA;
+		assertEquals(3, decisionToDFA.length);
+		for (DFA dfa : decisionToDFA) {
+			assertNull(dfa);
+		}
+
+		ParseTree t = parser.parse(g.rules.get("s").index);
+		assertEquals("(s (x a a))", t.toStringTree(parser));
+		int y = g.getRule("y").index;
+		int created = 0;
+		for (DFA dfa : decisionToDFA) {
+			if ( dfa==null ) continue;
+			assertNotEquals(y, dfa.atnStartState.ruleIndex);
+			created++;
+		}
+		assertEquals(2, created);
+
+		// clearing the DFA cache goes back to the initial state
+		parser.getInterpreter().clearDFA();
+		for (DFA dfa : decisionToDFA) {
+			assertNull(dfa);
+		}
+		assertNotNull(parser.getInterpreter().getDFA(0));
+	}
+
 	ParseTree testInterp(LexerGrammar lg, Grammar g,
 					String startRule, String input,
 					String expectedParseTree)
@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v4.test.tool;
+
+import org.antlr.v4.test.runtime.BaseRuntimeTest;
+import org.antlr.v4.test.runtime.ErrorQueue;
+import org.antlr.v4.tool.ErrorType;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+
+import static org.junit.Assert.assertEquals;
+
+public class TestPredictionCostAnalyzer extends BaseJavaToolTest {
+	@Before
+	@Override
+	public void testSetUp() throws Exception {
+		super.testSetUp();
+	}
+
+	@Test public void testCommonPrefix() throws Exception {
+		String grammar =
+			"grammar T;\n" +
+			"s : ID '=' ID ';'\n" +
+			"  | ID '=' INT ';'\n" +
+			"  ;\n" +
+			"ID : [a-z]+ ;\n" +
+			"INT : [0-9]+ ;\n";
+		String expected =
+			"warning(" + ErrorType.EXPENSIVE_DECISION.code + "): T.g4:2:2: decision in rule s may be expensive to predict (estimated cost 6): " +
+			"needs 3 tokens of lookahead; alternatives 1 and 2 start with the same 2 tokens; consider left-factoring them\n";
+		assertEquals(expected, lint(grammar));
+	}
+
+	@Test public void testPredicatesInPrediction() throws Exception {
+		String grammar =
+			"grammar T;\n" +
+			"s : {p}? ID | ID ;\n" +
+			"ID : [a-z]+ ;\n";
+		String expected =
+			"warning(" + ErrorType.EXPENSIVE_DECISION.code + "): T.g4:2:2: decision in rule s may be expensive to predict (estimated cost 25): " +
+			"not LL(4), so it may need full-context prediction; evaluates semantic predicates during prediction\n";
+		assertEquals(expected, lint(grammar));
+	}
+
+	@Test public void testPredicatesAfterFirstTokenAreNotEvaluated() throws Exception {
+		String grammar =
+			"grammar T;\n" +
+			"s : ID {p}? '=' ID\n" +
+			"  | ID '=' INT\n" +
+			"  ;\n" +
+			"ID : [a-z]+ ;\n" +
+			"INT : [0-9]+ ;\n";
+		String expected =
+			"warning(" + ErrorType.EXPENSIVE_DECISION.code + "): T.g4:2:2: decision in rule s may be expensive to predict (estimated cost 6): " +
+			"needs 3 tokens of lookahead; alternatives 1 and 2 start with the same 2 tokens; consider left-factoring them\n";
+		assertEquals(expected, lint(grammar));
+	}
+
+	@Test public void testMostExpensiveFirst() throws Exception {
+		String grammar =
+			"grammar T;\n" +
+			"s : a | b ;\n" +
+			"a : ID ID ID X | ID ID ID Y ;\n" +
+			"b : c X | c Y ;\n" +
+			"c : ID+ ;\n" +
+			"ID : [a-z]+ ;\n" +
+			"X : 'x' ;\n" +
+			"Y : 'y' ;\n";
+		String expected =
+			"warning(" + ErrorType.EXPENSIVE_DECISION.code + "): T.g4:2:2: decision in rule s may be expensive to predict (estimated cost 20): " +
+			"not LL(4), so it may need full-context prediction\n" +
+			"warning(" + ErrorType.EXPENSIVE_DECISION.code + "): T.g4:4:2: decision in rule b may be expensive to predict (estimated cost 20): " +
+			"not LL(4), so it may need full-context prediction\n" +
+			"warning(" + ErrorType.EXPENSIVE_DECISION.code + "): T.g4:3:2: decision in rule a may be expensive to predict (estimated cost 8): " +
+			"needs 4 tokens of lookahead; alternatives 1 and 2 start with the same 3 tokens; consider left-factoring them\n";
+		assertEquals(expected, lint(grammar));
+	}
+
+	@Test public void testLL1GrammarHasNoWarnings() throws Exception {
+		String grammar =
+			"grammar T;\n" +
+			"s : e (',' e)* ;\n" +
+			"e : ID | INT | '(' e ')' ;\n" +
+			"ID : [a-z]+ ;\n" +
+			"INT : [0-9]+ ;\n";
+		assertEquals("", lint(grammar));
+	}
+
+	@Test public void testOnlyWithOption() throws Exception {
+		String grammar =
+			"grammar T;\n" +
+			"s : ID '=' ID | ID '=' INT ;\n" +
+			"ID : [a-z]+ ;\n" +
+			"INT : [0-9]+ ;\n";
+		ErrorQueue equeue = BaseRuntimeTest.antlrOnString(tmpdir, "Java", "T.g4", grammar, false);
+		assertEquals(0, equeue.size());
+	}
+
+	private String lint(String grammar) {
+		ErrorQueue equeue = BaseRuntimeTest.antlrOnString(tmpdir, "Java", "T.g4", grammar, false, "-Xperf-lint");
+		return equeue.toString(true).replace(tmpdir + File.separator, "");
+	}
+}
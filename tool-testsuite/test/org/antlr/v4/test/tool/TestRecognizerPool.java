@@ -0,0 +1,243 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v4.test.tool;
+
+import org.antlr.v4.runtime.BailErrorStrategy;
+import org.antlr.v4.runtime.BaseErrorListener;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.DefaultErrorStrategy;
+import org.antlr.v4.runtime.LexerInterpreter;
+import org.antlr.v4.runtime.ParserInterpreter;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.RecognitionException;
+import org.antlr.v4.runtime.Recognizer;
+import org.antlr.v4.runtime.RecognizerChain;
+import org.antlr.v4.runtime.RecognizerPool;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.tree.ErrorNode;
+import org.antlr.v4.runtime.tree.ParseTreeListener;
+import org.antlr.v4.runtime.tree.TerminalNode;
+import org.antlr.v4.runtime.tree.Trees;
+import org.antlr.v4.tool.Grammar;
+import org.antlr.v4.tool.LexerGrammar;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TestRecognizerPool extends BaseJavaToolTest {
+	private static final String LEXER_GRAMMAR =
+		"lexer grammar L;\n" +
+		"SEMI : ';' ;\n" +
+		"MUL : '*' ;\n" +
+		"ADD : '+' ;\n" +
+		"LP : '(' ;\n" +
+		"RP : ')' ;\n" +
+		"INT : [0-9]+ ;\n" +
+		"WS : [ ]+ -> skip ;\n";
+
+	private static final String GRAMMAR =
+		"parser grammar T;\n" +
+		"s : e ';' ;\n" +
+		"e : e '*' e | e '+' e | '(' e ')' | INT ;\n";
+
+	private static final String[] INPUTS = {
+		"1+2*3;", "(1+2)*3;", "1+;", "4;", "1*(2+3)*4+5;", "((7));", "1 2;"
+	};
+
+	private LexerGrammar lg;
+	private Grammar g;
+
+	@Before
+	@Override
+	public void testSetUp() throws Exception {
+		super.testSetUp();
+		lg = new LexerGrammar(LEXER_GRAMMAR);
+		g = new Grammar(GRAMMAR, lg);
+	}
+
+	@Test public void testRecycleRestoresConfiguration() throws Exception {
+		ParserInterpreter parser = g.createParserInterpreter(null);
+		parser.removeErrorListeners();
+		ErrorCounter errors = new ErrorCounter();
+		parser.addErrorListener(errors);
+		DefaultErrorStrategy errorHandler = new DefaultErrorStrategy();
+		parser.setErrorHandler(errorHandler);
+		RecognizerChain<LexerInterpreter, ParserInterpreter> chain =
+			new RecognizerChain<LexerInterpreter, ParserInterpreter>(lg.createLexerInterpreter(null), parser);
+
+		chain.recycle(CharStreams.fromString("1+;"));
+		parser.parse(g.getRule("s").index);
+		assertTrue(parser.getNumberOfSyntaxErrors()>0);
+		assertEquals(1, errors.count);
+
+		// change everything a caller could change while parsing
+		parser.addErrorListener(new ErrorCounter());
+		parser.addParseListener(new ParseTreeListener() {
+			@Override public void visitTerminal(TerminalNode node) { }
+			@Override public void visitErrorNode(ErrorNode node) { }
+			@Override public void enterEveryRule(ParserRuleContext ctx) { }
+			@Override public void exitEveryRule(ParserRuleContext ctx) { }
+		});
+		parser.setBuildParseTree(false);
+		parser.setErrorHandler(new BailErrorStrategy());
+		parser.getInterpreter().setPredictionMode(PredictionMode.SLL);
+		parser.setProfile(true);
+
+		chain.recycle(CharStreams.fromString("1+2*3;"));
+		assertSame(parser, chain.getParser());
+		assertEquals(0, parser.getNumberOfSyntaxErrors());
+		assertEquals(Collections.singletonList(errors), parser.getErrorListeners());
+		assertTrue(parser.getParseListeners().isEmpty());
+		assertTrue(parser.getBuildParseTree());
+		assertSame(errorHandler, parser.getErrorHandler());
+		assertEquals(PredictionMode.LL, parser.getInterpreter().getPredictionMode());
+		assertNull(parser.getParseInfo());
+		ParserRuleContext tree = parser.parse(g.getRule("s").index);
+		assertEquals("(s (e (e 1) + (e (e 2) * (e 3))) ;)", Trees.toStringTree(tree, parser));
+		assertEquals(1, errors.count);
+
+		chain.recycle(null);
+		assertNull(chain.getLexer().getInputStream());
+		assertEquals(0, chain.getTokenStream().size());
+	}
+
+	@Test public void testRecycledChainParsesLikeNewRecognizers() throws Exception {
+		RecognizerChain<LexerInterpreter, ParserInterpreter> chain = newChain();
+		for (int i = 0; i < 3; i++) {
+			for (String input : INPUTS) {
+				chain.recycle(CharStreams.fromString(input));
+				assertEquals(input, parseNew(input), parse(chain));
+			}
+		}
+	}
+
+	@Test public void testPoolSharedByThreads() throws Exception {
+		final RecognizerPool<LexerInterpreter, ParserInterpreter> pool = newPool();
+
+		RecognizerChain<LexerInterpreter, ParserInterpreter> chain = pool.acquire(CharStreams.fromString("4;"));
+		assertEquals("(s (e 4) ;) errors=0", parse(chain));
+		pool.release(chain);
+		assertEquals(1, pool.getIdleCount());
+		assertSame(chain, pool.acquire(CharStreams.fromString("5;")));
+		pool.release(chain);
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<Void>> results = new ArrayList<Future<Void>>();
+			for (int t = 0; t < 4; t++) {
+				results.add(executor.submit(new Callable<Void>() {
+					@Override
+					public Void call() throws Exception {
+						for (int i = 0; i < 50; i++) {
+							String input = INPUTS[i % INPUTS.length];
+							RecognizerChain<LexerInterpreter, ParserInterpreter> chain = pool.acquire(CharStreams.fromString(input));
+							try {
+								assertEquals(input, parseNew(input), parse(chain));
+							}
+							finally {
+								pool.release(chain);
+							}
+						}
+						return null;
+					}
+				}));
+			}
+			for (Future<Void> result : results) {
+				result.get();
+			}
+		}
+		finally {
+			executor.shutdown();
+		}
+		assertTrue(pool.getIdleCount()<=pool.getMaxIdle());
+	}
+
+	@Test public void testDoubleReleaseThrows() throws Exception {
+		RecognizerPool<LexerInterpreter, ParserInterpreter> pool = newPool();
+		RecognizerChain<LexerInterpreter, ParserInterpreter> chain = pool.acquire(CharStreams.fromString("4;"));
+		pool.release(chain);
+		try {
+			pool.release(chain);
+			fail("expected IllegalStateException");
+		}
+		catch (IllegalStateException ex) {
+			// expected
+		}
+		assertEquals(1, pool.getIdleCount());
+
+		// a chain of another pool, or of none, can't be released either
+		RecognizerChain<LexerInterpreter, ParserInterpreter> other = newPool().acquire(CharStreams.fromString("4;"));
+		for (RecognizerChain<LexerInterpreter, ParserInterpreter> foreign : Arrays.asList(other, newChain())) {
+			try {
+				pool.release(foreign);
+				fail("expected IllegalStateException");
+			}
+			catch (IllegalStateException ex) {
+				// expected
+			}
+		}
+		assertEquals(1, pool.getIdleCount());
+	}
+
+	private RecognizerPool<LexerInterpreter, ParserInterpreter> newPool() {
+		return new RecognizerPool<LexerInterpreter, ParserInterpreter>(2) {
+			@Override
+			protected RecognizerChain<LexerInterpreter, ParserInterpreter> create() {
+				return newChain();
+			}
+		};
+	}
+
+	private RecognizerChain<LexerInterpreter, ParserInterpreter> newChain() {
+		LexerInterpreter lexer = lg.createLexerInterpreter(null);
+		lexer.removeErrorListeners();
+		ParserInterpreter parser = g.createParserInterpreter(null);
+		parser.removeErrorListeners();
+		return new RecognizerChain<LexerInterpreter, ParserInterpreter>(lexer, parser);
+	}
+
+	private String parse(RecognizerChain<LexerInterpreter, ParserInterpreter> chain) {
+		ParserInterpreter parser = chain.getParser();
+		ParserRuleContext tree = parser.parse(g.getRule("s").index);
+		return Trees.toStringTree(tree, parser)+" errors="+parser.getNumberOfSyntaxErrors();
+	}
+
+	private String parseNew(String input) {
+		LexerInterpreter lexer = lg.createLexerInterpreter(CharStreams.fromString(input));
+		lexer.removeErrorListeners();
+		ParserInterpreter parser = g.createParserInterpreter(new CommonTokenStream(lexer));
+		parser.removeErrorListeners();
+		ParserRuleContext tree = parser.parse(g.getRule("s").index);
+		return Trees.toStringTree(tree, parser)+" errors="+parser.getNumberOfSyntaxErrors();
+	}
+
+	private static class ErrorCounter extends BaseErrorListener {
+		int count;
+
+		@Override
+		public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol, int line,
+								int charPositionInLine, String msg, RecognitionException e)
+		{
+			count++;
+		}
+	}
+}
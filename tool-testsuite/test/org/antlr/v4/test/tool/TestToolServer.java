@@ -0,0 +1,207 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v4.test.tool;
+
+import org.antlr.v4.ToolClient;
+import org.antlr.v4.ToolServer;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.LexerInterpreter;
+import org.antlr.v4.runtime.ParserInterpreter;
+import org.antlr.v4.tool.Grammar;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.antlr.v4.test.runtime.BaseRuntimeTest.mkdir;
+import static org.antlr.v4.test.runtime.BaseRuntimeTest.writeFile;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TestToolServer extends BaseJavaToolTest {
+	private ToolServer server;
+	private Thread serverThread;
+
+	@Before
+	@Override
+	public void testSetUp() throws Exception {
+		super.testSetUp();
+		mkdir(tmpdir);
+		server = new ToolServer(0, new File(tmpdir, "server.token"));
+		serverThread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					server.serve();
+				}
+				catch (Exception e) {
+					e.printStackTrace();
+				}
+			}
+		});
+		serverThread.start();
+	}
+
+	@After
+	public void tearDownServer() throws Exception {
+		newClient().shutdown();
+		serverThread.join(10000);
+		assertFalse(serverThread.isAlive());
+		assertFalse(server.getTokenFile().exists());
+	}
+
+	@Test public void testGenerateInServer() throws Exception {
+		writeFile(tmpdir, "T.g4", "grammar T;\ns : A ;\nA : 'a' ;\n");
+		writeFile(tmpdir, "U.g4", "grammar U;\ns : B ;\nB : 'b' ;\n");
+
+		ToolClient client = newClient();
+		MessageList messages = new MessageList();
+		int errors = client.run(new File(tmpdir), Arrays.asList("-o", "out", "T.g4"), messages);
+		assertEquals(0, errors);
+		assertEquals("[]", messages.toString());
+		assertTrue(new File(tmpdir, "out/TParser.java").exists());
+
+		// templates loaded by the first request are reused
+		errors = client.run(new File(tmpdir), Arrays.asList("-o", "out", "U.g4"), messages);
+		assertEquals(0, errors);
+		assertTrue(new File(tmpdir, "out/UParser.java").exists());
+	}
+
+	@Test public void testMessagesAreSentToClient() throws Exception {
+		writeFile(tmpdir, "T.g4", "grammar T;\ns : A ;\nA : 'a' -> mode(NOPE) ;\n");
+
+		ToolClient client = newClient();
+		MessageList messages = new MessageList();
+		int errors = client.run(new File(tmpdir), Arrays.asList("-o", "out", "T.g4"), messages);
+		assertEquals(1, errors);
+		assertEquals(1, messages.errors.size());
+		assertTrue(messages.errors.get(0), messages.errors.get(0).contains("NOPE is not a recognized mode name"));
+
+		// including those reported while handling the arguments
+		messages = new MessageList();
+		errors = client.run(new File(tmpdir), Arrays.asList("-o", "out", "-foo", "T.g4"), messages);
+		assertEquals(1, errors);
+		assertEquals(1, messages.errors.size());
+		assertTrue(messages.errors.get(0), messages.errors.get(0).contains("-foo"));
+	}
+
+	@Test public void testRequestsNeedToken() throws Exception {
+		writeFile(tmpdir, "T.g4", "grammar T;\ns : A ;\nA : 'a' ;\n");
+		if ( server.getTokenFile().toPath().getFileSystem().supportedFileAttributeViews().contains("posix") ) {
+			assertEquals("rw-------", PosixFilePermissions.toString(Files.getPosixFilePermissions(server.getTokenFile().toPath())));
+		}
+
+		File wrongToken = new File(tmpdir, "wrong.token");
+		writeFile(tmpdir, "wrong.token", "0123456789012345678901234567890123456789012345678901234567890123");
+		ToolClient client = new ToolClient(server.getPort(), wrongToken);
+		try {
+			client.run(new File(tmpdir), Arrays.asList("-o", "out", "T.g4"), new MessageList());
+			fail("request without the token was served");
+		}
+		catch (EOFException expected) {
+			// the server hangs up
+		}
+		assertFalse(new File(tmpdir, "out/TParser.java").exists());
+
+		try {
+			new ToolClient(server.getPort(), new File(tmpdir, "missing.token")).shutdown();
+			fail("no token file");
+		}
+		catch (ConnectException expected) {
+		}
+		assertTrue(serverThread.isAlive());
+	}
+
+	@Test public void testStalledClientIsDropped() throws Exception {
+		writeFile(tmpdir, "T.g4", "grammar T;\ns : A ;\nA : 'a' ;\n");
+		server.setReadTimeout(200);
+
+		// connect without sending anything
+		Socket stalled = new Socket(InetAddress.getByName(null), server.getPort());
+		try {
+			stalled.setSoTimeout(10000);
+			assertEquals(-1, stalled.getInputStream().read());
+		}
+		finally {
+			stalled.close();
+		}
+
+		int errors = newClient().run(new File(tmpdir), Arrays.asList("-o", "out", "T.g4"), new MessageList());
+		assertEquals(0, errors);
+		assertTrue(new File(tmpdir, "out/TParser.java").exists());
+	}
+
+	@Test public void testRelativeProfilePaths() throws Exception {
+		writeFile(tmpdir, "T.g4", TestDecisionProfileReport.GRAMMAR);
+		Grammar g = new Grammar(TestDecisionProfileReport.GRAMMAR);
+		for (String fileName : Arrays.asList("1.profile", "2.profile")) {
+			LexerInterpreter lexer = g.createLexerInterpreter(CharStreams.fromString("x = y; { y = 1; }"));
+			ParserInterpreter parser = g.createParserInterpreter(new CommonTokenStream(lexer));
+			parser.setProfile(true);
+			parser.parse(g.getRule("s").index);
+			try (Writer out = new OutputStreamWriter(new FileOutputStream(new File(tmpdir, fileName)), "UTF-8")) {
+				parser.getParseInfo().writeProfile(out);
+			}
+		}
+
+		// relative to the client's working directory, not the server's
+		MessageList messages = new MessageList();
+		int errors = newClient().run(new File(tmpdir), Arrays.asList("-o", "out", "-Xprofile-report", "1.profile" + File.pathSeparator + "2.profile", "T.g4"), messages);
+		assertEquals(messages.toString(), 0, errors);
+		assertEquals(messages.toString(), 1, messages.all.size());
+		String report = messages.all.get(0);
+		assertTrue(report, report.startsWith("decision profile of T.g4 from [" +
+											 new File(tmpdir, "1.profile").getPath() + ", " +
+											 new File(tmpdir, "2.profile").getPath() + "]: "));
+	}
+
+	private ToolClient newClient() {
+		return new ToolClient(server.getPort(), server.getTokenFile());
+	}
+
+	private static class MessageList implements ToolClient.Listener {
+		final List<String> errors = new ArrayList<String>();
+		final List<String> all = new ArrayList<String>();
+
+		@Override
+		public void info(String msg) {
+			all.add(msg);
+		}
+
+		@Override
+		public void error(String msg) {
+			errors.add(msg);
+			all.add(msg);
+		}
+
+		@Override
+		public void warning(String msg) {
+			all.add(msg);
+		}
+
+		@Override
+		public String toString() {
+			return all.toString();
+		}
+	}
+}
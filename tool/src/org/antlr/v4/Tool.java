@@ -18,6 +18,7 @@ import org.antlr.v4.automata.LexerATNFactory;
 import org.antlr.v4.automata.ParserATNFactory;
 import org.antlr.v4.codegen.CodeGenPipeline;
 import org.antlr.v4.codegen.CodeGenerator;
+import org.antlr.v4.codegen.Target;
 import org.antlr.v4.misc.Graph;
 import org.antlr.v4.parse.ANTLRParser;
 import org.antlr.v4.parse.GrammarASTAdaptor;
@@ -38,6 +39,7 @@ import org.antlr.v4.tool.DefaultToolListener;
 import org.antlr.v4.tool.ErrorManager;
 import org.antlr.v4.tool.ErrorType;
 import org.antlr.v4.tool.Grammar;
+import org.antlr.v4.tool.GrammarCache;
 import org.antlr.v4.tool.GrammarTransformPipeline;
 import org.antlr.v4.tool.LexerGrammar;
 import org.antlr.v4.tool.Rule;
@@ -50,9 +52,11 @@ import org.antlr.v4.tool.ast.TerminalAST;
 import org.stringtemplate.v4.STGroup;
 
 import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.StringWriter;
 import java.io.Writer;
@@ -63,7 +67,12 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class Tool {
 	public static final String VERSION;
@@ -81,10 +90,10 @@ public class Tool {
 
 	public static enum OptionArgType { NONE, STRING } // NONE implies boolean
 	public static class Option {
-		String fieldName;
-		String name;
-		OptionArgType argType;
-		String description;
+		public final String fieldName;
+		public final String name;
+		public final OptionArgType argType;
+		public final String description;
 
 		public Option(String fieldName, String name, String description) {
 			this(fieldName, name, OptionArgType.NONE, description);
@@ -118,6 +127,19 @@ public class Tool {
 	public boolean warnings_are_errors = false;
 	public boolean longMessages = false;
 	public boolean exact_output_dir = false;
+	/** Process grammars that don't depend on each other's tokenVocab
+	 *  concurrently. Unlike sequential processing, which stops at the first
+	 *  grammar with errors, only the grammars depending on a failed grammar
+	 *  are skipped; see {@link #processGrammarsInParallel}.
+	 */
+	public boolean parallel = false;
+	/** Number of threads used with {@link #parallel}; 0 means one per processor. */
+	public int parallelThreads = 0;
+	public String cacheDirectory = null;
+	public boolean tokens_in_output_dir = false;
+	public boolean binary_atn = false;
+	public boolean perf_lint = false;
+	public String profileReport = null;
 
     public static Option[] optionDefs = {
 		new Option("outputDirectory",             "-o", OptionArgType.STRING, "specify output directory where all output is generated"),
@@ -139,6 +161,12 @@ public class Tool {
 		new Option("force_atn",                   "-Xforce-atn", "use the ATN simulator for all predictions"),
 		new Option("log",                         "-Xlog", "dump lots of logging info to antlr-timestamp.log"),
 	    new Option("exact_output_dir",            "-Xexact-output-dir", "all output goes into -o dir regardless of paths/package"),
+		new Option("parallel",                    "-Xparallel", "process grammars that don't depend on each other's tokenVocab concurrently; errors only skip dependents"),
+		new Option("cacheDirectory",              "-Xcache", OptionArgType.STRING, "skip grammars whose inputs are unchanged since the last run, tracked in this directory"),
+		new Option("tokens_in_output_dir",        "-Xtokens-in-output-dir", "write .tokens files to the -o dir regardless of paths, like the Maven plugin"),
+		new Option("binary_atn",                  "-Xbinary-atn", "store the serialized ATN in a binary resource next to the recognizer (Java)"),
+		new Option("perf_lint",                   "-Xperf-lint", "warn about parser decisions that are likely to be expensive to predict"),
+		new Option("profileReport",               "-Xprofile-report", OptionArgType.STRING, "report the hot decisions of parser profiles written by ParseInfo.writeProfile (path separator between files)"),
 	};
 
 	// helper vars for option management
@@ -154,6 +182,17 @@ public class Tool {
 
 	protected List<String> grammarFiles = new ArrayList<String>();
 
+	/** Non-null when {@link #cacheDirectory} is set. */
+	protected GrammarCache grammarCache;
+
+	/** Load the code generation templates once per language and share them
+	 *  among all the tools of the process that set this, which saves
+	 *  reloading them for every grammar in a long-running process such as
+	 *  {@link ToolServer}. Template errors go to the tool that most recently
+	 *  asked for the templates on the current thread.
+	 */
+	public boolean cacheTemplates = false;
+
 	public ErrorManager errMgr;
     public LogManager logMgr = new LogManager();
 
@@ -307,26 +346,170 @@ public class Tool {
 	}
 
 	public void processGrammarsOnCommandLine() {
-		List<GrammarRootAST> sortedGrammars = sortGrammarByTokenVocab(grammarFiles);
+		try {
+			if ( cacheDirectory!=null && grammarCache==null ) {
+				grammarCache = new GrammarCache(this, new File(cacheDirectory));
+			}
+
+			List<GrammarRootAST> sortedGrammars = sortGrammarByTokenVocab(grammarFiles);
+			if ( parallel && !gen_dependencies && sortedGrammars.size()>1 ) {
+				processGrammarsInParallel(sortedGrammars);
+				return;
+			}
+
+			for (GrammarRootAST t : sortedGrammars) {
+				final Grammar g = createGrammar(t);
+				g.fileName = t.fileName;
+				if ( gen_dependencies ) {
+					BuildDependencyGenerator dep =
+						new BuildDependencyGenerator(this, g);
+					/*
+						List outputFiles = dep.getGeneratedFileList();
+						List dependents = dep.getDependenciesFileList();
+						System.out.println("output: "+outputFiles);
+						System.out.println("dependents: "+dependents);
+						 */
+					System.out.println(dep.getDependencies().render());
+
+				}
+				else if (errMgr.getNumErrors() == 0) {
+					processGrammar(g);
+				}
+			}
+		}
+		finally {
+			if ( cacheTemplates ) Target.clearTemplateErrorManager();
+		}
+	}
+
+	/** Process a grammar from the command line, unless the grammar cache
+	 *  shows that the outputs of a previous run are still up to date.
+	 */
+	protected void processGrammar(Grammar g) {
+		if ( grammarCache==null ) {
+			process(g, true);
+			return;
+		}
+
+		if ( grammarCache.isUpToDate(g) ) {
+			log("grammar", "skipping unchanged "+g.fileName);
+			return;
+		}
+
+		grammarCache.invalidate(g);
+		int prevErrors = errMgr.getNumErrors();
+		List<File> outputs;
+		grammarCache.startRecording();
+		try {
+			process(g, true);
+		}
+		finally {
+			outputs = grammarCache.stopRecording();
+		}
+
+		if ( errMgr.getNumErrors()==prevErrors ) {
+			grammarCache.update(g, outputs);
+		}
+	}
+
+	/** Process grammars concurrently, in topological order of their
+	 *  tokenVocab dependencies. A grammar starts once the grammars whose
+	 *  tokens it imports are done, and is skipped if any of them had errors.
+	 *  Messages of each grammar are buffered and then reported in the same
+	 *  order as sequential processing would report them.
+	 *
+	 *  <p>Sequential processing skips every grammar after the first one with
+	 *  errors. Here, grammars that don't depend on the failed one are still
+	 *  processed, generate their files and report their messages, because
+	 *  they may already be running when the error occurs. Which grammars are
+	 *  processed only depends on the grammars, not on timing.</p>
+	 */
+	protected void processGrammarsInParallel(List<GrammarRootAST> sortedGrammars) {
+		if ( errMgr.getNumErrors()>0 ) return;
+
+		Map<String, Integer> grammarIndexes = new HashMap<String, Integer>();
+		for (int i = 0; i < sortedGrammars.size(); i++) {
+			grammarIndexes.put(sortedGrammars.get(i).getGrammarName(), i);
+		}
+
+		// the shared DOT templates would otherwise be loaded lazily by several threads
+		if ( generate_ATN_dot ) DOTGenerator.stlib.load();
+
+		int nThreads = parallelThreads>0 ? parallelThreads : Runtime.getRuntime().availableProcessors();
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(nThreads, sortedGrammars.size()));
+		try {
+			// Dependencies always precede their dependents in the FIFO
+			// queue, so a task never waits on one that hasn't started.
+			List<Future<ErrorManager.MessageBuffer>> results = new ArrayList<Future<ErrorManager.MessageBuffer>>();
+			for (int i = 0; i < sortedGrammars.size(); i++) {
+				GrammarRootAST root = sortedGrammars.get(i);
+				List<Future<ErrorManager.MessageBuffer>> dependencies = new ArrayList<Future<ErrorManager.MessageBuffer>>();
+				Integer vocabIndex = grammarIndexes.get(getTokenVocabName(root));
+				if ( vocabIndex!=null && vocabIndex<i ) {
+					dependencies.add(results.get(vocabIndex));
+				}
+				results.add(executor.submit(new GrammarTask(root, dependencies)));
+			}
+
+			for (Future<ErrorManager.MessageBuffer> result : results) {
+				ErrorManager.MessageBuffer buffer = getTaskResult(result);
+				if ( buffer!=null ) errMgr.replay(buffer);
+			}
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
 
-		for (GrammarRootAST t : sortedGrammars) {
-			final Grammar g = createGrammar(t);
-			g.fileName = t.fileName;
-			if ( gen_dependencies ) {
-				BuildDependencyGenerator dep =
-					new BuildDependencyGenerator(this, g);
-				/*
-					List outputFiles = dep.getGeneratedFileList();
-					List dependents = dep.getDependenciesFileList();
-					System.out.println("output: "+outputFiles);
-					System.out.println("dependents: "+dependents);
-					 */
-				System.out.println(dep.getDependencies().render());
+	private static ErrorManager.MessageBuffer getTaskResult(Future<ErrorManager.MessageBuffer> result) {
+		try {
+			return result.get();
+		}
+		catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(ie);
+		}
+		catch (ExecutionException ee) {
+			Throwable cause = ee.getCause();
+			if ( cause instanceof RuntimeException ) throw (RuntimeException)cause;
+			if ( cause instanceof Error ) throw (Error)cause;
+			throw new RuntimeException(cause);
+		}
+	}
 
+	/** Processes one grammar on a worker thread; returns its messages, or
+	 *  null if it was skipped because a dependency failed.
+	 */
+	protected class GrammarTask implements Callable<ErrorManager.MessageBuffer> {
+		protected final GrammarRootAST root;
+		protected final List<Future<ErrorManager.MessageBuffer>> dependencies;
+
+		public GrammarTask(GrammarRootAST root, List<Future<ErrorManager.MessageBuffer>> dependencies) {
+			this.root = root;
+			this.dependencies = dependencies;
+		}
+
+		@Override
+		public ErrorManager.MessageBuffer call() throws Exception {
+			for (Future<ErrorManager.MessageBuffer> dependency : dependencies) {
+				ErrorManager.MessageBuffer buffer = dependency.get();
+				if ( buffer==null || buffer.getNumErrors()>0 ) return null;
 			}
-			else if (errMgr.getNumErrors() == 0) {
-				process(g, true);
+
+			ErrorManager.MessageBuffer buffer;
+			errMgr.startMessageBuffer();
+			threadImportedGrammars.set(new HashMap<String, Grammar>());
+			try {
+				Grammar g = createGrammar(root);
+				g.fileName = root.fileName;
+				processGrammar(g);
 			}
+			finally {
+				threadImportedGrammars.remove();
+				if ( cacheTemplates ) Target.clearTemplateErrorManager();
+				buffer = errMgr.stopMessageBuffer();
+			}
+			return buffer;
 		}
 	}
 
@@ -502,23 +685,9 @@ public class Tool {
 			root.fileName = fileName;
 			String grammarName = root.getChild(0).getText();
 
-			GrammarAST tokenVocabNode = findOptionValueAST(root, "tokenVocab");
 			// Make grammars depend on any tokenVocab options
-			if ( tokenVocabNode!=null ) {
-				String vocabName = tokenVocabNode.getText();
-				// Strip quote characters if any
-				int len = vocabName.length();
-				int firstChar = vocabName.charAt(0);
-				int lastChar = vocabName.charAt(len - 1);
-				if (len >= 2 && firstChar == '\'' && lastChar == '\'') {
-					vocabName = vocabName.substring(1, len-1);
-				}
-				// If the name contains a path delimited by forward slashes,
-				// use only the part after the last slash as the name
-				int lastSlash = vocabName.lastIndexOf('/');
-				if (lastSlash >= 0) {
-					vocabName = vocabName.substring(lastSlash + 1);
-				}
+			String vocabName = getTokenVocabName(root);
+			if ( vocabName!=null ) {
 				g.addEdge(grammarName, vocabName);
 			}
 			// add cycle to graph so we always process a grammar if no error
@@ -542,6 +711,30 @@ public class Tool {
 		return sortedRoots;
 	}
 
+	/** Return the name of the grammar whose tokens {@code root} imports with
+	 *  the tokenVocab option, or null if it has no such option.
+	 */
+	protected static String getTokenVocabName(GrammarRootAST root) {
+		GrammarAST tokenVocabNode = findOptionValueAST(root, "tokenVocab");
+		if ( tokenVocabNode==null ) return null;
+
+		String vocabName = tokenVocabNode.getText();
+		// Strip quote characters if any
+		int len = vocabName.length();
+		int firstChar = vocabName.charAt(0);
+		int lastChar = vocabName.charAt(len - 1);
+		if (len >= 2 && firstChar == '\'' && lastChar == '\'') {
+			vocabName = vocabName.substring(1, len-1);
+		}
+		// If the name contains a path delimited by forward slashes,
+		// use only the part after the last slash as the name
+		int lastSlash = vocabName.lastIndexOf('/');
+		if (lastSlash >= 0) {
+			vocabName = vocabName.substring(lastSlash + 1);
+		}
+		return vocabName;
+	}
+
 	/** Manually get option node from tree; return null if no defined. */
 	public static GrammarAST findOptionValueAST(GrammarRootAST root, String option) {
 		GrammarAST options = (GrammarAST)root.getFirstChildWithType(ANTLRParser.OPTIONS);
@@ -607,6 +800,11 @@ public class Tool {
 
 	private final Map<String, Grammar> importedGrammars = new HashMap<String, Grammar>();
 
+	/** Imported grammars are modified when merged into a root grammar, so
+	 *  grammars processed concurrently each load their own copies.
+	 */
+	private final ThreadLocal<Map<String, Grammar>> threadImportedGrammars = new ThreadLocal<Map<String, Grammar>>();
+
 	/**
 	 * Try current dir then dir of g then lib dir
 	 * @param g
@@ -614,6 +812,8 @@ public class Tool {
 	 */
 	public Grammar loadImportedGrammar(Grammar g, GrammarAST nameNode) throws IOException {
 		String name = nameNode.getText();
+		Map<String, Grammar> importedGrammars = threadImportedGrammars.get();
+		if ( importedGrammars==null ) importedGrammars = this.importedGrammars;
 		Grammar imported = importedGrammars.get(name);
 		if (imported == null) {
 			g.tool.log("grammar", "load " + name + " from " + g.fileName);
@@ -781,15 +981,7 @@ public class Tool {
 		if (outputDirectory == null) {
 			return new StringWriter();
 		}
-		// output directory is a function of where the grammar file lives
-		// for subdir/T.g4, you get subdir here.  Well, depends on -o etc...
-		File outputDir = getOutputDirectory(g.fileName);
-		File outputFile = new File(outputDir, fileName);
-
-		if (!outputDir.exists()) {
-			outputDir.mkdirs();
-		}
-		FileOutputStream fos = new FileOutputStream(outputFile);
+		OutputStream fos = getOutputFileStream(g, fileName);
 		OutputStreamWriter osw;
 		if ( grammarEncoding!=null ) {
 			osw = new OutputStreamWriter(fos, grammarEncoding);
@@ -800,10 +992,37 @@ public class Tool {
 		return new BufferedWriter(osw);
 	}
 
+	/** Like {@link #getOutputFileWriter} for binary output files. */
+	public OutputStream getOutputFileStream(Grammar g, String fileName) throws IOException {
+		if (outputDirectory == null) {
+			return new ByteArrayOutputStream();
+		}
+		// output directory is a function of where the grammar file lives
+		// for subdir/T.g4, you get subdir here.  Well, depends on -o etc...
+		File outputDir;
+		if ( tokens_in_output_dir && fileName.endsWith(CodeGenerator.VOCAB_FILE_EXTENSION) ) {
+			outputDir = new File(outputDirectory);
+		}
+		else {
+			outputDir = getOutputDirectory(g.fileName);
+		}
+		File outputFile = new File(outputDir, fileName);
+		if ( grammarCache!=null ) grammarCache.fileWritten(outputFile);
+
+		if (!outputDir.exists()) {
+			outputDir.mkdirs();
+		}
+		return new FileOutputStream(outputFile);
+	}
+
 	public File getImportedGrammarFile(Grammar g, String fileName) {
 		File importedFile = new File(inputDirectory, fileName);
 		if ( !importedFile.exists() ) {
 			File gfile = new File(g.fileName);
+			if ( !gfile.isAbsolute() && inputDirectory!=null ) {
+				// relative grammar file names are relative to the input directory
+				gfile = new File(inputDirectory, g.fileName);
+			}
 			String parentDir = gfile.getParent();
 			importedFile = new File(parentDir, fileName);
 			if ( !importedFile.exists() ) { // try in lib dir
@@ -932,7 +1151,11 @@ public class Tool {
 		}
 	}
 
-    public void log(String component, String msg) { logMgr.log(component, msg); }
+    public void log(String component, String msg) {
+		synchronized (logMgr) {
+			logMgr.log(component, msg);
+		}
+	}
     public void log(String msg) { log(null, msg); }
 
 	public int getNumErrors() { return errMgr.getNumErrors(); }
@@ -0,0 +1,229 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v4;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/** Runs the ANTLR tool in a {@link ToolServer} rather than in this process.
+ *
+ *  Paths in the arguments are resolved against the client's working
+ *  directory: grammar files are read relative to it, and the values of
+ *  -o, -lib and -Xcache are made absolute. Without -o, grammar files are
+ *  passed as absolute paths so that output goes next to them as usual.
+ *
+ *  From the command line, {@code java org.antlr.v4.ToolClient args} takes
+ *  the same arguments as {@link Tool} and falls back to running the tool
+ *  in-process if no server is listening. The port is taken from the
+ *  {@code antlr4.server.port} system property.
+ *
+ *  Requests carry the server's secret token, which the client reads from
+ *  the server's {@link ToolServer#getTokenFile token file}.
+ */
+public class ToolClient {
+	/** Receives the rendered messages of a request. */
+	public interface Listener {
+		void info(String msg);
+		void error(String msg);
+		void warning(String msg);
+	}
+
+	protected final int port;
+	protected final File tokenFile;
+
+	public ToolClient() {
+		this(Integer.getInteger("antlr4.server.port", ToolServer.DEFAULT_PORT));
+	}
+
+	/** A client of the server on {@code port} with the default token file. */
+	public ToolClient(int port) {
+		this(port, ToolServer.getTokenFile(port));
+	}
+
+	public ToolClient(int port, File tokenFile) {
+		this.port = port;
+		this.tokenFile = tokenFile;
+	}
+
+	public int getPort() {
+		return port;
+	}
+
+	/** Process grammars in the server as if {@code new Tool(args)} were run
+	 *  in {@code workingDirectory}.
+	 *
+	 *  @return the number of errors
+	 *  @throws ConnectException if no server is listening, or there is no
+	 *  token file
+	 */
+	public int run(File workingDirectory, List<String> args, Listener listener) throws IOException {
+		workingDirectory = workingDirectory.getAbsoluteFile();
+		List<String> serverArgs = resolvePaths(workingDirectory, args);
+		byte[] token = readToken();
+		try (Socket socket = new Socket(InetAddress.getByName(null), port)) {
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+			writeHeader(out, token, ToolServer.REQUEST_RUN);
+			ToolServer.writeString(out, workingDirectory.getPath());
+			out.writeInt(serverArgs.size());
+			for (String arg : serverArgs) {
+				ToolServer.writeString(out, arg);
+			}
+			out.flush();
+
+			DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			while ( true ) {
+				int kind = in.readInt();
+				switch ( kind ) {
+					case ToolServer.RESPONSE_DONE:
+						return in.readInt();
+					case ToolServer.RESPONSE_INFO:
+						listener.info(ToolServer.readString(in));
+						break;
+					case ToolServer.RESPONSE_ERROR:
+						listener.error(ToolServer.readString(in));
+						break;
+					case ToolServer.RESPONSE_WARNING:
+						listener.warning(ToolServer.readString(in));
+						break;
+					default:
+						throw new IOException("unexpected tool server response "+kind);
+				}
+			}
+		}
+	}
+
+	/** Ask the server to exit. */
+	public void shutdown() throws IOException {
+		byte[] token = readToken();
+		try (Socket socket = new Socket(InetAddress.getByName(null), port)) {
+			DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+			writeHeader(out, token, ToolServer.REQUEST_SHUTDOWN);
+			out.flush();
+			new DataInputStream(socket.getInputStream()).readInt();
+		}
+	}
+
+	protected byte[] readToken() throws IOException {
+		if ( !tokenFile.isFile() ) {
+			throw new ConnectException("no tool server token file "+tokenFile);
+		}
+		return Files.readAllBytes(tokenFile.toPath());
+	}
+
+	private static void writeHeader(DataOutputStream out, byte[] token, int request) throws IOException {
+		out.writeInt(ToolServer.MAGIC);
+		out.writeInt(token.length);
+		out.write(token);
+		out.writeInt(request);
+	}
+
+	protected static List<String> resolvePaths(File workingDirectory, List<String> args) {
+		List<String> pathOptions = Arrays.asList("-o", "-lib", "-Xcache");
+		boolean haveOutputDir = args.contains("-o");
+		List<String> result = new ArrayList<String>(args.size() + 2);
+		for (int i = 0; i < args.size(); i++) {
+			String arg = args.get(i);
+			if ( pathOptions.contains(arg) && i + 1 < args.size() ) {
+				result.add(arg);
+				result.add(resolve(workingDirectory, args.get(++i)));
+			}
+			else if ( arg.equals("-Xprofile-report") && i + 1 < args.size() ) {
+				result.add(arg);
+				result.add(resolvePathList(workingDirectory, args.get(++i)));
+			}
+			else if ( isStringOption(arg) && i + 1 < args.size() ) {
+				result.add(arg);
+				result.add(args.get(++i));
+			}
+			else if ( !haveOutputDir && !arg.startsWith("-") ) {
+				result.add(resolve(workingDirectory, arg));
+			}
+			else {
+				result.add(arg);
+			}
+		}
+
+		// "." would be the server's working directory
+		if ( !args.contains("-lib") ) {
+			result.add(0, "-lib");
+			result.add(1, workingDirectory.getPath());
+		}
+		return result;
+	}
+
+	private static boolean isStringOption(String arg) {
+		for (Tool.Option o : Tool.optionDefs) {
+			if ( o.name.equals(arg) ) return o.argType==Tool.OptionArgType.STRING;
+		}
+		return false;
+	}
+
+	private static String resolve(File workingDirectory, String path) {
+		File file = new File(path);
+		return file.isAbsolute() ? path : new File(workingDirectory, path).getPath();
+	}
+
+	/** Resolve each entry of {@code paths}, separated by the path separator. */
+	private static String resolvePathList(File workingDirectory, String paths) {
+		StringBuilder result = new StringBuilder();
+		for (String path : paths.split(File.pathSeparator)) {
+			if ( result.length()>0 ) result.append(File.pathSeparator);
+			if ( !path.isEmpty() ) result.append(resolve(workingDirectory, path));
+		}
+		return result.toString();
+	}
+
+	public static void main(String[] args) throws IOException {
+		ToolClient client = new ToolClient();
+		if ( args.length==1 && args[0].equals("-shutdown") ) {
+			client.shutdown();
+			return;
+		}
+
+		if ( args.length==0 ) {
+			Tool.main(args);
+			return;
+		}
+
+		int errors;
+		try {
+			errors = client.run(new File(System.getProperty("user.dir")), Arrays.asList(args), new Listener() {
+				@Override
+				public void info(String msg) {
+					System.out.println(msg);
+				}
+
+				@Override
+				public void error(String msg) {
+					System.err.println(msg);
+				}
+
+				@Override
+				public void warning(String msg) {
+					System.err.println(msg);
+				}
+			});
+		}
+		catch (ConnectException ce) {
+			Tool.main(args);
+			return;
+		}
+
+		System.exit(errors>0 ? 1 : 0);
+	}
+}
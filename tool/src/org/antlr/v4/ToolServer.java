@@ -0,0 +1,322 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v4;
+
+import org.antlr.v4.tool.ANTLRMessage;
+import org.antlr.v4.tool.ErrorType;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.EnumSet;
+
+/** A long-running ANTLR tool process that generates code on behalf of
+ *  {@link ToolClient}s, so that they don't pay for JVM startup, class
+ *  loading and template loading on every run.
+ *
+ *  The server listens on a loopback socket only and handles one request at
+ *  a time. Each request runs a fresh {@link Tool} with the client's
+ *  arguments; the code generation templates are shared between requests
+ *  (see {@link Tool#cacheTemplates}). Messages are rendered by the
+ *  server and streamed back to the client.
+ *
+ *  Since the tool writes files wherever a request asks, every request must
+ *  carry a secret token. The server creates a random one at startup and
+ *  writes it to a {@link #getTokenFile token file} in the user's home
+ *  directory, readable by the owner only; clients of the same user read it
+ *  from there. The file is deleted when the server is closed.
+ *
+ *  A client which stalls while sending its request is dropped after the
+ *  {@link #getReadTimeout read timeout}, so that it can't hold up the
+ *  server.
+ *
+ *  Start it with {@code java org.antlr.v4.ToolServer [-port N]}.
+ */
+public class ToolServer {
+	public static final int DEFAULT_PORT = 50451;
+	public static final int DEFAULT_READ_TIMEOUT = 10000;
+
+	static final int MAGIC = 0x414E5452;
+	static final int REQUEST_RUN = 1;
+	static final int REQUEST_SHUTDOWN = 2;
+	static final int RESPONSE_DONE = 0;
+	static final int RESPONSE_INFO = 1;
+	static final int RESPONSE_ERROR = 2;
+	static final int RESPONSE_WARNING = 3;
+
+	protected final ServerSocket serverSocket;
+	protected final File tokenFile;
+	private final byte[] token;
+	private volatile int readTimeout = DEFAULT_READ_TIMEOUT;
+
+	/** Where the messages of the request being handled go. */
+	protected DataOutputStream requestOut;
+
+	/** Bind to {@code port} on the loopback interface, where 0 picks a free
+	 *  port, and write the token to the default {@link #getTokenFile} for
+	 *  that port.
+	 */
+	public ToolServer(int port) throws IOException {
+		this(port, null);
+	}
+
+	/** Bind to {@code port} on the loopback interface, where 0 picks a free
+	 *  port, and write the token to {@code tokenFile}, or to the default
+	 *  token file if it is {@code null}.
+	 */
+	public ToolServer(int port, File tokenFile) throws IOException {
+		serverSocket = new ServerSocket(port, 50, InetAddress.getByName(null));
+		this.tokenFile = tokenFile!=null ? tokenFile : getTokenFile(serverSocket.getLocalPort());
+		byte[] bytes = new byte[32];
+		new SecureRandom().nextBytes(bytes);
+		StringBuilder hex = new StringBuilder();
+		for (byte b : bytes) {
+			hex.append(String.format("%02x", b & 0xFF));
+		}
+		this.token = hex.toString().getBytes("UTF-8");
+		try {
+			writeTokenFile(this.tokenFile, token);
+		}
+		catch (IOException ioe) {
+			serverSocket.close();
+			throw ioe;
+		}
+	}
+
+	public int getPort() {
+		return serverSocket.getLocalPort();
+	}
+
+	/** The token file of the server listening on {@code port}. */
+	public static File getTokenFile(int port) {
+		return new File(System.getProperty("user.home"), ".antlr4-server-"+port+".token");
+	}
+
+	public File getTokenFile() {
+		return tokenFile;
+	}
+
+	/** How long, in milliseconds, the server waits for the next bytes of a
+	 *  request before it drops the client.
+	 */
+	public int getReadTimeout() {
+		return readTimeout;
+	}
+
+	public void setReadTimeout(int readTimeout) {
+		this.readTimeout = readTimeout;
+	}
+
+	/** Create {@code file}, replacing any old one, with permissions for its
+	 *  owner only, before the token is written to it.
+	 */
+	private static void writeTokenFile(File file, byte[] token) throws IOException {
+		Path path = file.toPath();
+		Files.deleteIfExists(path);
+		try {
+			Files.createFile(path, PosixFilePermissions.asFileAttribute(
+				EnumSet.of(PosixFilePermission.OWNER_READ, PosixFilePermission.OWNER_WRITE)));
+		}
+		catch (UnsupportedOperationException uoe) {
+			// not a POSIX file system
+			if ( !file.createNewFile() ) throw new FileAlreadyExistsException(file.getPath());
+			if ( !(file.setReadable(false, false) && file.setReadable(true, true) &&
+				   file.setWritable(false, false) && file.setWritable(true, true)) )
+			{
+				Files.delete(path);
+				throw new IOException("cannot restrict access to "+file);
+			}
+		}
+		Files.write(path, token);
+	}
+
+	/** Handle requests until a client asks for a shutdown or {@link #close}
+	 *  is called.
+	 */
+	public void serve() throws IOException {
+		while ( !serverSocket.isClosed() ) {
+			Socket socket;
+			try {
+				socket = serverSocket.accept();
+			}
+			catch (SocketException se) {
+				if ( serverSocket.isClosed() ) break;
+				throw se;
+			}
+
+			try {
+				socket.setSoTimeout(readTimeout);
+				handle(socket);
+			}
+			catch (IOException ioe) {
+				// the client went away or stalled (SocketTimeoutException);
+				// keep serving others
+			}
+			finally {
+				socket.close();
+			}
+		}
+	}
+
+	public void close() throws IOException {
+		try {
+			serverSocket.close();
+		}
+		finally {
+			Files.deleteIfExists(tokenFile.toPath());
+		}
+	}
+
+	protected void handle(Socket socket) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+		if ( in.readInt()!=MAGIC ) return;
+		if ( in.readInt()!=token.length ) return;
+		byte[] requestToken = new byte[token.length];
+		in.readFully(requestToken);
+		if ( !MessageDigest.isEqual(requestToken, token) ) return;
+
+		int request = in.readInt();
+		if ( request==REQUEST_SHUTDOWN ) {
+			out.writeInt(RESPONSE_DONE);
+			out.writeInt(0);
+			out.flush();
+			close();
+			return;
+		}
+
+		String workingDirectory = readString(in);
+		String[] args = new String[in.readInt()];
+		for (int i = 0; i < args.length; i++) {
+			args[i] = readString(in);
+		}
+
+		int errors;
+		RequestTool tool = null;
+		requestOut = out;
+		try {
+			tool = new RequestTool(args);
+			tool.inputDirectory = new File(workingDirectory);
+			tool.processGrammarsOnCommandLine();
+			if ( tool.log ) {
+				tool.info("wrote "+tool.logMgr.save());
+			}
+			errors = tool.getNumErrors();
+		}
+		catch (Throwable t) {
+			if ( tool!=null ) {
+				tool.errMgr.toolError(ErrorType.INTERNAL_ERROR, t);
+			}
+			else {
+				send(out, RESPONSE_ERROR, "error: "+t);
+			}
+			errors = tool!=null ? Math.max(1, tool.getNumErrors()) : 1;
+		}
+		finally {
+			requestOut = null;
+		}
+
+		out.writeInt(RESPONSE_DONE);
+		out.writeInt(errors);
+		out.flush();
+	}
+
+	static void send(DataOutputStream out, int kind, String text) {
+		try {
+			out.writeInt(kind);
+			writeString(out, text);
+		}
+		catch (IOException ioe) {
+			// the client went away; finish the request regardless
+		}
+	}
+
+	/** Like {@link DataOutputStream#writeUTF} without its 64K limit. */
+	static void writeString(DataOutputStream out, String text) throws IOException {
+		byte[] bytes = text.getBytes("UTF-8");
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	static String readString(DataInputStream in) throws IOException {
+		byte[] bytes = new byte[in.readInt()];
+		in.readFully(bytes);
+		return new String(bytes, "UTF-8");
+	}
+
+	/** Sends all messages to the client of the current request instead of
+	 *  the listeners. As an inner class, it can do so while the Tool
+	 *  constructor reports errors in the arguments.
+	 */
+	protected class RequestTool extends Tool {
+		public RequestTool(String[] args) {
+			super(args);
+			cacheTemplates = true;
+		}
+
+		@Override
+		public void info(String msg) {
+			if ( errMgr.formatWantsSingleLineMessage() ) {
+				msg = msg.replace('\n', ' ');
+			}
+			send(requestOut, RESPONSE_INFO, msg);
+		}
+
+		@Override
+		public void error(ANTLRMessage msg) {
+			send(requestOut, RESPONSE_ERROR, render(msg));
+		}
+
+		@Override
+		public void warning(ANTLRMessage msg) {
+			send(requestOut, RESPONSE_WARNING, render(msg));
+			if ( warnings_are_errors ) {
+				errMgr.emit(ErrorType.WARNING_TREATED_AS_ERROR, new ANTLRMessage(ErrorType.WARNING_TREATED_AS_ERROR));
+			}
+		}
+
+		private String render(ANTLRMessage msg) {
+			String outputMsg = errMgr.getMessageTemplate(msg).render();
+			if ( errMgr.formatWantsSingleLineMessage() ) {
+				outputMsg = outputMsg.replace('\n', ' ');
+			}
+			return outputMsg;
+		}
+	}
+
+	public static void main(String[] args) throws IOException {
+		int port = DEFAULT_PORT;
+		for (int i = 0; i < args.length; i++) {
+			if ( args[i].equals("-port") && i + 1 < args.length ) {
+				port = Integer.parseInt(args[++i]);
+			}
+			else {
+				System.err.println("usage: java org.antlr.v4.ToolServer [-port N]");
+				System.exit(1);
+			}
+		}
+
+		ToolServer server = new ToolServer(port);
+		System.out.println("ANTLR tool server "+Tool.VERSION+" listening on port "+server.getPort()+
+						   ", token in "+server.getTokenFile());
+		server.serve();
+	}
+}
@@ -75,6 +75,14 @@ public class AnalysisPipeline {
 			g.decisionLOOK.set(s.decision, look);
 			g.tool.log("LL1", "LL(1)? " + disjoint(look));
 		}
+
+		if ( g.tool.perf_lint ) {
+			new PredictionCostAnalyzer(g).report();
+		}
+
+		if ( g.tool.profileReport!=null ) {
+			new DecisionProfileReport(g).report(g.tool.profileReport);
+		}
 	}
 
 	/** Return whether lookahead sets are disjoint; no lookahead ⇒ not disjoint */
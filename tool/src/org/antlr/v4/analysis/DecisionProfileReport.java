@@ -0,0 +1,280 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v4.analysis;
+
+import org.antlr.v4.parse.ANTLRParser;
+import org.antlr.v4.runtime.atn.DecisionState;
+import org.antlr.v4.runtime.atn.ParseInfo;
+import org.antlr.v4.runtime.misc.Interval;
+import org.antlr.v4.tool.ErrorType;
+import org.antlr.v4.tool.Grammar;
+import org.antlr.v4.tool.LeftRecursiveRule;
+import org.antlr.v4.tool.Rule;
+import org.antlr.v4.tool.ast.GrammarAST;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/** Maps a decision profile collected with {@code ProfilingATNSimulator}
+ *  and written by {@link ParseInfo#writeProfile} back to the grammar, and
+ *  reports the decisions that took the most prediction time, with their
+ *  rules, source spans, lookahead and full-context rates (-Xprofile-report).
+ *
+ *  Several profiles of the same grammar, e.g. one per parsed file, are
+ *  combined. A profile must come from a parser generated from this
+ *  version of the grammar; its number of decisions and ATN states are
+ *  checked.
+ */
+public class DecisionProfileReport {
+	/** The statistics of one decision, summed over all profiles. */
+	public static class DecisionStats {
+		public final int decision;
+		public long invocations;
+		public long timeInPrediction;
+		public long SLL_TotalLook;
+		public long SLL_MaxLook;
+		public long LL_Fallback;
+		public long LL_TotalLook;
+		public long LL_MaxLook;
+		public long ambiguities;
+		public long contextSensitivities;
+		public long errors;
+		public long predicateEvals;
+
+		public DecisionStats(int decision) {
+			this.decision = decision;
+		}
+
+		public long getTotalLook() {
+			return SLL_TotalLook + LL_TotalLook;
+		}
+	}
+
+	public final Grammar g;
+	protected final DecisionStats[] stats;
+
+	public DecisionProfileReport(Grammar g) {
+		this.g = g;
+		this.stats = new DecisionStats[g.atn.getNumberOfDecisions()];
+		for (int i = 0; i < stats.length; i++) {
+			stats[i] = new DecisionStats(i);
+		}
+	}
+
+	/** Read the profiles in {@code fileNames}, separated by the path
+	 *  separator, and report the hot decisions as an info message.
+	 */
+	public void report(String fileNames) {
+		List<String> files = new ArrayList<String>();
+		for (String fileName : fileNames.split(File.pathSeparator)) {
+			if ( fileName.isEmpty() ) continue;
+			try {
+				if ( !read(new File(fileName)) ) return;
+			}
+			catch (IOException ioe) {
+				g.tool.errMgr.toolError(ErrorType.CANNOT_OPEN_FILE, ioe, fileName);
+				return;
+			}
+			files.add(fileName);
+		}
+		g.tool.info(getReport(files));
+	}
+
+	/** Add the profile in {@code file} to the statistics.
+	 *
+	 *  @return {@code false} if it doesn't match the grammar, after
+	 *  reporting an error
+	 */
+	public boolean read(File file) throws IOException {
+		try (BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"))) {
+			String line = in.readLine();
+			if ( line==null || !line.equals(ParseInfo.PROFILE_HEADER) ) {
+				return mismatch(file, "not a decision profile");
+			}
+
+			String expected = "# decisions="+g.atn.getNumberOfDecisions()+" states="+g.atn.states.size();
+			line = in.readLine();
+			if ( line==null || !line.equals(expected) ) {
+				return mismatch(file, "it has "+(line!=null ? line.substring(1).trim() : "no ATN size")+
+									  " but the grammar has "+expected.substring(1).trim());
+			}
+
+			line = in.readLine();
+			if ( line==null ) return mismatch(file, "missing column names");
+			List<String> columns = Arrays.asList(line.split("\t"));
+			int decisionColumn = columns.indexOf("decision");
+			if ( decisionColumn<0 ) return mismatch(file, "missing decision column");
+
+			while ( (line = in.readLine())!=null ) {
+				if ( line.isEmpty() ) continue;
+				String[] values = line.split("\t");
+				int decision = Integer.parseInt(values[decisionColumn]);
+				if ( decision<0 || decision>=stats.length ) {
+					return mismatch(file, "unknown decision "+decision);
+				}
+				DecisionStats d = stats[decision];
+				d.invocations += get(columns, values, "invocations");
+				d.timeInPrediction += get(columns, values, "timeInPrediction");
+				d.SLL_TotalLook += get(columns, values, "SLL_TotalLook");
+				d.SLL_MaxLook = Math.max(d.SLL_MaxLook, get(columns, values, "SLL_MaxLook"));
+				d.LL_Fallback += get(columns, values, "LL_Fallback");
+				d.LL_TotalLook += get(columns, values, "LL_TotalLook");
+				d.LL_MaxLook = Math.max(d.LL_MaxLook, get(columns, values, "LL_MaxLook"));
+				d.ambiguities += get(columns, values, "ambiguities");
+				d.contextSensitivities += get(columns, values, "contextSensitivities");
+				d.errors += get(columns, values, "errors");
+				d.predicateEvals += get(columns, values, "predicateEvals");
+			}
+		}
+		catch (NumberFormatException nfe) {
+			return mismatch(file, "malformed number "+nfe.getMessage());
+		}
+		return true;
+	}
+
+	private boolean mismatch(File file, String reason) {
+		g.tool.errMgr.toolError(ErrorType.PROFILE_MISMATCH, file.getPath(), g.fileName, reason);
+		return false;
+	}
+
+	private static long get(List<String> columns, String[] values, String column) {
+		int i = columns.indexOf(column);
+		return i>=0 && i<values.length ? Long.parseLong(values[i]) : 0;
+	}
+
+	/** The decisions that were predicted at least once, hottest first: by
+	 *  time in prediction, then by total lookahead.
+	 */
+	public List<DecisionStats> getHotDecisions() {
+		List<DecisionStats> hot = new ArrayList<DecisionStats>();
+		for (DecisionStats d : stats) {
+			if ( d.invocations>0 ) hot.add(d);
+		}
+		Collections.sort(hot, new Comparator<DecisionStats>() {
+			@Override
+			public int compare(DecisionStats a, DecisionStats b) {
+				if ( a.timeInPrediction!=b.timeInPrediction ) return a.timeInPrediction > b.timeInPrediction ? -1 : 1;
+				if ( a.getTotalLook()!=b.getTotalLook() ) return a.getTotalLook() > b.getTotalLook() ? -1 : 1;
+				return a.decision - b.decision;
+			}
+		});
+		return hot;
+	}
+
+	public String getReport(List<String> files) {
+		List<DecisionStats> hot = getHotDecisions();
+		long predictions = 0;
+		long time = 0;
+		long fallbacks = 0;
+		for (DecisionStats d : hot) {
+			predictions += d.invocations;
+			time += d.timeInPrediction;
+			fallbacks += d.LL_Fallback;
+		}
+
+		Map<DecisionState, GrammarAST> decisionASTs = PredictionCostAnalyzer.getDecisionASTs(g);
+		StringBuilder buf = new StringBuilder();
+		buf.append(String.format(Locale.ROOT, "decision profile of %s from %s: %d of %d decisions used, %d predictions, %.3f ms in prediction, %s full-context",
+								 g.fileName, files, hot.size(), stats.length, predictions, time / 1e6, percent(fallbacks, predictions)));
+		int rank = 1;
+		for (DecisionStats d : hot) {
+			DecisionState s = g.atn.getDecisionState(d.decision);
+			Rule r = g.getRule(s.ruleIndex);
+			GrammarAST ast = decisionASTs.get(s);
+			buf.append(String.format(Locale.ROOT, "%n%d. decision %d in rule %s at %s",
+									 rank++, d.decision, r.name, getLocation(s, r, ast)));
+			if ( ast!=null && !(r instanceof LeftRecursiveRule) ) {
+				String alts = getAlternatives(ast);
+				if ( alts!=null ) buf.append(" (alternatives at ").append(alts).append(')');
+			}
+			buf.append(String.format(Locale.ROOT, "%n   predictions %d, time %.3f ms (%s)",
+									 d.invocations, d.timeInPrediction / 1e6, percent(d.timeInPrediction, time)));
+			buf.append(String.format(Locale.ROOT, ", SLL lookahead %d (avg %.2f, max %d)",
+									 d.SLL_TotalLook, (double)d.SLL_TotalLook / d.invocations, d.SLL_MaxLook));
+			buf.append(String.format(Locale.ROOT, ", full-context %d (%s)", d.LL_Fallback, percent(d.LL_Fallback, d.invocations)));
+			if ( d.LL_Fallback>0 ) {
+				buf.append(String.format(Locale.ROOT, ", LL lookahead %d (avg %.2f, max %d)",
+										 d.LL_TotalLook, (double)d.LL_TotalLook / d.LL_Fallback, d.LL_MaxLook));
+			}
+			buf.append(String.format(Locale.ROOT, ", ambiguities %d, context sensitivities %d, errors %d, predicate evaluations %d",
+									 d.ambiguities, d.contextSensitivities, d.errors, d.predicateEvals));
+		}
+		return buf.toString();
+	}
+
+	private static String percent(long part, long total) {
+		return String.format(Locale.ROOT, "%.1f%%", total>0 ? 100.0 * part / total : 0.0);
+	}
+
+	/** The span of grammar text that decision {@code s} was built from,
+	 *  as {@code file:line:col-line:col}.
+	 */
+	protected String getLocation(DecisionState s, Rule r, GrammarAST ast) {
+		Interval region = g.getStateToGrammarRegion(s.stateNumber);
+		if ( (region==null || region.a<0) && ast!=null ) {
+			region = Interval.of(ast.getTokenStartIndex(), ast.getTokenStopIndex());
+		}
+		if ( region==null || region.a<0 || region.b<region.a || r instanceof LeftRecursiveRule ) {
+			GrammarAST rule = (GrammarAST)PredictionCostAnalyzer.getRuleAST(r).getParent();
+			region = Interval.of(rule.getTokenStartIndex(), rule.getTokenStopIndex());
+		}
+		org.antlr.runtime.Token start = g.originalTokenStream.get(region.a);
+		org.antlr.runtime.Token stop = g.originalTokenStream.get(region.b);
+		int stopColumn = stop.getCharPositionInLine() + (stop.getText()!=null ? stop.getText().length() : 0);
+		return g.fileName+":"+start.getLine()+":"+start.getCharPositionInLine()+"-"+stop.getLine()+":"+stopColumn;
+	}
+
+	/** The positions of the alternatives of a block decision, or "loop" and
+	 *  "exit" for the alternatives of a loop decision.
+	 */
+	protected String getAlternatives(GrammarAST ast) {
+		switch ( ast.getType() ) {
+			case ANTLRParser.CLOSURE :
+			case ANTLRParser.POSITIVE_CLOSURE :
+				return "1: loop, 2: exit";
+			case ANTLRParser.OPTIONAL :
+				GrammarAST block = (GrammarAST)ast.getChild(0);
+				return getAlternatives(block) + ", " + (block.getAllChildrenWithType(ANTLRParser.ALT).size() + 1) + ": skip";
+			case ANTLRParser.BLOCK :
+				StringBuilder buf = new StringBuilder();
+				int alt = 1;
+				for (GrammarAST altAST : ast.getChildrenAsArray()) {
+					if ( altAST.getType()!=ANTLRParser.ALT ) continue;
+					if ( alt>1 ) buf.append(", ");
+					buf.append(alt++).append(": ").append(getStart(altAST));
+				}
+				return buf.toString();
+			default :
+				return null;
+		}
+	}
+
+	/** The position of the first token of {@code ast} as {@code line:col}.
+	 *  Nodes made up by tree rewrites, like the block of {@code x?}, have no
+	 *  token range of their own.
+	 */
+	protected String getStart(GrammarAST ast) {
+		while ( ast.getTokenStartIndex()<0 && ast.getChildCount()>0 ) {
+			ast = (GrammarAST)ast.getChild(0);
+		}
+		if ( ast.getTokenStartIndex()>=0 ) {
+			org.antlr.runtime.Token start = g.originalTokenStream.get(ast.getTokenStartIndex());
+			return start.getLine()+":"+start.getCharPositionInLine();
+		}
+		return ast.getLine()+":"+ast.getCharPositionInLine();
+	}
+}
@@ -0,0 +1,438 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v4.analysis;
+
+import org.antlr.v4.misc.Utils;
+import org.antlr.v4.parse.ANTLRParser;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.atn.ATN;
+import org.antlr.v4.runtime.atn.ATNState;
+import org.antlr.v4.runtime.atn.DecisionState;
+import org.antlr.v4.runtime.atn.NotSetTransition;
+import org.antlr.v4.runtime.atn.PlusBlockStartState;
+import org.antlr.v4.runtime.atn.PlusLoopbackState;
+import org.antlr.v4.runtime.atn.PredicateTransition;
+import org.antlr.v4.runtime.atn.RuleStopState;
+import org.antlr.v4.runtime.atn.RuleTransition;
+import org.antlr.v4.runtime.atn.StarBlockStartState;
+import org.antlr.v4.runtime.atn.StarLoopEntryState;
+import org.antlr.v4.runtime.atn.Transition;
+import org.antlr.v4.runtime.atn.WildcardTransition;
+import org.antlr.v4.runtime.misc.IntervalSet;
+import org.antlr.v4.tool.ErrorType;
+import org.antlr.v4.tool.Grammar;
+import org.antlr.v4.tool.LeftRecursiveRule;
+import org.antlr.v4.tool.Rule;
+import org.antlr.v4.tool.ast.GrammarAST;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/** Statically flags parser decisions that are likely to be expensive to
+ *  predict at runtime, so that they can be found without running the
+ *  parser under a {@code ProfilingATNSimulator} (-Xperf-lint).
+ *
+ *  For each decision that isn't LL(1), the lookahead of every alternative
+ *  is computed up to {@link #MAX_K} tokens deep with the linear
+ *  approximation of LL(k): one token set per alternative and depth,
+ *  following rule invocations and, at the end of a rule, every rule that
+ *  invokes it (like SLL prediction does). Two alternatives are told apart
+ *  at the first depth where their sets are disjoint. A decision is
+ *  reported if it needs at least {@link #MIN_REPORTED_K} tokens, can't be
+ *  resolved within {@link #MAX_K} tokens (so prediction may fall back to
+ *  full-context LL), evaluates semantic predicates while predicting, or
+ *  has alternatives that start with the same sequence of tokens.
+ *
+ *  The warnings are reported most expensive first. The cost estimate is
+ *  rough: the lookahead depth times the number of conflicting
+ *  alternatives, plus a penalty for predicates, doubled for decisions in
+ *  loops, which are made once per iteration.
+ */
+public class PredictionCostAnalyzer {
+	/** How deep lookahead is computed. */
+	public static final int MAX_K = 4;
+
+	/** Decisions that need less lookahead than this are not reported. */
+	public static final int MIN_REPORTED_K = 3;
+
+	/** Common prefixes shorter than this are not reported. */
+	public static final int MIN_COMMON_PREFIX = 2;
+
+	/** The cost charged for a decision that isn't LL({@link #MAX_K}). */
+	public static final int FULL_CONTEXT_COST = 2 * MAX_K + 2;
+
+	public static final int PREDICATE_COST = 5;
+
+	/** Give up on a decision when an alternative reaches more ATN
+	 *  configurations than this at one depth.
+	 */
+	protected static final int MAX_CONFIGS = 10000;
+
+	/** Don't follow rule invocations deeper than this. */
+	protected static final int MAX_STACK_DEPTH = 64;
+
+	/** What is known about one decision. */
+	public static class DecisionCost {
+		public final DecisionState decision;
+		public final Rule rule;
+
+		/** The lookahead depth needed to predict, or -1 if it is more
+		 *  than {@link #MAX_K}.
+		 */
+		public int k;
+
+		/** The number of alternatives whose first token conflicts with
+		 *  another alternative's.
+		 */
+		public int conflictingAlts;
+
+		public boolean predicated;
+
+		/** The longest sequence of tokens that two alternatives both
+		 *  start with, and the alternatives (1..n).
+		 */
+		public int commonPrefix;
+		public int prefixAlt1;
+		public int prefixAlt2;
+
+		public int cost;
+
+		public DecisionCost(DecisionState decision, Rule rule) {
+			this.decision = decision;
+			this.rule = rule;
+		}
+
+		public boolean isReported() {
+			return k<0 || k>=MIN_REPORTED_K || predicated || commonPrefix>=MIN_COMMON_PREFIX;
+		}
+
+		public String getDescription() {
+			List<String> reasons = new ArrayList<String>();
+			if ( k<0 ) {
+				reasons.add("not LL("+MAX_K+"), so it may need full-context prediction");
+			}
+			else if ( k>=MIN_REPORTED_K ) {
+				reasons.add("needs "+k+" tokens of lookahead");
+			}
+			if ( predicated ) {
+				reasons.add("evaluates semantic predicates during prediction");
+			}
+			if ( commonPrefix>=MIN_COMMON_PREFIX ) {
+				String length = commonPrefix>=MAX_K ? "at least "+commonPrefix : String.valueOf(commonPrefix);
+				reasons.add("alternatives "+prefixAlt1+" and "+prefixAlt2+" start with the same "+length+" tokens; consider left-factoring them");
+			}
+			return Utils.join(reasons.toArray(), "; ");
+		}
+	}
+
+	/** An ATN state reached with a stack of rule return states; a
+	 *  {@code null} state stands for the end of the input.
+	 */
+	protected static class Config {
+		public final ATNState state;
+		public final Context context;
+
+		public Config(ATNState state, Context context) {
+			this.state = state;
+			this.context = context;
+		}
+
+		@Override
+		public int hashCode() {
+			int stateNumber = state!=null ? state.stateNumber : -1;
+			return stateNumber * 31 + (context!=null ? context.hashCode : 0);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if ( !(o instanceof Config) ) return false;
+			Config other = (Config)o;
+			return state==other.state && Context.equals(context, other.context);
+		}
+	}
+
+	/** An immutable stack of return states; {@code null} is empty. */
+	protected static class Context {
+		public final ATNState returnState;
+		public final Context parent;
+		public final int depth;
+		public final int hashCode;
+
+		public Context(ATNState returnState, Context parent) {
+			this.returnState = returnState;
+			this.parent = parent;
+			this.depth = parent!=null ? parent.depth + 1 : 1;
+			this.hashCode = returnState.stateNumber * 31 + (parent!=null ? parent.hashCode : 0);
+		}
+
+		public static boolean equals(Context a, Context b) {
+			while ( a!=b ) {
+				if ( a==null || b==null || a.hashCode!=b.hashCode || a.returnState!=b.returnState ) return false;
+				a = a.parent;
+				b = b.parent;
+			}
+			return true;
+		}
+	}
+
+	public final Grammar g;
+	public final ATN atn;
+	protected final IntervalSet vocabulary;
+
+	public PredictionCostAnalyzer(Grammar g) {
+		this.g = g;
+		this.atn = g.atn;
+		this.vocabulary = IntervalSet.of(Token.MIN_USER_TOKEN_TYPE, g.getMaxTokenType());
+	}
+
+	/** Report the decisions worth a warning, most expensive first. */
+	public void report() {
+		Map<DecisionState, GrammarAST> decisionASTs = getDecisionASTs(g);
+		for (DecisionCost cost : analyze()) {
+			GrammarAST ast = decisionASTs.get(cost.decision);
+			if ( ast==null || cost.rule instanceof LeftRecursiveRule ) {
+				// the AST of a left-recursive rule is rewritten; point at the original
+				ast = getRuleAST(cost.rule);
+			}
+			g.tool.errMgr.grammarError(ErrorType.EXPENSIVE_DECISION, g.fileName, ast.getToken(),
+									   cost.rule.name, cost.cost, cost.getDescription());
+		}
+	}
+
+	/** Return the reported decisions, most expensive first. */
+	public List<DecisionCost> analyze() {
+		List<DecisionCost> costs = new ArrayList<DecisionCost>();
+		for (int d = 0; d < atn.getNumberOfDecisions(); d++) {
+			DecisionState s = atn.getDecisionState(d);
+			Rule r = g.getRule(s.ruleIndex);
+			if ( r instanceof LeftRecursiveRule && s instanceof StarLoopEntryState ) {
+				continue; // decided by precedence predicates
+			}
+			IntervalSet[] look = d < g.decisionLOOK.size() ? g.decisionLOOK.get(d) : null;
+			if ( AnalysisPipeline.disjoint(look) ) {
+				continue; // LL(1)
+			}
+
+			DecisionCost cost = analyze(s, r);
+			if ( cost.isReported() ) {
+				costs.add(cost);
+			}
+		}
+
+		Collections.sort(costs, new Comparator<DecisionCost>() {
+			@Override
+			public int compare(DecisionCost a, DecisionCost b) {
+				if ( a.cost!=b.cost ) return a.cost > b.cost ? -1 : 1;
+				return a.decision.decision - b.decision.decision;
+			}
+		});
+		return costs;
+	}
+
+	protected DecisionCost analyze(DecisionState s, Rule r) {
+		DecisionCost cost = new DecisionCost(s, r);
+		int n = s.getNumberOfTransitions();
+
+		// look[alt][depth]; null where an alternative ran out of configurations
+		IntervalSet[][] look = new IntervalSet[n][];
+		boolean complete = true;
+		for (int alt = 0; alt < n; alt++) {
+			look[alt] = getLookahead(s.transition(alt).target, cost);
+			if ( look[alt]==null ) complete = false;
+		}
+
+		int k = 1;
+		for (int i = 0; i < n && complete; i++) {
+			for (int j = i + 1; j < n; j++) {
+				int pairK = getDistinguishingDepth(look[i], look[j]);
+				if ( pairK<0 ) {
+					k = -1;
+					break;
+				}
+				k = Math.max(k, pairK);
+			}
+			if ( k<0 ) break;
+		}
+		cost.k = complete ? k : -1;
+
+		for (int i = 0; i < n; i++) {
+			boolean conflicting = false;
+			for (int j = 0; j < n; j++) {
+				if ( i==j || look[i]==null || look[j]==null ) {
+					conflicting |= i!=j;
+					continue;
+				}
+				if ( !look[i][0].and(look[j][0]).isNil() ) {
+					conflicting = true;
+				}
+				int prefix = getCommonPrefix(look[i], look[j]);
+				if ( i<j && prefix>cost.commonPrefix ) {
+					cost.commonPrefix = prefix;
+					cost.prefixAlt1 = i + 1;
+					cost.prefixAlt2 = j + 1;
+				}
+			}
+			if ( conflicting ) cost.conflictingAlts++;
+		}
+
+		cost.cost = (cost.k<0 ? FULL_CONTEXT_COST : cost.k) * Math.max(cost.conflictingAlts, 2);
+		if ( cost.predicated ) cost.cost += PREDICATE_COST;
+		if ( isLoopDecision(s) ) cost.cost *= 2;
+		return cost;
+	}
+
+	/** The sets of tokens that can appear at depths 1..{@link #MAX_K}
+	 *  after {@code start}, or {@code null} if there are too many
+	 *  configurations to tell.
+	 */
+	protected IntervalSet[] getLookahead(ATNState start, DecisionCost cost) {
+		IntervalSet[] look = new IntervalSet[MAX_K];
+		Set<Config> configs = new HashSet<Config>();
+		closure(new Config(start, null), configs, new HashSet<Config>(), cost);
+		for (int depth = 0; depth < MAX_K; depth++) {
+			look[depth] = new IntervalSet();
+			Set<Config> next = new HashSet<Config>();
+			Set<Config> busy = new HashSet<Config>();
+			for (Config c : configs) {
+				if ( c.state==null ) { // end of input, which stays there
+					look[depth].add(Token.EOF);
+					next.add(c);
+					continue;
+				}
+				for (Transition t : c.state.getTransitions()) {
+					if ( t.isEpsilon() || t instanceof RuleTransition ) continue;
+					look[depth].addAll(getLabel(t));
+					// predicates past the first token aren't evaluated by prediction
+					closure(new Config(t.target, c.context), next, busy, null);
+				}
+			}
+			if ( next.size()>MAX_CONFIGS ) return null;
+			configs = next;
+		}
+		return look;
+	}
+
+	/** Add the configurations reachable from {@code c} without consuming a
+	 *  token that have a token transition, or with a {@code null} state at
+	 *  the end of the input. {@code cost} is flagged as predicated if a
+	 *  predicate is passed, unless it is {@code null}.
+	 */
+	protected void closure(Config c, Set<Config> configs, Set<Config> busy, DecisionCost cost) {
+		if ( !busy.add(c) || busy.size()>MAX_CONFIGS ) return;
+
+		ATNState s = c.state;
+		if ( s instanceof RuleStopState ) {
+			if ( c.context!=null ) {
+				closure(new Config(c.context.returnState, c.context.parent), configs, busy, cost);
+			}
+			else if ( s.getNumberOfTransitions()==0 ) {
+				configs.add(new Config(null, null)); // a rule nobody invokes
+			}
+			else {
+				// any rule invoking this one may follow; a start rule can
+				// also be followed by EOF
+				for (Transition t : s.getTransitions()) {
+					if ( t.isEpsilon() ) {
+						closure(new Config(t.target, null), configs, busy, cost);
+					}
+					else {
+						configs.add(new Config(null, null));
+					}
+				}
+			}
+			return;
+		}
+
+		for (Transition t : s.getTransitions()) {
+			if ( t instanceof RuleTransition ) {
+				if ( c.context==null || c.context.depth < MAX_STACK_DEPTH ) {
+					Context ctx = new Context(((RuleTransition)t).followState, c.context);
+					closure(new Config(t.target, ctx), configs, busy, cost);
+				}
+			}
+			else if ( t.isEpsilon() ) {
+				if ( t instanceof PredicateTransition && cost!=null ) {
+					cost.predicated = true;
+				}
+				closure(new Config(t.target, c.context), configs, busy, cost);
+			}
+			else {
+				configs.add(c);
+			}
+		}
+	}
+
+	protected IntervalSet getLabel(Transition t) {
+		if ( t instanceof WildcardTransition ) {
+			return vocabulary;
+		}
+		if ( t instanceof NotSetTransition ) {
+			return t.label().complement(vocabulary);
+		}
+		IntervalSet label = t.label();
+		return label!=null ? label : new IntervalSet();
+	}
+
+	/** The first depth (1..) at which {@code a} and {@code b} have no token
+	 *  in common, or -1 if there is none within {@link #MAX_K}.
+	 */
+	protected static int getDistinguishingDepth(IntervalSet[] a, IntervalSet[] b) {
+		for (int depth = 0; depth < MAX_K; depth++) {
+			if ( a[depth].and(b[depth]).isNil() ) {
+				return depth + 1;
+			}
+		}
+		return -1;
+	}
+
+	/** The number of leading depths at which {@code a} and {@code b} can
+	 *  only match the same single token.
+	 */
+	protected static int getCommonPrefix(IntervalSet[] a, IntervalSet[] b) {
+		int n = 0;
+		while ( n < MAX_K && a[n].size()==1 && a[n].equals(b[n]) && !a[n].contains(Token.EOF) ) {
+			n++;
+		}
+		return n;
+	}
+
+	/** Whether {@code s} is a loop decision or a block inside a loop, which
+	 *  are predicted once per iteration.
+	 */
+	protected static boolean isLoopDecision(DecisionState s) {
+		return s instanceof StarLoopEntryState || s instanceof PlusLoopbackState ||
+			   s instanceof StarBlockStartState || s instanceof PlusBlockStartState;
+	}
+
+	/** Map each decision state to the outermost grammar element it was
+	 *  built for. A block with a single alternative shares the state of its
+	 *  first element, so it never stands for a decision.
+	 */
+	static Map<DecisionState, GrammarAST> getDecisionASTs(Grammar g) {
+		Map<DecisionState, GrammarAST> asts = new HashMap<DecisionState, GrammarAST>();
+		for (GrammarAST node : g.ast.getNodesWithType((IntervalSet)null)) {
+			if ( node.getType()==ANTLRParser.BLOCK && node.getChildCount()==1 ) continue;
+			if ( node.atnState instanceof DecisionState && !asts.containsKey(node.atnState) ) {
+				asts.put((DecisionState)node.atnState, node);
+			}
+		}
+		return asts;
+	}
+
+	static GrammarAST getRuleAST(Rule r) {
+		if ( r instanceof LeftRecursiveRule ) {
+			return (GrammarAST)((LeftRecursiveRule)r).getOriginalAST().getChild(0);
+		}
+		return (GrammarAST)r.ast.getChild(0);
+	}
+}
@@ -18,6 +18,7 @@ import org.antlr.v4.runtime.atn.NotSetTransition;
 import org.antlr.v4.runtime.atn.RangeTransition;
 import org.antlr.v4.runtime.atn.SetTransition;
 import org.antlr.v4.runtime.atn.Transition;
+import org.antlr.v4.runtime.misc.IntRangeSet;
 import org.antlr.v4.runtime.misc.Interval;
 import org.antlr.v4.runtime.misc.IntervalSet;
 import org.antlr.v4.tool.ErrorType;
@@ -92,7 +93,7 @@ public class ATNOptimizer {
 				}
 
 				ATNState blockEndState = decision.transition(interval.a).target.transition(0).target;
-				IntervalSet matchSet = new IntervalSet();
+				IntRangeSet matchSet = new IntRangeSet();
 				for (int j = interval.a; j <= interval.b; j++) {
 					Transition matchTransition = decision.transition(j).target.transition(0);
 					if (matchTransition instanceof NotSetTransition) {
@@ -105,34 +106,29 @@ public class ATNOptimizer {
 						Interval setInterval = intervals.get(k);
 						int a = setInterval.a;
 						int b = setInterval.b;
-						if (a != -1 && b != -1) {
-							for (int v = a; v <= b; v++) {
-								if (matchSet.contains(v)) {
-									// TODO: Token is missing (i.e. position in source will not be displayed).
-									g.tool.errMgr.grammarError(ErrorType.CHARACTERS_COLLISION_IN_SET, g.fileName,
-											null,
-											CharSupport.getANTLRCharLiteralForChar(v),
-											CharSupport.getIntervalSetEscapedString(matchSet));
-									break;
-								}
-							}
+						if (a != -1 && b != -1 && matchSet.intersects(a, b)) {
+							int v = matchSet.and(IntRangeSet.of(a, b)).getMinElement();
+							// TODO: Token is missing (i.e. position in source will not be displayed).
+							g.tool.errMgr.grammarError(ErrorType.CHARACTERS_COLLISION_IN_SET, g.fileName,
+									null,
+									CharSupport.getANTLRCharLiteralForChar(v),
+									CharSupport.getIntervalSetEscapedString(matchSet.toIntervalSet()));
 						}
 					}
 					matchSet.addAll(set);
 				}
 
 				Transition newTransition;
-				if (matchSet.getIntervals().size() == 1) {
+				if (matchSet.getRangeCount() == 1) {
 					if (matchSet.size() == 1) {
 						newTransition = CodePointTransitions.createWithCodePoint(blockEndState, matchSet.getMinElement());
 					}
 					else {
-						Interval matchInterval = matchSet.getIntervals().get(0);
-						newTransition = CodePointTransitions.createWithCodePointRange(blockEndState, matchInterval.a, matchInterval.b);
+						newTransition = CodePointTransitions.createWithCodePointRange(blockEndState, matchSet.getRangeStart(0), matchSet.getRangeEnd(0));
 					}
 				}
 				else {
-					newTransition = new SetTransition(blockEndState, matchSet);
+					newTransition = new SetTransition(blockEndState, matchSet.toIntervalSet());
 				}
 
 				decision.transition(interval.a).target.setTransition(0, newTransition);
@@ -33,7 +33,7 @@ import org.antlr.v4.runtime.atn.RuleStartState;
 import org.antlr.v4.runtime.atn.SetTransition;
 import org.antlr.v4.runtime.atn.TokensStartState;
 import org.antlr.v4.runtime.atn.Transition;
-import org.antlr.v4.runtime.misc.Interval;
+import org.antlr.v4.runtime.misc.IntRangeSet;
 import org.antlr.v4.runtime.misc.IntervalSet;
 import org.antlr.v4.tool.ErrorType;
 import org.antlr.v4.tool.LexerGrammar;
@@ -267,7 +267,7 @@ public class LexerATNFactory extends ParserATNFactory {
 	public Handle set(GrammarAST associatedAST, List<GrammarAST> alts, boolean invert) {
 		ATNState left = newState(associatedAST);
 		ATNState right = newState(associatedAST);
-		IntervalSet set = new IntervalSet();
+		IntRangeSet set = new IntRangeSet();
 		for (GrammarAST t : alts) {
 			if ( t.getType()==ANTLRParser.RANGE ) {
 				int a = CharSupport.getCharValueFromGrammarCharLiteral(t.getChild(0).getText());
@@ -278,7 +278,7 @@ public class LexerATNFactory extends ParserATNFactory {
 				}
 			}
 			else if ( t.getType()==ANTLRParser.LEXER_CHAR_SET ) {
-				set.addAll(getSetFromCharSetLiteral(t));
+				set.addAll(getRangeSetFromCharSetLiteral(t));
 			}
 			else if ( t.getType()==ANTLRParser.STRING_LITERAL ) {
 				int c = CharSupport.getCharValueFromGrammarCharLiteral(t.getText());
@@ -297,16 +297,15 @@ public class LexerATNFactory extends ParserATNFactory {
 			}
 		}
 		if ( invert ) {
-			left.addTransition(new NotSetTransition(right, set));
+			left.addTransition(new NotSetTransition(right, set.toIntervalSet()));
 		}
 		else {
 			Transition transition;
-			if (set.getIntervals().size() == 1) {
-				Interval interval = set.getIntervals().get(0);
-				transition = CodePointTransitions.createWithCodePointRange(right, interval.a, interval.b);
+			if (set.getRangeCount() == 1) {
+				transition = CodePointTransitions.createWithCodePointRange(right, set.getRangeStart(0), set.getRangeEnd(0));
 			}
 			else {
-				transition = new SetTransition(right, set);
+				transition = new SetTransition(right, set.toIntervalSet());
 			}
 
 			left.addTransition(transition);
@@ -437,9 +436,16 @@ public class LexerATNFactory extends ParserATNFactory {
 	}
 
 	public IntervalSet getSetFromCharSetLiteral(GrammarAST charSetAST) {
+		return getRangeSetFromCharSetLiteral(charSetAST).toIntervalSet();
+	}
+
+	/** {@link #getSetFromCharSetLiteral} as a flat {@link IntRangeSet}, which
+	 *  merges large Unicode property sets in linear time.
+	 */
+	protected IntRangeSet getRangeSetFromCharSetLiteral(GrammarAST charSetAST) {
 		String chars = charSetAST.getText();
 		chars = chars.substring(1, chars.length() - 1);
-		IntervalSet set = new IntervalSet();
+		IntRangeSet set = new IntRangeSet();
 
 		if (chars.length() == 0) {
 			g.tool.errMgr.grammarError(ErrorType.EMPTY_STRINGS_AND_SETS_NOT_ALLOWED,
@@ -452,7 +458,7 @@ public class LexerATNFactory extends ParserATNFactory {
 		int n = chars.length();
 		for (int i = 0; i < n; ) {
 			if (state.mode == CharSetParseState.Mode.ERROR) {
-				return new IntervalSet();
+				return new IntRangeSet();
 			}
 			int c = chars.codePointAt(i);
 			int offset = Character.charCount(c);
@@ -492,7 +498,7 @@ public class LexerATNFactory extends ParserATNFactory {
 			i += offset;
 		}
 		if (state.mode == CharSetParseState.Mode.ERROR) {
-			return new IntervalSet();
+			return new IntRangeSet();
 		}
 		// Whether or not we were in a range, we'll add the last code point found to the set.
 		applyPrevState(charSetAST, set, state);
@@ -501,7 +507,7 @@ public class LexerATNFactory extends ParserATNFactory {
 
 	private CharSetParseState applyPrevStateAndMoveToCodePoint(
 			GrammarAST charSetAST,
-			IntervalSet set,
+			IntRangeSet set,
 			CharSetParseState state,
 			int codePoint) {
 		if (state.inRange) {
@@ -529,7 +535,7 @@ public class LexerATNFactory extends ParserATNFactory {
 
 	private CharSetParseState applyPrevStateAndMoveToProperty(
 			GrammarAST charSetAST,
-			IntervalSet set,
+			IntRangeSet set,
 			CharSetParseState state,
 			IntervalSet property) {
 		if (state.inRange) {
@@ -548,7 +554,7 @@ public class LexerATNFactory extends ParserATNFactory {
 		return state;
 	}
 
-	private void applyPrevState(GrammarAST charSetAST, IntervalSet set, CharSetParseState state) {
+	private void applyPrevState(GrammarAST charSetAST, IntRangeSet set, CharSetParseState state) {
 		switch (state.mode) {
 			case NONE:
 			case ERROR:
@@ -563,37 +569,46 @@ public class LexerATNFactory extends ParserATNFactory {
 		}
 	}
 
+	/** Report an error if {@code el} is already in {@code set}. The factory
+	 *  itself builds its sets as {@link IntRangeSet}s and calls the
+	 *  {@link IntRangeSet} overloads; these delegate to them.
+	 */
 	protected void checkSetCollision(GrammarAST ast, IntervalSet set, int el) {
 		checkSetCollision(ast, set, el, el);
 	}
 
 	protected void checkSetCollision(GrammarAST ast, IntervalSet set, int a, int b) {
-		for (int i = a; i <= b; i++) {
-			if (set.contains(i)) {
-				String setText;
-				if (ast.getChildren() == null) {
-					setText = ast.getText();
-				}
-				else {
-					StringBuilder sb = new StringBuilder();
-					for (Object child : ast.getChildren()) {
-						if (child instanceof RangeAST) {
-							sb.append(((RangeAST) child).getChild(0).getText());
-							sb.append("..");
-							sb.append(((RangeAST) child).getChild(1).getText());
-						}
-						else {
-							sb.append(((GrammarAST)child).getText());
-						}
-						sb.append(" | ");
+		checkSetCollision(ast, new IntRangeSet(set), a, b);
+	}
+
+	protected void checkSetCollision(GrammarAST ast, IntRangeSet set, int el) {
+		checkSetCollision(ast, set, el, el);
+	}
+
+	protected void checkSetCollision(GrammarAST ast, IntRangeSet set, int a, int b) {
+		if (set.intersects(a, b)) {
+			String setText;
+			if (ast.getChildren() == null) {
+				setText = ast.getText();
+			}
+			else {
+				StringBuilder sb = new StringBuilder();
+				for (Object child : ast.getChildren()) {
+					if (child instanceof RangeAST) {
+						sb.append(((RangeAST) child).getChild(0).getText());
+						sb.append("..");
+						sb.append(((RangeAST) child).getChild(1).getText());
+					}
+					else {
+						sb.append(((GrammarAST)child).getText());
 					}
-					sb.replace(sb.length() - 3, sb.length(), "");
-					setText = sb.toString();
+					sb.append(" | ");
 				}
-				g.tool.errMgr.grammarError(ErrorType.CHARACTERS_COLLISION_IN_SET, g.fileName, ast.getToken(),
-						CharSupport.getRangeEscapedString(a, b), setText);
-				break;
+				sb.replace(sb.length() - 3, sb.length(), "");
+				setText = sb.toString();
 			}
+			g.tool.errMgr.grammarError(ErrorType.CHARACTERS_COLLISION_IN_SET, g.fileName, ast.getToken(),
+					CharSupport.getRangeEscapedString(a, b), setText);
 		}
 	}
 
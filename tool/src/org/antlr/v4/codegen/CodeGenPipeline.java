@@ -119,6 +119,11 @@ public class CodeGenPipeline {
 				}
 			}
 		}
+		if ( g.tool.binary_atn && gen.getTarget().supportsBinaryATN() &&
+			 g.tool.errMgr.getNumErrors()==errorCount )
+		{
+			gen.writeSerializedATN();
+		}
 		gen.writeVocabFile();
 	}
 
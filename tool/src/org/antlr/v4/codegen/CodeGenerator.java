@@ -9,6 +9,7 @@ package org.antlr.v4.codegen;
 import org.antlr.v4.Tool;
 import org.antlr.v4.codegen.model.OutputModelObject;
 import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.atn.ATNSerializer;
 import org.antlr.v4.tool.ErrorType;
 import org.antlr.v4.tool.Grammar;
 import org.stringtemplate.v4.AutoIndentWriter;
@@ -17,6 +18,7 @@ import org.stringtemplate.v4.STGroup;
 import org.stringtemplate.v4.STWriter;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.Writer;
 import java.lang.reflect.Constructor;
 import java.util.LinkedHashMap;
@@ -195,6 +197,27 @@ public class CodeGenerator {
 		}
 	}
 
+	/** Write the ATN in the binary form loaded by recognizers generated
+	 *  with {@link Tool#binary_atn}.
+	 */
+	public void writeSerializedATN() {
+		String fileName = getSerializedATNFileName();
+		try {
+			OutputStream out = tool.getOutputFileStream(g, fileName);
+			try {
+				out.write(ATNSerializer.getSerializedAsBytes(g.atn));
+			}
+			finally {
+				out.close();
+			}
+		}
+		catch (IOException ioe) {
+			tool.errMgr.toolError(ErrorType.CANNOT_WRITE_FILE,
+								  ioe,
+								  fileName);
+		}
+	}
+
 	public void write(ST code, String fileName) {
 		try {
 //			long start = System.currentTimeMillis();
@@ -231,6 +254,13 @@ public class CodeGenerator {
 		return g.name+VOCAB_FILE_EXTENSION;
 	}
 
+	/** The binary ATN resource, which has to live next to the recognizer
+	 *  class; e.g., TParser.atn.
+	 */
+	public String getSerializedATNFileName() {
+		return g.getRecognizerName()+".atn";
+	}
+
 	public String getHeaderFileName() {
 		ST extST = getTemplates().getInstanceOf("headerFileExtension");
 		if ( extST==null ) return null;
@@ -14,6 +14,7 @@ import org.antlr.v4.misc.Utils;
 import org.antlr.v4.parse.ANTLRParser;
 import org.antlr.v4.runtime.RuntimeMetaData;
 import org.antlr.v4.runtime.Token;
+import org.antlr.v4.tool.ErrorManager;
 import org.antlr.v4.tool.ErrorType;
 import org.antlr.v4.tool.Grammar;
 import org.antlr.v4.tool.Rule;
@@ -26,6 +27,9 @@ import org.stringtemplate.v4.STGroupFile;
 import org.stringtemplate.v4.StringRenderer;
 import org.stringtemplate.v4.misc.STMessage;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
 /** */
 public abstract class Target {
 	/** For pure strings of Java 16-bit Unicode char, how can we display
@@ -45,6 +49,9 @@ public abstract class Target {
 	private final String language;
 	private STGroup templates;
 
+	private static final ConcurrentMap<String, STGroup> cachedTemplates = new ConcurrentHashMap<String, STGroup>();
+	private static final ThreadLocal<ErrorManager> currentErrorManager = new ThreadLocal<ErrorManager>();
+
 	protected Target(CodeGenerator gen, String language) {
 		targetCharValueEscape['\n'] = "\\n";
 		targetCharValueEscape['\r'] = "\\r";
@@ -84,12 +91,42 @@ public abstract class Target {
 			{
 				gen.tool.errMgr.toolError(ErrorType.INCOMPATIBLE_TOOL_AND_TEMPLATES, version, Tool.VERSION, language);
 			}
-			templates = loadTemplates();
+			templates = gen.tool.cacheTemplates ? getCachedTemplates() : loadTemplates();
 		}
 
+		if ( gen.tool.cacheTemplates ) currentErrorManager.set(gen.tool.errMgr);
 		return templates;
 	}
 
+	/** Forget the tool that template errors on the current thread go to.
+	 *  A tool with {@link Tool#cacheTemplates} set calls this when it is done
+	 *  processing grammars, so that the thread doesn't keep it alive.
+	 */
+	public static void clearTemplateErrorManager() {
+		currentErrorManager.remove();
+	}
+
+	protected STGroup getCachedTemplates() {
+		STGroup result = cachedTemplates.get(getLanguage());
+		if ( result==null ) {
+			result = loadTemplates();
+			if ( result==null ) return null;
+
+			// load eagerly; STGroupFile doesn't load lazily in a thread-safe way
+			result.load();
+			result.setListener(new TemplateErrorListener() {
+				@Override
+				protected ErrorManager getErrorManager() {
+					return currentErrorManager.get();
+				}
+			});
+			STGroup existing = cachedTemplates.putIfAbsent(getLanguage(), result);
+			if ( existing!=null ) result = existing;
+		}
+
+		return result;
+	}
+
 	protected void genFile(Grammar g, ST outputFileST, String fileName)
 	{
 		getCodeGenerator().write(outputFileST, fileName);
@@ -529,29 +566,10 @@ public abstract class Target {
 		if ( result==null ) return null;
 		result.registerRenderer(Integer.class, new NumberRenderer());
 		result.registerRenderer(String.class, new StringRenderer());
-		result.setListener(new STErrorListener() {
+		result.setListener(new TemplateErrorListener() {
 			@Override
-			public void compileTimeError(STMessage msg) {
-				reportError(msg);
-			}
-
-			@Override
-			public void runTimeError(STMessage msg) {
-				reportError(msg);
-			}
-
-			@Override
-			public void IOError(STMessage msg) {
-				reportError(msg);
-			}
-
-			@Override
-			public void internalError(STMessage msg) {
-				reportError(msg);
-			}
-
-			private void reportError(STMessage msg) {
-				getCodeGenerator().tool.errMgr.toolError(ErrorType.STRING_TEMPLATE_WARNING, msg.cause, msg.toString());
+			protected ErrorManager getErrorManager() {
+				return getCodeGenerator().tool.errMgr;
 			}
 		});
 
@@ -581,4 +599,43 @@ public abstract class Target {
 
 	/** @since 4.6 */
 	public boolean needsHeader() { return false; }; // Override in targets that need header files.
+
+	/** Can the serialized ATN be loaded from a binary resource rather than a
+	 *  literal in the generated code? See {@link org.antlr.v4.Tool#binary_atn}.
+	 */
+	public boolean supportsBinaryATN() { return false; }
+
+	protected static abstract class TemplateErrorListener implements STErrorListener {
+		protected abstract ErrorManager getErrorManager();
+
+		@Override
+		public void compileTimeError(STMessage msg) {
+			reportError(msg);
+		}
+
+		@Override
+		public void runTimeError(STMessage msg) {
+			reportError(msg);
+		}
+
+		@Override
+		public void IOError(STMessage msg) {
+			reportError(msg);
+		}
+
+		@Override
+		public void internalError(STMessage msg) {
+			reportError(msg);
+		}
+
+		private void reportError(STMessage msg) {
+			ErrorManager errMgr = getErrorManager();
+			if ( errMgr!=null ) {
+				errMgr.toolError(ErrorType.STRING_TEMPLATE_WARNING, msg.cause, msg.toString());
+			}
+			else {
+				ErrorManager.internalError(msg.toString());
+			}
+		}
+	}
 }
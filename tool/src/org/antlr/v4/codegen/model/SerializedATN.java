@@ -6,6 +6,7 @@
 
 package org.antlr.v4.codegen.model;
 
+import org.antlr.v4.codegen.CodeGenerator;
 import org.antlr.v4.codegen.OutputModelFactory;
 import org.antlr.v4.runtime.atn.ATN;
 import org.antlr.v4.runtime.atn.ATNSerializer;
@@ -17,8 +18,20 @@ import java.util.List;
 public class SerializedATN extends OutputModelObject {
 	// TODO: make this into a kind of decl or multiple?
 	public List<String> serialized;
+	/** Non-null if the ATN is loaded from this binary resource instead. */
+	public String resourceName;
+	public String recognizerName;
+
 	public SerializedATN(OutputModelFactory factory, ATN atn) {
 		super(factory);
+		CodeGenerator gen = factory.getGenerator();
+		recognizerName = factory.getGrammar().getRecognizerName();
+		if ( factory.getGrammar().tool.binary_atn && gen.getTarget().supportsBinaryATN() ) {
+			resourceName = gen.getSerializedATNFileName();
+			serialized = new ArrayList<String>();
+			return;
+		}
+
 		IntegerList data = ATNSerializer.getSerialized(atn);
 		serialized = new ArrayList<String>(data.size());
 		for (int c : data.toArray()) {
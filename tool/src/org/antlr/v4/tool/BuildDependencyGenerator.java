@@ -83,6 +83,10 @@ public class BuildDependencyGenerator {
           files.add(getOutputFile(generator.getRecognizerFileName(true)));
         }
         files.add(getOutputFile(generator.getRecognizerFileName(false)));
+        boolean binaryATN = g.tool.binary_atn && generator.getTarget().supportsBinaryATN();
+        if ( binaryATN ) {
+            files.add(getOutputFile(generator.getSerializedATNFileName()));
+        }
         // add output vocab file; e.g., T.tokens. This is always generated to
         // the base output directory, which will be just . if there is no -o option
         //
@@ -104,6 +108,9 @@ public class BuildDependencyGenerator {
             files.add(getOutputFile(lexer));
             String lexerTokens = g.name + suffix + CodeGenerator.VOCAB_FILE_EXTENSION;
             files.add(getOutputFile(lexerTokens));
+            if ( binaryATN ) {
+                files.add(getOutputFile(g.name + suffix + ".atn"));
+            }
 
             // TLexer.h
             if (headerExtST != null) {
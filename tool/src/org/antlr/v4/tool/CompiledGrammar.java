@@ -0,0 +1,346 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v4.tool;
+
+import org.antlr.v4.codegen.CodeGenerator;
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.Lexer;
+import org.antlr.v4.runtime.Parser;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.TokenStream;
+import org.antlr.v4.runtime.atn.ATNSerializer;
+import org.stringtemplate.v4.AutoIndentWriter;
+import org.stringtemplate.v4.ST;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URI;
+import java.security.CodeSource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/** The Java recognizers of a grammar loaded at runtime, generated with the
+ *  Java target and compiled in memory, as an alternative to
+ *  {@link Grammar#createLexerInterpreter} and
+ *  {@link Grammar#createParserInterpreter}. The recognizers are exactly the
+ *  ones the tool would generate for the grammar, so they parse at the speed
+ *  of generated code and also run the grammar's actions and predicates,
+ *  which must be written in Java.
+ *
+ *  <p>Compiling takes about as long as running javac on the generated files,
+ *  so compile a grammar once and create as many lexers and parsers from it as
+ *  needed; they share the DFA cache like instances of a generated parser.
+ *  The classes are defined by a class loader private to this object, so they
+ *  are unloaded with it. Compiling requires a JDK; on a JRE,
+ *  {@link #compile} throws {@link UnsupportedOperationException}.</p>
+ *
+ *  @since 4.7.1
+ */
+public class CompiledGrammar {
+	public final Grammar g;
+
+	protected final Class<? extends Lexer> lexerClass;
+	protected final Class<? extends Parser> parserClass;
+
+	/** The rule functions of the parser by rule index. */
+	protected final Method[] ruleMethods;
+
+	protected CompiledGrammar(Grammar g, Class<? extends Lexer> lexerClass, Class<? extends Parser> parserClass) {
+		this.g = g;
+		this.lexerClass = lexerClass;
+		this.parserClass = parserClass;
+		if ( parserClass!=null ) {
+			String[] ruleNames = g.getRuleNames();
+			ruleMethods = new Method[ruleNames.length];
+			for (int i = 0; i < ruleNames.length; i++) {
+				try {
+					ruleMethods[i] = parserClass.getMethod(ruleNames[i]);
+				}
+				catch (NoSuchMethodException nsme) {
+					// a rule with arguments; it can't be a start rule
+				}
+			}
+		}
+		else {
+			ruleMethods = null;
+		}
+	}
+
+	/** Generate and compile the recognizers of {@code g}; both the lexer and
+	 *  the parser of a combined grammar.
+	 *
+	 *  @throws IllegalStateException if the grammar has errors or the
+	 *  generated code doesn't compile, e.g. because of an action.
+	 *  @throws UnsupportedOperationException if no Java compiler is available.
+	 */
+	public static CompiledGrammar compile(Grammar g) {
+		if ( g.atn==null || g.tool.getNumErrors()>0 ) {
+			throw new IllegalStateException("grammar "+g.name+" has errors");
+		}
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		if ( compiler==null ) {
+			throw new UnsupportedOperationException("no Java compiler available to compile grammar "+g.name);
+		}
+
+		Map<String, String> sources = new LinkedHashMap<String, String>();
+		Map<String, byte[]> resources = new HashMap<String, byte[]>();
+		Grammar lexerGrammar = g.isCombined() ? g.implicitLexer : g.isLexer() ? g : null;
+		Grammar parserGrammar = g.isLexer() ? null : g;
+		if ( lexerGrammar!=null ) generate(lexerGrammar, sources, resources);
+		if ( parserGrammar!=null ) generate(parserGrammar, sources, resources);
+
+		Map<String, byte[]> classes = compile(compiler, g, sources);
+		ClassLoader loader = new GrammarClassLoader(Parser.class.getClassLoader(), classes, resources);
+		return new CompiledGrammar(g,
+								   lexerGrammar!=null ? findClass(loader, classes, lexerGrammar, Lexer.class) : null,
+								   parserGrammar!=null ? findClass(loader, classes, parserGrammar, Parser.class) : null);
+	}
+
+	public Lexer createLexer(CharStream input) {
+		if ( lexerClass==null ) {
+			throw new IllegalStateException("A lexer can only be created for a lexer or combined grammar.");
+		}
+		return newInstance(lexerClass, CharStream.class, input);
+	}
+
+	public Parser createParser(TokenStream input) {
+		if ( parserClass==null ) {
+			throw new IllegalStateException("A parser can only be created for a parser or combined grammar.");
+		}
+		return newInstance(parserClass, TokenStream.class, input);
+	}
+
+	/** Parse starting at rule {@code startRuleIndex} like
+	 *  {@link org.antlr.v4.runtime.ParserInterpreter#parse}; {@code parser}
+	 *  must come from {@link #createParser}.
+	 */
+	public ParserRuleContext parse(Parser parser, int startRuleIndex) {
+		Method rule = ruleMethods!=null ? ruleMethods[startRuleIndex] : null;
+		if ( rule==null ) {
+			throw new IllegalArgumentException("rule "+startRuleIndex+" can't be a start rule");
+		}
+		try {
+			return (ParserRuleContext)rule.invoke(parser);
+		}
+		catch (InvocationTargetException ite) {
+			Throwable cause = ite.getCause();
+			if ( cause instanceof RuntimeException ) throw (RuntimeException)cause;
+			if ( cause instanceof Error ) throw (Error)cause;
+			throw new IllegalStateException(cause);
+		}
+		catch (IllegalAccessException iae) {
+			throw new IllegalStateException(iae);
+		}
+	}
+
+	public Class<? extends Lexer> getLexerClass() {
+		return lexerClass;
+	}
+
+	public Class<? extends Parser> getParserClass() {
+		return parserClass;
+	}
+
+	/** Generate the same Java files as {@link org.antlr.v4.codegen.CodeGenPipeline},
+	 *  whatever the language option of the grammar.
+	 */
+	protected static void generate(Grammar g, Map<String, String> sources, Map<String, byte[]> resources) {
+		int errorCount = g.tool.errMgr.getNumErrors();
+		CodeGenerator gen = new CodeGenerator(g.tool, g, "Java");
+		if ( g.isLexer() ) {
+			sources.put(gen.getRecognizerFileName(), render(gen, gen.generateLexer()));
+		}
+		else {
+			sources.put(gen.getRecognizerFileName(), render(gen, gen.generateParser()));
+			if ( g.tool.gen_listener ) {
+				sources.put(gen.getListenerFileName(), render(gen, gen.generateListener()));
+				sources.put(gen.getBaseListenerFileName(), render(gen, gen.generateBaseListener()));
+			}
+			if ( g.tool.gen_visitor ) {
+				sources.put(gen.getVisitorFileName(), render(gen, gen.generateVisitor()));
+				sources.put(gen.getBaseVisitorFileName(), render(gen, gen.generateBaseVisitor()));
+			}
+		}
+		if ( g.tool.binary_atn ) {
+			resources.put(gen.getSerializedATNFileName(), ATNSerializer.getSerializedAsBytes(g.atn));
+		}
+		if ( g.tool.errMgr.getNumErrors()>errorCount ) {
+			throw new IllegalStateException("cannot generate code for grammar "+g.name);
+		}
+	}
+
+	protected static String render(CodeGenerator gen, ST code) {
+		StringWriter w = new StringWriter();
+		AutoIndentWriter wr = new AutoIndentWriter(w);
+		wr.setLineWidth(gen.lineWidth);
+		try {
+			code.write(wr);
+		}
+		catch (IOException ioe) {
+			throw new IllegalStateException(ioe); // can't happen with a StringWriter
+		}
+		return w.toString();
+	}
+
+	protected static Map<String, byte[]> compile(JavaCompiler compiler, Grammar g, Map<String, String> sources) {
+		List<JavaFileObject> units = new ArrayList<JavaFileObject>();
+		for (Map.Entry<String, String> source : sources.entrySet()) {
+			units.add(new SourceFile(source.getKey(), source.getValue()));
+		}
+		List<String> options = Arrays.asList("-proc:none", "-nowarn", "-classpath", getRuntimeClasspath());
+		DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<JavaFileObject>();
+		MemoryFileManager fileManager = new MemoryFileManager(compiler.getStandardFileManager(diagnostics, null, null));
+		boolean ok = compiler.getTask(null, fileManager, diagnostics, options, null, units).call();
+		if ( !ok ) {
+			StringBuilder buf = new StringBuilder("cannot compile grammar ").append(g.name);
+			for (Diagnostic<? extends JavaFileObject> d : diagnostics.getDiagnostics()) {
+				if ( d.getKind()==Diagnostic.Kind.ERROR ) {
+					buf.append('\n').append(d.getSource()!=null ? d.getSource().getName() : "")
+					   .append(':').append(d.getLineNumber()).append(": ").append(d.getMessage(null));
+				}
+			}
+			throw new IllegalStateException(buf.toString());
+		}
+		Map<String, byte[]> classes = new HashMap<String, byte[]>();
+		for (Map.Entry<String, ByteArrayOutputStream> c : fileManager.classes.entrySet()) {
+			classes.put(c.getKey(), c.getValue().toByteArray());
+		}
+		return classes;
+	}
+
+	/** The class path plus the location of the runtime, in case the runtime
+	 *  isn't on the class path, as in an application server.
+	 */
+	protected static String getRuntimeClasspath() {
+		String classpath = System.getProperty("java.class.path");
+		try {
+			CodeSource source = Parser.class.getProtectionDomain().getCodeSource();
+			if ( source!=null && source.getLocation()!=null ) {
+				classpath = new File(source.getLocation().toURI()).getPath()+File.pathSeparator+classpath;
+			}
+		}
+		catch (Exception e) {
+			// use the class path as is
+		}
+		return classpath;
+	}
+
+	protected static <T> Class<? extends T> findClass(ClassLoader loader, Map<String, byte[]> classes, Grammar g, Class<T> type) {
+		String name = g.getRecognizerName();
+		for (String className : classes.keySet()) {
+			if ( className.equals(name) || className.endsWith("."+name) ) {
+				try {
+					return Class.forName(className, true, loader).asSubclass(type);
+				}
+				catch (ClassNotFoundException cnfe) {
+					throw new IllegalStateException(cnfe);
+				}
+			}
+		}
+		throw new IllegalStateException("no class "+name+" compiled for grammar "+g.name);
+	}
+
+	protected static <T> T newInstance(Class<? extends T> c, Class<?> argType, Object arg) {
+		try {
+			Constructor<? extends T> ctor = c.getConstructor(argType);
+			return ctor.newInstance(arg);
+		}
+		catch (InvocationTargetException ite) {
+			Throwable cause = ite.getCause();
+			if ( cause instanceof RuntimeException ) throw (RuntimeException)cause;
+			throw new IllegalStateException(cause);
+		}
+		catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	protected static class SourceFile extends SimpleJavaFileObject {
+		private final String code;
+
+		public SourceFile(String fileName, String code) {
+			super(URI.create("string:///"+fileName), Kind.SOURCE);
+			this.code = code;
+		}
+
+		@Override
+		public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+			return code;
+		}
+	}
+
+	/** Keeps the compiled classes in memory. */
+	protected static class MemoryFileManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
+		public final Map<String, ByteArrayOutputStream> classes = new LinkedHashMap<String, ByteArrayOutputStream>();
+
+		public MemoryFileManager(StandardJavaFileManager fileManager) {
+			super(fileManager);
+		}
+
+		@Override
+		public JavaFileObject getJavaFileForOutput(Location location, final String className, JavaFileObject.Kind kind, FileObject sibling) {
+			URI uri = URI.create("mem:///"+className.replace('.', '/')+kind.extension);
+			return new SimpleJavaFileObject(uri, kind) {
+				@Override
+				public OutputStream openOutputStream() {
+					ByteArrayOutputStream out = new ByteArrayOutputStream();
+					classes.put(className, out);
+					return out;
+				}
+			};
+		}
+	}
+
+	/** Defines the compiled classes of one grammar and serves its binary ATN
+	 *  resources, if any, by file name.
+	 */
+	protected static class GrammarClassLoader extends ClassLoader {
+		private final Map<String, byte[]> classes;
+		private final Map<String, byte[]> resources;
+
+		public GrammarClassLoader(ClassLoader parent, Map<String, byte[]> classes, Map<String, byte[]> resources) {
+			super(parent);
+			this.classes = classes;
+			this.resources = resources;
+		}
+
+		@Override
+		protected Class<?> findClass(String name) throws ClassNotFoundException {
+			byte[] bytes = classes.get(name);
+			if ( bytes==null ) throw new ClassNotFoundException(name);
+			return defineClass(name, bytes, 0, bytes.length);
+		}
+
+		@Override
+		public InputStream getResourceAsStream(String name) {
+			byte[] bytes = resources.get(name.substring(name.lastIndexOf('/') + 1));
+			if ( bytes!=null ) return new ByteArrayInputStream(bytes);
+			return super.getResourceAsStream(name);
+		}
+	}
+}
@@ -58,11 +58,11 @@ public class DOTGenerator {
 	}
 
 	public String getDOT(DFA dfa, boolean isLexer) {
-		if ( dfa.s0==null )	return null;
+		if ( dfa.getStartState()==null )	return null;
 
 		ST dot = stlib.getInstanceOf("dfa");
 		dot.add("name", "DFA"+dfa.decision);
-		dot.add("startState", dfa.s0.stateNumber);
+		dot.add("startState", dfa.getStartState().stateNumber);
 //		dot.add("useBox", Tool.internalOption_ShowATNConfigsInDFA);
 		dot.add("rankdir", rankdir);
 
@@ -14,8 +14,10 @@ import org.stringtemplate.v4.misc.ErrorBuffer;
 
 import java.io.File;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.EnumSet;
+import java.util.List;
 import java.util.Set;
 
 public class ErrorManager {
@@ -35,6 +37,11 @@ public class ErrorManager {
 
     ErrorBuffer initSTListener = new ErrorBuffer();
 
+	/** Messages of the current thread are collected here instead of being
+	 *  emitted while a buffer is active; see {@link #startMessageBuffer}.
+	 */
+	private final ThreadLocal<MessageBuffer> messageBuffer = new ThreadLocal<MessageBuffer>();
+
 	public ErrorManager(Tool tool) {
 		this.tool = tool;
 	}
@@ -109,7 +116,14 @@ public class ErrorManager {
         return format.getInstanceOf("wantsSingleLineMessage").render().equals("true");
     }
 
-	public void info(String msg) { tool.info(msg); }
+	public void info(String msg) {
+		MessageBuffer buffer = messageBuffer.get();
+		if ( buffer!=null ) {
+			buffer.entries.add(new BufferedMessage(null, null, msg));
+			return;
+		}
+		tool.info(msg);
+	}
 
 	public void syntaxError(ErrorType etype,
 								   String fileName,
@@ -164,15 +178,60 @@ public class ErrorManager {
 	}
 
 	public void leftRecursionCycles(String fileName, Collection<? extends Collection<Rule>> cycles) {
-		errors++;
 		ANTLRMessage msg = new LeftRecursionCyclesMessage(fileName, cycles);
+		MessageBuffer buffer = messageBuffer.get();
+		if ( buffer!=null ) {
+			buffer.errors++;
+			buffer.entries.add(new BufferedMessage(null, msg, null));
+			return;
+		}
+		errors++;
 		tool.error(msg);
 	}
 
+	/** Return the number of errors so far. While a message buffer is active
+	 *  on the calling thread, only the errors in that buffer are counted.
+	 */
     public int getNumErrors() {
+		MessageBuffer buffer = messageBuffer.get();
+		if ( buffer!=null ) return buffer.errors;
         return errors;
     }
 
+	/** Collect all messages subsequently reported by the calling thread in a
+	 *  new buffer rather than sending them to the tool listeners. This lets
+	 *  several grammars be processed concurrently while their messages are
+	 *  still reported in a deterministic order with {@link #replay}.
+	 */
+	public void startMessageBuffer() {
+		messageBuffer.set(new MessageBuffer(tool.warnings_are_errors));
+	}
+
+	/** Deactivate the message buffer of the calling thread and return it. */
+	public MessageBuffer stopMessageBuffer() {
+		MessageBuffer buffer = messageBuffer.get();
+		messageBuffer.remove();
+		return buffer;
+	}
+
+	/** Emit the messages of {@code buffer} as if they had been reported
+	 *  directly, updating the error and warning counts.
+	 */
+	public synchronized void replay(MessageBuffer buffer) {
+		for (BufferedMessage m : buffer.entries) {
+			if ( m.msg==null ) {
+				tool.info(m.info);
+			}
+			else if ( m.etype==null ) {
+				errors++;
+				tool.error(m.msg);
+			}
+			else {
+				emit(m.etype, m.msg);
+			}
+		}
+	}
+
     /** Return first non ErrorManager code location for generating messages */
     private static StackTraceElement getLastNonErrorManagerCodeLocation(Throwable e) {
         StackTraceElement[] stack = e.getStackTrace();
@@ -191,6 +250,12 @@ public class ErrorManager {
 
 	@SuppressWarnings("fallthrough")
 	public void emit(ErrorType etype, ANTLRMessage msg) {
+		MessageBuffer buffer = messageBuffer.get();
+		if ( buffer!=null ) {
+			buffer.emit(etype, msg);
+			return;
+		}
+
 		switch ( etype.severity ) {
 			case WARNING_ONE_OFF:
 				if ( errorTypes.contains(etype) ) break;
@@ -301,4 +366,56 @@ public class ErrorManager {
         // one error manager
         throw new Error("ANTLR ErrorManager panic");
     }
+
+	/** The messages reported by one thread between {@link #startMessageBuffer}
+	 *  and {@link #stopMessageBuffer}, with their error and warning counts.
+	 */
+	public static class MessageBuffer {
+		protected final boolean warningsAreErrors;
+		protected final List<BufferedMessage> entries = new ArrayList<BufferedMessage>();
+		protected final Set<ErrorType> errorTypes = EnumSet.noneOf(ErrorType.class);
+		protected int errors;
+		protected int warnings;
+
+		public MessageBuffer(boolean warningsAreErrors) {
+			this.warningsAreErrors = warningsAreErrors;
+		}
+
+		public int getNumErrors() { return errors; }
+
+		public int getNumWarnings() { return warnings; }
+
+		@SuppressWarnings("fallthrough")
+		protected void emit(ErrorType etype, ANTLRMessage msg) {
+			switch ( etype.severity ) {
+				case WARNING_ONE_OFF:
+					if ( errorTypes.contains(etype) ) break;
+				case WARNING:
+					warnings++;
+					// Tool.warning() reports an extra error for -Werror on replay
+					if ( warningsAreErrors ) errors++;
+					entries.add(new BufferedMessage(etype, msg, null));
+					break;
+				case ERROR_ONE_OFF:
+					if ( errorTypes.contains(etype) ) break;
+				case ERROR:
+					errors++;
+					entries.add(new BufferedMessage(etype, msg, null));
+					break;
+			}
+			errorTypes.add(etype);
+		}
+	}
+
+	protected static class BufferedMessage {
+		public final ErrorType etype;
+		public final ANTLRMessage msg;
+		public final String info;
+
+		public BufferedMessage(ErrorType etype, ANTLRMessage msg, String info) {
+			this.etype = etype;
+			this.msg = msg;
+			this.info = info;
+		}
+	}
 }
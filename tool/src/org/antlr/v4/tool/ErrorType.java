@@ -1073,6 +1073,32 @@ public enum ErrorType {
 			182,
 			"unicode property escapes not allowed in lexer charset range: <arg>",
 			ErrorSeverity.ERROR),
+	/**
+	 * Compiler Warning 184.
+	 *
+	 * <p>With {@code -Xperf-lint}, a parser decision that is likely to be
+	 * expensive to predict: it needs deep lookahead or possibly full-context
+	 * prediction, evaluates semantic predicates, or has alternatives that
+	 * start with the same tokens. The estimated cost ranks the warnings, which
+	 * are reported most expensive first.</p>
+	 *
+	 * <pre>
+	 * grammar T;
+	 * s : ID '=' ID ';'   // warning: alternatives 1 and 2 start with the same 2 tokens
+	 *   | ID '=' INT ';'
+	 *   ;
+	 * </pre>
+	 */
+	EXPENSIVE_DECISION(184, "decision in rule <arg> may be expensive to predict (estimated cost <arg2>): <arg3>", ErrorSeverity.WARNING),
+	/**
+	 * Compiler Warning 185.
+	 *
+	 * <p>With {@code -Xprofile-report}, the decision profile was not written by
+	 * a parser generated from this version of the grammar: the number of
+	 * decisions or ATN states differs, or the file is not a profile. No report
+	 * is printed.</p>
+	 */
+	PROFILE_MISMATCH(185, "decision profile <arg> doesn't match grammar <arg2>: <arg3>", ErrorSeverity.WARNING),
 
 	/*
 	 * Backward incompatibility errors
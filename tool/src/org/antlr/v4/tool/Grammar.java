@@ -337,6 +337,7 @@ public class Grammar implements AttributeResolver {
 			throw new IllegalStateException("expected ast to have a token stream");
 		}
 
+		this.name = (ast.getChild(0)).getText();
 		this.tokenStream = ast.tokenStream;
 		this.originalTokenStream = this.tokenStream;
 
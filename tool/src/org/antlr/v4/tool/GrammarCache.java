@@ -0,0 +1,227 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v4.tool;
+
+import org.antlr.v4.Tool;
+import org.antlr.v4.parse.TokenVocabParser;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/** An on-disk record of the inputs and outputs of each grammar processed by
+ *  the tool, so that grammars whose inputs haven't changed since the last
+ *  run can be skipped entirely.
+ *
+ *  For each grammar we store a hash of the tool version and options, and a
+ *  content hash of the grammar file, of every imported grammar file and of
+ *  the tokenVocab file it read, as well as of every file it generated. The
+ *  grammar is up to date when all of these still match. Since a dependent
+ *  grammar records the hash of the .tokens file it read, it is regenerated
+ *  exactly when the grammar providing its vocabulary produced different
+ *  tokens, and otherwise reuses the existing .tokens and .interp files.
+ *
+ *  Warnings are not repeated for skipped grammars.
+ */
+public class GrammarCache {
+	public static final String CACHE_FILE_EXTENSION = ".cache";
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	protected final Tool tool;
+	protected final File directory;
+	protected final String optionsHash;
+
+	/** Files written for the grammar being processed on the current thread. */
+	private final ThreadLocal<List<File>> outputFiles = new ThreadLocal<List<File>>();
+
+	public GrammarCache(Tool tool, File directory) {
+		this.tool = tool;
+		this.directory = directory;
+		this.optionsHash = computeOptionsHash(tool);
+	}
+
+	public File getDirectory() {
+		return directory;
+	}
+
+	/** Return true if the last successful run on {@code g} had the same
+	 *  options and inputs as now and its outputs haven't been modified.
+	 */
+	public boolean isUpToDate(Grammar g) {
+		File cacheFile = getCacheFile(g);
+		if ( !cacheFile.exists() ) return false;
+
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(cacheFile), UTF8))) {
+			if ( !(Tool.VERSION+" "+optionsHash).equals(reader.readLine()) ) return false;
+
+			boolean empty = true;
+			String line;
+			while ( (line = reader.readLine())!=null ) {
+				// "<hash> <path>"; the path may contain spaces
+				int space = line.indexOf(' ');
+				if ( space<0 ) return false;
+				String hash = line.substring(0, space);
+				File file = new File(line.substring(space + 1));
+				if ( !file.exists() || !hash.equals(hashFile(file)) ) return false;
+				empty = false;
+			}
+
+			return !empty;
+		}
+		catch (IOException ioe) {
+			return false;
+		}
+	}
+
+	/** Start collecting the files written by the current thread. */
+	public void startRecording() {
+		outputFiles.set(new ArrayList<File>());
+	}
+
+	/** Called by the tool for every generated file. */
+	public void fileWritten(File file) {
+		List<File> files = outputFiles.get();
+		if ( files!=null ) files.add(file);
+	}
+
+	/** Stop collecting and return the files written since
+	 *  {@link #startRecording}.
+	 */
+	public List<File> stopRecording() {
+		List<File> files = outputFiles.get();
+		outputFiles.remove();
+		return files;
+	}
+
+	/** Forget about {@code g}; it is processed again by the next run. */
+	public void invalidate(Grammar g) {
+		File cacheFile = getCacheFile(g);
+		if ( cacheFile.exists() && !cacheFile.delete() ) {
+			tool.errMgr.toolError(ErrorType.CANNOT_WRITE_FILE, cacheFile);
+		}
+	}
+
+	/** Record the inputs of {@code g}, which has just been processed
+	 *  successfully, and the files it generated.
+	 */
+	public void update(Grammar g, List<File> outputs) {
+		Set<File> files = new LinkedHashSet<File>();
+		files.add(new File(g.fileName));
+		List<Grammar> imports = g.getAllImportedGrammars();
+		if ( imports!=null ) {
+			for (Grammar imported : imports) {
+				files.add(new File(imported.fileName));
+			}
+		}
+		if ( g.getOptionString("tokenVocab")!=null ) {
+			files.add(new TokenVocabParser(g).getImportedVocabFile());
+		}
+		files.addAll(outputs);
+
+		File cacheFile = getCacheFile(g);
+		if ( !directory.exists() ) directory.mkdirs();
+		try (Writer w = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(cacheFile), UTF8))) {
+			w.write(Tool.VERSION+" "+optionsHash+"\n");
+			for (File file : files) {
+				w.write(hashFile(file)+" "+file.getAbsolutePath()+"\n");
+			}
+		}
+		catch (IOException ioe) {
+			tool.errMgr.toolError(ErrorType.CANNOT_WRITE_FILE, ioe, cacheFile);
+		}
+	}
+
+	/** The cache file of {@code g}, named after the grammar and a hash of its
+	 *  path, so that grammars with the same name in different directories
+	 *  don't share one.
+	 */
+	protected File getCacheFile(Grammar g) {
+		String path = new File(g.fileName).getAbsolutePath();
+		return new File(directory, g.name + "-" + hash(path.getBytes(UTF8)).substring(0, 16) + CACHE_FILE_EXTENSION);
+	}
+
+	/** Tool options that only affect how the tool runs or reports messages,
+	 *  not what it generates.
+	 */
+	protected static final Set<String> IGNORED_OPTIONS = new HashSet<String>(Arrays.asList(
+		"msgFormat", "longMessages", "launch_ST_inspector", "ST_inspector_wait_for_close",
+		"log", "parallel", "cacheDirectory", "profileReport"));
+
+	/** Hash every tool option that can affect generated code. */
+	protected static String computeOptionsHash(Tool tool) {
+		Map<String, Object> options = new TreeMap<String, Object>();
+		for (Tool.Option o : Tool.optionDefs) {
+			if ( o.fieldName.isEmpty() || IGNORED_OPTIONS.contains(o.fieldName) ) continue;
+			try {
+				options.put(o.fieldName, tool.getClass().getField(o.fieldName).get(tool));
+			}
+			catch (Exception e) {
+				options.put(o.fieldName, null);
+			}
+		}
+		options.put("inputDirectory", tool.inputDirectory);
+		if ( tool.grammarOptions!=null ) {
+			options.put("grammarOptions", new TreeMap<String, String>(tool.grammarOptions));
+		}
+		return hash(options.toString().getBytes(UTF8));
+	}
+
+	protected static String hashFile(File file) throws IOException {
+		if ( !file.exists() ) return "-";
+
+		MessageDigest digest = newDigest();
+		try (InputStream in = new FileInputStream(file)) {
+			byte[] buffer = new byte[8192];
+			int n;
+			while ( (n = in.read(buffer))>0 ) {
+				digest.update(buffer, 0, n);
+			}
+		}
+		return toHex(digest.digest());
+	}
+
+	protected static String hash(byte[] data) {
+		return toHex(newDigest().digest(data));
+	}
+
+	private static MessageDigest newDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		}
+		catch (NoSuchAlgorithmException nsae) {
+			throw new IllegalStateException(nsae);
+		}
+	}
+
+	private static String toHex(byte[] bytes) {
+		StringBuilder buf = new StringBuilder(bytes.length * 2);
+		for (byte b : bytes) {
+			buf.append(Character.forDigit((b >> 4) & 0xF, 16));
+			buf.append(Character.forDigit(b & 0xF, 16));
+		}
+		return buf.toString();
+	}
+}